@@ -0,0 +1,211 @@
+package com.fhdw.biot.speech.iot;
+
+import static org.junit.Assert.*;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.os.Bundle;
+import android.util.Log;
+import androidx.room.Room;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.sqlite.db.SupportSQLiteStatement;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+import com.fhdw.biot.speech.iot.sensor.SampleChunk;
+import database.BlockSampleStore;
+import database.DB;
+import database.RoomBlockStorage;
+import database.SampleStreams;
+import database.entities.SensorReading;
+import java.util.Locale;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * Row tables vs. {@link BlockSampleStore}: bytes per sample, ingest rate and range-scan throughput
+ * for the same accel samples (100 Hz with jitter, values with 2 decimals like the simulator).
+ *
+ * <p>Both sides write inside one transaction and read the whole range through their streaming API,
+ * so the numbers compare storage formats, not batching. Results are logged under the tag
+ * "BlockStoreBenchmark". More rows: {@code
+ * -Pandroid.testInstrumentationRunnerArguments.blockBenchRows=3600000}
+ */
+@RunWith(AndroidJUnit4.class)
+public class SampleBlockStoreBenchmark {
+
+    private static final String TAG = "BlockStoreBenchmark";
+    private static final String DB_NAME = "block_store_benchmark.db";
+
+    private static final long START_MS = 1_700_000_000_000L;
+    private static final long INTERVAL_NANOS = 10_000_000L;
+
+    private Context context;
+    private DB db;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(DB_NAME);
+        db = Room.databaseBuilder(context, DB.class, DB_NAME).build();
+    }
+
+    @After
+    public void tearDown() {
+        db.close();
+        context.deleteDatabase(DB_NAME);
+    }
+
+    @Test
+    public void blocksAreSmallerThanRowsAndScanTheSameSamples() {
+        int rows = readRows();
+        SupportSQLiteDatabase sql = db.getOpenHelper().getWritableDatabase();
+        long to = START_MS + rows * INTERVAL_NANOS / 1_000_000L;
+
+        // ---- row table ----
+        long bytesBefore = usedBytes(sql);
+        long start = System.nanoTime();
+        SupportSQLiteStatement insert =
+                sql.compileStatement(
+                        "INSERT INTO accel_data (timestamp, timestampNanos, accelX, accelY, accelZ)"
+                                + " VALUES (?, ?, ?, ?, ?)");
+        sql.beginTransaction();
+        try {
+            for (int i = 0; i < rows; i++) {
+                long t = timestampNanos(i);
+                insert.bindLong(1, t / 1_000_000L);
+                insert.bindLong(2, t);
+                insert.bindDouble(3, x(i));
+                insert.bindDouble(4, y(i));
+                insert.bindDouble(5, z(i));
+                insert.executeInsert();
+            }
+            sql.setTransactionSuccessful();
+        } finally {
+            sql.endTransaction();
+        }
+        long tableIngestNs = System.nanoTime() - start;
+        long tableBytes = usedBytes(sql) - bytesBefore;
+
+        // ---- blocks ----
+        BlockSampleStore store =
+                new BlockSampleStore(
+                        new RoomBlockStorage(db.sensorDao()), BlockSampleStore.DEFAULT_BLOCK_MS);
+        bytesBefore = usedBytes(sql);
+        start = System.nanoTime();
+        db.runInTransaction(
+                () -> {
+                    for (int i = 0; i < rows; i++) {
+                        store.append(SensorReading.ACCEL, timestampNanos(i), x(i), y(i), z(i));
+                    }
+                    store.flush();
+                });
+        long blockIngestNs = System.nanoTime() - start;
+        long blockBytes = usedBytes(sql) - bytesBefore;
+
+        // ---- range scans (whole range) ----
+        double[] tableSum = new double[1];
+        start = System.nanoTime();
+        // The row table alone (streamBetween would merge in the blocks, too).
+        long tableRows =
+                SampleStreams.readChunks(
+                        db.sensorDao().streamAccelDataBetween(START_MS, to),
+                        new SampleChunk(SampleStreams.DEFAULT_CHUNK_SIZE),
+                        chunk -> tableSum[0] += sum(chunk));
+        long tableScanNs = System.nanoTime() - start;
+
+        double[] blockSum = new double[1];
+        start = System.nanoTime();
+        long blockRows =
+                store.streamBetween(
+                        SensorReading.ACCEL,
+                        START_MS,
+                        to,
+                        new SampleChunk(SampleStreams.DEFAULT_CHUNK_SIZE),
+                        chunk -> blockSum[0] += sum(chunk));
+        long blockScanNs = System.nanoTime() - start;
+
+        log("rows  ", rows, tableBytes, tableIngestNs, tableRows, tableScanNs);
+        log("blocks", rows, blockBytes, blockIngestNs, blockRows, blockScanNs);
+
+        assertEquals(rows, tableRows);
+        assertEquals(rows, blockRows);
+        assertEquals(tableSum[0], blockSum[0], 1e-6 * Math.abs(tableSum[0]));
+        assertTrue(blockBytes < tableBytes);
+
+        // Both engines hold the range → SampleStreams merges them into one sorted stream.
+        long[] previous = {Long.MIN_VALUE};
+        long merged =
+                SampleStreams.streamBetween(
+                        db.sensorDao(),
+                        SensorReading.ACCEL,
+                        START_MS,
+                        to,
+                        new SampleChunk(SampleStreams.DEFAULT_CHUNK_SIZE),
+                        chunk -> {
+                            for (int i = 0; i < chunk.size(); i++) {
+                                assertTrue(chunk.timestampsNanos[i] >= previous[0]);
+                                previous[0] = chunk.timestampsNanos[i];
+                            }
+                        });
+        assertEquals(2L * rows, merged);
+    }
+
+    private static long timestampNanos(int i) {
+        long jitter = (i * 7919L % 201) * 1_000L - 100_000L; // ±100 µs
+        return START_MS * 1_000_000L + i * INTERVAL_NANOS + jitter;
+    }
+
+    private static float x(int i) {
+        return Math.round(Math.sin(i / 50.0) * 100) / 100f;
+    }
+
+    private static float y(int i) {
+        return Math.round(Math.cos(i / 70.0) * 100) / 100f;
+    }
+
+    private static float z(int i) {
+        return 9.81f + ((i % 5) - 2) / 100f;
+    }
+
+    private static double sum(SampleChunk chunk) {
+        double s = 0;
+        for (int i = 0; i < chunk.size(); i++) {
+            s += chunk.xs[i] + chunk.ys[i] + chunk.zs[i];
+        }
+        return s;
+    }
+
+    private static void log(
+            String name, int rows, long bytes, long ingestNs, long scanned, long scanNs) {
+        Log.i(
+                TAG,
+                name
+                        + ": "
+                        + String.format(Locale.US, "%.1f", bytes / (double) rows)
+                        + " bytes/sample, ingest "
+                        + (long) (rows / (ingestNs / 1e9))
+                        + " samples/s, scan "
+                        + (long) (scanned / (scanNs / 1e9))
+                        + " samples/s");
+    }
+
+    /** Bytes of the database file in use (pages minus free pages). */
+    private static long usedBytes(SupportSQLiteDatabase sql) {
+        return (pragma(sql, "page_count") - pragma(sql, "freelist_count"))
+                * pragma(sql, "page_size");
+    }
+
+    private static long pragma(SupportSQLiteDatabase sql, String name) {
+        try (Cursor c = sql.query("PRAGMA " + name)) {
+            return c.moveToFirst() ? c.getLong(0) : 0;
+        }
+    }
+
+    private int readRows() {
+        Bundle args = InstrumentationRegistry.getArguments();
+        String value = args.getString("blockBenchRows");
+        return value == null ? 360_000 : Integer.parseInt(value);
+    }
+}
@@ -0,0 +1,157 @@
+package com.fhdw.biot.speech.iot;
+
+import static org.junit.Assert.*;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.os.Bundle;
+import android.util.Log;
+import androidx.room.Room;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.sqlite.db.SupportSQLiteStatement;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+import database.DB;
+import java.util.Arrays;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * Range-query benchmark for the timestamp index on accel_data.
+ *
+ * <p>The table is grown step by step (10k → 100k → 1M rows by default) and after every step the
+ * same 10-minute window (600 rows at 1 Hz) is queried. With the index the cost depends on the size
+ * of the result, not on the size of the table, so the median query time must stay (roughly) flat.
+ *
+ * <p>Larger tables can be benchmarked on a device with: {@code ./gradlew connectedDebugAndroidTest
+ * -Pandroid.testInstrumentationRunnerArguments.rangeBenchMaxRows=20000000}
+ */
+@RunWith(AndroidJUnit4.class)
+public class SensorRangeQueryBenchmark {
+
+    private static final String TAG = "RangeQueryBenchmark";
+    private static final String DB_NAME = "range_query_benchmark.db";
+
+    /** Simulated sampling interval: one row per second. */
+    private static final long SAMPLE_INTERVAL_MS = 1000;
+
+    private static final long WINDOW_MS = 10 * 60 * 1000;
+    private static final int QUERY_REPETITIONS = 21;
+
+    private Context context;
+    private DB db;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(DB_NAME);
+        db = Room.databaseBuilder(context, DB.class, DB_NAME).build();
+    }
+
+    @After
+    public void tearDown() {
+        db.close();
+        context.deleteDatabase(DB_NAME);
+    }
+
+    @Test
+    public void rangeQueryUsesTimestampIndex() {
+        SupportSQLiteDatabase sql = db.getOpenHelper().getWritableDatabase();
+
+        try (Cursor c =
+                sql.query(
+                        "EXPLAIN QUERY PLAN SELECT * FROM accel_data"
+                                + " WHERE timestamp BETWEEN 0 AND 1 ORDER BY timestamp ASC")) {
+            StringBuilder plan = new StringBuilder();
+            while (c.moveToNext()) {
+                plan.append(c.getString(c.getColumnCount() - 1)).append('\n');
+            }
+            assertTrue(plan.toString(), plan.toString().contains("index_accel_data_timestamp"));
+            assertFalse(plan.toString(), plan.toString().contains("TEMP B-TREE"));
+        }
+    }
+
+    @Test
+    public void rangeQueryCostStaysFlatWhileTableGrows() {
+        long maxRows = readMaxRows();
+        SupportSQLiteDatabase sql = db.getOpenHelper().getWritableDatabase();
+
+        long rows = 0;
+        long firstMedianNs = -1;
+        long lastMedianNs = -1;
+
+        for (long target = 10_000; target <= maxRows; target *= 10) {
+            insertRows(sql, rows, target);
+            rows = target;
+
+            // Window in the middle of the table → the index must skip the rows before it.
+            long from = (rows / 2) * SAMPLE_INTERVAL_MS;
+            long to = from + WINDOW_MS;
+            long medianNs = medianQueryNanos(sql, from, to);
+
+            Log.i(TAG, "rows=" + rows + " median range query=" + (medianNs / 1000) + " µs");
+
+            if (firstMedianNs < 0) firstMedianNs = medianNs;
+            lastMedianNs = medianNs;
+        }
+
+        // A full scan would grow ~linearly (100x for 10k → 1M rows). Allow generous noise.
+        assertTrue(
+                "range query got " + lastMedianNs / (double) firstMedianNs + "x slower",
+                lastMedianNs < firstMedianNs * 10);
+    }
+
+    private long readMaxRows() {
+        Bundle args = InstrumentationRegistry.getArguments();
+        String value = args.getString("rangeBenchMaxRows");
+        return value == null ? 1_000_000 : Long.parseLong(value);
+    }
+
+    /** Inserts rows [from, to) with a compiled statement inside one transaction. */
+    private void insertRows(SupportSQLiteDatabase sql, long from, long to) {
+        SupportSQLiteStatement insert =
+                sql.compileStatement(
+                        "INSERT INTO accel_data (timestamp, accelX, accelY, accelZ)"
+                                + " VALUES (?, ?, ?, ?)");
+        sql.beginTransaction();
+        try {
+            for (long i = from; i < to; i++) {
+                insert.bindLong(1, i * SAMPLE_INTERVAL_MS);
+                insert.bindDouble(2, (i % 7) * 0.1);
+                insert.bindDouble(3, (i % 11) * 0.1);
+                insert.bindDouble(4, (i % 13) * 0.1);
+                insert.executeInsert();
+            }
+            sql.setTransactionSuccessful();
+        } finally {
+            sql.endTransaction();
+        }
+    }
+
+    private long medianQueryNanos(SupportSQLiteDatabase sql, long from, long to) {
+        long[] times = new long[QUERY_REPETITIONS];
+        Object[] args = {from, to};
+
+        for (int i = 0; i < times.length; i++) {
+            long start = System.nanoTime();
+            int count = 0;
+            try (Cursor c =
+                    sql.query(
+                            "SELECT * FROM accel_data WHERE timestamp BETWEEN ? AND ?"
+                                    + " ORDER BY timestamp ASC",
+                            args)) {
+                while (c.moveToNext()) {
+                    c.getLong(1);
+                    count++;
+                }
+            }
+            times[i] = System.nanoTime() - start;
+            assertEquals(WINDOW_MS / SAMPLE_INTERVAL_MS + 1, count);
+        }
+
+        Arrays.sort(times);
+        return times[times.length / 2];
+    }
+}
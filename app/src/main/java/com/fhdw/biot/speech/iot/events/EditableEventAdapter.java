@@ -1,31 +1,44 @@
 package com.fhdw.biot.speech.iot.events;
 
+import android.text.Editable;
+import android.text.TextWatcher;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
+import android.widget.AdapterView;
+import android.widget.ArrayAdapter;
 import android.widget.EditText;
 import android.widget.ImageButton;
 import android.widget.Spinner;
 import androidx.annotation.NonNull;
 import androidx.recyclerview.widget.RecyclerView;
 import com.fhdw.biot.speech.iot.R;
+import database.entities.EreignisType;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
 
 /**
  * EditableEventAdapter --------------------- This adapter displays an EDITABLE list of event
  * configuration items.
  *
  * <p>Each row allows the user to define: • Sensor type (Accel / Gyro / Magnet via Spinner) • Event
- * type (custom rule name) • Threshold (numeric trigger level)
+ * type (custom rule name) • Axis (X / Y / Z / Summe) • Condition (above / below) • Threshold
+ * (numeric trigger level) • Hysteresis (re-arm band) • Minimum re-arm time in seconds
  *
- * <p>Used in NewEreignisActivity to build custom rules for generating EreignisData.
- *
- * <p>Note: Not all logic is implemented yet, but all fields + delete/add row functionality are in
- * place.
+ * <p>Used in NewEreignisActivity to build custom rules for generating EreignisData. Every edit is
+ * written straight into the row's EditableSensorEvent; NewEreignisActivity persists the list.
  */
 public class EditableEventAdapter
         extends RecyclerView.Adapter<EditableEventAdapter.EventViewHolder> {
 
+    // Spinner contents; the index maps 1:1 onto the value arrays below.
+    private static final String[] SENSOR_LABELS = {"Accel", "Gyro", "Magnet"};
+    private static final String[] AXIS_LABELS = {"X", "Y", "Z", "Summe"};
+    private static final char[] AXIS_VALUES = {'X', 'Y', 'Z', EreignisType.AXIS_MAGNITUDE};
+    private static final String[] COMPARISON_LABELS = {"über", "unter"};
+    private static final String[] COMPARISON_VALUES = {EreignisType.ABOVE, EreignisType.BELOW};
+
     private final List<EditableSensorEvent> eventList;
     private long nextId = 0; // Generates unique IDs for new rows
 
@@ -41,7 +54,56 @@ public class EditableEventAdapter
                 LayoutInflater.from(parent.getContext())
                         .inflate(R.layout.event_configuration_item, parent, false);
 
-        return new EventViewHolder(view);
+        EventViewHolder holder = new EventViewHolder(view);
+
+        holder.spinnerSensorType.setAdapter(spinnerAdapter(parent, SENSOR_LABELS));
+        holder.spinnerAxis.setAdapter(spinnerAdapter(parent, AXIS_LABELS));
+        holder.spinnerComparison.setAdapter(spinnerAdapter(parent, COMPARISON_LABELS));
+
+        // Listeners are attached once per ViewHolder and write into whatever row it currently
+        // shows (holder.bound is null while onBindViewHolder fills the fields).
+        holder.spinnerSensorType.setOnItemSelectedListener(
+                new SelectionListener(
+                        position -> {
+                            if (holder.bound != null)
+                                holder.bound.sensorType = SENSOR_LABELS[position];
+                        }));
+        holder.spinnerAxis.setOnItemSelectedListener(
+                new SelectionListener(
+                        position -> {
+                            if (holder.bound != null) holder.bound.axis = AXIS_VALUES[position];
+                        }));
+        holder.spinnerComparison.setOnItemSelectedListener(
+                new SelectionListener(
+                        position -> {
+                            if (holder.bound != null)
+                                holder.bound.comparison = COMPARISON_VALUES[position];
+                        }));
+        holder.eventType.addTextChangedListener(
+                new AfterTextChanged(
+                        text -> {
+                            if (holder.bound != null) holder.bound.eventType = text;
+                        }));
+        holder.treshholdValue.addTextChangedListener(
+                new AfterTextChanged(
+                        text -> {
+                            if (holder.bound != null) holder.bound.thresholdValue = parse(text);
+                        }));
+        holder.hysteresis.addTextChangedListener(
+                new AfterTextChanged(
+                        text -> {
+                            if (holder.bound != null) holder.bound.hysteresis = parse(text);
+                        }));
+        holder.minRearmSeconds.addTextChangedListener(
+                new AfterTextChanged(
+                        text -> {
+                            if (holder.bound != null) holder.bound.minRearmSeconds = parse(text);
+                        }));
+
+        // Delete row handler (position looked up on click, rows shift after deletions)
+        holder.btnDelete.setOnClickListener(v -> deleteEvent(holder.getAdapterPosition()));
+
+        return holder;
     }
 
     @Override
@@ -49,12 +111,15 @@ public class EditableEventAdapter
 
         EditableSensorEvent currentEvent = eventList.get(position);
 
-        // TODO: populate Spinner and input fields from DB or preset lists
-
-        // Delete row handler
-        holder.btnDelete.setOnClickListener(v -> deleteEvent(position));
-
-        // TODO: Add listeners for text changes, spinner selection, etc.
+        holder.bound = null;
+        holder.spinnerSensorType.setSelection(indexOf(SENSOR_LABELS, currentEvent.sensorType));
+        holder.spinnerAxis.setSelection(indexOf(AXIS_VALUES, currentEvent.axis));
+        holder.spinnerComparison.setSelection(indexOf(COMPARISON_VALUES, currentEvent.comparison));
+        holder.eventType.setText(currentEvent.eventType);
+        holder.treshholdValue.setText(String.valueOf(currentEvent.thresholdValue));
+        holder.hysteresis.setText(String.valueOf(currentEvent.hysteresis));
+        holder.minRearmSeconds.setText(String.valueOf(currentEvent.minRearmSeconds));
+        holder.bound = currentEvent;
     }
 
     @Override
@@ -72,31 +137,114 @@ public class EditableEventAdapter
         return id;
     }
 
-    /** Deletes a rule row (and later deletes DB entry). */
+    /** Adds a row for a rule loaded from the DB. */
+    public void addEvent(EreignisType type) {
+        eventList.add(EditableSensorEvent.fromEreignisType(++nextId, type));
+        notifyItemInserted(eventList.size() - 1);
+    }
+
+    /** Deletes a rule row (the DB follows when NewEreignisActivity saves the list). */
     public void deleteEvent(int position) {
         if (position < 0 || position >= eventList.size()) return;
 
-        // TODO: Remove from DB if persistent
-
         eventList.remove(position);
         notifyItemRemoved(position);
     }
 
+    private static ArrayAdapter<String> spinnerAdapter(ViewGroup parent, String[] labels) {
+        ArrayAdapter<String> adapter =
+                new ArrayAdapter<>(
+                        parent.getContext(), android.R.layout.simple_spinner_item, labels);
+        adapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+        return adapter;
+    }
+
+    /** Empty or incomplete input (e.g. just "-") counts as 0. */
+    private static float parse(String text) {
+        try {
+            return Float.parseFloat(text);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static int indexOf(String[] values, String value) {
+        for (int i = 0; i < values.length; i++) {
+            if (values[i].equalsIgnoreCase(value)) return i;
+        }
+        return 0;
+    }
+
+    private static int indexOf(char[] values, char value) {
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] == Character.toUpperCase(value)) return i;
+        }
+        return 0;
+    }
+
+    /** Spinner listener that only cares about the selected position. */
+    private static final class SelectionListener implements AdapterView.OnItemSelectedListener {
+        private final IntConsumer onSelected;
+
+        SelectionListener(IntConsumer onSelected) {
+            this.onSelected = onSelected;
+        }
+
+        @Override
+        public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
+            onSelected.accept(position);
+        }
+
+        @Override
+        public void onNothingSelected(AdapterView<?> parent) {}
+    }
+
+    /** TextWatcher that only cares about the final text. */
+    private static final class AfterTextChanged implements TextWatcher {
+        private final Consumer<String> onChanged;
+
+        AfterTextChanged(Consumer<String> onChanged) {
+            this.onChanged = onChanged;
+        }
+
+        @Override
+        public void beforeTextChanged(CharSequence s, int start, int count, int after) {}
+
+        @Override
+        public void onTextChanged(CharSequence s, int start, int before, int count) {}
+
+        @Override
+        public void afterTextChanged(Editable s) {
+            onChanged.accept(s.toString().trim());
+        }
+    }
+
     /** ViewHolder for editable event configuration rows. */
     public static class EventViewHolder extends RecyclerView.ViewHolder {
 
         public ImageButton btnDelete;
         public Spinner spinnerSensorType;
+        public Spinner spinnerAxis;
+        public Spinner spinnerComparison;
         public EditText eventType;
         public EditText treshholdValue;
+        public EditText hysteresis;
+        public EditText minRearmSeconds;
+
+        /** Row currently shown; null while binding. */
+        EditableSensorEvent bound;
 
         public EventViewHolder(@NonNull View itemView) {
             super(itemView);
 
             btnDelete = itemView.findViewById(R.id.btn_delete_event);
             spinnerSensorType = itemView.findViewById(R.id.spinner_sensor_type);
+            spinnerAxis = itemView.findViewById(R.id.spinner_axis);
+            spinnerComparison = itemView.findViewById(R.id.spinner_comparison);
             eventType = itemView.findViewById(R.id.spinner_event_type);
             treshholdValue = itemView.findViewById(R.id.et_threshold_value);
+            hysteresis = itemView.findViewById(R.id.et_hysteresis);
+            minRearmSeconds = itemView.findViewById(R.id.et_min_rearm);
         }
     }
 }
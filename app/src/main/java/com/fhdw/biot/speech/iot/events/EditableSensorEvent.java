@@ -1,26 +1,74 @@
 package com.fhdw.biot.speech.iot.events;
 
+import database.entities.EreignisType;
+import java.util.Locale;
+
 /**
  * EditableSensorEvent -------------------- Represents one editable rule configuration row.
  *
- * <p>Fields: id → internal identifier for adapter tracking sensorType → Accel / Gyro / Magnet
- * (default: Accel) eventType → "Overshoot", "Fall", "Shake", etc. thresholdValue → numeric
- * threshold that triggers the event
+ * <p>Fields: id → internal identifier for adapter tracking ruleId → ereignisID of the stored rule
+ * (0 until the row is saved for the first time) sensorType → Accel / Gyro / Magnet (default: Accel)
+ * eventType → "Overshoot", "Fall", "Shake", etc. axis → X / Y / Z / S (Summe) comparison →
+ * EreignisType.ABOVE / BELOW thresholdValue → numeric threshold that triggers the event hysteresis
+ * → band the value has to leave before the rule re-arms minRearmSeconds → minimum time between two
+ * events of the rule
  *
  * <p>These objects are NOT the final events stored in the database. Instead, they are templates
- * used to *generate* sensor thresholds.
+ * used to *generate* sensor thresholds: they are persisted as {@link EreignisType} rows, which the
+ * ThresholdRuleEngine evaluates.
  */
 public class EditableSensorEvent {
 
     public long id;
+    public int ruleId;
     public String sensorType;
     public String eventType;
+    public char axis;
+    public String comparison;
     public float thresholdValue;
+    public float hysteresis;
+    public float minRearmSeconds;
 
     public EditableSensorEvent(long id) {
         this.id = id;
         this.sensorType = "Accel"; // default
         this.eventType = "";
+        this.axis = 'X';
+        this.comparison = EreignisType.ABOVE;
         this.thresholdValue = 0;
+        this.hysteresis = 0;
+        this.minRearmSeconds = 0;
+    }
+
+    /** Row → DB rule ("Accel" is stored as "ACCEL", like EreignisData.sensorType). */
+    public EreignisType toEreignisType() {
+        EreignisType type = new EreignisType();
+        type.ereignisID = ruleId;
+        type.ereignisName = eventType;
+        type.sensorType = sensorType.toUpperCase(Locale.ROOT);
+        type.axis = axis;
+        type.comparison = comparison;
+        type.ereignisThreshold = thresholdValue;
+        type.hysteresis = hysteresis;
+        type.minRearmMs = (long) (minRearmSeconds * 1000);
+        return type;
+    }
+
+    /** DB rule → row. */
+    public static EditableSensorEvent fromEreignisType(long id, EreignisType type) {
+        EditableSensorEvent event = new EditableSensorEvent(id);
+        event.ruleId = type.ereignisID;
+        if (type.sensorType != null && !type.sensorType.isEmpty()) {
+            event.sensorType =
+                    type.sensorType.charAt(0)
+                            + type.sensorType.substring(1).toLowerCase(Locale.ROOT);
+        }
+        event.eventType = type.ereignisName == null ? "" : type.ereignisName;
+        event.axis = type.axis;
+        event.comparison = type.comparison == null ? EreignisType.ABOVE : type.comparison;
+        event.thresholdValue = type.ereignisThreshold;
+        event.hysteresis = type.hysteresis;
+        event.minRearmSeconds = type.minRearmMs / 1000f;
+        return event;
     }
 }
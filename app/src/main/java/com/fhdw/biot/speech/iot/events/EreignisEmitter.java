@@ -0,0 +1,167 @@
+package com.fhdw.biot.speech.iot.events;
+
+import database.entities.EreignisType;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * EreignisEmitter --------------- Emission stage between {@link ThresholdRuleEngine} and the
+ * outside world (database, notifications).
+ *
+ * <p>For every match it decides whether an event is emitted: a rule that fired less than its {@link
+ * EreignisType#minRearmMs} ago is suppressed (debounce). Hysteresis already happened in the engine,
+ * so a match here is always a real range entry.
+ *
+ * <p>Emitted events are handed to the sink and counted into the current burst. The first event of a
+ * burst calls {@code onBurstStarted}; whoever shows notifications then calls {@link #drainBurst()}
+ * once after its aggregation window and shows ONE notification for the whole burst.
+ *
+ * <p>Per rule, {@link RuleCounter} records how many events were emitted and how many suppressed.
+ * Counters and debounce state are keyed by the rule's ereignisID, which stays the same when the
+ * rules are edited (SensorDao#replaceEreignisTypes); {@link #retainRules} drops deleted rules.
+ *
+ * <p>Threading: {@link #submit} runs on the rule engine's thread only. {@link #drainBurst()},
+ * {@link #getCounters()} and {@link #retainRules} may be called from any thread.
+ */
+public final class EreignisEmitter {
+
+    /** Receives every emitted event, on the thread that called {@link #submit}. */
+    public interface Sink {
+        void onEmitted(SensorEreignis ereignis);
+    }
+
+    /** Emitted vs. suppressed events of one rule. */
+    public static final class RuleCounter {
+        public final int ruleId;
+        public volatile String name;
+        private final AtomicLong emitted = new AtomicLong();
+        private final AtomicLong suppressed = new AtomicLong();
+
+        // Submitting thread only
+        private long lastEmittedAt = Long.MIN_VALUE;
+
+        RuleCounter(int ruleId, String name) {
+            this.ruleId = ruleId;
+            this.name = name;
+        }
+
+        public long getEmitted() {
+            return emitted.get();
+        }
+
+        public long getSuppressed() {
+            return suppressed.get();
+        }
+
+        @Override
+        public String toString() {
+            return name + ": " + getEmitted() + " gesendet / " + getSuppressed() + " unterdrückt";
+        }
+    }
+
+    /** Events emitted since the last {@link #drainBurst()}. */
+    public static final class Burst {
+        public final int count;
+        public final long firstTimestamp;
+        public final SensorEreignis last;
+
+        Burst(int count, long firstTimestamp, SensorEreignis last) {
+            this.count = count;
+            this.firstTimestamp = firstTimestamp;
+            this.last = last;
+        }
+    }
+
+    private final Sink sink;
+    private final Runnable onBurstStarted;
+
+    private final Map<Integer, RuleCounter> counters = new ConcurrentHashMap<>();
+
+    // ---- current burst (guarded by burstLock) ----
+    private final Object burstLock = new Object();
+    private int burstCount;
+    private long burstFirstTimestamp;
+    private SensorEreignis burstLast;
+
+    /**
+     * @param sink Receives every emitted event (e.g. the batched database write).
+     * @param onBurstStarted Called for the first event after a {@link #drainBurst()}.
+     */
+    public EreignisEmitter(Sink sink, Runnable onBurstStarted) {
+        this.sink = sink;
+        this.onBurstStarted = onBurstStarted;
+    }
+
+    /**
+     * Debounces one match of {@code rule}.
+     *
+     * @return true if the event was emitted, false if it was suppressed.
+     */
+    public boolean submit(EreignisType rule, long timestamp, float value) {
+        RuleCounter counter =
+                counters.computeIfAbsent(
+                        rule.ereignisID, id -> new RuleCounter(id, rule.ereignisName));
+
+        if (counter.lastEmittedAt != Long.MIN_VALUE
+                && timestamp - counter.lastEmittedAt < rule.minRearmMs) {
+            counter.suppressed.incrementAndGet();
+            return false;
+        }
+        counter.lastEmittedAt = timestamp;
+        counter.emitted.incrementAndGet();
+
+        SensorEreignis ereignis =
+                new SensorEreignis(timestamp, rule.sensorType, value, rule.ereignisName, rule.axis);
+        sink.onEmitted(ereignis);
+
+        boolean first;
+        synchronized (burstLock) {
+            first = burstCount == 0;
+            if (first) burstFirstTimestamp = timestamp;
+            burstCount++;
+            burstLast = ereignis;
+        }
+        if (first) onBurstStarted.run();
+        return true;
+    }
+
+    /**
+     * Takes the events emitted since the last call and starts a new burst.
+     *
+     * @return null if nothing was emitted in between.
+     */
+    public Burst drainBurst() {
+        synchronized (burstLock) {
+            if (burstCount == 0) return null;
+            Burst burst = new Burst(burstCount, burstFirstTimestamp, burstLast);
+            burstCount = 0;
+            burstLast = null;
+            return burst;
+        }
+    }
+
+    /**
+     * Forgets the counters of rules that are not in {@code rules} any more and takes over renamed
+     * rules' names. Call it whenever the rule set is reloaded.
+     */
+    public void retainRules(Collection<EreignisType> rules) {
+        Map<Integer, String> names = new HashMap<>();
+        for (EreignisType rule : rules) names.put(rule.ereignisID, rule.ereignisName);
+
+        counters.values().removeIf(counter -> !names.containsKey(counter.ruleId));
+        for (RuleCounter counter : counters.values()) {
+            String name = names.get(counter.ruleId);
+            if (name != null) counter.name = name;
+        }
+    }
+
+    /** Snapshot of the per-rule counters (rules that never matched are not listed). */
+    public List<RuleCounter> getCounters() {
+        return new ArrayList<>(counters.values());
+    }
+}
@@ -0,0 +1,136 @@
+package com.fhdw.biot.speech.iot.events;
+
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import androidx.core.app.NotificationCompat;
+import com.fhdw.biot.speech.iot.R;
+import java.util.Locale;
+
+/**
+ * EreignisNotifier ---------------- Shows the events of an {@link EreignisEmitter} as status bar
+ * notifications, at most one per aggregation window.
+ *
+ * <p>When a burst starts, a flush is scheduled {@link #AGGREGATION_WINDOW_MS} later. The flush
+ * drains the burst: a single event is shown as is, several as "N Ereignisse in den letzten T
+ * Sekunden". Every flush re-uses the same notification ID, so the status bar holds one entry that
+ * is updated instead of a new one per event.
+ *
+ * <p>The notification channel is registered once per process.
+ */
+public class EreignisNotifier {
+
+    private static final String TAG = "EreignisNotifier";
+
+    // Static channel ID used by this app. On Android 8+, notifications must be associated with a
+    // channel.
+    private static final String CHANNEL_ID = "channel_name";
+
+    // Same ID for every flush → the notification is updated, not stacked.
+    private static final int NOTIFICATION_ID = 1;
+
+    public static final long AGGREGATION_WINDOW_MS = 10_000;
+
+    private static volatile boolean channelCreated = false;
+
+    private final Context context;
+    private final EreignisEmitter emitter;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Runnable flushRunnable = this::flush;
+
+    public EreignisNotifier(Context context, EreignisEmitter emitter) {
+        this.context = context.getApplicationContext();
+        this.emitter = emitter;
+    }
+
+    /** Any thread: a new burst started → show it once the aggregation window is over. */
+    public void onBurstStarted() {
+        mainHandler.postDelayed(flushRunnable, AGGREGATION_WINDOW_MS);
+    }
+
+    /** Drops a pending flush (e.g. when the owning screen is destroyed). */
+    public void cancel() {
+        mainHandler.removeCallbacks(flushRunnable);
+    }
+
+    /** Main thread: one notification for everything emitted since the last flush. */
+    private void flush() {
+        EreignisEmitter.Burst burst = emitter.drainBurst();
+        if (burst == null) return;
+
+        SensorEreignis last = burst.last;
+        String title;
+        String message;
+        if (burst.count == 1) {
+            title = "Ereignis: " + last.getId();
+            message =
+                    String.format(
+                            Locale.GERMANY,
+                            "%s %c = %.2f",
+                            last.getSensorType(),
+                            last.getAxis(),
+                            last.getValue());
+        } else {
+            title = "Sensor-Ereignisse";
+            message =
+                    String.format(
+                            Locale.GERMANY,
+                            "%d Ereignisse in den letzten %d Sekunden (zuletzt: %s)",
+                            burst.count,
+                            AGGREGATION_WINDOW_MS / 1000,
+                            last.getId());
+        }
+        showNotification(title, message);
+
+        for (EreignisEmitter.RuleCounter counter : emitter.getCounters()) {
+            Log.d(TAG, counter.toString());
+        }
+    }
+
+    private void showNotification(String title, String message) {
+        NotificationManager notificationManager =
+                (NotificationManager) context.getSystemService(Context.NOTIFICATION_SERVICE);
+        ensureChannel(notificationManager);
+
+        // Tapping the notification opens the event log.
+        Intent intent = new Intent(context, EreignisActivity.class);
+        intent.putExtra("SENSOR_FILTER", "ALL");
+        intent.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
+        PendingIntent pendingIntent =
+                PendingIntent.getActivity(
+                        context,
+                        NOTIFICATION_ID,
+                        intent,
+                        PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
+
+        NotificationCompat.Builder notificationBuilder =
+                new NotificationCompat.Builder(context, CHANNEL_ID)
+                        .setSmallIcon(R.drawable.outline_circle_notifications_24)
+                        .setContentTitle(title)
+                        .setContentText(message)
+                        .setOnlyAlertOnce(true) // updates of the same entry stay silent
+                        .setAutoCancel(true) // Dismiss when tapped
+                        .setContentIntent(pendingIntent);
+
+        notificationManager.notify(NOTIFICATION_ID, notificationBuilder.build());
+    }
+
+    /** Registers the channel on the first notification of the process (Android 8+). */
+    private static void ensureChannel(NotificationManager notificationManager) {
+        if (channelCreated || Build.VERSION.SDK_INT < Build.VERSION_CODES.O) return;
+        synchronized (EreignisNotifier.class) {
+            if (channelCreated) return;
+            NotificationChannel channel =
+                    new NotificationChannel(
+                            CHANNEL_ID, "Sensor-Ereignisse", NotificationManager.IMPORTANCE_HIGH);
+            notificationManager.createNotificationChannel(channel);
+            channelCreated = true;
+        }
+    }
+}
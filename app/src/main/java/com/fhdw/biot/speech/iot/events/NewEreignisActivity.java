@@ -15,6 +15,7 @@ import androidx.recyclerview.widget.RecyclerView;
 import com.fhdw.biot.speech.iot.R;
 import com.fhdw.biot.speech.iot.main.MainActivity;
 import database.DB;
+import database.entities.EreignisType;
 import database.entities.Sensor;
 import java.util.ArrayList;
 import java.util.List;
@@ -33,8 +34,9 @@ import java.util.concurrent.atomic.AtomicReference;
  * - A "+" button that adds a new editable row. - Navigation buttons back to: • MainActivity (home)
  * • EreignisActivity (event overview)
  *
- * <p>Note: Currently, only the UI list is implemented. The persistence logic ("Datenbanklogik
- * hinzufügen") is still a TODO.
+ * <p>Persistence: the rules are loaded from the ereignis_type table when the screen opens and the
+ * whole list is written back in onPause(); IngestionService observes the table and reloads them
+ * into the ThresholdRuleEngine once that write has committed.
  */
 public class NewEreignisActivity extends AppCompatActivity {
 
@@ -47,6 +49,9 @@ public class NewEreignisActivity extends AppCompatActivity {
     // In-memory list of event-rule configurations
     private List<EditableSensorEvent> editableEventList;
 
+    // Set once the stored rules are shown; saving before that would overwrite them with nothing.
+    private boolean rulesLoaded = false;
+
     public List<Sensor> sensors = loadAvailableSensors();
 
     @Override
@@ -92,10 +97,8 @@ public class NewEreignisActivity extends AppCompatActivity {
         adapter = new EditableEventAdapter(editableEventList);
         recyclerView.setAdapter(adapter);
 
-        // TODO: Datenbanklogik hinzufügen
-        //  - load existing rules from DB
-        //  - populate editableEventList
-        //  - adapter.notifyDataSetChanged()
+        // Existing rules from DB → rows
+        loadRules();
 
         // --- Add new rule row (+) -------------------------------------------
         ImageButton addEreignis = findViewById(R.id.add_ereignis);
@@ -109,6 +112,62 @@ public class NewEreignisActivity extends AppCompatActivity {
                 });
     }
 
+    @Override
+    protected void onPause() {
+        super.onPause();
+        saveRules();
+    }
+
+    /** Loads the persisted rules (background) and shows them as editable rows. */
+    private void loadRules() {
+        DB.databaseWriteExecutor.execute(
+                () -> {
+                    List<EreignisType> rules =
+                            DB.getDatabase(getApplicationContext())
+                                    .sensorDao()
+                                    .getAllEreignisTypes();
+
+                    runOnUiThread(
+                            () -> {
+                                for (EreignisType rule : rules) {
+                                    adapter.addEvent(rule);
+                                }
+                                rulesLoaded = true;
+                            });
+                });
+    }
+
+    /**
+     * Replaces the stored rules with the current rows (background). New rows then learn their
+     * ereignisID, so the next save updates them instead of inserting them again.
+     */
+    private void saveRules() {
+        if (!rulesLoaded) return;
+
+        List<EditableSensorEvent> events = new ArrayList<>(editableEventList);
+        List<EreignisType> rules = new ArrayList<>(events.size());
+        for (EditableSensorEvent event : events) {
+            rules.add(event.toEreignisType());
+        }
+
+        DB.databaseWriteExecutor.execute(
+                () -> {
+                    try {
+                        DB.getDatabase(getApplicationContext())
+                                .sensorDao()
+                                .replaceEreignisTypes(rules);
+                        runOnUiThread(
+                                () -> {
+                                    for (int i = 0; i < events.size(); i++) {
+                                        events.get(i).ruleId = rules.get(i).ereignisID;
+                                    }
+                                });
+                    } catch (Exception e) {
+                        Log.e("NewEreignisActivity", "saveRules error: " + e.getMessage(), e);
+                    }
+                });
+    }
+
     @SuppressLint("NotifyDataSetChanged")
     private List<Sensor> loadAvailableSensors() {
         AtomicReference<List<Sensor>> allEventsList = new AtomicReference<>();
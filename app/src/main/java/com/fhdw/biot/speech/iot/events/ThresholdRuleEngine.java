@@ -0,0 +1,240 @@
+package com.fhdw.biot.speech.iot.events;
+
+import database.entities.EreignisType;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * ThresholdRuleEngine ------------------- Evaluates the user's threshold rules ({@link
+ * EreignisType}) against every incoming sample.
+ *
+ * <p>INDEX: Rules are compiled into one lane per (sensor, axis) – X, Y, Z and the magnitude. A lane
+ * holds its ABOVE rules and its BELOW rules in two arrays sorted by threshold, so the rules whose
+ * range contains the value are always a prefix of each array. The engine remembers the prefix
+ * length; per sample it only moves that boundary:
+ *
+ * <p>- nothing crossed a threshold → one comparison per side, whatever the rule count, - the value
+ * crossed k thresholds → k steps, each of them a match (or a re-arm).
+ *
+ * <p>A rule fires when the value ENTERS its range (rising edge), not on every sample inside it; it
+ * re-arms once the value has left the range by more than ITS OWN hysteresis band, so noise around
+ * the threshold does not fire it again and again. Only rules that left their range but not yet
+ * their band are checked for re-arming, so this costs nothing while no value hovers near a
+ * threshold. Axes without rules cost one null check, the magnitude's sqrt is only computed if a
+ * magnitude rule exists.
+ *
+ * <p>Threading: {@link #evaluate} must always be called from the same thread (the MQTT callback
+ * thread). {@link #setRules} may be called from any thread; the new index replaces the old one
+ * atomically and starts with every rule armed.
+ */
+public final class ThresholdRuleEngine {
+
+    // Sensor indices for evaluate()
+    public static final int ACCEL = 0;
+    public static final int GYRO = 1;
+    public static final int MAGNET = 2;
+
+    private static final int SENSOR_COUNT = 3;
+
+    // Lane order inside one sensor: X, Y, Z, magnitude
+    private static final int AXIS_COUNT = 4;
+    private static final int AXIS_MAGNITUDE = 3;
+
+    /** Receives every match, on the thread that called {@link #evaluate}. */
+    public interface MatchListener {
+        void onMatch(EreignisType rule, long timestamp, float value);
+    }
+
+    private final MatchListener listener;
+
+    /** Index sensor * AXIS_COUNT + axis; null = no rules for that lane. */
+    private volatile Lane[] lanes = new Lane[SENSOR_COUNT * AXIS_COUNT];
+
+    private volatile int ruleCount;
+
+    public ThresholdRuleEngine(MatchListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Compiles and activates a new rule set. Rules with an unknown sensor, axis or comparison are
+     * ignored.
+     */
+    public void setRules(Collection<EreignisType> rules) {
+        List<List<EreignisType>> above = new ArrayList<>();
+        List<List<EreignisType>> below = new ArrayList<>();
+        for (int i = 0; i < SENSOR_COUNT * AXIS_COUNT; i++) {
+            above.add(new ArrayList<>());
+            below.add(new ArrayList<>());
+        }
+
+        int count = 0;
+        for (EreignisType rule : rules) {
+            int sensor = sensorIndex(rule.sensorType);
+            int axis = axisIndex(rule.axis);
+            if (sensor < 0 || axis < 0 || Float.isNaN(rule.ereignisThreshold)) continue;
+
+            int lane = sensor * AXIS_COUNT + axis;
+            if (EreignisType.ABOVE.equals(rule.comparison)) {
+                above.get(lane).add(rule);
+            } else if (EreignisType.BELOW.equals(rule.comparison)) {
+                below.get(lane).add(rule);
+            } else {
+                continue;
+            }
+            count++;
+        }
+
+        Lane[] compiled = new Lane[SENSOR_COUNT * AXIS_COUNT];
+        for (int i = 0; i < compiled.length; i++) {
+            if (above.get(i).isEmpty() && below.get(i).isEmpty()) continue;
+            compiled[i] = new Lane(new Side(above.get(i), 1f), new Side(below.get(i), -1f));
+        }
+
+        lanes = compiled;
+        ruleCount = count;
+    }
+
+    /** Number of rules in the active index (invalid rules are not counted). */
+    public int getRuleCount() {
+        return ruleCount;
+    }
+
+    /**
+     * Checks one sample against all rules of {@code sensor}. Calls the listener for every rule
+     * whose range the value just entered.
+     *
+     * @param sensor {@link #ACCEL}, {@link #GYRO} or {@link #MAGNET}.
+     */
+    public void evaluate(int sensor, long timestamp, float x, float y, float z) {
+        Lane[] current = lanes;
+        int base = sensor * AXIS_COUNT;
+
+        Lane lane = current[base];
+        if (lane != null) lane.evaluate(timestamp, x);
+        lane = current[base + 1];
+        if (lane != null) lane.evaluate(timestamp, y);
+        lane = current[base + 2];
+        if (lane != null) lane.evaluate(timestamp, z);
+        lane = current[base + AXIS_MAGNITUDE];
+        if (lane != null) lane.evaluate(timestamp, (float) Math.sqrt(x * x + y * y + z * z));
+    }
+
+    /**
+     * @return sensor index for "ACCEL" / "GYRO" / "MAGNET" (any case), -1 otherwise.
+     */
+    public static int sensorIndex(String sensorType) {
+        if (sensorType == null) return -1;
+        switch (sensorType.toUpperCase(Locale.ROOT)) {
+            case "ACCEL":
+                return ACCEL;
+            case "GYRO":
+                return GYRO;
+            case "MAGNET":
+                return MAGNET;
+            default:
+                return -1;
+        }
+    }
+
+    private static int axisIndex(char axis) {
+        switch (Character.toUpperCase(axis)) {
+            case 'X':
+                return 0;
+            case 'Y':
+                return 1;
+            case 'Z':
+                return 2;
+            case EreignisType.AXIS_MAGNITUDE:
+                return AXIS_MAGNITUDE;
+            default:
+                return -1;
+        }
+    }
+
+    /** All rules of one (sensor, axis). */
+    private final class Lane {
+        final Side above;
+        final Side below;
+
+        Lane(Side above, Side below) {
+            this.above = above;
+            this.below = below;
+        }
+
+        void evaluate(long timestamp, float value) {
+            above.evaluate(timestamp, value);
+            below.evaluate(timestamp, value);
+        }
+    }
+
+    /**
+     * Rules of one comparison direction. Stored as "sign * value &gt; key" with keys ascending
+     * (sign = -1 turns BELOW into ABOVE), so the matching rules are always keys[0 .. inside).
+     */
+    private final class Side {
+        final float sign;
+        final float[] keys;
+        final EreignisType[] rules;
+
+        /** Re-arm level per rule: key minus its hysteresis. */
+        final float[] rearmKeys;
+
+        /** Per rule: fired and not re-armed yet. Always true for the rules inside their range. */
+        final boolean[] fired;
+
+        /** Number of rules whose range contains the value. */
+        int inside;
+
+        /** Every fired rule has an index below this (rules in [inside, firedEnd) may be armed). */
+        int firedEnd;
+
+        Side(List<EreignisType> list, float sign) {
+            this.sign = sign;
+            list.sort(
+                    (a, b) ->
+                            Float.compare(sign * a.ereignisThreshold, sign * b.ereignisThreshold));
+
+            int n = list.size();
+            keys = new float[n];
+            rules = new EreignisType[n];
+            rearmKeys = new float[n];
+            fired = new boolean[n];
+            for (int i = 0; i < n; i++) {
+                rules[i] = list.get(i);
+                keys[i] = sign * rules[i].ereignisThreshold;
+                rearmKeys[i] = keys[i] - Math.max(0f, rules[i].hysteresis);
+            }
+        }
+
+        void evaluate(long timestamp, float value) {
+            float v = sign * value;
+            int k = inside;
+
+            // Entered more ranges → fire the armed ones (the others are still in their band).
+            while (k < keys.length && v > keys[k]) {
+                if (!fired[k]) {
+                    fired[k] = true;
+                    listener.onMatch(rules[k], timestamp, value);
+                }
+                k++;
+            }
+            if (k > firedEnd) firedEnd = k;
+            // Left ranges → those rules stay fired until the value leaves their band (NaN leaves
+            // every range and band).
+            while (k > 0 && !(v > keys[k - 1])) {
+                k--;
+            }
+            inside = k;
+
+            if (firedEnd > k) {
+                for (int i = k; i < firedEnd; i++) {
+                    if (fired[i] && !(v > rearmKeys[i])) fired[i] = false;
+                }
+                while (firedEnd > k && !fired[firedEnd - 1]) firedEnd--;
+            }
+        }
+    }
+}
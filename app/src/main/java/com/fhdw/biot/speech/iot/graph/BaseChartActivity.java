@@ -1,14 +1,41 @@
 package com.fhdw.biot.speech.iot.graph;
 
 import android.graphics.Color;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.room.InvalidationTracker;
+import com.fhdw.biot.speech.iot.sensor.SampleChunk;
+import com.fhdw.biot.speech.iot.sensor.SampleRingBuffer;
+import com.fhdw.biot.speech.iot.sensor.SensorPoint;
+import com.fhdw.biot.speech.iot.sensor.SensorSample;
 import com.github.mikephil.charting.charts.LineChart;
 import com.github.mikephil.charting.components.Description;
 import com.github.mikephil.charting.components.XAxis;
 import com.github.mikephil.charting.data.Entry;
 import com.github.mikephil.charting.data.LineData;
 import com.github.mikephil.charting.data.LineDataSet;
+import database.DB;
+import database.InvalidationCoalescer;
+import database.SampleLog;
+import database.SampleLogCompactor;
+import database.SampleStreams;
+import database.dao.SensorDao;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.LongFunction;
 
 /**
  * BaseChartActivity ----------------- WHY THIS CLASS EXISTS: Every sensor Activity (AccelActivity,
@@ -17,9 +44,266 @@ import java.util.ArrayList;
  *
  * <p>By placing the shared functionality here: → we avoid duplicated code → all sensor charts
  * maintain a consistent visual style → adding new sensors becomes trivial
+ *
+ * <p>CHART PREPARATION OFF THE MAIN THREAD: Reducing a multi-day range and building thousands of
+ * Entry / LineDataSet objects takes seconds, so subclasses do that work via {@link
+ * #prepareChartData}. It runs on a dedicated background thread and only the finished LineData is
+ * handed to the UI. Every request has a key (e.g. "accel"); a newer request with the same key
+ * cancels the older one – queued work never starts, running work is interrupted and stops at the
+ * next {@link #throwIfCancelled()} check, and a stale result is never delivered.
+ *
+ * <p>TABLE CHANGES: screens do not observe LiveData queries (Room would re-run them after every
+ * batch insert). They load one-shot and register a refresh with {@link #refreshOnTableChanges},
+ * which runs at most once per interval while the screen is visible.
+ *
+ * <p>STORED SAMPLES: raw samples may be rows of the sensor table, compressed blocks (sensor_block)
+ * or still in the sample log, depending on the storage engine chosen in Settings. Screens read them
+ * through database.SampleStreams, which merges all three, and refresh on the sensor table AND
+ * sensor_block.
  */
 public abstract class BaseChartActivity extends AppCompatActivity {
 
+    private static final String TAG = "BaseChartActivity";
+
+    /** How many loop iterations the builders run between two cancellation checks. */
+    protected static final int CANCELLATION_CHECK_INTERVAL = 1024;
+
+    /** Dedicated thread for dataset construction (one per screen, stopped in onDestroy()). */
+    private final ExecutorService chartExecutor =
+            Executors.newSingleThreadExecutor(r -> new Thread(r, "chart-preparation"));
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    /** Points per chart pixel kept by {@link #streamReduced} (min + max, twice). */
+    protected static final int STREAM_POINTS_PER_PIXEL = 4;
+
+    /** Default for {@link #refreshOnTableChanges}: at most one refresh per 2 s. */
+    protected static final long TABLE_REFRESH_INTERVAL_MS = 2_000;
+
+    private InvalidationCoalescer tableCoalescer;
+    private InvalidationTracker.Observer tableObserver;
+    private boolean tableObserverPaused;
+
+    // ---- per key: latest request + its running/queued task (main thread only) ----
+    private final Map<String, Integer> chartGenerations = new HashMap<>();
+    private final Map<String, Future<?>> chartTasks = new HashMap<>();
+
+    /**
+     * Builds chart data in the background and delivers it on the main thread.
+     *
+     * <p>Must be called on the main thread. Any earlier request with the same key that has not been
+     * delivered yet is cancelled.
+     *
+     * @param key Identifies what is being prepared (one key per chart group).
+     * @param work Runs on the background thread; must not touch views.
+     * @param onReady Runs on the main thread with the result, only if no newer request came in.
+     */
+    protected <R> void prepareChartData(String key, Callable<R> work, Consumer<R> onReady) {
+        cancelChartPreparation(key);
+        final int generation = chartGenerations.get(key);
+
+        Future<?> task =
+                chartExecutor.submit(
+                        () -> {
+                            R result;
+                            try {
+                                throwIfCancelled();
+                                result = work.call();
+                                throwIfCancelled();
+                            } catch (CancellationException e) {
+                                return; // superseded by a newer request
+                            } catch (Exception e) {
+                                Log.e(TAG, "Chart preparation failed: " + e.getMessage(), e);
+                                return;
+                            }
+
+                            mainHandler.post(
+                                    () -> {
+                                        Integer current = chartGenerations.get(key);
+                                        if (current == null
+                                                || current != generation
+                                                || isDestroyed()) {
+                                            return;
+                                        }
+                                        chartTasks.remove(key);
+                                        onReady.accept(result);
+                                    });
+                        });
+        chartTasks.put(key, task);
+    }
+
+    /**
+     * Cancels the pending request for {@code key} (if any) so its result is never delivered. Main
+     * thread only.
+     */
+    protected void cancelChartPreparation(String key) {
+        Integer generation = chartGenerations.get(key);
+        chartGenerations.put(key, generation == null ? 1 : generation + 1);
+
+        Future<?> previous = chartTasks.remove(key);
+        if (previous != null) {
+            previous.cancel(true);
+        }
+    }
+
+    /** True while a request for {@code key} is queued or running. Main thread only. */
+    protected boolean isChartPreparationPending(String key) {
+        return chartTasks.containsKey(key);
+    }
+
+    /**
+     * Incremental refresh of an attached {@link SlidingWindow}: loads only the rows newer than the
+     * window's last timestamp in the background, then appends them and evicts old points.
+     *
+     * @param key Same key as the full load of this window (so the two cancel each other).
+     * @param rowsAfter Background query: rows with timestamp &gt; the given one.
+     * @param windowStart Points older than this timestamp are removed.
+     * @param onChanged Main thread, after the datasets changed (redraw the charts).
+     */
+    protected <T extends SensorPoint> void appendToSlidingWindow(
+            String key,
+            SlidingWindow window,
+            LongFunction<List<T>> rowsAfter,
+            long windowStart,
+            Runnable onChanged) {
+        long after = window.getLastTimestamp();
+        long origin = window.getOrigin();
+        prepareChartData(
+                key,
+                () -> window.toChunk(rowsAfter.apply(after), origin),
+                chunk -> {
+                    if (window.apply(chunk, windowStart)) onChanged.run();
+                });
+    }
+
+    /** Redraw after the datasets of {@code chart} were modified in place. */
+    protected void notifyChartDataChanged(LineChart chart) {
+        if (chart.getData() == null) return;
+        chart.getData().notifyDataChanged();
+        chart.notifyDataSetChanged();
+        chart.invalidate();
+    }
+
+    /**
+     * Cancellation checkpoint for code running inside {@link #prepareChartData}: throws if the
+     * request was superseded (the worker thread got interrupted).
+     */
+    protected static void throwIfCancelled() {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new CancellationException();
+        }
+    }
+
+    /**
+     * Runs {@code refresh} on the main thread after writes to {@code tables}, at most once per
+     * {@code intervalMs} (see {@link InvalidationCoalescer}). Only while the screen is started;
+     * when it comes back from the background it refreshes once, since it missed the writes
+     * meanwhile. Call once, in onCreate().
+     */
+    protected void refreshOnTableChanges(long intervalMs, Runnable refresh, String... tables) {
+        tableCoalescer =
+                new InvalidationCoalescer(
+                        intervalMs,
+                        new InvalidationCoalescer.Scheduler() {
+                            @Override
+                            public long now() {
+                                return SystemClock.uptimeMillis();
+                            }
+
+                            @Override
+                            public void schedule(Runnable task, long delayMs) {
+                                mainHandler.postDelayed(task, delayMs);
+                            }
+                        },
+                        refresh);
+        tableObserver =
+                new InvalidationTracker.Observer(tables) {
+                    @Override
+                    public void onInvalidated(@NonNull Set<String> changed) {
+                        tableCoalescer.onInvalidated();
+                    }
+                };
+    }
+
+    @Override
+    protected void onStart() {
+        super.onStart();
+        if (tableObserver == null) return;
+        DB.getDatabase(this).getInvalidationTracker().addObserver(tableObserver);
+        tableCoalescer.start();
+        if (tableObserverPaused) tableCoalescer.onInvalidated(); // catch up on missed writes
+    }
+
+    @Override
+    protected void onStop() {
+        if (tableObserver != null) {
+            DB.getDatabase(this).getInvalidationTracker().removeObserver(tableObserver);
+            tableCoalescer.stop();
+            tableObserverPaused = true;
+            Log.d(
+                    TAG,
+                    "Table refreshes: "
+                            + tableCoalescer.getRefreshCount()
+                            + " run, "
+                            + tableCoalescer.getSavedRefreshCount()
+                            + " saved");
+        }
+        super.onStop();
+    }
+
+    /**
+     * Room part of the live window ({@link SampleRingBuffer#readRange}): the stored samples of
+     * {@code sensor} (SensorReading.ACCEL etc.), whichever engine holds them.
+     */
+    protected SampleRingBuffer.RangeQuery storedSamples(int sensor) {
+        SensorDao dao = DB.getDatabase(getApplicationContext()).sensorDao();
+        SampleLog log = SampleLogCompactor.getInstance(getApplicationContext()).getLog();
+        return (from, to) -> SampleStreams.loadBetween(dao, log, sensor, from, to);
+    }
+
+    /**
+     * Background part of a one-shot range load: streams the raw samples of {@code sensor} in {@code
+     * [from, to]} (see {@link SampleStreams}) through a {@link StreamingMinMaxDownsampler} sized
+     * for {@code chartWidth} pixels, so memory stays constant however many rows the range holds.
+     * Checks for cancellation once per chunk.
+     */
+    protected static List<SensorSample> streamReduced(
+            SensorDao dao, SampleLog log, int sensor, long from, long to, int chartWidth) {
+        StreamingMinMaxDownsampler reducer =
+                new StreamingMinMaxDownsampler(from, to, chartWidth * STREAM_POINTS_PER_PIXEL);
+        SampleStreams.streamBetween(
+                dao,
+                log,
+                sensor,
+                from,
+                to,
+                new SampleChunk(SampleStreams.DEFAULT_CHUNK_SIZE),
+                chunk -> {
+                    throwIfCancelled();
+                    reducer.accept(chunk);
+                });
+        return reducer.finish();
+    }
+
+    /** Width of {@code chart} in pixels, the display width before its first layout. */
+    protected int chartWidth(LineChart chart) {
+        return chart.getWidth() > 0
+                ? chart.getWidth()
+                : getResources().getDisplayMetrics().widthPixels;
+    }
+
+    /** Refreshes saved so far by {@link #refreshOnTableChanges} (0 if not used). */
+    protected long getSavedTableRefreshCount() {
+        return tableCoalescer == null ? 0 : tableCoalescer.getSavedRefreshCount();
+    }
+
+    @Override
+    protected void onDestroy() {
+        chartExecutor.shutdownNow();
+        mainHandler.removeCallbacksAndMessages(null);
+        super.onDestroy();
+    }
+
     /**
      * Configure the chart BEFORE inserting data.
      *
@@ -65,23 +349,43 @@ public abstract class BaseChartActivity extends AppCompatActivity {
      * @param color Color of the line.
      */
     protected void setData(LineChart chart, ArrayList<Entry> entries, String label, int color) {
+        showLineData(chart, buildLineData(entries, label, color));
+    }
 
-        // No data available → show message + clear chart.
+    /**
+     * Convert points into a drawable dataset. Does not touch any view, so it may run inside {@link
+     * #prepareChartData}.
+     *
+     * @return the LineData, or null if {@code entries} is empty.
+     */
+    protected static LineData buildLineData(ArrayList<Entry> entries, String label, int color) {
         if (entries.isEmpty()) {
-            chart.setNoDataText("Keine Daten in der Datenbank gefunden.");
-            chart.clear();
-            return;
+            return null;
         }
 
-        // Convert points into a drawable dataset
         LineDataSet lineDataSet = new LineDataSet(entries, label);
         lineDataSet.setColor(color);
         lineDataSet.setDrawCircles(false); // smoother line, no points
         lineDataSet.setValueTextSize(10f);
         lineDataSet.setValueTextColor(Color.DKGRAY);
 
-        // Wrap into LineData and submit to chart
-        LineData lineData = new LineData(lineDataSet);
+        return new LineData(lineDataSet);
+    }
+
+    /**
+     * Submit prepared data to the chart (main thread).
+     *
+     * @param lineData Result of {@link #buildLineData}; null means "no data".
+     */
+    protected void showLineData(LineChart chart, LineData lineData) {
+
+        // No data available → show message + clear chart.
+        if (lineData == null) {
+            chart.setNoDataText("Keine Daten in der Datenbank gefunden.");
+            chart.clear();
+            return;
+        }
+
         chart.setData(lineData);
 
         // Redraw chart
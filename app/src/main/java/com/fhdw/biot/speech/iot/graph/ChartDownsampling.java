@@ -0,0 +1,66 @@
+package com.fhdw.biot.speech.iot.graph;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import com.fhdw.biot.speech.iot.sensor.SensorPoint;
+import java.util.List;
+
+/**
+ * ChartDownsampling ----------------- Applies the data reduction chosen in the settings before a
+ * list of sensor rows is turned into chart entries.
+ *
+ * <p>SETTINGS ("GraphSettings"): • dp_enabled → reduction on/off (the existing switch). •
+ * downsampling_algorithm → which algorithm: - DP → {@link DouglasPeukerAlg} with the epsilon from
+ * {@link EpsilonCalculator} (output size depends on the data). - LTTB → {@link LttbDownsampler}. -
+ * MINMAX → {@link MinMaxDownsampler}.
+ *
+ * <p>LTTB and MINMAX target a fixed budget of {@link #POINTS_PER_PIXEL} points per horizontal pixel
+ * of the chart, so a long, noisy range can no longer produce hundreds of thousands of entries.
+ */
+public final class ChartDownsampling {
+
+    public static final String KEY_ALGORITHM = "downsampling_algorithm";
+
+    public static final String ALGORITHM_DP = "DP";
+    public static final String ALGORITHM_LTTB = "LTTB";
+    public static final String ALGORITHM_MINMAX = "MINMAX";
+
+    /** Point budget per horizontal chart pixel for the fixed-size algorithms. */
+    public static final int POINTS_PER_PIXEL = 2;
+
+    private static final Downsampler LTTB = new LttbDownsampler();
+    private static final Downsampler MIN_MAX = new MinMaxDownsampler();
+
+    private ChartDownsampling() {}
+
+    /**
+     * Reduces {@code list} according to the current settings.
+     *
+     * @param context Android context (for SharedPreferences and the screen width fallback).
+     * @param list Sensor rows sorted by timestamp.
+     * @param chartWidthPx Width of the target chart in pixels; 0 if it is not laid out yet (then
+     *     the screen width is used).
+     * @return the list to draw (may be {@code list} itself).
+     */
+    public static <T extends SensorPoint> List<T> reduce(
+            Context context, List<T> list, int chartWidthPx) {
+        SharedPreferences prefs =
+                context.getSharedPreferences("GraphSettings", Context.MODE_PRIVATE);
+        if (!prefs.getBoolean("dp_enabled", false)) return list;
+
+        String algorithm = prefs.getString(KEY_ALGORITHM, ALGORITHM_DP);
+        if (ALGORITHM_DP.equals(algorithm)) {
+            float epsilon = EpsilonCalculator.calculateEpsilon(context, list);
+            return DouglasPeukerAlg.simplify(list, epsilon);
+        }
+
+        int width =
+                chartWidthPx > 0
+                        ? chartWidthPx
+                        : context.getResources().getDisplayMetrics().widthPixels;
+        int budget = Math.max(4, width * POINTS_PER_PIXEL);
+
+        Downsampler downsampler = ALGORITHM_MINMAX.equals(algorithm) ? MIN_MAX : LTTB;
+        return downsampler.downsample(list, budget);
+    }
+}
@@ -2,6 +2,7 @@ package com.fhdw.biot.speech.iot.graph;
 
 import com.fhdw.biot.speech.iot.sensor.SensorPoint;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -17,6 +18,16 @@ import java.util.List;
  * splitting recursively. 4. Else: the entire section is considered "flat enough" → reduce to 2
  * points.
  *
+ * <p>IMPLEMENTATION: the "recursion" uses an explicit stack of segments, so long flat stretches of
+ * a multi-day range cannot overflow the call stack. Timestamps and magnitudes are computed once
+ * into float arrays, kept points are only marked in a boolean[] and the result list is built in one
+ * pass at the end. The float arithmetic is the same as in the original recursive version, so the
+ * output is identical.
+ *
+ * <p>X AXIS: milliseconds since the first point, from the nanosecond timestamps. Absolute epoch
+ * milliseconds as float are only exact to ~2 minutes (24-bit mantissa), so all points of a burst
+ * used to share one X value and distances degenerated to pure magnitude differences.
+ *
  * <p>GENERIC TYPE T: The algorithm supports any class implementing SensorPoint (AccelData,
  * GyroData, MagnetData, custom sensor types, etc.)
  */
@@ -30,90 +41,121 @@ public class DouglasPeukerAlg {
      */
     public static <T extends SensorPoint> List<T> simplify(List<T> list, float epsilon) {
         if (list == null || list.size() < 3) return list; // too few points to simplify
-        return dp(list, 0, list.size() - 1, epsilon);
+
+        int n = list.size();
+
+        // Graph space, computed once: X-axis = ms since the first point, Y-axis = magnitude.
+        long origin = list.get(0).getTimestampNanos();
+        float[] xs = new float[n];
+        float[] ys = new float[n];
+        for (int i = 0; i < n; i++) {
+            T p = list.get(i);
+            xs[i] = (p.getTimestampNanos() - origin) / 1e6f;
+            ys[i] = magnitude(p);
+        }
+
+        boolean[] keep = new boolean[n];
+        int kept = dp(xs, ys, keep, epsilon);
+
+        List<T> out = new ArrayList<>(kept);
+        for (int i = 0; i < n; i++) {
+            if (keep[i]) out.add(list.get(i));
+        }
+        return out;
     }
 
     /**
-     * Recursive Douglas–Peucker implementation.
+     * Iterative Douglas–Peucker over the whole range. Marks every kept index in {@code keep}.
      *
-     * @param pts All points
-     * @param start Index of first point in segment
-     * @param end Index of last point in segment
+     * @param xs Milliseconds since the first point, for all points
+     * @param ys Magnitudes of all points
+     * @param keep Output: true for every point that survives
      * @param epsilon Threshhold for keeping detail
+     * @return number of kept points
      */
-    private static <T extends SensorPoint> List<T> dp(
-            List<T> pts, int start, int end, float epsilon) {
-
-        float maxDistance = 0f;
-        int indexOfFarthest = -1;
+    private static int dp(float[] xs, float[] ys, boolean[] keep, float epsilon) {
+        int n = xs.length;
+        keep[0] = true;
+        keep[n - 1] = true;
+        int kept = 2;
 
-        T first = pts.get(start);
-        T last = pts.get(end);
+        // Pending segments as (start, end) pairs.
+        int[] stack = new int[64];
+        int top = 0;
+        stack[top++] = 0;
+        stack[top++] = n - 1;
 
-        // Find the point most distant from the baseline
-        for (int i = start + 1; i < end; i++) {
-            float dist = perpendicularDistance(pts.get(i), first, last);
-            if (dist > maxDistance) {
-                maxDistance = dist;
-                indexOfFarthest = i;
-            }
-        }
+        while (top > 0) {
+            int end = stack[--top];
+            int start = stack[--top];
 
-        // If the farthest point exceeds tolerance → split in two segments
-        if (maxDistance > epsilon) {
+            int indexOfFarthest = indexOfFarthest(xs, ys, start, end, epsilon);
 
-            List<T> left = dp(pts, start, indexOfFarthest, epsilon);
-            List<T> right = dp(pts, indexOfFarthest, end, epsilon);
+            // Segment is flat → only its endpoints (already marked) remain
+            if (indexOfFarthest < 0) continue;
 
-            // Combine results: include all from left except last,
-            // then include all from right.
-            List<T> combined = new ArrayList<>(left);
-            combined.remove(combined.size() - 1);
-            combined.addAll(right);
+            // The farthest point exceeds tolerance → keep it and split in two segments
+            keep[indexOfFarthest] = true;
+            kept++;
 
-            return combined;
-
-        } else {
-            // Segment is flat → reduce to endpoints
-            List<T> out = new ArrayList<>();
-            out.add(first);
-            out.add(last);
-            return out;
+            if (top + 4 > stack.length) {
+                stack = Arrays.copyOf(stack, stack.length * 2);
+            }
+            if (end - indexOfFarthest > 1) {
+                stack[top++] = indexOfFarthest;
+                stack[top++] = end;
+            }
+            if (indexOfFarthest - start > 1) {
+                stack[top++] = start;
+                stack[top++] = indexOfFarthest;
+            }
         }
+        return kept;
     }
 
     /**
-     * Compute perpendicular distance of point p from line AB.
+     * Finds the point between start and end that is most distant from the baseline.
      *
-     * <p>X-axis = timestamp. Y-axis = magnitude of (x,y,z vector).
+     * @return its index, or -1 if no point is farther away than epsilon.
      */
-    private static float perpendicularDistance(SensorPoint p, SensorPoint a, SensorPoint b) {
-
-        // Convert sensor point to graph space
-        float x = p.getTimestamp();
-        float y = magnitude(p);
+    private static int indexOfFarthest(float[] xs, float[] ys, int start, int end, float epsilon) {
+        float maxDistance = 0f;
+        int indexOfFarthest = -1;
 
-        float x1 = a.getTimestamp();
-        float y1 = magnitude(a);
+        float x1 = xs[start];
+        float y1 = ys[start];
 
-        float x2 = b.getTimestamp();
-        float y2 = magnitude(b);
+        float x2 = xs[end];
+        float y2 = ys[end];
 
         float dx = x2 - x1;
         float dy = y2 - y1;
 
-        // If both points are identical → fallback to point distance
         if (dx == 0 && dy == 0) {
-            dx = x - x1;
-            dy = y - y1;
-            return (float) Math.sqrt(dx * dx + dy * dy);
+            // If both points are identical → fallback to point distance
+            for (int i = start + 1; i < end; i++) {
+                float px = xs[i] - x1;
+                float py = ys[i] - y1;
+                float dist = (float) Math.sqrt(px * px + py * py);
+                if (dist > maxDistance) {
+                    maxDistance = dist;
+                    indexOfFarthest = i;
+                }
+            }
+        } else {
+            // Standard perpendicular distance formula (denominator is the same for the segment)
+            float denominator = (float) Math.sqrt(dx * dx + dy * dy);
+            for (int i = start + 1; i < end; i++) {
+                float numerator = Math.abs(dy * xs[i] - dx * ys[i] + x2 * y1 - y2 * x1);
+                float dist = numerator / denominator;
+                if (dist > maxDistance) {
+                    maxDistance = dist;
+                    indexOfFarthest = i;
+                }
+            }
         }
 
-        // Standard perpendicular distance formula
-        float numerator = Math.abs(dy * x - dx * y + x2 * y1 - y2 * x1);
-        float denominator = (float) Math.sqrt(dx * dx + dy * dy);
-
-        return numerator / denominator;
+        return maxDistance > epsilon ? indexOfFarthest : -1;
     }
 
     /** Magnitude of a 3D acceleration/gyro/magnet vector. sqrt(x² + y² + z²) */
@@ -0,0 +1,26 @@
+package com.fhdw.biot.speech.iot.graph;
+
+import com.fhdw.biot.speech.iot.sensor.SensorPoint;
+import java.util.List;
+
+/**
+ * Downsampler ----------- Reduces a time series to a FIXED number of points.
+ *
+ * <p>Unlike {@link DouglasPeukerAlg} (whose output size depends on epsilon and on how noisy the
+ * data is) an implementation never returns more than {@code targetPoints} points, so the number of
+ * chart entries stays bounded no matter how long the selected range is.
+ *
+ * <p>Implementations work on the same graph space as Douglas–Peucker: X = timestamp, Y = magnitude
+ * of the (x,y,z) vector. They only select points, the returned objects are the original ones in
+ * their original order.
+ */
+public interface Downsampler {
+
+    /**
+     * @param points Full list of data points, sorted by timestamp.
+     * @param targetPoints Maximum number of points to return (at least 3).
+     * @return {@code points} itself if it already fits, otherwise a new list with the selected
+     *     points.
+     */
+    <T extends SensorPoint> List<T> downsample(List<T> points, int targetPoints);
+}
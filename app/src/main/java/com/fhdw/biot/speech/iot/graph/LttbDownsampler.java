@@ -0,0 +1,86 @@
+package com.fhdw.biot.speech.iot.graph;
+
+import com.fhdw.biot.speech.iot.sensor.SensorPoint;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * LttbDownsampler --------------- Largest-Triangle-Three-Buckets (Steinarsson, 2013).
+ *
+ * <p>HOW IT WORKS: 1. Keep the first and the last point. 2. Split the points in between into
+ * (targetPoints - 2) buckets of equal size. 3. From every bucket keep the point that forms the
+ * largest triangle with the point kept from the previous bucket and the average of the next bucket.
+ *
+ * <p>This keeps peaks and the visual shape of the line in O(n) with a single pass.
+ */
+public class LttbDownsampler implements Downsampler {
+
+    @Override
+    public <T extends SensorPoint> List<T> downsample(List<T> points, int targetPoints) {
+        if (points == null || targetPoints < 3 || points.size() <= targetPoints) return points;
+
+        int n = points.size();
+
+        // Graph space, computed once (relative time keeps the double math well-conditioned).
+        long first = points.get(0).getTimestampNanos();
+        double[] xs = new double[n];
+        double[] ys = new double[n];
+        for (int i = 0; i < n; i++) {
+            T p = points.get(i);
+            xs[i] = (p.getTimestampNanos() - first) / 1e6;
+            ys[i] = magnitude(p);
+        }
+
+        List<T> out = new ArrayList<>(targetPoints);
+        out.add(points.get(0));
+
+        // Bucket size for the points between the first and the last one.
+        double bucketSize = (double) (n - 2) / (targetPoints - 2);
+        int selected = 0;
+
+        for (int bucket = 0; bucket < targetPoints - 2; bucket++) {
+            int start = (int) (bucket * bucketSize) + 1;
+            int end = (int) ((bucket + 1) * bucketSize) + 1;
+
+            // Average of the NEXT bucket (for the last bucket: the last point).
+            int nextStart = end;
+            int nextEnd = Math.min((int) ((bucket + 2) * bucketSize) + 1, n);
+            if (nextStart >= n - 1) {
+                nextStart = n - 1;
+                nextEnd = n;
+            }
+            double avgX = 0;
+            double avgY = 0;
+            for (int i = nextStart; i < nextEnd; i++) {
+                avgX += xs[i];
+                avgY += ys[i];
+            }
+            avgX /= nextEnd - nextStart;
+            avgY /= nextEnd - nextStart;
+
+            // Point with the largest triangle (selected, candidate, next average).
+            double ax = xs[selected];
+            double ay = ys[selected];
+            double maxArea = -1;
+            int maxIndex = start;
+            for (int i = start; i < end; i++) {
+                double area = Math.abs((ax - avgX) * (ys[i] - ay) - (ax - xs[i]) * (avgY - ay));
+                if (area > maxArea) {
+                    maxArea = area;
+                    maxIndex = i;
+                }
+            }
+
+            out.add(points.get(maxIndex));
+            selected = maxIndex;
+        }
+
+        out.add(points.get(n - 1));
+        return out;
+    }
+
+    /** Magnitude of a 3D acceleration/gyro/magnet vector. sqrt(x² + y² + z²) */
+    private static double magnitude(SensorPoint p) {
+        return Math.sqrt(p.getX() * p.getX() + p.getY() * p.getY() + p.getZ() * p.getZ());
+    }
+}
@@ -1,11 +1,11 @@
 package com.fhdw.biot.speech.iot.graph;
 
 import android.content.Intent;
-import android.content.SharedPreferences;
 import android.graphics.Color;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.Looper;
+import android.util.Pair;
 import android.widget.Button;
 import android.widget.CheckBox;
 import android.widget.ImageButton;
@@ -21,6 +21,9 @@ import com.fhdw.biot.speech.iot.main.MainActivity;
 import com.fhdw.biot.speech.iot.sensor.AccelActivity;
 import com.fhdw.biot.speech.iot.sensor.GyroActivity;
 import com.fhdw.biot.speech.iot.sensor.MagnetActivity;
+import com.fhdw.biot.speech.iot.sensor.SensorHistory;
+import com.fhdw.biot.speech.iot.sensor.SensorPoint;
+import com.fhdw.biot.speech.iot.sensor.SensorSample;
 import com.fhdw.biot.speech.iot.settings.SettingsActivity;
 import com.fhdw.biot.speech.iot.util.DatePickerHandler;
 import com.github.mikephil.charting.charts.LineChart;
@@ -28,13 +31,20 @@ import com.github.mikephil.charting.data.Entry;
 import com.github.mikephil.charting.data.LineData;
 import com.github.mikephil.charting.data.LineDataSet;
 import database.DB;
-import database.entities.AccelData;
-import database.entities.GyroData;
-import database.entities.MagnetData;
+import database.Rollups;
+import database.SampleLog;
+import database.SampleLogCompactor;
+import database.SampleStreams;
+import database.dao.SensorDao;
+import database.entities.SensorReading;
+import database.entities.SensorRollup;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.List;
 import java.util.Locale;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.LongFunction;
 
 /**
  * MainGraphActivity ----------------- THIS IS THE MAIN VISUALIZATION SCREEN FOR THE ENTIRE APP.
@@ -45,14 +55,32 @@ import java.util.Locale;
  * the date range, - the user toggles checkboxes.
  *
  * <p>INTERNAL STRUCTURE: 1. Three LineCharts → Accel, Gyro, Magnet. 2. Each chart can display up to
- * 4 datasets: - X axis, Y axis, Z axis, and total magnitude (sqrt(x²+y²+z²)) 3. The Activity
- * obtains data from Room using LiveData so updates are automatic. 4. Date ranges are applied using
- * DB filters and LiveData re-queries. 5. The actual drawing logic comes from BaseChartActivity.
+ * 4 datasets: - X axis, Y axis, Z axis, and total magnitude (sqrt(x²+y²+z²)) 3. The Activity loads
+ * a date range from Room once and reloads it when the tables change, at most every {@link
+ * #TABLE_REFRESH_INTERVAL_MS} (BaseChartActivity#refreshOnTableChanges). 4. Date ranges are applied
+ * using DB filters. 5. The actual drawing logic comes from BaseChartActivity.
+ *
+ * <p>LONG RANGES: when a date range spans more time than the chart has pixels at 1 s per pixel, the
+ * charts read the rollup table ({@link Rollups}) at the coarsest resolution that still gives one
+ * bucket per pixel, and draw each bucket as its min/max envelope. Raw rows are only loaded for
+ * short ranges, and then streamed from the cursor in chunks ({@link SampleStreams}) instead of
+ * being loaded as one entity list.
  *
  * <p>This Activity is essentially a "dashboard" combining multiple real-time sensor signals.
  */
 public class MainGraphActivity extends BaseChartActivity {
 
+    // Keys for the background chart preparation (one per chart).
+    private static final String CHART_KEY_ACCEL = "accel";
+    private static final String CHART_KEY_GYRO = "gyro";
+    private static final String CHART_KEY_MAG = "magnet";
+
+    // Live window ("last 10 minutes"): datasets that are refreshed incrementally, see
+    // SlidingWindow.
+    private final SlidingWindow accelWindow = newLiveWindow();
+    private final SlidingWindow gyroWindow = newLiveWindow();
+    private final SlidingWindow magWindow = newLiveWindow();
+
     // -----------------------------------------------
     // CHARTS — one for each sensor category
     // -----------------------------------------------
@@ -64,10 +92,6 @@ public class MainGraphActivity extends BaseChartActivity {
     private Calendar dateFromCalendar;
     private Calendar dateToCalendar;
 
-    private LiveData<List<AccelData>> currentAccelLiveData;
-    private LiveData<List<GyroData>> currentGyroLiveData;
-    private LiveData<List<MagnetData>> currentMagLiveData;
-
     // -----------------------------------------------
     // DATASETS FOR ALL AXES AND TOTAL MAGNITUDE
     // These objects hold the chart data before deciding
@@ -194,6 +218,18 @@ public class MainGraphActivity extends BaseChartActivity {
 
         // Finally setup date pickers for filtering
         setupDatePickers();
+
+        // New rows → reload the filtered range, throttled (the live window has its own tick).
+        refreshOnTableChanges(
+                TABLE_REFRESH_INTERVAL_MS,
+                () -> {
+                    if (!isTenMinuteFilterActive) updateChartsWithDateFilter();
+                },
+                "accel_data",
+                "gyro_data",
+                "magnet_data",
+                "sensor_block",
+                "sensor_rollup");
     }
 
     // =====================================================================
@@ -258,74 +294,158 @@ public class MainGraphActivity extends BaseChartActivity {
     private void updateChartsWithDateFilter() {
         if (dateFromCalendar == null || dateToCalendar == null) return;
 
-        if (currentAccelLiveData != null) currentAccelLiveData.removeObservers(this);
-        if (currentGyroLiveData != null) currentGyroLiveData.removeObservers(this);
-        if (currentMagLiveData != null) currentMagLiveData.removeObservers(this);
+        // The old range is obsolete: abort chart preparations that are still running for it.
+        cancelChartPreparation(CHART_KEY_ACCEL);
+        cancelChartPreparation(CHART_KEY_GYRO);
+        cancelChartPreparation(CHART_KEY_MAG);
+        accelWindow.detach();
+        gyroWindow.detach();
+        magWindow.detach();
+
+        if (isTenMinuteFilterActive) {
+            // Load once, then the sliding window tick only appends new rows.
+            loadAccelLiveWindow();
+            loadGyroLiveWindow();
+            loadMagLiveWindow();
+            return;
+        }
 
         long fromTime = dateFromCalendar.getTimeInMillis();
-        long toTime;
 
-        if (isTenMinuteFilterActive) {
-            toTime = dateToCalendar.getTimeInMillis();
-        } else {
-            Calendar adjustedTo = (Calendar) dateToCalendar.clone();
-            adjustedTo.set(Calendar.HOUR_OF_DAY, 23);
-            adjustedTo.set(Calendar.MINUTE, 59);
-            adjustedTo.set(Calendar.SECOND, 59);
-            toTime = adjustedTo.getTimeInMillis();
+        Calendar adjustedTo = (Calendar) dateToCalendar.clone();
+        adjustedTo.set(Calendar.HOUR_OF_DAY, 23);
+        adjustedTo.set(Calendar.MINUTE, 59);
+        adjustedTo.set(Calendar.SECOND, 59);
+        long toTime = adjustedTo.getTimeInMillis();
+
+        // Long range → one aggregate per pixel instead of every raw row.
+        int width = chartWidth(lineChartAccel);
+        long resolution = Rollups.pickResolution(fromTime, toTime, width);
+        if (resolution != Rollups.RAW) {
+            loadRollups(
+                    SensorReading.ACCEL,
+                    resolution,
+                    fromTime,
+                    toTime,
+                    CHART_KEY_ACCEL,
+                    lineChartAccel,
+                    "Beschleunigung",
+                    this::setAccelDataSets);
+            loadRollups(
+                    SensorReading.GYRO,
+                    resolution,
+                    fromTime,
+                    toTime,
+                    CHART_KEY_GYRO,
+                    lineChartGyro,
+                    "Gyroskop",
+                    this::setGyroDataSets);
+            loadRollups(
+                    SensorReading.MAGNET,
+                    resolution,
+                    fromTime,
+                    toTime,
+                    CHART_KEY_MAG,
+                    lineChartMag,
+                    "Magnetfeld",
+                    this::setMagDataSets);
+            return;
         }
 
-        // ============================
-        // ACCEL DATA
-        // ============================
-        currentAccelLiveData =
-                DB.getDatabase(getApplicationContext())
-                        .sensorDao()
-                        .getAccelDataBetween(fromTime, toTime);
-        currentAccelLiveData.observe(
-                this,
-                data -> {
-                    if (data != null && !data.isEmpty()) initializeAccelDataSets(data);
-                    else {
-                        lineDataAccelx =
-                                lineDataAccely = lineDataAccelz = lineDataAccelTotal = null;
-                        setupChart(lineChartAccel, "Beschleunigung", 0);
-                    }
-                    updateAccelChart();
-                });
+        // Short range → raw rows, streamed chunk by chunk (see streamRange).
+        streamRange(
+                SensorReading.ACCEL,
+                fromTime,
+                toTime,
+                CHART_KEY_ACCEL,
+                lineChartAccel,
+                "Beschleunigung",
+                this::setAccelDataSets);
+        streamRange(
+                SensorReading.GYRO,
+                fromTime,
+                toTime,
+                CHART_KEY_GYRO,
+                lineChartGyro,
+                "Gyroskop",
+                this::setGyroDataSets);
+        streamRange(
+                SensorReading.MAGNET,
+                fromTime,
+                toTime,
+                CHART_KEY_MAG,
+                lineChartMag,
+                "Magnetfeld",
+                this::setMagDataSets);
+    }
 
-        // ============================
-        // GYRO DATA
-        // ============================
-        currentGyroLiveData =
-                DB.getDatabase(getApplicationContext())
-                        .sensorDao()
-                        .getGyroDataBetween(fromTime, toTime);
-        currentGyroLiveData.observe(
-                this,
-                data -> {
-                    if (data != null && !data.isEmpty()) initializeGyroDataSets(data);
-                    else {
-                        lineDataGyrox = lineDataGyroy = lineDataGyroz = lineDataGyroTotal = null;
-                        setupChart(lineChartGyro, "Gyroskop", 0);
+    /**
+     * Raw variant of {@link #loadRollups}: streams the rows of one sensor in {@code [from, to]}
+     * straight from the cursor through a {@link StreamingMinMaxDownsampler}, so memory stays
+     * constant however many rows the range holds, then builds the datasets from the reduced points
+     * (the reduction chosen in Settings still applies on top). The newest minutes come from the
+     * mapped {@link SampleLog}, including samples not yet compacted into Room. One-shot.
+     */
+    private void streamRange(
+            int sensor,
+            long from,
+            long to,
+            String key,
+            LineChart chart,
+            String label,
+            Consumer<LineDataSet[]> assign) {
+        int chartWidth = chartWidth(chart);
+        SensorDao dao = liveDao();
+        SampleLog sampleLog = SampleLogCompactor.getInstance(getApplicationContext()).getLog();
+        prepareChartData(
+                key,
+                () -> {
+                    List<SensorSample> points =
+                            streamReduced(dao, sampleLog, sensor, from, to, chartWidth);
+                    return points.isEmpty() ? null : buildDataSets(points, chartWidth);
+                },
+                sets -> {
+                    if (sets == null) {
+                        // No data in this range → clear the chart to avoid stale plots.
+                        assign.accept(new LineDataSet[4]);
+                        setupChart(chart, label, 0);
+                    } else {
+                        assign.accept(sets);
                     }
                     updateAccelChart();
                 });
+    }
 
-        // ============================
-        // MAGNET DATA
-        // ============================
-        currentMagLiveData =
-                DB.getDatabase(getApplicationContext())
-                        .sensorDao()
-                        .getMagnetDataBetween(fromTime, toTime);
-        currentMagLiveData.observe(
-                this,
-                data -> {
-                    if (data != null && !data.isEmpty()) initializeMagDataSets(data);
-                    else {
-                        lineDataMagx = lineDataMagy = lineDataMagz = lineDataMagTotal = null;
-                        setupChart(lineChartMag, "Magnetfeld", 0);
+    /**
+     * Loads the rollups of one sensor in {@code [from, to]} once and builds its datasets; newer
+     * buckets arrive through the table refresh (see onCreate).
+     */
+    private void loadRollups(
+            int sensor,
+            long resolution,
+            long from,
+            long to,
+            String key,
+            LineChart chart,
+            String label,
+            Consumer<LineDataSet[]> assign) {
+        SensorDao dao = liveDao();
+        prepareChartData(
+                key,
+                () -> {
+                    List<SensorRollup> rollups =
+                            dao.loadRollupsBetween(
+                                    sensor, resolution, Rollups.bucketStart(from, resolution), to);
+                    if (rollups.isEmpty()) return null;
+                    return Pair.create(rollups.get(0).bucketStart, buildRollupDataSets(rollups));
+                },
+                result -> {
+                    if (result == null) {
+                        assign.accept(new LineDataSet[4]);
+                        setupChart(chart, label, 0);
+                    } else {
+                        setupChart(chart, label, result.first);
+                        assign.accept(result.second);
                     }
                     updateAccelChart();
                 });
@@ -405,7 +525,7 @@ public class MainGraphActivity extends BaseChartActivity {
                         dateToCalendar.setTimeInMillis(now);
 
                         syncDateButtonTexts();
-                        updateChartsWithDateFilter();
+                        refreshLiveWindows();
 
                         slidingWindowHandler.postDelayed(this, 5000);
                     }
@@ -440,207 +560,262 @@ public class MainGraphActivity extends BaseChartActivity {
     }
 
     // =====================================================================
-    // LIVE DATA OBSERVERS — REAL-TIME DATABASE UPDATES
+    // DATASET CONSTRUCTION FOR EACH SENSOR
+    // Converts DB rows → LineDataSet objects for charts
     // =====================================================================
 
-    private void observeAccelData() {
-        DB.getDatabase(getApplicationContext())
-                .sensorDao()
-                .getAllAccelData()
-                .observe(
-                        this,
-                        list -> {
-                            if (list != null && !list.isEmpty()) {
-                                long first = list.get(0).timestamp;
-                                setupChart(lineChartAccel, "Beschleunigung", first);
-                                initializeAccelDataSets(list);
-                                updateAccelChart();
-                            }
-                        });
+    private void setAccelDataSets(LineDataSet[] sets) {
+        lineDataAccelx = sets[0];
+        lineDataAccely = sets[1];
+        lineDataAccelz = sets[2];
+        lineDataAccelTotal = sets[3];
     }
 
-    private void observeGyroData() {
-        DB.getDatabase(getApplicationContext())
-                .sensorDao()
-                .getAllGyroData()
-                .observe(
-                        this,
-                        list -> {
-                            if (list != null && !list.isEmpty()) {
-                                long first = list.get(0).timestamp;
-                                setupChart(lineChartGyro, "Gyroskop", first);
-                                initializeGyroDataSets(list);
-                                updateAccelChart();
-                            }
-                        });
+    private void setGyroDataSets(LineDataSet[] sets) {
+        lineDataGyrox = sets[0];
+        lineDataGyroy = sets[1];
+        lineDataGyroz = sets[2];
+        lineDataGyroTotal = sets[3];
     }
 
-    private void observeMagnetData() {
-        DB.getDatabase(getApplicationContext())
-                .sensorDao()
-                .getAllMagnetData()
-                .observe(
-                        this,
-                        list -> {
-                            if (list != null && !list.isEmpty()) {
-                                long first = list.get(0).timestamp;
-                                setupChart(lineChartMag, "Magnetfeld", first);
-                                initializeMagDataSets(list);
-                                updateAccelChart();
-                            }
-                        });
+    private void setMagDataSets(LineDataSet[] sets) {
+        lineDataMagx = sets[0];
+        lineDataMagy = sets[1];
+        lineDataMagz = sets[2];
+        lineDataMagTotal = sets[3];
     }
 
     // =====================================================================
-    // DATASET CONSTRUCTION FOR EACH SENSOR
-    // Converts DB rows → LineDataSet objects for charts
+    // LIVE WINDOW ("LAST 10 MINUTES")
+    // One-shot full load → attach → every tick only appends the new rows.
+    // Recent rows come from SensorHistory (in-memory), only older ones from storage (rows, blocks
+    // or the sample log, see BaseChartActivity#storedSamples).
     // =====================================================================
 
-    private void initializeAccelDataSets(List<AccelData> list) {
-        // Check if Douglas-Peucker is enabled in Settings
-        SharedPreferences prefs = getSharedPreferences("GraphSettings", MODE_PRIVATE);
-        boolean dpEnabled = prefs.getBoolean("dp_enabled", false);
+    /** Same dataset order as {@link #buildDataSets}: X, Y, Z, total. */
+    private static SlidingWindow newLiveWindow() {
+        return new SlidingWindow(
+                SlidingWindow.X, SlidingWindow.Y, SlidingWindow.Z, SlidingWindow.MAGNITUDE);
+    }
 
-        List<AccelData> dataToUse = list;
+    private void loadAccelLiveWindow() {
+        loadLiveWindow(
+                CHART_KEY_ACCEL,
+                accelWindow,
+                lineChartAccel,
+                "Beschleunigung",
+                (from, to) ->
+                        SensorHistory.ACCEL.readRange(from, to, storedSamples(SensorReading.ACCEL)),
+                this::setAccelDataSets);
+    }
 
-        // Only apply Douglas-Peucker if enabled
-        if (dpEnabled) {
-            float epsilon = EpsilonCalculator.calculateEpsilon(this, list);
-            dataToUse = DouglasPeukerAlg.simplify(list, epsilon);
-        }
+    private void loadGyroLiveWindow() {
+        loadLiveWindow(
+                CHART_KEY_GYRO,
+                gyroWindow,
+                lineChartGyro,
+                "Gyroskop",
+                (from, to) ->
+                        SensorHistory.GYRO.readRange(from, to, storedSamples(SensorReading.GYRO)),
+                this::setGyroDataSets);
+    }
 
-        ArrayList<Entry> xs = new ArrayList<>();
-        ArrayList<Entry> ys = new ArrayList<>();
-        ArrayList<Entry> zs = new ArrayList<>();
-        ArrayList<Entry> totals = new ArrayList<>();
-
-        long first = list.get(0).timestamp;
-
-        for (AccelData d : dataToUse) {
-            float t = d.timestamp - first;
-            xs.add(new Entry(t, d.accelX));
-            ys.add(new Entry(t, d.accelY));
-            zs.add(new Entry(t, d.accelZ));
-            totals.add(
-                    new Entry(
-                            t,
-                            (float)
-                                    Math.sqrt(
-                                            d.accelX * d.accelX
-                                                    + d.accelY * d.accelY
-                                                    + d.accelZ * d.accelZ)));
-        }
+    private void loadMagLiveWindow() {
+        loadLiveWindow(
+                CHART_KEY_MAG,
+                magWindow,
+                lineChartMag,
+                "Magnetfeld",
+                (from, to) ->
+                        SensorHistory.MAGNET.readRange(
+                                from, to, storedSamples(SensorReading.MAGNET)),
+                this::setMagDataSets);
+    }
 
-        lineDataAccelx = new LineDataSet(xs, "X-Achse");
-        lineDataAccelx.setColor(Color.CYAN);
-        lineDataAccelx.setDrawCircles(false);
-        lineDataAccely = new LineDataSet(ys, "Y-Achse");
-        lineDataAccely.setColor(Color.WHITE);
-        lineDataAccely.setDrawCircles(false);
-        lineDataAccelz = new LineDataSet(zs, "Z-Achse");
-        lineDataAccelz.setColor(Color.GREEN);
-        lineDataAccelz.setDrawCircles(false);
-        lineDataAccelTotal = new LineDataSet(totals, "Summe");
-        lineDataAccelTotal.setColor(Color.RED);
-        lineDataAccelTotal.setDrawCircles(false);
+    /** Sliding window tick: incremental per sensor, full load where nothing is attached yet. */
+    private void refreshLiveWindows() {
+        long toTime = dateToCalendar.getTimeInMillis();
+        refreshLiveWindow(
+                CHART_KEY_ACCEL,
+                accelWindow,
+                after ->
+                        SensorHistory.ACCEL.readRange(
+                                after + 1, toTime, storedSamples(SensorReading.ACCEL)),
+                this::loadAccelLiveWindow);
+        refreshLiveWindow(
+                CHART_KEY_GYRO,
+                gyroWindow,
+                after ->
+                        SensorHistory.GYRO.readRange(
+                                after + 1, toTime, storedSamples(SensorReading.GYRO)),
+                this::loadGyroLiveWindow);
+        refreshLiveWindow(
+                CHART_KEY_MAG,
+                magWindow,
+                after ->
+                        SensorHistory.MAGNET.readRange(
+                                after + 1, toTime, storedSamples(SensorReading.MAGNET)),
+                this::loadMagLiveWindow);
     }
 
-    private void initializeGyroDataSets(List<GyroData> list) {
-        // Check if Douglas-Peucker is enabled in Settings
-        SharedPreferences prefs = getSharedPreferences("GraphSettings", MODE_PRIVATE);
-        boolean dpEnabled = prefs.getBoolean("dp_enabled", false);
+    private SensorDao liveDao() {
+        return DB.getDatabase(getApplicationContext()).sensorDao();
+    }
 
-        List<GyroData> dataToUse = list;
+    /**
+     * Full load of one chart for the current live range; attaches {@code window} to the new
+     * datasets.
+     *
+     * @param rowsBetween Background query (from, to) → rows sorted by timestamp.
+     * @param assign Stores the 4 datasets in the fields read by {@link #updateAccelChart()}.
+     */
+    private <T extends SensorPoint> void loadLiveWindow(
+            String key,
+            SlidingWindow window,
+            LineChart chart,
+            String label,
+            BiFunction<Long, Long, List<T>> rowsBetween,
+            Consumer<LineDataSet[]> assign) {
+        long fromTime = dateFromCalendar.getTimeInMillis();
+        long toTime = dateToCalendar.getTimeInMillis();
+        int chartWidth = chart.getWidth();
+
+        prepareChartData(
+                key,
+                () ->
+                        SlidingWindow.Snapshot.of(
+                                rowsBetween.apply(fromTime, toTime),
+                                rows -> buildDataSets(rows, chartWidth)),
+                snapshot -> {
+                    if (snapshot == null) {
+                        assign.accept(new LineDataSet[4]);
+                        setupChart(chart, label, 0);
+                        chart.clear();
+                        updateAccelChart();
+                        return;
+                    }
+                    setupChart(chart, label, snapshot.firstTimestamp);
+                    assign.accept(snapshot.data);
+                    window.attach(snapshot.data, snapshot.firstTimestamp, snapshot.lastTimestamp);
+                    updateAccelChart();
+                });
+    }
 
-        // Only apply Douglas-Peucker if enabled
-        if (dpEnabled) {
-            float epsilon = EpsilonCalculator.calculateEpsilon(this, list);
-            dataToUse = DouglasPeukerAlg.simplify(list, epsilon);
-        }
+    /**
+     * Appends the rows newer than the last shown one and drops what left the window.
+     *
+     * @param fullLoad Used instead while {@code window} is detached (first tick, window ran empty).
+     */
+    private <T extends SensorPoint> void refreshLiveWindow(
+            String key, SlidingWindow window, LongFunction<List<T>> rowsAfter, Runnable fullLoad) {
+        if (isChartPreparationPending(key)) return; // previous load still running
 
-        ArrayList<Entry> xs = new ArrayList<>();
-        ArrayList<Entry> ys = new ArrayList<>();
-        ArrayList<Entry> zs = new ArrayList<>();
-        ArrayList<Entry> totals = new ArrayList<>();
-
-        long first = list.get(0).timestamp;
-
-        for (GyroData d : dataToUse) {
-            float t = d.timestamp - first;
-            xs.add(new Entry(t, d.gyroX));
-            ys.add(new Entry(t, d.gyroY));
-            zs.add(new Entry(t, d.gyroZ));
-            totals.add(
-                    new Entry(
-                            t,
-                            (float)
-                                    Math.sqrt(
-                                            d.gyroX * d.gyroX
-                                                    + d.gyroY * d.gyroY
-                                                    + d.gyroZ * d.gyroZ)));
+        if (!window.isAttached()) {
+            fullLoad.run();
+            return;
         }
 
-        lineDataGyrox = new LineDataSet(xs, "X-Achse");
-        lineDataGyrox.setColor(Color.CYAN);
-        lineDataGyrox.setDrawCircles(false);
-        lineDataGyroy = new LineDataSet(ys, "Y-Achse");
-        lineDataGyroy.setColor(Color.WHITE);
-        lineDataGyroy.setDrawCircles(false);
-        lineDataGyroz = new LineDataSet(zs, "Z-Achse");
-        lineDataGyroz.setColor(Color.GREEN);
-        lineDataGyroz.setDrawCircles(false);
-        lineDataGyroTotal = new LineDataSet(totals, "Summe");
-        lineDataGyroTotal.setColor(Color.RED);
-        lineDataGyroTotal.setDrawCircles(false);
+        appendToSlidingWindow(
+                key,
+                window,
+                rowsAfter,
+                dateFromCalendar.getTimeInMillis(),
+                () -> {
+                    if (!window.isAttached()) {
+                        fullLoad.run(); // window ran empty
+                        return;
+                    }
+                    // Same LineDataSet objects, new contents → rebuild LineData + redraw.
+                    updateAccelChart();
+                });
     }
 
-    private void initializeMagDataSets(List<MagnetData> list) {
-        // Check if Douglas-Peucker is enabled in Settings
-        SharedPreferences prefs = getSharedPreferences("GraphSettings", MODE_PRIVATE);
-        boolean dpEnabled = prefs.getBoolean("dp_enabled", false);
+    /**
+     * Background part of the dataset construction (runs inside {@link #prepareChartData}, never
+     * touches views).
+     *
+     * @return X, Y, Z and total ("Summe") datasets, in this order.
+     */
+    private <T extends SensorPoint> LineDataSet[] buildDataSets(List<T> list, int chartWidth) {
+        // Data reduction (Douglas-Peucker / LTTB / min-max) as chosen in Settings
+        List<T> dataToUse = ChartDownsampling.reduce(this, list, chartWidth);
+        throwIfCancelled();
+
+        ArrayList<Entry> xs = new ArrayList<>(dataToUse.size());
+        ArrayList<Entry> ys = new ArrayList<>(dataToUse.size());
+        ArrayList<Entry> zs = new ArrayList<>(dataToUse.size());
+        ArrayList<Entry> totals = new ArrayList<>(dataToUse.size());
+
+        long first = list.get(0).getTimestamp();
+
+        for (int i = 0; i < dataToUse.size(); i++) {
+            if (i % CANCELLATION_CHECK_INTERVAL == 0) throwIfCancelled();
+            T d = dataToUse.get(i);
+            float t = d.elapsedMillis(first);
+            float x = d.getX();
+            float y = d.getY();
+            float z = d.getZ();
+            xs.add(new Entry(t, x));
+            ys.add(new Entry(t, y));
+            zs.add(new Entry(t, z));
+            totals.add(new Entry(t, (float) Math.sqrt(x * x + y * y + z * z)));
+        }
 
-        List<MagnetData> dataToUse = list;
+        return styleDataSets(xs, ys, zs, totals);
+    }
 
-        // Only apply Douglas-Peucker if enabled
-        if (dpEnabled) {
-            float epsilon = EpsilonCalculator.calculateEpsilon(this, list);
-            dataToUse = DouglasPeukerAlg.simplify(list, epsilon);
+    /**
+     * Rollup variant of {@link #buildDataSets}: every bucket becomes its minimum at the bucket
+     * start and its maximum half a bucket later, so peaks survive the aggregation. The rollups are
+     * already about one per pixel; no further reduction.
+     */
+    private static LineDataSet[] buildRollupDataSets(List<SensorRollup> rollups) {
+        int n = rollups.size() * 2;
+        ArrayList<Entry> xs = new ArrayList<>(n);
+        ArrayList<Entry> ys = new ArrayList<>(n);
+        ArrayList<Entry> zs = new ArrayList<>(n);
+        ArrayList<Entry> totals = new ArrayList<>(n);
+
+        long first = rollups.get(0).bucketStart;
+
+        for (int i = 0; i < rollups.size(); i++) {
+            if (i % CANCELLATION_CHECK_INTERVAL == 0) throwIfCancelled();
+            SensorRollup r = rollups.get(i);
+            float tMin = r.bucketStart - first;
+            float tMax = tMin + r.resolutionMs / 2f;
+            xs.add(new Entry(tMin, r.minX));
+            xs.add(new Entry(tMax, r.maxX));
+            ys.add(new Entry(tMin, r.minY));
+            ys.add(new Entry(tMax, r.maxY));
+            zs.add(new Entry(tMin, r.minZ));
+            zs.add(new Entry(tMax, r.maxZ));
+            totals.add(new Entry(tMin, r.minMagnitude));
+            totals.add(new Entry(tMax, r.maxMagnitude));
         }
 
-        ArrayList<Entry> xs = new ArrayList<>();
-        ArrayList<Entry> ys = new ArrayList<>();
-        ArrayList<Entry> zs = new ArrayList<>();
-        ArrayList<Entry> totals = new ArrayList<>();
-
-        long first = list.get(0).timestamp;
-
-        for (MagnetData d : dataToUse) {
-            float t = d.timestamp - first;
-            xs.add(new Entry(t, d.magnetX));
-            ys.add(new Entry(t, d.magnetY));
-            zs.add(new Entry(t, d.magnetZ));
-            totals.add(
-                    new Entry(
-                            t,
-                            (float)
-                                    Math.sqrt(
-                                            d.magnetX * d.magnetX
-                                                    + d.magnetY * d.magnetY
-                                                    + d.magnetZ * d.magnetZ)));
-        }
+        return styleDataSets(xs, ys, zs, totals);
+    }
 
-        lineDataMagx = new LineDataSet(xs, "X-Achse");
-        lineDataMagx.setColor(Color.CYAN);
-        lineDataMagx.setDrawCircles(false);
-        lineDataMagy = new LineDataSet(ys, "Y-Achse");
-        lineDataMagy.setColor(Color.WHITE);
-        lineDataMagy.setDrawCircles(false);
-        lineDataMagz = new LineDataSet(zs, "Z-Achse");
-        lineDataMagz.setColor(Color.GREEN);
-        lineDataMagz.setDrawCircles(false);
-        lineDataMagTotal = new LineDataSet(totals, "Summe");
-        lineDataMagTotal.setColor(Color.RED);
-        lineDataMagTotal.setDrawCircles(false);
+    /** X, Y, Z and total ("Summe") datasets with the colours of this screen. */
+    private static LineDataSet[] styleDataSets(
+            ArrayList<Entry> xs,
+            ArrayList<Entry> ys,
+            ArrayList<Entry> zs,
+            ArrayList<Entry> totals) {
+        LineDataSet setX = new LineDataSet(xs, "X-Achse");
+        setX.setColor(Color.CYAN);
+        setX.setDrawCircles(false);
+        LineDataSet setY = new LineDataSet(ys, "Y-Achse");
+        setY.setColor(Color.WHITE);
+        setY.setDrawCircles(false);
+        LineDataSet setZ = new LineDataSet(zs, "Z-Achse");
+        setZ.setColor(Color.GREEN);
+        setZ.setDrawCircles(false);
+        LineDataSet setTotal = new LineDataSet(totals, "Summe");
+        setTotal.setColor(Color.RED);
+        setTotal.setDrawCircles(false);
+
+        return new LineDataSet[] {setX, setY, setZ, setTotal};
     }
 
     // =====================================================================
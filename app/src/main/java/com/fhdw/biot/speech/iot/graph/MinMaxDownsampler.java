@@ -0,0 +1,80 @@
+package com.fhdw.biot.speech.iot.graph;
+
+import com.fhdw.biot.speech.iot.sensor.SensorPoint;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * MinMaxDownsampler ----------------- Keeps the minimum and the maximum of every time bucket.
+ *
+ * <p>HOW IT WORKS: 1. Split the time range into (targetPoints - 2) / 2 buckets of equal duration,
+ * i.e. roughly one bucket per pixel column when the budget is 2× chart width. 2. From every bucket
+ * keep the point with the smallest and the one with the largest magnitude, in time order. 3. Keep
+ * the first and the last point.
+ *
+ * <p>Every spike survives (a line drawn through min and max of a pixel column covers the same
+ * pixels as the full data), which makes it the best choice for spotting outliers. O(n), one pass.
+ */
+public class MinMaxDownsampler implements Downsampler {
+
+    @Override
+    public <T extends SensorPoint> List<T> downsample(List<T> points, int targetPoints) {
+        if (points == null || targetPoints < 4 || points.size() <= targetPoints) return points;
+
+        int n = points.size();
+        int buckets = (targetPoints - 2) / 2;
+
+        long first = points.get(0).getTimestampNanos();
+        long last = points.get(n - 1).getTimestampNanos();
+        double bucketDuration = Math.max(1, last - first) / (double) buckets;
+
+        List<T> out = new ArrayList<>(targetPoints);
+        out.add(points.get(0));
+
+        int currentBucket = -1;
+        int minIndex = -1;
+        int maxIndex = -1;
+        float min = 0f;
+        float max = 0f;
+
+        for (int i = 1; i < n - 1; i++) {
+            T p = points.get(i);
+            int bucket =
+                    Math.min((int) ((p.getTimestampNanos() - first) / bucketDuration), buckets - 1);
+
+            if (bucket != currentBucket) {
+                emit(points, out, minIndex, maxIndex);
+                currentBucket = bucket;
+                minIndex = maxIndex = -1;
+            }
+
+            float m = magnitude(p);
+            if (minIndex < 0 || m < min) {
+                min = m;
+                minIndex = i;
+            }
+            if (maxIndex < 0 || m > max) {
+                max = m;
+                maxIndex = i;
+            }
+        }
+        emit(points, out, minIndex, maxIndex);
+
+        out.add(points.get(n - 1));
+        return out;
+    }
+
+    /** Appends min and max of one bucket in time order (once if it is the same point). */
+    private static <T> void emit(List<T> points, List<T> out, int minIndex, int maxIndex) {
+        if (minIndex < 0) return;
+        int a = Math.min(minIndex, maxIndex);
+        int b = Math.max(minIndex, maxIndex);
+        out.add(points.get(a));
+        if (b != a) out.add(points.get(b));
+    }
+
+    /** Magnitude of a 3D acceleration/gyro/magnet vector. sqrt(x² + y² + z²) */
+    private static float magnitude(SensorPoint p) {
+        return (float) Math.sqrt(p.getX() * p.getX() + p.getY() * p.getY() + p.getZ() * p.getZ());
+    }
+}
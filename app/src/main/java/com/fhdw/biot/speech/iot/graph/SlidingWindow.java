@@ -0,0 +1,198 @@
+package com.fhdw.biot.speech.iot.graph;
+
+import com.fhdw.biot.speech.iot.sensor.SensorPoint;
+import com.github.mikephil.charting.data.Entry;
+import com.github.mikephil.charting.data.LineDataSet;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * SlidingWindow ------------- Incremental refresh for the "last 10 minutes" live view.
+ *
+ * <p>Before, every 5 s tick re-queried the whole window and rebuilt every LineDataSet. Now the
+ * datasets of the last full load are kept ("attached") and every tick only:
+ *
+ * <p>1. loads the rows NEWER than {@link #getLastTimestamp()} (background thread, {@link
+ * #toChunk}), 2. appends them to the existing datasets and 3. drops the points that fell off the
+ * left edge of the window ({@link #apply}, main thread).
+ *
+ * <p>Database work and Entry creation are O(new samples). Evicting from the left shifts the backing
+ * ArrayList and recomputes min/max once per tick, a plain array pass with no allocation.
+ *
+ * <p>Each dataset shows one component of the samples: {@link #X}, {@link #Y}, {@link #Z} or {@link
+ * #MAGNITUDE}. X values are "milliseconds since origin", same as the full load.
+ */
+public class SlidingWindow {
+
+    public static final int X = 0;
+    public static final int Y = 1;
+    public static final int Z = 2;
+    public static final int MAGNITUDE = 3;
+
+    /** New rows converted to entries; one list per dataset. Built on the background thread. */
+    public static final class Chunk {
+        final Entry[][] entries;
+        final long lastTimestamp;
+
+        Chunk(Entry[][] entries, long lastTimestamp) {
+            this.entries = entries;
+            this.lastTimestamp = lastTimestamp;
+        }
+    }
+
+    /**
+     * Result of a full load: the chart data built from the rows plus the time span it covers. Built
+     * on the background thread, {@code null} if the window was empty.
+     */
+    public static final class Snapshot<D> {
+        public final D data;
+        public final long firstTimestamp;
+        public final long lastTimestamp;
+
+        private Snapshot(D data, long firstTimestamp, long lastTimestamp) {
+            this.data = data;
+            this.firstTimestamp = firstTimestamp;
+            this.lastTimestamp = lastTimestamp;
+        }
+
+        /**
+         * @return null if {@code rows} is empty.
+         */
+        public static <T extends SensorPoint, D> Snapshot<D> of(
+                List<T> rows, Function<List<T>, D> build) {
+            if (rows == null || rows.isEmpty()) return null;
+            return new Snapshot<>(
+                    build.apply(rows),
+                    rows.get(0).getTimestamp(),
+                    rows.get(rows.size() - 1).getTimestamp());
+        }
+    }
+
+    /** What each dataset shows (X / Y / Z / MAGNITUDE). */
+    private final int[] components;
+
+    // ---- state of the attached datasets (main thread only) ----
+    private LineDataSet[] dataSets;
+    private long origin;
+    private long lastTimestamp;
+
+    /**
+     * @param components What dataset i shows, in the same order as passed to {@link #attach}.
+     */
+    public SlidingWindow(int... components) {
+        this.components = components;
+    }
+
+    /**
+     * Starts incremental mode on datasets that were just built from a full load.
+     *
+     * @param dataSets Datasets in the order of the constructor's components.
+     * @param origin Timestamp that corresponds to X = 0.
+     * @param lastTimestamp Newest timestamp already contained in the datasets.
+     */
+    public void attach(LineDataSet[] dataSets, long origin, long lastTimestamp) {
+        this.dataSets = dataSets;
+        this.origin = origin;
+        this.lastTimestamp = lastTimestamp;
+    }
+
+    /** Leaves incremental mode; the next refresh has to be a full load again. */
+    public void detach() {
+        dataSets = null;
+    }
+
+    public boolean isAttached() {
+        return dataSets != null;
+    }
+
+    public long getOrigin() {
+        return origin;
+    }
+
+    public long getLastTimestamp() {
+        return lastTimestamp;
+    }
+
+    /**
+     * Background thread: converts the new rows into entries relative to {@code origin}.
+     *
+     * @param rows Rows newer than {@link #getLastTimestamp()}, sorted by timestamp.
+     */
+    public <T extends SensorPoint> Chunk toChunk(List<T> rows, long origin) {
+        int n = rows.size();
+        Entry[][] entries = new Entry[components.length][n];
+        long last = Long.MIN_VALUE;
+
+        for (int i = 0; i < n; i++) {
+            T row = rows.get(i);
+            float t = row.elapsedMillis(origin);
+            for (int c = 0; c < components.length; c++) {
+                entries[c][i] = new Entry(t, value(row, components[c]));
+            }
+            last = row.getTimestamp();
+        }
+        return new Chunk(entries, last);
+    }
+
+    /**
+     * Main thread: appends the chunk and evicts everything older than {@code windowStart}.
+     *
+     * <p>If the window becomes empty it detaches itself (an empty LineDataSet has no sensible
+     * min/max); callers then fall back to a full load.
+     *
+     * @return true if the datasets changed (or the window got detached) and the charts need a
+     *     redraw.
+     */
+    public boolean apply(Chunk chunk, long windowStart) {
+        if (dataSets == null) return false;
+
+        int added = chunk.entries.length == 0 ? 0 : chunk.entries[0].length;
+        float cutoff = windowStart - origin;
+        boolean changed = added > 0;
+
+        for (int c = 0; c < dataSets.length; c++) {
+            List<Entry> values = dataSets[c].getValues();
+
+            // Evict from the left edge (entries are sorted by X).
+            int evict = 0;
+            while (evict < values.size() && values.get(evict).getX() < cutoff) evict++;
+            if (evict > 0) {
+                values.subList(0, evict).clear();
+                changed = true;
+            }
+
+            for (int i = 0; i < added; i++) {
+                values.add(chunk.entries[c][i]);
+            }
+
+            if (values.isEmpty()) {
+                detach();
+                return true;
+            }
+        }
+
+        if (!changed) return false;
+
+        for (LineDataSet set : dataSets) {
+            set.calcMinMax();
+        }
+        if (added > 0) lastTimestamp = chunk.lastTimestamp;
+        return true;
+    }
+
+    private static float value(SensorPoint p, int component) {
+        switch (component) {
+            case X:
+                return p.getX();
+            case Y:
+                return p.getY();
+            case Z:
+                return p.getZ();
+            default:
+                float x = p.getX();
+                float y = p.getY();
+                float z = p.getZ();
+                return (float) Math.sqrt(x * x + y * y + z * z);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.fhdw.biot.speech.iot.graph;
+
+import com.fhdw.biot.speech.iot.sensor.SampleChunk;
+import com.fhdw.biot.speech.iot.sensor.SensorSample;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * StreamingMinMaxDownsampler -------------------------- {@link MinMaxDownsampler} for input that
+ * arrives chunk by chunk (database.SampleStreams) and never exists as one list.
+ *
+ * <p>The buckets are laid over the QUERIED range {@code [from, to]} instead of first..last point,
+ * since the last point is only known at the end. Per bucket only the current min and max (by
+ * magnitude) are kept, plus the first and last sample, so memory is fixed by {@code targetPoints}
+ * and independent of how many rows are streamed.
+ *
+ * <p>Input must be sorted by timestamp. Not thread-safe; one instance per stream.
+ */
+public class StreamingMinMaxDownsampler implements SampleChunk.Consumer {
+
+    private final long fromNanos;
+    private final double bucketDuration;
+    private final int buckets;
+
+    // Per bucket: sequence number (position in the stream), timestamp, x, y, z, magnitude of
+    // the min and the max sample. Sequence -1 = bucket empty.
+    private final long[] minSeq, maxSeq;
+    private final long[] minT, maxT;
+    private final float[] minX, minY, minZ, minM;
+    private final float[] maxX, maxY, maxZ, maxM;
+
+    private long count;
+    private final SensorSample first = new SensorSample();
+    private final SensorSample last = new SensorSample();
+
+    /**
+     * @param from Start of the queried range (epoch ms).
+     * @param to End of the queried range (epoch ms).
+     * @param targetPoints Maximum number of points {@link #finish} returns (at least 4).
+     */
+    public StreamingMinMaxDownsampler(long from, long to, int targetPoints) {
+        buckets = Math.max(1, (Math.max(4, targetPoints) - 2) / 2);
+        fromNanos = from * 1_000_000L;
+        bucketDuration = Math.max(1, (to - from) * 1_000_000L) / (double) buckets;
+
+        minSeq = new long[buckets];
+        maxSeq = new long[buckets];
+        Arrays.fill(minSeq, -1);
+        Arrays.fill(maxSeq, -1);
+        minT = new long[buckets];
+        maxT = new long[buckets];
+        minX = new float[buckets];
+        minY = new float[buckets];
+        minZ = new float[buckets];
+        minM = new float[buckets];
+        maxX = new float[buckets];
+        maxY = new float[buckets];
+        maxZ = new float[buckets];
+        maxM = new float[buckets];
+    }
+
+    @Override
+    public void accept(SampleChunk chunk) {
+        for (int i = 0; i < chunk.size(); i++) {
+            long t = chunk.timestampsNanos[i];
+            float x = chunk.xs[i];
+            float y = chunk.ys[i];
+            float z = chunk.zs[i];
+            long seq = count++;
+            last.setNanos(t, x, y, z);
+            if (seq == 0) {
+                first.setNanos(t, x, y, z);
+                continue; // always emitted on its own
+            }
+
+            int b = (int) ((t - fromNanos) / bucketDuration);
+            b = Math.max(0, Math.min(b, buckets - 1));
+            float m = (float) Math.sqrt(x * x + y * y + z * z);
+            if (minSeq[b] < 0 || m < minM[b]) {
+                minSeq[b] = seq;
+                minT[b] = t;
+                minX[b] = x;
+                minY[b] = y;
+                minZ[b] = z;
+                minM[b] = m;
+            }
+            if (maxSeq[b] < 0 || m > maxM[b]) {
+                maxSeq[b] = seq;
+                maxT[b] = t;
+                maxX[b] = x;
+                maxY[b] = y;
+                maxZ[b] = z;
+                maxM[b] = m;
+            }
+        }
+    }
+
+    /** Samples streamed so far. */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * The reduced series in time order: first sample, min and max of every bucket, last sample.
+     * Empty if nothing was streamed.
+     */
+    public List<SensorSample> finish() {
+        List<SensorSample> out = new ArrayList<>();
+        if (count == 0) return out;
+        out.add(copy(first));
+        long lastSeq = count - 1;
+        for (int b = 0; b < buckets; b++) {
+            if (minSeq[b] < 0) continue;
+            boolean minFirst = minSeq[b] <= maxSeq[b];
+            if (minFirst) {
+                emitMin(out, b, lastSeq);
+                if (maxSeq[b] != minSeq[b]) emitMax(out, b, lastSeq);
+            } else {
+                emitMax(out, b, lastSeq);
+                emitMin(out, b, lastSeq);
+            }
+        }
+        if (lastSeq > 0) out.add(copy(last));
+        return out;
+    }
+
+    private void emitMin(List<SensorSample> out, int b, long lastSeq) {
+        if (minSeq[b] == lastSeq) return;
+        SensorSample s = new SensorSample();
+        s.setNanos(minT[b], minX[b], minY[b], minZ[b]);
+        out.add(s);
+    }
+
+    private void emitMax(List<SensorSample> out, int b, long lastSeq) {
+        if (maxSeq[b] == lastSeq) return;
+        SensorSample s = new SensorSample();
+        s.setNanos(maxT[b], maxX[b], maxY[b], maxZ[b]);
+        out.add(s);
+    }
+
+    private static SensorSample copy(SensorSample sample) {
+        SensorSample s = new SensorSample();
+        s.setNanos(sample.timestampNanos, sample.x, sample.y, sample.z);
+        return s;
+    }
+}
@@ -0,0 +1,73 @@
+package com.fhdw.biot.speech.iot.ingest;
+
+/**
+ * ClockOffsetEstimator -------------------- Maps the sampling timestamps of ONE publisher (device
+ * clock) onto the receiver's clock, in nanoseconds.
+ *
+ * <p>Every message gives one observation {@code receive - device} = offset + transport delay. Since
+ * the delay is never negative, the smallest observation is the best offset estimate: a message that
+ * sat in a broker or socket queue only makes its observation larger and is ignored. To follow a
+ * device clock that runs slower than ours, the estimate may creep upwards by at most {@link
+ * #MAX_DRIFT_PPM}; a jump of more than {@link #RESYNC_NANOS} (device reboot, clock set) re-anchors
+ * it.
+ *
+ * <p>Mapped timestamps are strictly increasing (at least 1 ns apart) and, apart from that 1 ns
+ * step, never later than the receive time of the message they belong to. Publishers without their
+ * own timestamps use the receive time as device time, which yields the same guarantees.
+ *
+ * <p>MQTT does not tell who published a message; callers use one estimator per topic, which in this
+ * app means one per publishing sensor.
+ *
+ * <p>Threading: not thread-safe, used on the MQTT callback thread only.
+ */
+public final class ClockOffsetEstimator {
+
+    /** Fastest drift of the device clock against ours that is followed without a resync. */
+    static final long MAX_DRIFT_PPM = 200;
+
+    /** Observations this much above the estimate re-anchor it instead of being treated as delay. */
+    static final long RESYNC_NANOS = 2_000_000_000L;
+
+    private boolean initialized;
+    private long offset;
+    private long lastDevice;
+    private long lastMapped = Long.MIN_VALUE;
+
+    /**
+     * Receive clock of the app: monotonic epoch nanoseconds with sub-millisecond resolution that
+     * catch up with the wall clock after the device slept ({@link ReceiveClock}).
+     */
+    public static long nowNanos() {
+        return ReceiveClock.SYSTEM.nowNanos();
+    }
+
+    /** Feeds one message: its newest device timestamp and when it arrived ({@link #nowNanos()}). */
+    public void observe(long deviceNanos, long receiveNanos) {
+        long sample = receiveNanos - deviceNanos;
+        if (!initialized) {
+            initialized = true;
+            offset = sample;
+        } else {
+            long elapsed = deviceNanos - lastDevice;
+            if (elapsed > 0) offset += elapsed / 1_000_000L * MAX_DRIFT_PPM;
+            if (sample < offset || sample - offset > RESYNC_NANOS) offset = sample;
+        }
+        lastDevice = deviceNanos;
+    }
+
+    /**
+     * Device timestamp → receive clock, using the current estimate. Call {@link #observe} for the
+     * message first.
+     */
+    public long toLocal(long deviceNanos) {
+        long mapped = deviceNanos + offset;
+        if (mapped <= lastMapped) mapped = lastMapped + 1;
+        lastMapped = mapped;
+        return mapped;
+    }
+
+    /** Current estimate of receive clock minus device clock. */
+    public long getOffsetNanos() {
+        return offset;
+    }
+}
@@ -0,0 +1,558 @@
+package com.fhdw.biot.speech.iot.ingest;
+
+import android.app.Notification;
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.app.PendingIntent;
+import android.app.Service;
+import android.content.Context;
+import android.content.Intent;
+import android.content.pm.ServiceInfo;
+import android.os.Binder;
+import android.os.Handler;
+import android.os.IBinder;
+import android.os.Looper;
+import android.util.Log;
+import android.widget.Toast;
+import androidx.annotation.NonNull;
+import androidx.core.app.NotificationCompat;
+import androidx.room.InvalidationTracker;
+import com.fhdw.biot.speech.iot.R;
+import com.fhdw.biot.speech.iot.events.EreignisEmitter;
+import com.fhdw.biot.speech.iot.events.EreignisNotifier;
+import com.fhdw.biot.speech.iot.events.SensorEreignis;
+import com.fhdw.biot.speech.iot.events.ThresholdRuleEngine;
+import com.fhdw.biot.speech.iot.main.MainActivity;
+import com.fhdw.biot.speech.iot.mqtt.MqttHandler;
+import com.fhdw.biot.speech.iot.mqtt.OfflineSpool;
+import com.fhdw.biot.speech.iot.mqtt.SensorFrameDecoder;
+import com.fhdw.biot.speech.iot.mqtt.SensorFrameFormat;
+import com.fhdw.biot.speech.iot.sensor.LatestSampleMailbox;
+import com.fhdw.biot.speech.iot.sensor.SensorHistory;
+import com.fhdw.biot.speech.iot.simulation.SensorDataSimulator;
+import database.DB;
+import database.RetentionWorker;
+import database.SampleLog;
+import database.SampleLogCompactor;
+import database.SensorBatchWriter;
+import database.dao.SensorDao;
+import database.entities.AccelData;
+import database.entities.EreignisType;
+import database.entities.GyroData;
+import database.entities.MagnetData;
+import database.entities.SensorReading;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * IngestionService ---------------- Foreground service that owns the whole receive path: ONE {@link
+ * MqttHandler}, the {@link SensorDataSimulator}, the {@link SampleReceiver}, the {@link
+ * SensorBatchWriter}, the rule engine and the event notifications.
+ *
+ * <p>Before, all of this lived in MainActivity and was torn down with it (rotation, back
+ * navigation), so samples were lost while the connection was re-established. The service is started
+ * by MainActivity and keeps running regardless of which screen is open; it only stops via the
+ * "Beenden" action of its notification.
+ *
+ * <p>Activities bind to it ({@link LocalBinder}) to read the newest value per sensor from the
+ * {@link LatestSampleMailbox}es and register a {@link SampleListener} that tells them when to
+ * render. History for the charts comes from {@link SensorHistory} and Room as before.
+ *
+ * <p>Storage: samples are appended to the memory-mapped {@link SampleLog}; {@link
+ * SampleLogCompactor} moves them into Room in the background. Only if the log cannot be opened or
+ * extended do they go through the {@link SensorBatchWriter} directly, which also stores the events.
+ *
+ * <p>Timestamps: a sample is stamped with its sampling time, not with the time this service got
+ * around to it. If the payload carries a publisher timestamp (CSV 4th column, frame header) it is
+ * mapped onto our clock by the publisher's {@link ClockOffsetEstimator}; otherwise the receive time
+ * ({@link ClockOffsetEstimator#nowNanos()}) is used. Either way timestamps have nanosecond
+ * resolution and strictly increase per topic, so a burst no longer collapses into one millisecond.
+ *
+ * <p>Threading: handleSample / rule matching run on the MQTT callback thread, lifecycle methods on
+ * the main thread.
+ */
+public class IngestionService extends Service {
+
+    /** Notified on the MQTT thread after every stored sample; implementations must not block. */
+    public interface SampleListener {
+        void onSampleReceived();
+    }
+
+    /** Local binder: activities in the same process get the service instance directly. */
+    public class LocalBinder extends Binder {
+        public IngestionService getService() {
+            return IngestionService.this;
+        }
+    }
+
+    // ---- MQTT broker urls ---------------------------------------------------
+
+    /** Broker for a *real phone* on the same LAN as your PC. */
+    private static final String PHONE_BROKER = "tcp://192.168.178.80:1883";
+
+    /** Broker for the *Android emulator* (10.0.2.2 = host PC). */
+    private static final String EMULATOR_BROKER = "tcp://10.0.2.2:1883";
+
+    private static final String TAG = "IngestionService";
+
+    /** Notification action that stops the service. */
+    private static final String ACTION_STOP = "com.fhdw.biot.speech.iot.ingest.STOP";
+
+    private static final String CHANNEL_ID = "ingestion";
+
+    private static final long NANOS_PER_MS = 1_000_000L;
+
+    // NOTIFICATION_ID 1 belongs to EreignisNotifier.
+    private static final int NOTIFICATION_ID = 2;
+
+    private final IBinder binder = new LocalBinder();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    // ---- MQTT objects -------------------------------------------------------
+
+    private MqttHandler mqttHandler;
+    private SensorDataSimulator dataSimulator;
+
+    /** Decodes payloads into timestamped samples → {@link #handleSample}. MQTT thread only. */
+    private final SampleReceiver sampleReceiver = new SampleReceiver(this::handleSample);
+
+    /**
+     * Rows of the current message that could not go to the sample log, handed to the batch writer
+     * in one call and reused. MQTT thread only.
+     */
+    private final List<AccelData> fallbackAccel = new ArrayList<>();
+
+    private final List<GyroData> fallbackGyro = new ArrayList<>();
+    private final List<MagnetData> fallbackMagnet = new ArrayList<>();
+
+    // ---- newest value per sensor (read by the bound activity) -------------
+
+    private final LatestSampleMailbox accelMailbox = new LatestSampleMailbox();
+    private final LatestSampleMailbox gyroMailbox = new LatestSampleMailbox();
+    private final LatestSampleMailbox magnetMailbox = new LatestSampleMailbox();
+
+    private volatile SampleListener sampleListener;
+
+    // ---- ROOM ---------------------------------------------------------------
+
+    private SensorDao sensorDao;
+
+    /** Buffers incoming rows and writes them in batched transactions. */
+    private SensorBatchWriter batchWriter;
+
+    /** Write-ahead log for the samples, null if unavailable; drained by {@link #logCompactor}. */
+    private SampleLog sampleLog;
+
+    private SampleLogCompactor logCompactor;
+
+    /** User-defined threshold rules, evaluated on the MQTT thread for every sample. */
+    private final ThresholdRuleEngine ruleEngine = new ThresholdRuleEngine(this::onRuleMatched);
+
+    /**
+     * Reloads the rules once a save of NewEreignisActivity has committed (Room notifies after the
+     * transaction), so the reload never reads the table before the save.
+     */
+    private final InvalidationTracker.Observer rulesObserver =
+            new InvalidationTracker.Observer("ereignis_type") {
+                @Override
+                public void onInvalidated(@NonNull Set<String> tables) {
+                    reloadRules();
+                }
+            };
+
+    /** Incremented per reload; only the newest reload swaps its rules in. */
+    private final AtomicInteger rulesGeneration = new AtomicInteger();
+
+    /** Debounces matches; emitted events go to the DB and into the notification burst. */
+    private final EreignisEmitter ereignisEmitter =
+            new EreignisEmitter(this::onEreignisEmitted, this::onEreignisBurstStarted);
+
+    private EreignisNotifier ereignisNotifier;
+
+    /** Starts the service (idempotent: a running service keeps its connection). */
+    public static void start(Context context) {
+        context.startForegroundService(new Intent(context, IngestionService.class));
+    }
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        startForeground(
+                NOTIFICATION_ID,
+                buildNotification("Verbinde mit MQTT-Broker …"),
+                ServiceInfo.FOREGROUND_SERVICE_TYPE_DATA_SYNC);
+
+        DB db = DB.getDatabase(this);
+        sensorDao = db.sensorDao();
+        batchWriter = SensorBatchWriter.getInstance(this);
+        logCompactor = SampleLogCompactor.getInstance(this);
+        sampleLog = logCompactor.getLog();
+        logCompactor.start();
+        ereignisNotifier = new EreignisNotifier(this, ereignisEmitter);
+        RetentionWorker.schedule(this);
+
+        db.getInvalidationTracker().addObserver(rulesObserver);
+        reloadRules();
+        connect();
+    }
+
+    @Override
+    public int onStartCommand(Intent intent, int flags, int startId) {
+        if (intent != null && ACTION_STOP.equals(intent.getAction())) {
+            stopSelf();
+            return START_NOT_STICKY;
+        }
+        // Restarted by the system after being killed → onCreate connects again.
+        return START_STICKY;
+    }
+
+    @Override
+    public IBinder onBind(Intent intent) {
+        return binder;
+    }
+
+    @Override
+    public void onDestroy() {
+        DB.getDatabase(this).getInvalidationTracker().removeObserver(rulesObserver);
+        if (dataSimulator != null) {
+            dataSimulator.stop();
+        }
+        if (mqttHandler != null) {
+            mqttHandler.disconnect();
+        }
+        if (ereignisNotifier != null) {
+            ereignisNotifier.cancel();
+        }
+        if (batchWriter != null) {
+            // Write whatever is still buffered instead of waiting for the deadline.
+            batchWriter.flush();
+        }
+        if (logCompactor != null) {
+            // Same for the samples in the log's head segment.
+            logCompactor.flush();
+        }
+        super.onDestroy();
+    }
+
+    // ------------------------------------------------------------------------
+    // API for bound activities
+    // ------------------------------------------------------------------------
+
+    /** Registers the (single) listener, or removes it with null. */
+    public void setSampleListener(SampleListener listener) {
+        sampleListener = listener;
+    }
+
+    public LatestSampleMailbox getAccelMailbox() {
+        return accelMailbox;
+    }
+
+    public LatestSampleMailbox getGyroMailbox() {
+        return gyroMailbox;
+    }
+
+    public LatestSampleMailbox getMagnetMailbox() {
+        return magnetMailbox;
+    }
+
+    /**
+     * Loads the rules from Room (background) and swaps them into the engine. Called at start and by
+     * {@link #rulesObserver}; reloads may overlap on the executor, so an older one that finishes
+     * last is dropped.
+     */
+    private void reloadRules() {
+        int generation = rulesGeneration.incrementAndGet();
+        DB.databaseWriteExecutor.execute(
+                () -> {
+                    try {
+                        List<EreignisType> rules = sensorDao.getAllEreignisTypes();
+                        synchronized (rulesGeneration) {
+                            if (generation != rulesGeneration.get()) return;
+                            ruleEngine.setRules(rules);
+                            ereignisEmitter.retainRules(rules);
+                        }
+                        Log.i(TAG, "Threshold rules active: " + ruleEngine.getRuleCount());
+                    } catch (Exception e) {
+                        Log.e(TAG, "reloadRules error: " + e.getMessage(), e);
+                    }
+                });
+    }
+
+    // ------------------------------------------------------------------------
+    // MQTT: create, connect, subscribe
+    // ------------------------------------------------------------------------
+
+    private void connect() {
+        final String clientId = "Nutzer_" + UUID.randomUUID().toString().substring(0, 8);
+        final String brokerUrl = getBrokerUrl();
+
+        Log.i(TAG, "Using brokerUrl=" + brokerUrl + " clientId=" + clientId);
+
+        try {
+            mqttHandler = new MqttHandler(brokerUrl, clientId);
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to create MqttHandler: " + e.getMessage(), e);
+            showToast("MQTT client creation failed: " + e.getMessage(), Toast.LENGTH_LONG);
+            updateNotification("MQTT-Client konnte nicht erstellt werden");
+            return;
+        }
+
+        // Publishes while offline go to disk and are sent after the reconnect.
+        try {
+            mqttHandler.setOfflineSpool(
+                    new OfflineSpool(
+                            new File(getFilesDir(), "mqtt-spool"), new OfflineSpool.Config()));
+        } catch (IOException e) {
+            Log.e(TAG, "Offline spool unavailable: " + e.getMessage(), e);
+        }
+
+        mqttHandler.setRawMessageListener(
+                (topic, payload) -> {
+                    // Runs on the MQTT callback thread: decode + persist here, the bound activity
+                    // only renders the newest value (see SampleListener).
+                    int samples;
+                    try {
+                        samples =
+                                sampleReceiver.receive(
+                                        topic, payload, ClockOffsetEstimator.nowNanos());
+                        storeFallbackRows();
+                    } catch (Exception ex) {
+                        Log.e(TAG, "Error handling MQTT message: " + ex.getMessage(), ex);
+                        return;
+                    }
+                    if (samples == SampleReceiver.UNKNOWN_TOPIC) {
+                        Log.w(TAG, "Unhandled topic: " + topic);
+                        return;
+                    }
+                    if (samples == SampleReceiver.MALFORMED) {
+                        Log.w(
+                                TAG,
+                                SensorFrameDecoder.isFrame(payload)
+                                        ? "Malformed binary frame on " + topic
+                                        : "Malformed payload on "
+                                                + topic
+                                                + ": "
+                                                + new String(payload));
+                        return;
+                    }
+                    notifySampleListener();
+                });
+
+        mqttHandler.connect(
+                new MqttHandler.ConnectionListener() {
+                    @Override
+                    public void onConnected() {
+                        Log.i(TAG, "MQTT connected");
+                        showToast("MQTT verbunden", Toast.LENGTH_SHORT);
+                        updateNotification("Empfange Sensordaten von " + brokerUrl);
+
+                        mqttHandler.subscribe("Sensor/Bewegung");
+                        mqttHandler.subscribe("Sensor/Gyro");
+                        mqttHandler.subscribe("Sensor/Magnet");
+                        mqttHandler.subscribe(SensorFrameFormat.TOPIC_PREFIX + "+");
+
+                        // just for debugging:
+                        loadDatabaseValues();
+
+                        // Start the fake data publisher: "remote sensor"
+                        dataSimulator = new SensorDataSimulator(mqttHandler, 1000L);
+                        dataSimulator.start();
+                    }
+
+                    @Override
+                    public void onFailure(Throwable t) {
+                        String reason = t == null ? "unknown" : t.getMessage();
+                        Log.e(TAG, "MQTT connect failed: " + reason, t);
+                        showToast("MQTT Fehler: " + reason, Toast.LENGTH_LONG);
+                        updateNotification("MQTT Fehler: " + reason);
+                    }
+                });
+    }
+
+    // ------------------------------------------------------------------------
+    // MQTT message handlers → mailbox + history + rules + DB (MQTT callback thread)
+    // ------------------------------------------------------------------------
+
+    /**
+     * One decoded sample (CSV or binary frame), timestamped on our clock: mailbox + history +
+     * rules, then the sample log. Only if the log is unavailable is a DB row collected; {@link
+     * #storeFallbackRows()} hands them to the batch writer once the message is done.
+     */
+    private void handleSample(int sensor, long timestampNanos, float x, float y, float z) {
+        long t = Math.floorDiv(timestampNanos, NANOS_PER_MS);
+        ruleEngine.evaluate(sensor, t, x, y, z);
+        boolean logged = appendToLog(sensor, timestampNanos, x, y, z);
+        switch (sensor) {
+            case SensorReading.ACCEL:
+                accelMailbox.publish(t, x, y, z);
+                SensorHistory.ACCEL.appendNanos(timestampNanos, x, y, z);
+                if (!logged) {
+                    AccelData accelData = new AccelData();
+                    accelData.timestamp = t;
+                    accelData.timestampNanos = timestampNanos;
+                    accelData.accelX = x;
+                    accelData.accelY = y;
+                    accelData.accelZ = z;
+                    fallbackAccel.add(accelData);
+                }
+                break;
+            case SensorReading.GYRO:
+                gyroMailbox.publish(t, x, y, z);
+                SensorHistory.GYRO.appendNanos(timestampNanos, x, y, z);
+                if (!logged) {
+                    GyroData gyroData = new GyroData();
+                    gyroData.timestamp = t;
+                    gyroData.timestampNanos = timestampNanos;
+                    gyroData.gyroX = x;
+                    gyroData.gyroY = y;
+                    gyroData.gyroZ = z;
+                    fallbackGyro.add(gyroData);
+                }
+                break;
+            case SensorReading.MAGNET:
+                magnetMailbox.publish(t, x, y, z);
+                SensorHistory.MAGNET.appendNanos(timestampNanos, x, y, z);
+                if (!logged) {
+                    MagnetData magnetData = new MagnetData();
+                    magnetData.timestamp = t;
+                    magnetData.timestampNanos = timestampNanos;
+                    magnetData.magnetX = x;
+                    magnetData.magnetY = y;
+                    magnetData.magnetZ = z;
+                    fallbackMagnet.add(magnetData);
+                }
+                break;
+        }
+    }
+
+    /** Appends to the sample log; false → the caller keeps a row for the batch writer. */
+    private boolean appendToLog(int sensor, long timestampNanos, float x, float y, float z) {
+        return sampleLog != null && sampleLog.append(sensor, timestampNanos, x, y, z);
+    }
+
+    /** Hands the fallback rows of the message to the batch writer (one lock acquisition). */
+    private void storeFallbackRows() {
+        if (!fallbackAccel.isEmpty()) batchWriter.addAccel(fallbackAccel);
+        if (!fallbackGyro.isEmpty()) batchWriter.addGyro(fallbackGyro);
+        if (!fallbackMagnet.isEmpty()) batchWriter.addMagnet(fallbackMagnet);
+        fallbackAccel.clear();
+        fallbackGyro.clear();
+        fallbackMagnet.clear();
+    }
+
+    private void notifySampleListener() {
+        SampleListener listener = sampleListener;
+        if (listener != null) listener.onSampleReceived();
+    }
+
+    // ------------------------------------------------------------------------
+    // Threshold rules → EreignisData
+    // ------------------------------------------------------------------------
+
+    /** MQTT thread: a sample entered the range of {@code rule}. */
+    private void onRuleMatched(EreignisType rule, long timestamp, float value) {
+        ereignisEmitter.submit(rule, timestamp, value);
+    }
+
+    /** MQTT thread: the event passed the debounce → store it. */
+    private void onEreignisEmitted(SensorEreignis ereignis) {
+        batchWriter.add(ereignis.getEreignisData());
+    }
+
+    /** MQTT thread: first event since the last notification. */
+    private void onEreignisBurstStarted() {
+        if (ereignisNotifier != null) ereignisNotifier.onBurstStarted();
+    }
+
+    // ------------------------------------------------------------------------
+    // Foreground notification
+    // ------------------------------------------------------------------------
+
+    private Notification buildNotification(String text) {
+        NotificationManager notificationManager =
+                (NotificationManager) getSystemService(Context.NOTIFICATION_SERVICE);
+        notificationManager.createNotificationChannel(
+                new NotificationChannel(
+                        CHANNEL_ID, "Sensor-Empfang", NotificationManager.IMPORTANCE_LOW));
+
+        PendingIntent openApp =
+                PendingIntent.getActivity(
+                        this,
+                        NOTIFICATION_ID,
+                        new Intent(this, MainActivity.class),
+                        PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
+        PendingIntent stop =
+                PendingIntent.getService(
+                        this,
+                        NOTIFICATION_ID,
+                        new Intent(this, IngestionService.class).setAction(ACTION_STOP),
+                        PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
+
+        return new NotificationCompat.Builder(this, CHANNEL_ID)
+                .setSmallIcon(R.drawable.outline_circle_notifications_24)
+                .setContentTitle("Sensordaten-Empfang")
+                .setContentText(text)
+                .setOngoing(true)
+                .setOnlyAlertOnce(true)
+                .setContentIntent(openApp)
+                .addAction(0, "Beenden", stop)
+                .build();
+    }
+
+    /** Any thread: replaces the text of the foreground notification. */
+    private void updateNotification(String text) {
+        NotificationManager notificationManager =
+                (NotificationManager) getSystemService(Context.NOTIFICATION_SERVICE);
+        notificationManager.notify(NOTIFICATION_ID, buildNotification(text));
+    }
+
+    private void showToast(String message, int duration) {
+        mainHandler.post(() -> Toast.makeText(this, message, duration).show());
+    }
+
+    // ------------------------------------------------------------------------
+    // DB debug helper
+    // ------------------------------------------------------------------------
+    private void loadDatabaseValues() {
+        DB.databaseWriteExecutor.execute(
+                () -> {
+                    try {
+                        Log.i(TAG, "sensor_readings COUNT = " + sensorDao.countReadings());
+                    } catch (Exception e) {
+                        Log.e(TAG, "loadDatabaseValues error: " + e.getMessage(), e);
+                    }
+                });
+    }
+
+    // ------------------------------------------------------------------------
+    // Emulator detection → choose correct broker URL
+    // ------------------------------------------------------------------------
+    private String getBrokerUrl() {
+        String f =
+                (android.os.Build.FINGERPRINT == null ? "" : android.os.Build.FINGERPRINT)
+                        .toLowerCase(Locale.US);
+        String m =
+                (android.os.Build.MODEL == null ? "" : android.os.Build.MODEL)
+                        .toLowerCase(Locale.US);
+        String p =
+                (android.os.Build.PRODUCT == null ? "" : android.os.Build.PRODUCT)
+                        .toLowerCase(Locale.US);
+
+        boolean isEmulator =
+                f.startsWith("generic")
+                        || f.contains("vbox")
+                        || f.contains("test-keys")
+                        || m.contains("google_sdk")
+                        || m.contains("emulator")
+                        || m.contains("android sdk built for x86")
+                        || p.contains("sdk_gphone");
+
+        return isEmulator ? EMULATOR_BROKER : PHONE_BROKER;
+    }
+}
@@ -0,0 +1,79 @@
+package com.fhdw.biot.speech.iot.ingest;
+
+/**
+ * ReceiveClock ------------ Receive clock of the app ({@link ClockOffsetEstimator#nowNanos()}):
+ * epoch nanoseconds that advance with a monotonic clock, so they never go back and have
+ * sub-millisecond resolution (currentTimeMillis has neither).
+ *
+ * <p>The monotonic clock (System.nanoTime, CLOCK_MONOTONIC on Android) stops while the device is in
+ * deep sleep, the wall clock does not. Every call compares the two; once the wall clock is more
+ * than {@link #REANCHOR_NANOS} ahead, the clock is re-anchored to it. Without that, receive
+ * timestamps would fall further behind wall time with every suspend, while the live window,
+ * compaction and retention all cut by wall time. A wall clock set back is not followed: samples
+ * must stay in time order.
+ *
+ * <p>No Android dependency: the raw clocks come from a {@link Source}, so sleep is testable on the
+ * JVM.
+ *
+ * <p>Threading: thread-safe.
+ */
+public final class ReceiveClock {
+
+    /** The two raw clocks, e.g. System.currentTimeMillis and System.nanoTime. */
+    public interface Source {
+        long wallMillis();
+
+        long monotonicNanos();
+    }
+
+    /**
+     * Lag behind the wall clock that is tolerated before re-anchoring (NTP slewing, resolution).
+     */
+    static final long REANCHOR_NANOS = 100_000_000L;
+
+    static final ReceiveClock SYSTEM =
+            new ReceiveClock(
+                    new Source() {
+                        @Override
+                        public long wallMillis() {
+                            return System.currentTimeMillis();
+                        }
+
+                        @Override
+                        public long monotonicNanos() {
+                            return System.nanoTime();
+                        }
+                    });
+
+    private final Source source;
+
+    private long epochBase;
+    private long monotonicBase;
+    private long reanchorCount;
+
+    public ReceiveClock(Source source) {
+        this.source = source;
+        epochBase = source.wallMillis() * 1_000_000L;
+        monotonicBase = source.monotonicNanos();
+    }
+
+    /** Current time in epoch nanoseconds; never less than an earlier result. */
+    public synchronized long nowNanos() {
+        long monotonic = source.monotonicNanos();
+        long now = epochBase + (monotonic - monotonicBase);
+        long wall = source.wallMillis() * 1_000_000L;
+        if (wall - now > REANCHOR_NANOS) {
+            // Slept: continue from the wall clock.
+            epochBase = wall;
+            monotonicBase = monotonic;
+            reanchorCount++;
+            return wall;
+        }
+        return now;
+    }
+
+    /** How often the clock was moved forward to the wall clock (i.e. the device slept). */
+    public synchronized long getReanchorCount() {
+        return reanchorCount;
+    }
+}
@@ -0,0 +1,116 @@
+package com.fhdw.biot.speech.iot.ingest;
+
+import com.fhdw.biot.speech.iot.mqtt.SensorFrameDecoder;
+import com.fhdw.biot.speech.iot.mqtt.SensorFrameFormat;
+import com.fhdw.biot.speech.iot.mqtt.SensorPayloadParser;
+import com.fhdw.biot.speech.iot.sensor.SensorSample;
+
+/**
+ * SampleReceiver -------------- Turns a raw MQTT payload into timestamped samples: CSV "x,y,z[,t]"
+ * on the Sensor/* topics, binary frames ({@link SensorFrameFormat}) on any topic.
+ *
+ * <p>Split out of IngestionService so the receive path runs (and can be measured) without Android.
+ * Per payload, {@link SensorPayloadParser} or {@link SensorFrameDecoder} reads the bytes Paho hands
+ * over, the publisher's {@link ClockOffsetEstimator} maps the timestamp onto our clock, and every
+ * sample goes to the {@link SampleSink} as primitives. Nothing here allocates; with
+ * database.SampleLog behind the sink the whole path from payload bytes to storage is free of
+ * per-sample objects (see SampleReceiverTest).
+ *
+ * <p>Threading: one instance per thread (the MQTT callback thread); parser and clocks keep state.
+ */
+public final class SampleReceiver {
+
+    /** Receives every decoded sample; {@code sensor} is SensorFrameFormat.SENSOR_ACCEL etc. */
+    public interface SampleSink {
+        void onSample(int sensor, long timestampNanos, float x, float y, float z);
+    }
+
+    /** {@link #receive} result: the payload could not be decoded. */
+    public static final int MALFORMED = -1;
+
+    /** {@link #receive} result: a CSV payload on a topic that is not a sensor topic. */
+    public static final int UNKNOWN_TOPIC = -2;
+
+    private static final long NANOS_PER_MS = 1_000_000L;
+
+    private final SampleSink sink;
+
+    /** Parser + reusable result holder for CSV payloads. */
+    private final SensorPayloadParser payloadParser = new SensorPayloadParser();
+
+    private final SensorSample parsedSample = new SensorSample();
+
+    /** One clock estimator per publishing topic, indexed by sensor. */
+    private final ClockOffsetEstimator[] csvClocks = newClocks();
+
+    private final ClockOffsetEstimator[] frameClocks = newClocks();
+
+    /** Dispatches the samples of a binary frame; a field so decoding allocates nothing. */
+    private final SensorFrameDecoder.SampleHandler frameHandler = this::onFrameSample;
+
+    /** Clock of the frame being decoded (maps its device timestamps onto ours). */
+    private ClockOffsetEstimator frameClock;
+
+    public SampleReceiver(SampleSink sink) {
+        this.sink = sink;
+    }
+
+    /**
+     * Decodes one message and hands its samples to the sink.
+     *
+     * @param receivedNanos arrival time ({@link ClockOffsetEstimator#nowNanos()}); stamps CSV
+     *     samples without a timestamp column and relates the publisher's clock to ours.
+     * @return the number of samples delivered, or {@link #MALFORMED} / {@link #UNKNOWN_TOPIC}.
+     */
+    public int receive(String topic, byte[] payload, long receivedNanos) {
+        if (SensorFrameDecoder.isFrame(payload)) {
+            // Binary frame (any topic): sensor id comes from the header.
+            int sensor = SensorFrameDecoder.sensorOf(payload);
+            if (sensor < 0) return MALFORMED;
+            // The newest sample relates the device clock to ours.
+            frameClock = frameClocks[sensor];
+            frameClock.observe(
+                    SensorFrameDecoder.lastTimestamp(payload) * NANOS_PER_MS, receivedNanos);
+            return SensorFrameDecoder.decode(payload, frameHandler);
+        }
+
+        int sensor = sensorOfTopic(topic);
+        if (sensor < 0) return UNKNOWN_TOPIC;
+        if (!payloadParser.parse(payload, parsedSample)) return MALFORMED;
+
+        long deviceNanos = payloadParser.getTimestampNanos();
+        if (deviceNanos == SensorPayloadParser.NO_TIMESTAMP) {
+            deviceNanos = receivedNanos;
+        }
+        ClockOffsetEstimator clock = csvClocks[sensor];
+        clock.observe(deviceNanos, receivedNanos);
+        sink.onSample(
+                sensor, clock.toLocal(deviceNanos), parsedSample.x, parsedSample.y, parsedSample.z);
+        return 1;
+    }
+
+    private void onFrameSample(int sensor, long timestamp, float x, float y, float z) {
+        sink.onSample(sensor, frameClock.toLocal(timestamp * NANOS_PER_MS), x, y, z);
+    }
+
+    /** Sensor of a CSV topic, -1 for any other topic. */
+    private static int sensorOfTopic(String topic) {
+        switch (topic) {
+            case "Sensor/Bewegung":
+                return SensorFrameFormat.SENSOR_ACCEL;
+            case "Sensor/Gyro":
+                return SensorFrameFormat.SENSOR_GYRO;
+            case "Sensor/Magnet":
+                return SensorFrameFormat.SENSOR_MAGNET;
+            default:
+                return -1;
+        }
+    }
+
+    private static ClockOffsetEstimator[] newClocks() {
+        ClockOffsetEstimator[] clocks =
+                new ClockOffsetEstimator[SensorFrameFormat.SENSOR_MAGNET + 1];
+        for (int i = 0; i < clocks.length; i++) clocks[i] = new ClockOffsetEstimator();
+        return clocks;
+    }
+}
@@ -1,11 +1,14 @@
 package com.fhdw.biot.speech.iot.main;
 
+import android.content.ComponentName;
+import android.content.Intent;
+import android.content.ServiceConnection;
 import android.os.Bundle;
-import android.util.Log;
+import android.os.IBinder;
+import android.view.Choreographer;
 import android.widget.Button;
 import android.widget.ImageButton;
 import android.widget.TextView;
-import android.widget.Toast;
 import androidx.activity.EdgeToEdge;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.graphics.Insets;
@@ -14,56 +17,58 @@ import androidx.core.view.WindowInsetsCompat;
 import com.fhdw.biot.speech.iot.R;
 import com.fhdw.biot.speech.iot.events.EreignisActivity;
 import com.fhdw.biot.speech.iot.graph.MainGraphActivity;
-import com.fhdw.biot.speech.iot.mqtt.MqttHandler;
+import com.fhdw.biot.speech.iot.ingest.IngestionService;
 import com.fhdw.biot.speech.iot.sensor.AccelActivity;
 import com.fhdw.biot.speech.iot.sensor.GyroActivity;
+import com.fhdw.biot.speech.iot.sensor.LatestSampleMailbox;
 import com.fhdw.biot.speech.iot.sensor.MagnetActivity;
+import com.fhdw.biot.speech.iot.sensor.SensorSample;
 import com.fhdw.biot.speech.iot.settings.SettingsActivity;
-import com.fhdw.biot.speech.iot.simulation.SensorDataSimulator;
-import database.DB;
-import database.dao.SensorDao;
-import database.dao.ValueSensorDAO;
-import database.entities.AccelData;
-import database.entities.GyroData;
-import database.entities.MagnetData;
-import database.entities.ValueSensor;
-import java.util.List;
-import java.util.Locale;
-import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
- * MainActivity ------------ MQTT-based version: - NO real Android sensors are used anymore. - Fake
- * values are generated by {@link SensorDataSimulator} and published via MQTT. - This Activity
- * subscribes to the topics, updates the UI and writes into Room.
+ * MainActivity ------------ Start screen: shows the newest value of every sensor and navigates to
+ * the detail screens.
  *
- * <p>Publisher side: - SensorDataSimulator → mqttHandler.publish(...)
- *
- * <p>Subscriber side (this Activity): - mqttHandler.subscribe("Sensor/Bewegung" / "Sensor/Gyro" /
- * "Sensor/Magnet") - mqttHandler → onMessageReceived(...) → handleMovement / handleGyro /
- * handleMagnet - UI TextViews are updated - DB entities (AccelData / GyroData / MagnetData /
- * ValueSensor) are stored.
+ * <p>Receiving is done by {@link IngestionService}, a foreground service that owns the MQTT
+ * connection, the simulator, the rule engine and the batched DB writes, so it survives rotation and
+ * navigation. This Activity starts the service, binds to it and renders the newest value per sensor
+ * from the service's {@link LatestSampleMailbox}es: the service's {@link
+ * IngestionService.SampleListener} schedules a Choreographer frame callback, so the TextViews are
+ * updated at most once per frame.
  */
 public class MainActivity extends AppCompatActivity {
 
-    // ---- MQTT broker urls ---------------------------------------------------
-
-    /** Broker for a *real phone* on the same LAN as your PC. */
-    private static final String PHONE_BROKER = "tcp://192.168.178.80:1883";
+    // ---- ingestion service --------------------------------------------------
 
-    /** Broker for the *Android emulator* (10.0.2.2 = host PC). */
-    private static final String EMULATOR_BROKER = "tcp://10.0.2.2:1883";
+    /** Bound service; null while not connected. */
+    private IngestionService ingestionService;
 
-    private static final String TAG = "MainActivity";
+    private final ServiceConnection ingestionConnection =
+            new ServiceConnection() {
+                @Override
+                public void onServiceConnected(ComponentName name, IBinder binder) {
+                    ingestionService = ((IngestionService.LocalBinder) binder).getService();
+                    ingestionService.setSampleListener(MainActivity.this::scheduleUiFrame);
+                    scheduleUiFrame(); // show the current values right away
+                }
 
-    // ---- MQTT objects -------------------------------------------------------
+                @Override
+                public void onServiceDisconnected(ComponentName name) {
+                    ingestionService = null;
+                }
+            };
 
-    private MqttHandler mqttHandler;
-    private SensorDataSimulator dataSimulator;
+    // ---- UI coalescing ------------------------------------------------------
+    // The MQTT thread only overwrites the newest value per sensor; a Choreographer frame callback
+    // renders it. However fast messages arrive, the TextViews are updated at most once per frame.
 
-    // ---- ROOM DAOs ----------------------------------------------------------
+    /** Reusable holder for the UI thread's reads from the mailboxes. */
+    private final SensorSample uiSample = new SensorSample();
 
-    private SensorDao sensorDao; // accel / gyro / magnet tables etc.
-    private ValueSensorDAO valueSensorDao; // combined ValueSensor table
+    private final AtomicBoolean uiFrameScheduled = new AtomicBoolean(false);
+    private final Choreographer.FrameCallback uiFrameCallback = this::renderLatestValues;
+    private Choreographer choreographer;
 
     // ---- UI elements --------------------------------------------------------
     // We reuse your existing TextViews from the sensor app:
@@ -147,289 +152,69 @@ public class MainActivity extends AppCompatActivity {
         magYValue = findViewById(R.id.magYValue);
         magZValue = findViewById(R.id.magZValue);
 
-        // ---- Room: DB / DAOs ----------------------------------------------
-        DB db = DB.getDatabase(this);
-        sensorDao = db.sensorDao();
-        valueSensorDao = db.valueSensorDao();
-
-        // ---- MQTT: create client ------------------------------------------
-        final String clientId = "Nutzer_" + UUID.randomUUID().toString().substring(0, 8);
-        final String brokerUrl = getBrokerUrl();
-
-        Log.i(TAG, "Using brokerUrl=" + brokerUrl + " clientId=" + clientId);
-
-        try {
-            mqttHandler = new MqttHandler(brokerUrl, clientId);
-        } catch (Exception e) {
-            Log.e(TAG, "Failed to create MqttHandler: " + e.getMessage(), e);
-            Toast.makeText(
-                            this,
-                            "MQTT client creation failed: " + e.getMessage(),
-                            Toast.LENGTH_LONG)
-                    .show();
-            return;
-        }
-
-        // ---- MQTT: incoming message listener ------------------------------
-        mqttHandler.setMessageListener(
-                (topic, message) -> {
-                    Log.i(TAG, "MQTT message → topic=" + topic + " payload=" + message);
-
-                    runOnUiThread(
-                            () -> {
-                                try {
-                                    switch (topic) {
-                                        case "Sensor/Bewegung":
-                                            handleMovementMessage(message);
-                                            break;
-                                        case "Sensor/Gyro":
-                                            handleGyroMessage(message);
-                                            break;
-                                        case "Sensor/Magnet":
-                                            handleMagnetMessage(message);
-                                            break;
-                                        default:
-                                            Log.w(TAG, "Unhandled topic: " + topic);
-                                    }
-                                } catch (Exception ex) {
-                                    Log.e(
-                                            TAG,
-                                            "Error handling MQTT message: " + ex.getMessage(),
-                                            ex);
-                                }
-                            });
-                });
-
-        // ---- MQTT: connect & then subscribe + start simulator -------------
-        mqttHandler.connect(
-                new MqttHandler.ConnectionListener() {
-                    @Override
-                    public void onConnected() {
-                        Log.i(TAG, "MQTT connected");
-
-                        runOnUiThread(
-                                () ->
-                                        Toast.makeText(
-                                                        MainActivity.this,
-                                                        "MQTT verbunden",
-                                                        Toast.LENGTH_SHORT)
-                                                .show());
-
-                        mqttHandler.subscribe("Sensor/Bewegung");
-                        mqttHandler.subscribe("Sensor/Gyro");
-                        mqttHandler.subscribe("Sensor/Magnet");
-
-                        // just for debugging:
-                        loadDatabaseValues();
+        // Choreographer is per-thread: grab the main thread's instance here.
+        choreographer = Choreographer.getInstance();
 
-                        // Start the fake data publisher: "remote sensor"
-                        dataSimulator = new SensorDataSimulator(mqttHandler, 1000L);
-                        dataSimulator.start();
-                    }
-
-                    @Override
-                    public void onFailure(Throwable t) {
-                        Log.e(
-                                TAG,
-                                "MQTT connect failed: " + (t == null ? "unknown" : t.getMessage()),
-                                t);
-
-                        runOnUiThread(
-                                () ->
-                                        Toast.makeText(
-                                                        MainActivity.this,
-                                                        "MQTT Fehler: "
-                                                                + (t == null
-                                                                        ? "unknown"
-                                                                        : t.getMessage()),
-                                                        Toast.LENGTH_LONG)
-                                                .show());
-                    }
-                });
+        // ---- ingestion: start once, then bind ---------------------------------
+        IngestionService.start(this);
+        bindService(new Intent(this, IngestionService.class), ingestionConnection, 0);
     }
 
     // ------------------------------------------------------------------------
-    // Lifecycle: cleanup
+    // Lifecycle: cleanup (the service keeps receiving)
     // ------------------------------------------------------------------------
     @Override
     protected void onDestroy() {
-        if (dataSimulator != null) {
-            dataSimulator.stop();
+        if (ingestionService != null) {
+            ingestionService.setSampleListener(null);
+            ingestionService = null;
         }
-        if (mqttHandler != null) {
-            mqttHandler.disconnect();
+        unbindService(ingestionConnection);
+        if (choreographer != null) {
+            choreographer.removeFrameCallback(uiFrameCallback);
         }
         super.onDestroy();
     }
 
     // ------------------------------------------------------------------------
-    // MQTT message handlers → UI + DB
+    // UI: frame-synchronised rendering of the newest values
     // ------------------------------------------------------------------------
 
-    /** Handle "Sensor/Bewegung" payload: CSV "x,y,z". */
-    private void handleMovementMessage(String message) {
-        String[] p = message.split(",");
-        if (p.length < 3) {
-            Log.w(TAG, "Movement: not enough values: " + message);
-            return;
-        }
-
-        try {
-            float x = Float.parseFloat(p[0].trim());
-            float y = Float.parseFloat(p[1].trim());
-            float z = Float.parseFloat(p[2].trim());
-
-            // UI (reuse your existing strings for accelerometer)
-            accelXValue.setText(getString(R.string.beschleunigung_x, x));
-            accelYValue.setText(getString(R.string.beschleunigung_y, y));
-            accelZValue.setText(getString(R.string.beschleunigung_z, z));
-
-            long now = System.currentTimeMillis();
-
-            // DB: accel_data row
-            AccelData accelData = new AccelData();
-            accelData.timestamp = now;
-            accelData.accelX = x;
-            accelData.accelY = y;
-            accelData.accelZ = z;
-
-            // DB: ValueSensor row (movement part)
-            ValueSensor vs = new ValueSensor();
-            vs.value1 = x;
-            vs.value2 = y;
-            vs.value3 = z;
-
-            DB.databaseWriteExecutor.execute(
-                    () -> {
-                        sensorDao.insert(accelData);
-                        valueSensorDao.insert(vs);
-                    });
-
-        } catch (NumberFormatException e) {
-            Log.e(TAG, "Movement parse error: " + e.getMessage(), e);
+    /**
+     * Requests ONE frame callback unless one is already pending. Called from the MQTT thread (via
+     * the service's SampleListener) after every message; any number of messages before the next
+     * vsync share that single callback.
+     */
+    private void scheduleUiFrame() {
+        if (choreographer != null && uiFrameScheduled.compareAndSet(false, true)) {
+            choreographer.postFrameCallback(uiFrameCallback);
         }
     }
 
-    /** Handle "Sensor/Gyro" payload: CSV "x,y,z". */
-    private void handleGyroMessage(String message) {
-        String[] g = message.split(",");
-        if (g.length < 3) {
-            Log.w(TAG, "Gyro: not enough values: " + message);
-            return;
-        }
+    /** Main thread, at most once per frame: render whatever changed since the last frame. */
+    private void renderLatestValues(long frameTimeNanos) {
+        // Clear first, so a message arriving while we render schedules the next frame.
+        uiFrameScheduled.set(false);
 
-        try {
-            float x = Float.parseFloat(g[0].trim());
-            float y = Float.parseFloat(g[1].trim());
-            float z = Float.parseFloat(g[2].trim());
+        IngestionService service = ingestionService;
+        if (service == null) return;
 
-            // UI
-            gyroXValue.setText(getString(R.string.gyro_x, x));
-            gyroYValue.setText(getString(R.string.gyro_y, y));
-            gyroZValue.setText(getString(R.string.gyro_z, z));
-
-            long now = System.currentTimeMillis();
-
-            // DB: gyro_data row
-            GyroData gyroData = new GyroData();
-            gyroData.timestamp = now;
-            gyroData.gyroX = x;
-            gyroData.gyroY = y;
-            gyroData.gyroZ = z;
-
-            // DB: ValueSensor row (gyro part)
-            ValueSensor vs = new ValueSensor();
-            vs.value4 = x;
-            vs.value5 = y;
-            vs.value6 = z;
-
-            DB.databaseWriteExecutor.execute(
-                    () -> {
-                        sensorDao.insert(gyroData);
-                        valueSensorDao.insert(vs);
-                    });
-
-        } catch (NumberFormatException e) {
-            Log.e(TAG, "Gyro parse error: " + e.getMessage(), e);
+        if (service.getAccelMailbox().poll(uiSample)) {
+            // UI (reuse your existing strings for accelerometer)
+            accelXValue.setText(getString(R.string.beschleunigung_x, uiSample.x));
+            accelYValue.setText(getString(R.string.beschleunigung_y, uiSample.y));
+            accelZValue.setText(getString(R.string.beschleunigung_z, uiSample.z));
         }
-    }
-
-    /** Handle "Sensor/Magnet" payload: CSV "x,y,z". */
-    private void handleMagnetMessage(String message) {
-        String[] m = message.split(",");
-        if (m.length < 3) {
-            Log.w(TAG, "Magnet: not enough values: " + message);
-            return;
+        if (service.getGyroMailbox().poll(uiSample)) {
+            gyroXValue.setText(getString(R.string.gyro_x, uiSample.x));
+            gyroYValue.setText(getString(R.string.gyro_y, uiSample.y));
+            gyroZValue.setText(getString(R.string.gyro_z, uiSample.z));
         }
-
-        try {
-            float x = Float.parseFloat(m[0].trim());
-            float y = Float.parseFloat(m[1].trim());
-            float z = Float.parseFloat(m[2].trim());
-
+        if (service.getMagnetMailbox().poll(uiSample)) {
             // UI – show magnet vector components
-            magXValue.setText(getString(R.string.magnet_x, x));
-            magYValue.setText(getString(R.string.magnet_y, y));
-            magZValue.setText(getString(R.string.magnet_z, z));
-
-            long now = System.currentTimeMillis();
-
-            // DB: magnet_data row
-            MagnetData magnetData = new MagnetData();
-            magnetData.timestamp = now;
-            magnetData.magnetX = x;
-            magnetData.magnetY = y;
-            magnetData.magnetZ = z;
-
-            // If you later extend ValueSensor with magnet fields, you can also fill them here.
-            DB.databaseWriteExecutor.execute(
-                    () -> {
-                        sensorDao.insert(magnetData);
-                    });
-
-        } catch (NumberFormatException e) {
-            Log.e(TAG, "Magnet parse error: " + e.getMessage(), e);
+            magXValue.setText(getString(R.string.magnet_x, uiSample.x));
+            magYValue.setText(getString(R.string.magnet_y, uiSample.y));
+            magZValue.setText(getString(R.string.magnet_z, uiSample.z));
         }
     }
-
-    // ------------------------------------------------------------------------
-    // DB debug helper
-    // ------------------------------------------------------------------------
-    private void loadDatabaseValues() {
-        DB.databaseWriteExecutor.execute(
-                () -> {
-                    try {
-                        List<ValueSensor> list = valueSensorDao.getAllvalue();
-                        Log.i(TAG, "ValueSensor DB SIZE = " + list.size());
-                    } catch (Exception e) {
-                        Log.e(TAG, "loadDatabaseValues error: " + e.getMessage(), e);
-                    }
-                });
-    }
-
-    // ------------------------------------------------------------------------
-    // Emulator detection → choose correct broker URL
-    // ------------------------------------------------------------------------
-    private String getBrokerUrl() {
-        String f =
-                (android.os.Build.FINGERPRINT == null ? "" : android.os.Build.FINGERPRINT)
-                        .toLowerCase(Locale.US);
-        String m =
-                (android.os.Build.MODEL == null ? "" : android.os.Build.MODEL)
-                        .toLowerCase(Locale.US);
-        String p =
-                (android.os.Build.PRODUCT == null ? "" : android.os.Build.PRODUCT)
-                        .toLowerCase(Locale.US);
-
-        boolean isEmulator =
-                f.startsWith("generic")
-                        || f.contains("vbox")
-                        || f.contains("test-keys")
-                        || m.contains("google_sdk")
-                        || m.contains("emulator")
-                        || m.contains("android sdk built for x86")
-                        || p.contains("sdk_gphone");
-
-        return isEmulator ? EMULATOR_BROKER : PHONE_BROKER;
-    }
 }
@@ -1,5 +1,9 @@
 package com.fhdw.biot.speech.iot.mqtt;
 
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 import org.eclipse.paho.mqttv5.client.IMqttToken;
 import org.eclipse.paho.mqttv5.client.MqttAsyncClient;
 import org.eclipse.paho.mqttv5.client.MqttCallback;
@@ -18,14 +22,22 @@ import org.eclipse.paho.mqttv5.common.packet.MqttProperties;
  * subscribe(topic) → register interest in specific topics. - publish(topic,..) → send messages to
  * the broker. - disconnect() → close connection cleanly. - Expose connection status via {@link
  * #isConnected()}. - Forward incoming messages to a higher-level listener ({@link
- * MqttMessageListener}) which is implemented in MainActivity.
+ * MqttMessageListener}) which is implemented in IngestionService.
  *
  * <p>Data flow (receive side): Broker → MqttAsyncClient → MqttCallback.messageArrived(...) →
- * MqttHandler.listener.onMessageReceived(...) → MainActivity.handleMovement / handleGyro /
- * handleTime → TextViews + Room database.
+ * MqttHandler.rawListener.onMessageReceived(topic, byte[]) → ingest.SampleReceiver (decodes the
+ * payload bytes in place) → IngestionService.handleSample → mailboxes + sample log.
  *
- * <p>Data flow (send side): SensorDataSimulator / MainActivity → MqttHandler.publish(...) →
+ * <p>Data flow (send side): SensorDataSimulator / IngestionService → MqttHandler.publish(...) →
  * MqttAsyncClient.publish(...) → Broker → (optionally other subscribers, including our own client).
+ *
+ * <p>Offline: with an {@link OfflineSpool} set, publishes made while disconnected are appended to
+ * it instead of being dropped. After every connectComplete(...) (initial connect, automatic
+ * reconnect) the spool is drained into the publish pipeline at its configured rate.
+ *
+ * <p>Subscriptions: every connect starts a clean session (cleanStart), so the broker forgets the
+ * subscriptions whenever the link drops. The handler remembers the topics passed to {@link
+ * #subscribe(String)} and subscribes them again after an automatic reconnect.
  */
 public class MqttHandler {
 
@@ -45,16 +57,37 @@ public class MqttHandler {
 
     /**
      * Optional high-level listener that receives incoming messages as (topic, String payload).
-     * MainActivity passes a lambda here.
+     * IngestionService passes a lambda here.
      */
     private MqttMessageListener listener;
 
+    /**
+     * Optional listener that receives the raw payload bytes. If set, it is used INSTEAD of {@link
+     * #listener}, so no String is created for incoming messages.
+     */
+    private volatile MqttRawMessageListener rawListener;
+
+    /**
+     * Bounded queue + fixed worker pool that performs all publishes. Replaces the old "one new
+     * thread per publish()" approach.
+     */
+    private final MqttPublishPipeline publishPipeline;
+
+    /** Optional disk buffer for publishes while offline; null = drop them as before. */
+    private volatile OfflineSpool offlineSpool;
+
+    /** Topics passed to {@link #subscribe(String)}; subscribed again after each reconnect. */
+    private final Set<String> subscriptions = ConcurrentHashMap.newKeySet();
+
+    /** True while the "mqtt-spool-drain" thread runs (at most one at a time). */
+    private final AtomicBoolean draining = new AtomicBoolean(false);
+
     // ------------------------------------------------------------
     // Listener interfaces
     // ------------------------------------------------------------
 
     /**
-     * Notified about connection lifecycle events. Implemented by MainActivity to get callbacks
+     * Notified about connection lifecycle events. Implemented by IngestionService to get callbacks
      * when: - the connect attempt has succeeded (onConnected) - the connect attempt has failed
      * (onFailure)
      */
@@ -66,16 +99,34 @@ public class MqttHandler {
 
     /**
      * Notified about every incoming MQTT message on any subscribed topic. Implemented by
-     * MainActivity where messages are routed to UI + DB.
+     * IngestionService where messages are routed to UI + DB.
      */
     public interface MqttMessageListener {
         void onMessageReceived(String topic, String message);
     }
 
+    /**
+     * Like {@link MqttMessageListener}, but gets the payload as it came from the broker (no String
+     * conversion). Used together with {@link SensorPayloadParser} on the hot receive path. The
+     * array must not be modified or kept after the callback returns.
+     */
+    public interface MqttRawMessageListener {
+        void onMessageReceived(String topic, byte[] payload);
+    }
+
     // ------------------------------------------------------------
     // Constructor
     // ------------------------------------------------------------
     public MqttHandler(String brokerUrl, String clientId) throws MqttException {
+        this(brokerUrl, clientId, new MqttPublishPipeline.Config());
+    }
+
+    /**
+     * @param publishConfig queue size, worker count, in-flight window and backpressure policy for
+     *     the publish pipeline.
+     */
+    public MqttHandler(String brokerUrl, String clientId, MqttPublishPipeline.Config publishConfig)
+            throws MqttException {
         System.out.println("MQTTv5: creating client → " + brokerUrl + " id=" + clientId);
 
         /*
@@ -84,11 +135,17 @@ public class MqttHandler {
          * - brokerUrl: e.g. "tcp://10.0.2.2:1883"
          * - clientId : must be unique per client connected to the broker
          * - MemoryPersistence:
-         *      Keeps QoS state and in-flight messages only in RAM
-         *      (no disk persistence on Android).
+         *      Keeps QoS state and in-flight messages only in RAM. The session
+         *      uses cleanStart, so file persistence would be wiped on every
+         *      connect anyway; messages published while offline survive in the
+         *      OfflineSpool instead (see setOfflineSpool).
          */
         client = new MqttAsyncClient(brokerUrl, clientId, new MemoryPersistence());
 
+        // Workers start immediately but stay idle until the first publish().
+        publishPipeline = new MqttPublishPipeline(client, publishConfig);
+        publishPipeline.setFailureHandler(this::respool);
+
         /*
          * Register a global callback implementation.
          * Paho uses this for:
@@ -130,11 +187,18 @@ public class MqttHandler {
                      *
                      * <p>Data flow: Broker → client.subscribe("some/topic", ...) → MqttAsyncClient
                      * receives PUBLISH → this messageArrived(...) → (topic, MqttMessage) converted
-                     * to (topic, String) → listener.onMessageReceived(...) (if set) → MainActivity
-                     * updates UI + DB.
+                     * to (topic, String) → listener.onMessageReceived(...) (if set) →
+                     * IngestionService updates UI + DB.
                      */
                     @Override
                     public void messageArrived(String topic, MqttMessage message) {
+                        MqttRawMessageListener raw = rawListener;
+                        if (raw != null) {
+                            // Hot path: no String, no per-message log line.
+                            raw.onMessageReceived(topic, message.getPayload());
+                            return;
+                        }
+
                         String payload = new String(message.getPayload());
                         System.out.println("MQTTv5: Message Arrived → " + topic + " = " + payload);
 
@@ -167,6 +231,12 @@ public class MqttHandler {
                                         + " (reconnect="
                                         + reconnect
                                         + ")");
+                        // The new session is clean: without this, nothing arrives after a
+                        // reconnect.
+                        if (reconnect) resubscribe();
+                        // Back online: send what was spooled meanwhile (also left-overs of an
+                        // earlier process on the initial connect).
+                        startSpoolDrain();
                     }
 
                     /**
@@ -243,7 +313,7 @@ public class MqttHandler {
      * Returns true only if: - our internal flag says "connected", AND - the Paho client also
      * reports isConnected().
      *
-     * <p>This is what MainActivity uses before subscribe/publish.
+     * <p>This is what IngestionService uses before subscribe/publish.
      */
     public boolean isConnected() {
         return connected && client.isConnected();
@@ -261,9 +331,11 @@ public class MqttHandler {
      * there.
      *
      * <p>Data impact: - After a successful subscribe, any PUBLISH sent to that topic by any client
-     * will trigger messageArrived(...) → listener.onMessageReceived(...).
+     * will trigger messageArrived(...) → listener.onMessageReceived(...). - The topic is remembered
+     * and subscribed again after every automatic reconnect.
      */
     public void subscribe(String topic) {
+        subscriptions.add(topic);
         if (!isConnected()) {
             System.out.println("MQTTv5: Cannot subscribe — not connected.");
             return;
@@ -286,6 +358,34 @@ public class MqttHandler {
                 .start();
     }
 
+    /**
+     * Subscribes all remembered topics again in one SUBSCRIBE (after an automatic reconnect, which
+     * starts a clean session). Runs on a "mqtt-subscribe-thread" like {@link #subscribe(String)}.
+     */
+    private void resubscribe() {
+        String[] topics = subscriptions.toArray(new String[0]);
+        if (topics.length == 0) return;
+        int[] qos = new int[topics.length];
+        Arrays.fill(qos, 1); // QoS 1, as in subscribe()
+
+        new Thread(
+                        () -> {
+                            try {
+                                client.subscribe(topics, qos);
+                                System.out.println(
+                                        "MQTTv5: RESUBSCRIBED → " + Arrays.toString(topics));
+                            } catch (Exception e) {
+                                System.out.println(
+                                        "MQTTv5: RESUBSCRIBE FAILED → "
+                                                + Arrays.toString(topics)
+                                                + " : "
+                                                + e.getMessage());
+                            }
+                        },
+                        "mqtt-subscribe-thread")
+                .start();
+    }
+
     // ------------------------------------------------------------
     // PUBLISH
     // ------------------------------------------------------------
@@ -302,48 +402,105 @@ public class MqttHandler {
      * @param payload payload as UTF-8 String.
      * @param retained if true, the broker stores this as the last known message for that topic and
      *     immediately sends it to new subscribers.
-     *     <p>Threading: - If not connected, we log and return. - Otherwise we spin up
-     *     "mqtt-publish-thread" where we do a blocking client.publish(...). The UI thread never
-     *     blocks on network I/O.
+     *     <p>Threading: - If not connected, the message goes to the {@link OfflineSpool} (if set;
+     *     otherwise we log, count it as dropped and return). While the spool still holds older
+     *     messages, new ones are appended behind them to keep the order. - Otherwise the message is
+     *     put into the {@link MqttPublishPipeline} queue. One of its worker threads hands it to
+     *     client.publish(...) asynchronously. The caller never blocks on network I/O (only on a
+     *     full queue with policy BLOCK).
      *     <p>Data impact: - The message is sent to the broker. - The broker forwards it to all
      *     clients subscribed to this topic (including our own client, if subscribed). - That in
-     *     turn triggers messageArrived(...) and ends up in MainActivity.
+     *     turn triggers messageArrived(...) and ends up in IngestionService.
      */
     public void publish(String topic, String payload, boolean retained) {
+        publish(topic, payload.getBytes(), retained);
+    }
+
+    /**
+     * Same as {@link #publish(String, String, boolean)} for a payload that already is bytes, e.g. a
+     * binary frame from {@link SensorFrameEncoder}.
+     */
+    public void publish(String topic, byte[] payload, boolean retained) {
+        OfflineSpool spool = offlineSpool;
+        if (spool != null && (!isConnected() || !spool.isEmpty())) {
+            spool.append(topic, payload, 1, retained); // QoS 1
+            if (isConnected()) startSpoolDrain(); // no-op while a drain is running
+            return;
+        }
+
         if (!isConnected()) {
             System.out.println("MQTTv5: Cannot publish — not connected.");
+            publishPipeline.recordDropped();
             return;
         }
 
+        publishPipeline.enqueue(topic, payload, 1, retained); // QoS 1
+    }
+
+    /**
+     * Enables the offline buffer. Call before {@link #connect(ConnectionListener)}.
+     *
+     * @param spool null disables it (offline publishes are dropped again).
+     */
+    public void setOfflineSpool(OfflineSpool spool) {
+        this.offlineSpool = spool;
+    }
+
+    /** Depth / drain counters of the offline buffer, or null if none is set. */
+    public OfflineSpool getOfflineSpool() {
+        return offlineSpool;
+    }
+
+    /**
+     * Starts the "mqtt-spool-drain" thread unless it is already running. It feeds spooled messages
+     * into the publish pipeline until the spool is empty or the connection drops.
+     */
+    private void startSpoolDrain() {
+        OfflineSpool spool = offlineSpool;
+        if (spool == null || spool.isEmpty() || !draining.compareAndSet(false, true)) return;
+
         new Thread(
                         () -> {
                             try {
-                                MqttMessage msg = new MqttMessage(payload.getBytes());
-                                msg.setQos(1); // "at least once"
-                                msg.setRetained(retained);
-
-                                // Blocking publish, but on our own thread, so UI is safe.
-                                client.publish(topic, msg);
+                                int drained =
+                                        spool.drainTo(
+                                                (topic, payload, qos, retained) ->
+                                                        isConnected()
+                                                                && publishPipeline.enqueue(
+                                                                        topic, payload, qos,
+                                                                        retained),
+                                                this::isConnected);
                                 System.out.println(
-                                        "MQTTv5: PUBLISH SUCCESS → "
-                                                + topic
-                                                + " payload="
-                                                + payload
-                                                + " retained="
-                                                + retained);
-
-                            } catch (Exception e) {
-                                System.out.println(
-                                        "MQTTv5: PUBLISH FAILED → "
-                                                + topic
-                                                + " ERROR = "
-                                                + e.getMessage());
+                                        "MQTTv5: SPOOL drained " + drained + " → " + spool);
+                            } catch (InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                            } finally {
+                                draining.set(false);
                             }
+                            // A publish may have been spooled after the last record was taken.
+                            if (isConnected() && !spool.isEmpty()) startSpoolDrain();
                         },
-                        "mqtt-publish-thread")
+                        "mqtt-spool-drain")
                 .start();
     }
 
+    /**
+     * Failed publish: if it was lost with the connection, it goes back into the spool and is sent
+     * after the reconnect. The drain hands messages to the pipeline before the broker acknowledged
+     * them, so this keeps the spool's at-least-once promise across a link that drops again. A
+     * message rejected while connected is not retried (it would fail again).
+     */
+    private void respool(String topic, byte[] payload, int qos, boolean retained) {
+        OfflineSpool spool = offlineSpool;
+        if (spool == null || isConnected()) return;
+        spool.append(topic, payload, qos, retained);
+    }
+
+    /** Queue/sent/dropped counters of the publish pipeline. */
+    public MqttPublishPipeline getPublishPipeline() {
+        return publishPipeline;
+    }
+
     // ------------------------------------------------------------
     // DISCONNECT
     // ------------------------------------------------------------
@@ -355,9 +512,19 @@ public class MqttHandler {
      *
      * <p>Behaviour: - If the client is currently connected, calls client.disconnect(). - Sets the
      * internal connected flag to false. - Any further publish/subscribe calls will log "not
-     * connected".
+     * connected". - The publish workers are stopped; queued messages are discarded. - The offline
+     * spool (if set) is flushed to disk; what it still holds is sent after the next connect.
      */
     public void disconnect() {
+        System.out.println("MQTTv5: publish stats → " + publishPipeline);
+        publishPipeline.shutdown();
+
+        OfflineSpool spool = offlineSpool;
+        if (spool != null) {
+            System.out.println("MQTTv5: spool stats → " + spool);
+            spool.close();
+        }
+
         new Thread(
                         () -> {
                             try {
@@ -377,10 +544,18 @@ public class MqttHandler {
     /**
      * Registers or replaces the high-level message listener.
      *
-     * <p>Typically called once from MainActivity.onCreate() to pass a lambda that routes incoming
-     * messages to the corresponding handler method (movement / gyro / time).
+     * <p>Typically called once from IngestionService.onCreate() to pass a lambda that routes
+     * incoming messages to the corresponding handler method (movement / gyro / time).
      */
     public void setMessageListener(MqttMessageListener l) {
         this.listener = l;
     }
+
+    /**
+     * Registers or replaces the raw (byte[]) message listener. While set, the String listener from
+     * {@link #setMessageListener(MqttMessageListener)} is not called.
+     */
+    public void setRawMessageListener(MqttRawMessageListener l) {
+        this.rawListener = l;
+    }
 }
@@ -0,0 +1,309 @@
+package com.fhdw.biot.speech.iot.mqtt;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import org.eclipse.paho.mqttv5.client.IMqttToken;
+import org.eclipse.paho.mqttv5.client.MqttActionListener;
+import org.eclipse.paho.mqttv5.client.MqttAsyncClient;
+import org.eclipse.paho.mqttv5.common.MqttMessage;
+
+/**
+ * MqttPublishPipeline ------------------- Bounded, pooled publish path used by {@link
+ * MqttHandler#publish(String, String, boolean)}.
+ *
+ * <p>Before this class existed every publish() started its own "mqtt-publish-thread". At sensor
+ * rates that means thousands of short-lived threads per minute. Now:
+ *
+ * <p>- publish() only puts a {@link PendingPublish} into ONE bounded queue. - A small, fixed set of
+ * worker threads takes messages from the queue and hands them to {@link MqttAsyncClient} using the
+ * asynchronous publish (no waitForCompletion()). - A semaphore limits how many messages may be "in
+ * flight" (published but not yet acknowledged by the broker). The permit is returned in the
+ * MqttActionListener callback.
+ *
+ * <p>Backpressure: when the queue is full, {@link BackpressurePolicy} decides what happens: - BLOCK
+ * → caller waits until there is room again. - DROP_OLDEST → the oldest queued message is discarded
+ * (best for live sensor streams, the freshest value wins). - DROP_NEWEST → the new message is
+ * discarded.
+ *
+ * <p>Failures: a message the client rejects or that is never acknowledged is counted as failed and
+ * handed to the {@link FailureHandler}, if set. MqttHandler puts messages lost with the connection
+ * back into its {@link OfflineSpool}, so they are sent again after the reconnect.
+ *
+ * <p>Counters (queued / sent / dropped / failed) can be read at any time for debugging.
+ */
+public class MqttPublishPipeline {
+
+    /** What to do when the queue is full. */
+    public enum BackpressurePolicy {
+        BLOCK,
+        DROP_OLDEST,
+        DROP_NEWEST
+    }
+
+    /**
+     * Tuning values for the pipeline. Setters return {@code this} so a config can be built in one
+     * expression.
+     */
+    public static class Config {
+        int queueCapacity = 1024;
+        int workerCount = 2;
+        int maxInFlight = 32;
+        BackpressurePolicy policy = BackpressurePolicy.DROP_OLDEST;
+
+        /** Maximum number of messages waiting for a worker. */
+        public Config setQueueCapacity(int queueCapacity) {
+            this.queueCapacity = Math.max(1, queueCapacity);
+            return this;
+        }
+
+        /** Number of worker threads that feed the MQTT client. */
+        public Config setWorkerCount(int workerCount) {
+            this.workerCount = Math.max(1, workerCount);
+            return this;
+        }
+
+        /** Maximum number of published but not yet acknowledged messages. */
+        public Config setMaxInFlight(int maxInFlight) {
+            this.maxInFlight = Math.max(1, maxInFlight);
+            return this;
+        }
+
+        public Config setPolicy(BackpressurePolicy policy) {
+            this.policy = policy;
+            return this;
+        }
+    }
+
+    /** Receives every failed message, on a worker or Paho callback thread. */
+    public interface FailureHandler {
+        void onFailed(String topic, byte[] payload, int qos, boolean retained);
+    }
+
+    /** One message waiting in the queue. */
+    private static final class PendingPublish {
+        final String topic;
+        final byte[] payload;
+        final int qos;
+        final boolean retained;
+
+        PendingPublish(String topic, byte[] payload, int qos, boolean retained) {
+            this.topic = topic;
+            this.payload = payload;
+            this.qos = qos;
+            this.retained = retained;
+        }
+    }
+
+    private final MqttAsyncClient client;
+    private final BlockingQueue<PendingPublish> queue;
+    private final Semaphore inFlight;
+    private final int maxInFlight;
+    private final BackpressurePolicy policy;
+    private final Thread[] workers;
+
+    private final AtomicLong queuedCount = new AtomicLong();
+    private final AtomicLong sentCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+
+    private volatile boolean running = true;
+
+    private volatile FailureHandler failureHandler;
+
+    /** Completion callback shared by all messages: count the result and free the window slot. */
+    private final MqttActionListener completionListener =
+            new MqttActionListener() {
+                @Override
+                public void onSuccess(IMqttToken token) {
+                    sentCount.incrementAndGet();
+                    inFlight.release();
+                }
+
+                @Override
+                public void onFailure(IMqttToken token, Throwable exception) {
+                    inFlight.release();
+                    System.out.println(
+                            "MQTTv5: PUBLISH FAILED → "
+                                    + (exception == null ? "unknown" : exception.getMessage()));
+                    failed((PendingPublish) token.getUserContext());
+                }
+            };
+
+    public MqttPublishPipeline(MqttAsyncClient client, Config config) {
+        this.client = client;
+        this.queue = new ArrayBlockingQueue<>(config.queueCapacity);
+        this.maxInFlight = config.maxInFlight;
+        this.inFlight = new Semaphore(config.maxInFlight);
+        this.policy = config.policy;
+
+        this.workers = new Thread[config.workerCount];
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = new Thread(this::workerLoop, "mqtt-publish-worker-" + i);
+            workers[i].setDaemon(true);
+            workers[i].start();
+        }
+    }
+
+    /**
+     * Queues a message for publishing. Never does network I/O on the calling thread; with {@link
+     * BackpressurePolicy#BLOCK} it may wait for free queue space.
+     *
+     * @return true if the message was queued, false if it was dropped.
+     */
+    public boolean enqueue(String topic, byte[] payload, int qos, boolean retained) {
+        if (!running) {
+            droppedCount.incrementAndGet();
+            return false;
+        }
+
+        PendingPublish msg = new PendingPublish(topic, payload, qos, retained);
+
+        switch (policy) {
+            case BLOCK:
+                try {
+                    queue.put(msg);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    droppedCount.incrementAndGet();
+                    return false;
+                }
+                break;
+
+            case DROP_NEWEST:
+                if (!queue.offer(msg)) {
+                    droppedCount.incrementAndGet();
+                    return false;
+                }
+                break;
+
+            case DROP_OLDEST:
+            default:
+                // Make room by evicting from the head until our message fits.
+                while (!queue.offer(msg)) {
+                    if (queue.poll() != null) {
+                        droppedCount.incrementAndGet();
+                    }
+                }
+                break;
+        }
+
+        queuedCount.incrementAndGet();
+        return true;
+    }
+
+    /** Records a message that never reached the queue (e.g. client not connected). */
+    void recordDropped() {
+        droppedCount.incrementAndGet();
+    }
+
+    /**
+     * Worker body: take → wait for a free in-flight slot → async publish. The slot is returned by
+     * {@link #completionListener} once the broker acknowledged (or rejected) the message.
+     */
+    private void workerLoop() {
+        while (running) {
+            PendingPublish msg;
+            try {
+                msg = queue.take();
+                inFlight.acquire();
+            } catch (InterruptedException e) {
+                // shutdown() interrupts the workers.
+                return;
+            }
+
+            try {
+                MqttMessage mqttMessage = new MqttMessage(msg.payload);
+                mqttMessage.setQos(msg.qos);
+                mqttMessage.setRetained(msg.retained);
+
+                // The message travels as user context, so onFailure can hand it on.
+                client.publish(msg.topic, mqttMessage, msg, completionListener);
+            } catch (Exception e) {
+                // Rejected synchronously (e.g. not connected) → callback will never fire.
+                inFlight.release();
+                System.out.println(
+                        "MQTTv5: PUBLISH FAILED → " + msg.topic + " ERROR = " + e.getMessage());
+                failed(msg);
+            }
+        }
+    }
+
+    private void failed(PendingPublish msg) {
+        failedCount.incrementAndGet();
+        FailureHandler handler = failureHandler;
+        if (handler != null && msg != null) {
+            handler.onFailed(msg.topic, msg.payload, msg.qos, msg.retained);
+        }
+    }
+
+    /**
+     * Sets who gets failed messages (see {@link FailureHandler}).
+     *
+     * @param handler null: failed messages are only counted.
+     */
+    public void setFailureHandler(FailureHandler handler) {
+        this.failureHandler = handler;
+    }
+
+    /** Stops all workers and discards messages that are still queued. */
+    public void shutdown() {
+        running = false;
+        for (Thread worker : workers) {
+            worker.interrupt();
+        }
+        droppedCount.addAndGet(queue.size());
+        queue.clear();
+    }
+
+    // ------------------------------------------------------------
+    // Counters
+    // ------------------------------------------------------------
+
+    /** Total number of messages accepted into the queue. */
+    public long getQueuedCount() {
+        return queuedCount.get();
+    }
+
+    /** Total number of messages acknowledged by the broker. */
+    public long getSentCount() {
+        return sentCount.get();
+    }
+
+    /** Total number of messages discarded by the backpressure policy or while offline. */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    /** Total number of messages the client or broker rejected. */
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+
+    /** Messages currently waiting in the queue. */
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    /** Messages currently published but not yet acknowledged. */
+    public int getInFlight() {
+        return maxInFlight - inFlight.availablePermits();
+    }
+
+    @Override
+    public String toString() {
+        return "queued="
+                + getQueuedCount()
+                + " sent="
+                + getSentCount()
+                + " dropped="
+                + getDroppedCount()
+                + " failed="
+                + getFailedCount()
+                + " depth="
+                + getQueueDepth()
+                + " inFlight="
+                + getInFlight();
+    }
+}
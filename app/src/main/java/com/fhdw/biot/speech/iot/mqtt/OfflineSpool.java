@@ -0,0 +1,397 @@
+package com.fhdw.biot.speech.iot.mqtt;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.function.BooleanSupplier;
+
+/**
+ * OfflineSpool ------------ Disk-backed, append-only buffer for publishes made while the MQTT
+ * client is offline.
+ *
+ * <p>Before, {@link MqttHandler#publish(String, String, boolean)} dropped every message while
+ * disconnected, so a network blip lost all samples produced meanwhile. Now they are appended here
+ * and drained into the {@link MqttPublishPipeline} once the connection is back.
+ *
+ * <p>Layout: a directory of fixed-size segment files ({@code 0000000000000001.seg}, ...). The
+ * newest one is the write head and is memory-mapped, so appending is a memory copy without a system
+ * call. Record format (big endian):
+ *
+ * <pre>
+ *   int   length   bytes after this field; 0 = nothing written yet
+ *   byte  qos
+ *   byte  retained (0/1)
+ *   short topic length
+ *   ...   topic (UTF-8), payload
+ * </pre>
+ *
+ * The length is written LAST, so a record cut off by a crash reads as "end of data". A record that
+ * does not fit into the rest of the head segment starts a new one; fully drained segments are
+ * deleted. When {@link Config#maxSegments} are in use, the OLDEST segment is discarded (freshest
+ * data wins, like {@link MqttPublishPipeline.BackpressurePolicy#DROP_OLDEST}).
+ *
+ * <p>Delivery is at-least-once: the read position is only kept in memory, so after a process
+ * restart the oldest remaining segment is sent again from its start. A record leaves the spool when
+ * the pipeline accepts it, before the broker acknowledged it; if the link drops again meanwhile,
+ * MqttHandler appends the failed publish here once more ({@link
+ * MqttPublishPipeline.FailureHandler}), behind the newer records.
+ *
+ * <p>Threading: all methods are synchronized; {@link #drainTo} only holds the lock per record, not
+ * while it waits for the rate limit.
+ */
+public final class OfflineSpool implements Closeable {
+
+    /** Tuning values. Setters return {@code this} so a config can be built in one expression. */
+    public static class Config {
+        int segmentSize = 1 << 20;
+        int maxSegments = 64;
+        int drainRatePerSecond = 200;
+
+        /** Size of one segment file in bytes (upper bound for a single record). */
+        public Config setSegmentSize(int segmentSize) {
+            this.segmentSize = Math.max(64, segmentSize);
+            return this;
+        }
+
+        /** Disk budget in segments; beyond that the oldest segment is dropped. */
+        public Config setMaxSegments(int maxSegments) {
+            this.maxSegments = Math.max(2, maxSegments);
+            return this;
+        }
+
+        /** Maximum number of spooled messages handed to the pipeline per second while draining. */
+        public Config setDrainRatePerSecond(int drainRatePerSecond) {
+            this.drainRatePerSecond = Math.max(1, drainRatePerSecond);
+            return this;
+        }
+    }
+
+    /** Receives drained messages; returning false stops the drain and keeps the message. */
+    public interface Sink {
+        boolean publish(String topic, byte[] payload, int qos, boolean retained);
+    }
+
+    private static final String SUFFIX = ".seg";
+    private static final int HEADER_SIZE = 4 + 1 + 1 + 2;
+
+    /** One segment file, mapped for its whole size. */
+    private static final class Segment {
+        final long sequence;
+        final File file;
+        final MappedByteBuffer buffer;
+        int records;
+
+        Segment(long sequence, File file, MappedByteBuffer buffer) {
+            this.sequence = sequence;
+            this.file = file;
+            this.buffer = buffer;
+        }
+    }
+
+    /** One decoded record. */
+    private static final class Record {
+        final int length;
+        final String topic;
+        final byte[] payload;
+        final int qos;
+        final boolean retained;
+
+        Record(int length, String topic, byte[] payload, int qos, boolean retained) {
+            this.length = length;
+            this.topic = topic;
+            this.payload = payload;
+            this.qos = qos;
+            this.retained = retained;
+        }
+    }
+
+    private final File directory;
+    private final Config config;
+
+    /** Oldest first; the last one is the write head. */
+    private final ArrayDeque<Segment> segments = new ArrayDeque<>();
+
+    private int readPosition; // in segments.peekFirst()
+    private int writePosition; // in segments.peekLast()
+
+    private long depth;
+    private long appendedCount;
+    private long drainedCount;
+    private long droppedCount;
+    private volatile double lastDrainThroughput;
+
+    /**
+     * Opens the spool in {@code directory} and recovers what an earlier process left there.
+     *
+     * @throws IOException if the directory or a segment cannot be created or mapped.
+     */
+    public OfflineSpool(File directory, Config config) throws IOException {
+        this.directory = directory;
+        this.config = config;
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create spool directory " + directory);
+        }
+
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(SUFFIX));
+        if (files != null) {
+            Arrays.sort(files); // zero-padded names → numeric order
+            for (File file : files) {
+                long sequence = Long.parseLong(file.getName().replace(SUFFIX, ""));
+                Segment segment = new Segment(sequence, file, map(file));
+                writePosition = scan(segment);
+                depth += segment.records;
+                segments.addLast(segment);
+            }
+        }
+        if (segments.isEmpty()) {
+            roll();
+        }
+    }
+
+    // ------------------------------------------------------------
+    // Write side
+    // ------------------------------------------------------------
+
+    /**
+     * Appends one message.
+     *
+     * @return false if it can never fit into a segment (dropped).
+     */
+    public synchronized boolean append(String topic, byte[] payload, int qos, boolean retained) {
+        byte[] topicBytes = topic.getBytes(StandardCharsets.UTF_8);
+        int length = HEADER_SIZE - 4 + topicBytes.length + payload.length;
+        if (4 + length > config.segmentSize || topicBytes.length > Short.MAX_VALUE) {
+            droppedCount++;
+            return false;
+        }
+
+        if (writePosition + 4 + length > config.segmentSize) {
+            try {
+                roll();
+            } catch (IOException e) {
+                System.out.println("MQTTv5: SPOOL ROLL FAILED → " + e.getMessage());
+                droppedCount++;
+                return false;
+            }
+        }
+
+        Segment head = segments.peekLast();
+        MappedByteBuffer buffer = head.buffer;
+        int position = writePosition;
+        buffer.put(position + 4, (byte) qos);
+        buffer.put(position + 5, (byte) (retained ? 1 : 0));
+        buffer.putShort(position + 6, (short) topicBytes.length);
+        buffer.position(position + HEADER_SIZE); // relative puts are safe under the lock
+        buffer.put(topicBytes);
+        buffer.put(payload);
+        buffer.putInt(position, length); // publish the record
+
+        writePosition = position + 4 + length;
+        head.records++;
+        depth++;
+        appendedCount++;
+        return true;
+    }
+
+    /** Starts a new head segment, dropping the oldest one if the disk budget is used up. */
+    private void roll() throws IOException {
+        if (segments.size() >= config.maxSegments) {
+            Segment oldest = segments.pollFirst();
+            int unread = oldest.records - countBefore(oldest, readPosition);
+            depth -= unread;
+            droppedCount += unread;
+            readPosition = 0;
+            delete(oldest);
+        }
+        Segment head = segments.peekLast();
+        if (head != null) head.buffer.force();
+
+        long sequence = head == null ? 1 : head.sequence + 1;
+        File file = new File(directory, String.format(Locale.US, "%016d%s", sequence, SUFFIX));
+        segments.addLast(new Segment(sequence, file, map(file)));
+        writePosition = 0;
+    }
+
+    // ------------------------------------------------------------
+    // Read side
+    // ------------------------------------------------------------
+
+    /**
+     * Hands spooled messages to {@code sink}, oldest first, at most {@link
+     * Config#drainRatePerSecond} per second. Stops when the spool is empty, {@code keepGoing}
+     * returns false or the sink refuses a message.
+     *
+     * @return number of messages drained.
+     */
+    public int drainTo(Sink sink, BooleanSupplier keepGoing) throws InterruptedException {
+        long intervalNanos = 1_000_000_000L / config.drainRatePerSecond;
+        long start = System.nanoTime();
+        int drained = 0;
+
+        while (keepGoing.getAsBoolean()) {
+            long due = start + drained * intervalNanos;
+            long wait = due - System.nanoTime();
+            if (wait > 0) {
+                Thread.sleep(wait / 1_000_000, (int) (wait % 1_000_000));
+            }
+
+            synchronized (this) {
+                if (!seekRecord()) break;
+                Record record = read(segments.peekFirst().buffer, readPosition);
+                if (!sink.publish(record.topic, record.payload, record.qos, record.retained)) {
+                    break;
+                }
+                readPosition += 4 + record.length;
+                depth--;
+                drainedCount++;
+            }
+            drained++;
+        }
+
+        long elapsed = System.nanoTime() - start;
+        if (drained > 0 && elapsed > 0) {
+            lastDrainThroughput = drained * 1e9 / elapsed;
+        }
+        return drained;
+    }
+
+    /**
+     * Moves the read position to the next unread record, deleting drained segments on the way.
+     *
+     * @return false if there is none.
+     */
+    private boolean seekRecord() {
+        while (true) {
+            Segment segment = segments.peekFirst();
+            boolean isHead = segment == segments.peekLast();
+            int limit = isHead ? writePosition : config.segmentSize;
+            if (readPosition + 4 <= limit && segment.buffer.getInt(readPosition) > 0) {
+                return true;
+            }
+            if (isHead) return false; // caught up with the writer
+
+            segments.pollFirst();
+            delete(segment);
+            readPosition = 0;
+        }
+    }
+
+    // ------------------------------------------------------------
+    // Status
+    // ------------------------------------------------------------
+
+    public synchronized boolean isEmpty() {
+        return depth == 0;
+    }
+
+    /** Messages waiting to be drained. */
+    public synchronized long getDepth() {
+        return depth;
+    }
+
+    /** Segment files currently on disk. */
+    public synchronized int getSegmentCount() {
+        return segments.size();
+    }
+
+    public synchronized long getAppendedCount() {
+        return appendedCount;
+    }
+
+    public synchronized long getDrainedCount() {
+        return drainedCount;
+    }
+
+    /** Messages lost because they were too large or the disk budget was exceeded. */
+    public synchronized long getDroppedCount() {
+        return droppedCount;
+    }
+
+    /** Messages per second of the last {@link #drainTo} run that drained anything. */
+    public double getLastDrainThroughput() {
+        return lastDrainThroughput;
+    }
+
+    /** Flushes the head segment to disk. */
+    @Override
+    public synchronized void close() {
+        Segment head = segments.peekLast();
+        if (head != null) head.buffer.force();
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                Locale.US,
+                "depth=%d segments=%d appended=%d drained=%d dropped=%d drainRate=%.1f/s",
+                getDepth(),
+                getSegmentCount(),
+                getAppendedCount(),
+                getDrainedCount(),
+                getDroppedCount(),
+                getLastDrainThroughput());
+    }
+
+    // ------------------------------------------------------------
+    // Helpers
+    // ------------------------------------------------------------
+
+    private MappedByteBuffer map(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw");
+                FileChannel channel = raf.getChannel()) {
+            // The mapping stays valid after the channel is closed.
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, config.segmentSize);
+        }
+    }
+
+    /** Counts the records of a recovered segment; returns the end of its written data. */
+    private int scan(Segment segment) {
+        int position = 0;
+        while (position + 4 <= config.segmentSize) {
+            int length = segment.buffer.getInt(position);
+            if (length <= 0 || position + 4 + length > config.segmentSize) break;
+            segment.records++;
+            position += 4 + length;
+        }
+        return position;
+    }
+
+    /** Number of records that start before {@code end} in {@code segment}. */
+    private int countBefore(Segment segment, int end) {
+        int count = 0;
+        int position = 0;
+        while (position < end) {
+            position += 4 + segment.buffer.getInt(position);
+            count++;
+        }
+        return count;
+    }
+
+    private static Record read(MappedByteBuffer buffer, int position) {
+        int length = buffer.getInt(position);
+        byte[] topic = new byte[buffer.getShort(position + 6)];
+        byte[] payload = new byte[length - (HEADER_SIZE - 4) - topic.length];
+        buffer.position(position + HEADER_SIZE);
+        buffer.get(topic);
+        buffer.get(payload);
+        return new Record(
+                length,
+                new String(topic, StandardCharsets.UTF_8),
+                payload,
+                buffer.get(position + 4),
+                buffer.get(position + 5) != 0);
+    }
+
+    private static void delete(Segment segment) {
+        if (!segment.file.delete()) {
+            System.out.println("MQTTv5: SPOOL could not delete " + segment.file);
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.fhdw.biot.speech.iot.mqtt;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * SensorFrameBatcher ------------------ Publisher-side batching: packs many samples of a sensor
+ * into ONE binary frame ({@link SensorFrameFormat}) and thus one MQTT message.
+ *
+ * <p>At 100-400 Hz the per-message cost (PUBLISH header, PUBACK for QoS 1, callback dispatch on
+ * both sides) dominates a 14-byte sample. A frame of a sensor is published
+ *
+ * <p>- as soon as it holds {@link Config#frameSize} samples (size trigger), or - at the latest
+ * {@link Config#maxLatencyMs} after its first sample (deadline trigger),
+ *
+ * <p>whichever comes first (same scheme as database.SensorBatchWriter). The samples keep their own
+ * timestamps as offsets to the frame's base timestamp.
+ *
+ * <p>Usable by any producer: the simulator, or a real sensor source that calls {@link #add}.
+ *
+ * <p>Threading: {@link #add} may be called from any thread; frames are published on the calling
+ * thread (size trigger) or on the batcher's timer thread (deadline trigger).
+ */
+public class SensorFrameBatcher {
+
+    /**
+     * Receives finished frames, e.g. {@code (topic, frame) -> mqttHandler.publish(topic, frame,
+     * false)}.
+     */
+    public interface FramePublisher {
+        void publish(String topic, byte[] frame);
+    }
+
+    /** Tuning values. Setters return {@code this} so a config can be built in one expression. */
+    public static class Config {
+        int frameSize = 32;
+        long maxLatencyMs = 100;
+        int encoding = SensorFrameFormat.ENCODING_FLOAT32;
+
+        /** Samples per frame, 1..{@link SensorFrameFormat#MAX_SAMPLES}. */
+        public Config setFrameSize(int frameSize) {
+            this.frameSize = Math.max(1, Math.min(SensorFrameFormat.MAX_SAMPLES, frameSize));
+            return this;
+        }
+
+        /** Longest time a sample may wait in an unfinished frame. */
+        public Config setMaxLatencyMs(long maxLatencyMs) {
+            this.maxLatencyMs = Math.max(1, maxLatencyMs);
+            return this;
+        }
+
+        /**
+         * {@link SensorFrameFormat#ENCODING_FLOAT32} or {@link SensorFrameFormat#ENCODING_INT16}.
+         */
+        public Config setEncoding(int encoding) {
+            this.encoding = encoding;
+            return this;
+        }
+    }
+
+    private final FramePublisher publisher;
+    private final long maxLatencyMs;
+
+    // One open frame + deadline per sensor id (guarded by lock)
+    private final Object lock = new Object();
+    private final SensorFrameEncoder[] encoders;
+    private final ScheduledFuture<?>[] deadlines;
+
+    private final ScheduledExecutorService timer =
+            Executors.newSingleThreadScheduledExecutor(
+                    r -> {
+                        Thread thread = new Thread(r, "mqtt-frame-batcher");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+
+    private final AtomicLong frameCount = new AtomicLong();
+    private final AtomicLong sampleCount = new AtomicLong();
+
+    public SensorFrameBatcher(FramePublisher publisher, Config config) {
+        this.publisher = publisher;
+        this.maxLatencyMs = config.maxLatencyMs;
+        encoders = new SensorFrameEncoder[SensorFrameFormat.SENSOR_MAGNET + 1];
+        deadlines = new ScheduledFuture<?>[encoders.length];
+        for (int sensor = 0; sensor < encoders.length; sensor++) {
+            encoders[sensor] = new SensorFrameEncoder(sensor, config.encoding, config.frameSize);
+        }
+    }
+
+    /** Adds one sample of {@code sensor} ({@link SensorFrameFormat#SENSOR_ACCEL} etc.). */
+    public void add(int sensor, long timestamp, float x, float y, float z) {
+        byte[] full = null;
+        byte[] next = null;
+        synchronized (lock) {
+            SensorFrameEncoder encoder = encoders[sensor];
+            if (!encoder.add(timestamp, x, y, z)) {
+                // Too far from the frame's base timestamp → close it, start a new one.
+                full = finishLocked(sensor);
+                encoder.add(timestamp, x, y, z);
+            }
+            if (encoder.getSampleCount() == encoder.getCapacity()) {
+                next = finishLocked(sensor);
+            } else if (encoder.getSampleCount() == 1) {
+                // First sample of a new frame → start the latency clock.
+                deadlines[sensor] =
+                        timer.schedule(() -> flush(sensor), maxLatencyMs, TimeUnit.MILLISECONDS);
+            }
+        }
+        // Network hand-off outside the lock, oldest frame first.
+        publish(sensor, full);
+        publish(sensor, next);
+    }
+
+    /** Publishes every unfinished frame now (e.g. before shutdown). */
+    public void flush() {
+        for (int sensor = 0; sensor < encoders.length; sensor++) {
+            flush(sensor);
+        }
+    }
+
+    /** Flushes the open frames and stops the timer. */
+    public void shutdown() {
+        flush();
+        timer.shutdownNow();
+    }
+
+    /** Frames published so far. */
+    public long getFrameCount() {
+        return frameCount.get();
+    }
+
+    /** Samples published so far (sum over all frames). */
+    public long getSampleCount() {
+        return sampleCount.get();
+    }
+
+    private void flush(int sensor) {
+        byte[] frame;
+        synchronized (lock) {
+            frame = finishLocked(sensor);
+        }
+        publish(sensor, frame);
+    }
+
+    /** Must be called with {@link #lock} held. */
+    private byte[] finishLocked(int sensor) {
+        if (deadlines[sensor] != null) {
+            deadlines[sensor].cancel(false);
+            deadlines[sensor] = null;
+        }
+        SensorFrameEncoder encoder = encoders[sensor];
+        if (encoder.isEmpty()) return null;
+        sampleCount.addAndGet(encoder.getSampleCount());
+        frameCount.incrementAndGet();
+        return encoder.finish();
+    }
+
+    private void publish(int sensor, byte[] frame) {
+        if (frame != null) {
+            publisher.publish(SensorFrameFormat.topicFor(sensor), frame);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.fhdw.biot.speech.iot.mqtt;
+
+/**
+ * SensorFrameDecoder ------------------ Reads binary frames (see {@link SensorFrameFormat})
+ * straight from the MQTT payload bytes.
+ *
+ * <p>Nothing is allocated: every sample is handed to a {@link SampleHandler} as primitives. The
+ * whole frame is validated before the first callback, so a malformed frame delivers nothing.
+ */
+public final class SensorFrameDecoder {
+
+    /** Receives the samples of a frame in order. */
+    public interface SampleHandler {
+        void onSample(int sensor, long timestamp, float x, float y, float z);
+    }
+
+    private SensorFrameDecoder() {}
+
+    /** True if {@code payload} starts like a binary frame (CSV payloads never do). */
+    public static boolean isFrame(byte[] payload) {
+        return payload.length >= SensorFrameFormat.HEADER_SIZE
+                && payload[0] == SensorFrameFormat.MAGIC;
+    }
+
+    /**
+     * Decodes one frame.
+     *
+     * @return number of samples delivered, or -1 if the payload is not a valid frame (unknown
+     *     version/encoding/sensor or a length that does not match the sample count).
+     */
+    public static int decode(byte[] payload, SampleHandler handler) {
+        int count = validSampleCount(payload);
+        if (count < 0) return -1;
+
+        int encoding = payload[1] & 0x0F;
+        int sensor = payload[2] & 0xFF;
+        int header = SensorFrameFormat.headerSize(encoding);
+        long base = getLong(payload, 4);
+        boolean int16 = encoding == SensorFrameFormat.ENCODING_INT16;
+        float scale =
+                int16 ? Float.intBitsToFloat(getInt(payload, SensorFrameFormat.HEADER_SIZE)) : 0f;
+
+        int pos = header;
+        for (int i = 0; i < count; i++) {
+            long timestamp = base + getUnsignedShort(payload, pos);
+            pos += 2;
+            if (int16) {
+                handler.onSample(
+                        sensor,
+                        timestamp,
+                        (short) getUnsignedShort(payload, pos) * scale,
+                        (short) getUnsignedShort(payload, pos + 2) * scale,
+                        (short) getUnsignedShort(payload, pos + 4) * scale);
+                pos += 6;
+            } else {
+                handler.onSample(
+                        sensor,
+                        timestamp,
+                        Float.intBitsToFloat(getInt(payload, pos)),
+                        Float.intBitsToFloat(getInt(payload, pos + 4)),
+                        Float.intBitsToFloat(getInt(payload, pos + 8)));
+                pos += 12;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Timestamp of the newest (last) sample without decoding the frame, e.g. to relate the frame to
+     * the receive time before the samples are handled.
+     *
+     * @return {@link Long#MIN_VALUE} if the payload is not a valid frame.
+     */
+    public static long lastTimestamp(byte[] payload) {
+        int count = validSampleCount(payload);
+        if (count < 0) return Long.MIN_VALUE;
+
+        int encoding = payload[1] & 0x0F;
+        int last =
+                SensorFrameFormat.headerSize(encoding)
+                        + (count - 1) * SensorFrameFormat.sampleSize(encoding);
+        return getLong(payload, 4) + getUnsignedShort(payload, last);
+    }
+
+    /**
+     * Sensor id of a frame without decoding it.
+     *
+     * @return -1 if the payload is not a valid frame.
+     */
+    public static int sensorOf(byte[] payload) {
+        return validSampleCount(payload) < 0 ? -1 : payload[2] & 0xFF;
+    }
+
+    /** Sample count of a well-formed frame, -1 otherwise. */
+    private static int validSampleCount(byte[] payload) {
+        if (!isFrame(payload)) return -1;
+
+        int version = (payload[1] & 0xFF) >>> 4;
+        int encoding = payload[1] & 0x0F;
+        int sensor = payload[2] & 0xFF;
+        int count = payload[3] & 0xFF;
+        if (version != SensorFrameFormat.VERSION
+                || (encoding != SensorFrameFormat.ENCODING_FLOAT32
+                        && encoding != SensorFrameFormat.ENCODING_INT16)
+                || sensor > SensorFrameFormat.SENSOR_MAGNET
+                || count == 0) {
+            return -1;
+        }
+        int expected =
+                SensorFrameFormat.headerSize(encoding)
+                        + count * SensorFrameFormat.sampleSize(encoding);
+        return payload.length == expected ? count : -1;
+    }
+
+    private static int getUnsignedShort(byte[] in, int pos) {
+        return (in[pos] & 0xFF) | (in[pos + 1] & 0xFF) << 8;
+    }
+
+    private static int getInt(byte[] in, int pos) {
+        return getUnsignedShort(in, pos) | getUnsignedShort(in, pos + 2) << 16;
+    }
+
+    private static long getLong(byte[] in, int pos) {
+        return (getInt(in, pos) & 0xFFFFFFFFL) | (long) getInt(in, pos + 4) << 32;
+    }
+}
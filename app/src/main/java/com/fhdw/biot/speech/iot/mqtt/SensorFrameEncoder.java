@@ -0,0 +1,158 @@
+package com.fhdw.biot.speech.iot.mqtt;
+
+/**
+ * SensorFrameEncoder ------------------ Collects samples of ONE sensor and writes them as a binary
+ * frame (see {@link SensorFrameFormat}).
+ *
+ * <p>Samples are kept in preallocated primitive arrays until {@link #finish()}; only the returned
+ * payload array is allocated per frame. For int16 frames the scale is chosen at that point from the
+ * largest absolute value in the frame (max|v| / 32767), so the quantisation error is at most half a
+ * step of that frame.
+ *
+ * <p>Threading: not thread-safe, use one encoder per publishing thread and sensor.
+ */
+public final class SensorFrameEncoder {
+
+    private final int sensor;
+    private final int encoding;
+    private final int capacity;
+
+    private final long[] timestamps;
+    private final float[] xs;
+    private final float[] ys;
+    private final float[] zs;
+    private int count;
+
+    /**
+     * @param sensor {@link SensorFrameFormat#SENSOR_ACCEL} etc.
+     * @param encoding {@link SensorFrameFormat#ENCODING_FLOAT32} or {@link
+     *     SensorFrameFormat#ENCODING_INT16}.
+     * @param maxSamples samples per frame, 1..{@link SensorFrameFormat#MAX_SAMPLES}.
+     */
+    public SensorFrameEncoder(int sensor, int encoding, int maxSamples) {
+        SensorFrameFormat.topicFor(sensor); // validates the id
+        if (encoding != SensorFrameFormat.ENCODING_FLOAT32
+                && encoding != SensorFrameFormat.ENCODING_INT16) {
+            throw new IllegalArgumentException("Unknown encoding " + encoding);
+        }
+        this.sensor = sensor;
+        this.encoding = encoding;
+        this.capacity = Math.max(1, Math.min(SensorFrameFormat.MAX_SAMPLES, maxSamples));
+        timestamps = new long[capacity];
+        xs = new float[capacity];
+        ys = new float[capacity];
+        zs = new float[capacity];
+    }
+
+    public int getSensor() {
+        return sensor;
+    }
+
+    /** Samples per frame. */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int getSampleCount() {
+        return count;
+    }
+
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    /**
+     * Adds one sample.
+     *
+     * @return false if it does not fit (frame full, or more than {@link
+     *     SensorFrameFormat#MAX_OFFSET_MS} after the first sample); {@link #finish()} the frame and
+     *     add it again.
+     */
+    public boolean add(long timestamp, float x, float y, float z) {
+        if (count == capacity) return false;
+        if (count > 0 && timestamp - timestamps[0] > SensorFrameFormat.MAX_OFFSET_MS) return false;
+
+        // Older than the base cannot be expressed (unsigned offset) → clamp to the base.
+        timestamps[count] = count > 0 ? Math.max(timestamp, timestamps[0]) : timestamp;
+        xs[count] = x;
+        ys[count] = y;
+        zs[count] = z;
+        count++;
+        return true;
+    }
+
+    /**
+     * Encodes the collected samples and starts a new, empty frame.
+     *
+     * @return the payload, or null if no sample was added.
+     */
+    public byte[] finish() {
+        if (count == 0) return null;
+
+        int header = SensorFrameFormat.headerSize(encoding);
+        byte[] out = new byte[header + count * SensorFrameFormat.sampleSize(encoding)];
+        long base = timestamps[0];
+
+        out[0] = SensorFrameFormat.MAGIC;
+        out[1] = (byte) (SensorFrameFormat.VERSION << 4 | encoding);
+        out[2] = (byte) sensor;
+        out[3] = (byte) count;
+        putLong(out, 4, base);
+
+        float scale = 0f;
+        if (encoding == SensorFrameFormat.ENCODING_INT16) {
+            scale = maxAbs() / Short.MAX_VALUE;
+            putInt(out, SensorFrameFormat.HEADER_SIZE, Float.floatToIntBits(scale));
+        }
+
+        int pos = header;
+        for (int i = 0; i < count; i++) {
+            putShort(out, pos, (int) (timestamps[i] - base));
+            pos += 2;
+            if (encoding == SensorFrameFormat.ENCODING_INT16) {
+                putShort(out, pos, quantise(xs[i], scale));
+                putShort(out, pos + 2, quantise(ys[i], scale));
+                putShort(out, pos + 4, quantise(zs[i], scale));
+                pos += 6;
+            } else {
+                putInt(out, pos, Float.floatToRawIntBits(xs[i]));
+                putInt(out, pos + 4, Float.floatToRawIntBits(ys[i]));
+                putInt(out, pos + 8, Float.floatToRawIntBits(zs[i]));
+                pos += 12;
+            }
+        }
+
+        count = 0;
+        return out;
+    }
+
+    private float maxAbs() {
+        float max = 0f;
+        for (int i = 0; i < count; i++) {
+            max =
+                    Math.max(
+                            max,
+                            Math.max(Math.abs(xs[i]), Math.max(Math.abs(ys[i]), Math.abs(zs[i]))));
+        }
+        return max;
+    }
+
+    private static int quantise(float value, float scale) {
+        return scale == 0f ? 0 : Math.round(value / scale);
+    }
+
+    private static void putShort(byte[] out, int pos, int value) {
+        out[pos] = (byte) value;
+        out[pos + 1] = (byte) (value >>> 8);
+    }
+
+    private static void putInt(byte[] out, int pos, int value) {
+        putShort(out, pos, value);
+        putShort(out, pos + 2, value >>> 16);
+    }
+
+    private static void putLong(byte[] out, int pos, long value) {
+        putInt(out, pos, (int) value);
+        putInt(out, pos + 4, (int) (value >>> 32));
+    }
+}
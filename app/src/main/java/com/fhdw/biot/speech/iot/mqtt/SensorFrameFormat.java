@@ -0,0 +1,79 @@
+package com.fhdw.biot.speech.iot.mqtt;
+
+/**
+ * SensorFrameFormat ----------------- Constants of the compact binary payload ("frame") that can be
+ * sent instead of the CSV "x,y,z" text.
+ *
+ * <p>A frame carries one or more samples of ONE sensor. All numbers are little endian:
+ *
+ * <pre>
+ *   offset size
+ *   0      1    magic 0xB5 (never the first byte of a CSV payload)
+ *   1      1    version (high nibble) | encoding (low nibble): 0 = float32, 1 = int16
+ *   2      1    sensor id ({@link #SENSOR_ACCEL}, {@link #SENSOR_GYRO}, {@link #SENSOR_MAGNET})
+ *   3      1    sample count n (1..255)
+ *   4      8    base timestamp, epoch ms (int64)
+ *   12     4    scale (float32), only for int16: value = q * scale
+ *   then n times:
+ *          2    timestamp offset to the base in ms (uint16)
+ *          12/6 x, y, z as float32 or int16
+ * </pre>
+ *
+ * So one sample costs 14 bytes (float32) or 8 bytes (int16) plus a 12/16 byte header, against
+ * ~20-25 bytes of text and a String.format/parse on each side.
+ *
+ * <p>Frames are published under {@link #TOPIC_PREFIX} ("SensorBin/Bewegung", ...). The receiver
+ * recognises them by the magic byte, so CSV publishers on the old topics keep working.
+ */
+public final class SensorFrameFormat {
+
+    public static final byte MAGIC = (byte) 0xB5;
+    public static final int VERSION = 1;
+
+    public static final int ENCODING_FLOAT32 = 0;
+    public static final int ENCODING_INT16 = 1;
+
+    // Same numbering as ThresholdRuleEngine.ACCEL / GYRO / MAGNET.
+    public static final int SENSOR_ACCEL = 0;
+    public static final int SENSOR_GYRO = 1;
+    public static final int SENSOR_MAGNET = 2;
+
+    public static final int MAX_SAMPLES = 255;
+
+    /** Largest timestamp offset a sample can have relative to the frame's base timestamp. */
+    public static final long MAX_OFFSET_MS = 0xFFFF;
+
+    /** Topic namespace of the binary payloads, parallel to "Sensor/...". */
+    public static final String TOPIC_PREFIX = "SensorBin/";
+
+    static final int HEADER_SIZE = 12;
+    static final int SCALE_SIZE = 4;
+
+    private SensorFrameFormat() {}
+
+    /**
+     * Binary topic for a sensor id ("SensorBin/Bewegung", "SensorBin/Gyro", "SensorBin/Magnet").
+     */
+    public static String topicFor(int sensor) {
+        switch (sensor) {
+            case SENSOR_ACCEL:
+                return TOPIC_PREFIX + "Bewegung";
+            case SENSOR_GYRO:
+                return TOPIC_PREFIX + "Gyro";
+            case SENSOR_MAGNET:
+                return TOPIC_PREFIX + "Magnet";
+            default:
+                throw new IllegalArgumentException("Unknown sensor id " + sensor);
+        }
+    }
+
+    /** Bytes per sample after the header. */
+    static int sampleSize(int encoding) {
+        return 2 + (encoding == ENCODING_INT16 ? 6 : 12);
+    }
+
+    /** Header bytes including the scale field of int16 frames. */
+    static int headerSize(int encoding) {
+        return HEADER_SIZE + (encoding == ENCODING_INT16 ? SCALE_SIZE : 0);
+    }
+}
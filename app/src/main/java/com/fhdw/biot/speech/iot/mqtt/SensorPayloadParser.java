@@ -0,0 +1,259 @@
+package com.fhdw.biot.speech.iot.mqtt;
+
+import com.fhdw.biot.speech.iot.sensor.SensorSample;
+
+/**
+ * SensorPayloadParser ------------------- Allocation-free parser for the CSV payload "x,y,z" of the
+ * Sensor/* topics.
+ *
+ * <p>The old path was: byte[] → new String(...) → split(",") (regex + String[]) → trim() →
+ * Float.parseFloat(...). That creates a String, an array and several substrings per sample. This
+ * parser instead walks the raw MQTT payload bytes once and writes the three floats straight into a
+ * reusable {@link SensorSample}.
+ *
+ * <p>Accepted per value: optional whitespace, optional sign, digits with optional decimal point,
+ * optional exponent (e.g. "-1.5e-3"), optional whitespace. NaN/Infinity/hex floats are rejected.
+ *
+ * <p>Optional 4th column: the sampling time on the publisher's clock in epoch milliseconds, with up
+ * to six decimals for sub-millisecond resolution ("x,y,z,1700000000123.456"). It is reported by
+ * {@link #getTimestampNanos()}. A 4th column that is not such a number, and any further column, is
+ * ignored (same as the old split-based handlers).
+ *
+ * <p>Precision: for the usual sensor formats (up to 7 significant digits, up to 10 decimals, e.g.
+ * "%.3f") the result is bit-identical to Float.parseFloat(), because it is computed with exactly
+ * one correctly rounded float operation. Longer numbers take a double-based path that can differ
+ * from Float.parseFloat() in the last bit in rare cases.
+ *
+ * <p>Threading: an instance keeps its cursor in fields, so use one parser per thread (the MQTT
+ * callback thread owns one).
+ */
+public final class SensorPayloadParser {
+
+    /** More significant digits than this are not accumulated (they cannot change a float). */
+    private static final int MAX_MANTISSA_DIGITS = 18;
+
+    /** Largest integer that float/double still represent exactly. */
+    private static final long FLOAT_EXACT_LIMIT = 1L << 24;
+
+    private static final long DOUBLE_EXACT_LIMIT = 1L << 53;
+
+    /** 10^0 .. 10^10 are exact in float (5^10 < 2^24). */
+    private static final float[] FLOAT_POW10 = {
+        1e0f, 1e1f, 1e2f, 1e3f, 1e4f, 1e5f, 1e6f, 1e7f, 1e8f, 1e9f, 1e10f
+    };
+
+    /** {@link #getTimestampNanos()} when the payload had no timestamp column. */
+    public static final long NO_TIMESTAMP = Long.MIN_VALUE;
+
+    /** Epoch milliseconds with more digits than this are not taken as a timestamp. */
+    private static final int MAX_TIMESTAMP_DIGITS = 15;
+
+    /** 10^0 .. 10^22 are exact in double (5^22 < 2^53). */
+    private static final double[] DOUBLE_POW10 = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16,
+        1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    // ---- cursor state of the current parse() call ---------------------------
+    private byte[] buf;
+    private int pos;
+    private int end;
+    private float value;
+
+    private long timestampNanos = NO_TIMESTAMP;
+
+    /** Parses a complete payload. See {@link #parse(byte[], int, int, SensorSample)}. */
+    public boolean parse(byte[] payload, SensorSample out) {
+        return parse(payload, 0, payload.length, out);
+    }
+
+    /**
+     * Parses "x,y,z" from {@code payload[offset, offset + length)} into {@code out.x/y/z}. The
+     * timestamp of {@code out} is not touched; an optional timestamp column is available from
+     * {@link #getTimestampNanos()} afterwards.
+     *
+     * @return true on success; false if the payload is malformed (then {@code out} is unchanged).
+     */
+    public boolean parse(byte[] payload, int offset, int length, SensorSample out) {
+        buf = payload;
+        pos = offset;
+        end = offset + length;
+        try {
+            if (!parseNumber()) return false;
+            float x = value;
+            if (!skipComma() || !parseNumber()) return false;
+            float y = value;
+            if (!skipComma() || !parseNumber()) return false;
+            float z = value;
+
+            // Either end of payload or another column.
+            if (pos < end && buf[pos] != ',') return false;
+            long timestamp = skipComma() ? parseTimestamp() : NO_TIMESTAMP;
+
+            timestampNanos = timestamp;
+            out.x = x;
+            out.y = y;
+            out.z = z;
+            return true;
+        } finally {
+            buf = null;
+        }
+    }
+
+    /**
+     * Publisher timestamp of the last successfully parsed payload in epoch nanoseconds, or {@link
+     * #NO_TIMESTAMP} if it had none.
+     */
+    public long getTimestampNanos() {
+        return timestampNanos;
+    }
+
+    // ------------------------------------------------------------------------
+    // Scanner helpers
+    // ------------------------------------------------------------------------
+
+    private void skipWhitespace() {
+        while (pos < end
+                && (buf[pos] == ' ' || buf[pos] == '\t' || buf[pos] == '\r' || buf[pos] == '\n')) {
+            pos++;
+        }
+    }
+
+    private boolean skipComma() {
+        if (pos < end && buf[pos] == ',') {
+            pos++;
+            return true;
+        }
+        return false;
+    }
+
+    /** Reads one decimal number into {@link #value}; leaves the cursor after trailing blanks. */
+    private boolean parseNumber() {
+        skipWhitespace();
+
+        boolean negative = false;
+        if (pos < end && (buf[pos] == '-' || buf[pos] == '+')) {
+            negative = buf[pos] == '-';
+            pos++;
+        }
+
+        long mantissa = 0;
+        int significantDigits = 0;
+        int exp10 = 0;
+        boolean anyDigit = false;
+
+        // Integer part
+        while (pos < end) {
+            int d = buf[pos] - '0';
+            if (d < 0 || d > 9) break;
+            anyDigit = true;
+            if (significantDigits < MAX_MANTISSA_DIGITS) {
+                mantissa = mantissa * 10 + d;
+                if (mantissa != 0) significantDigits++;
+            } else {
+                exp10++; // digit dropped, but it still shifts the magnitude
+            }
+            pos++;
+        }
+
+        // Fraction part
+        if (pos < end && buf[pos] == '.') {
+            pos++;
+            while (pos < end) {
+                int d = buf[pos] - '0';
+                if (d < 0 || d > 9) break;
+                anyDigit = true;
+                if (significantDigits < MAX_MANTISSA_DIGITS) {
+                    mantissa = mantissa * 10 + d;
+                    if (mantissa != 0) significantDigits++;
+                    exp10--;
+                }
+                pos++;
+            }
+        }
+
+        if (!anyDigit) return false;
+
+        // Exponent
+        if (pos < end && (buf[pos] == 'e' || buf[pos] == 'E')) {
+            pos++;
+            boolean negativeExp = false;
+            if (pos < end && (buf[pos] == '-' || buf[pos] == '+')) {
+                negativeExp = buf[pos] == '-';
+                pos++;
+            }
+            int exp = 0;
+            boolean anyExpDigit = false;
+            while (pos < end) {
+                int d = buf[pos] - '0';
+                if (d < 0 || d > 9) break;
+                anyExpDigit = true;
+                if (exp < 100_000) exp = exp * 10 + d;
+                pos++;
+            }
+            if (!anyExpDigit) return false;
+            exp10 += negativeExp ? -exp : exp;
+        }
+
+        skipWhitespace();
+        value = toFloat(negative, mantissa, exp10);
+        return true;
+    }
+
+    /**
+     * Reads the timestamp column "ms[.fraction]" as epoch nanoseconds.
+     *
+     * @return the timestamp, or {@link #NO_TIMESTAMP} if the column is not such a number.
+     */
+    private long parseTimestamp() {
+        skipWhitespace();
+
+        long millis = 0;
+        int digits = 0;
+        while (pos < end) {
+            int d = buf[pos] - '0';
+            if (d < 0 || d > 9) break;
+            if (++digits > MAX_TIMESTAMP_DIGITS) return NO_TIMESTAMP;
+            millis = millis * 10 + d;
+            pos++;
+        }
+        if (digits == 0) return NO_TIMESTAMP;
+
+        long fraction = 0;
+        if (pos < end && buf[pos] == '.') {
+            pos++;
+            long unit = 100_000; // ns per digit, first decimal = 100 µs
+            while (pos < end) {
+                int d = buf[pos] - '0';
+                if (d < 0 || d > 9) break;
+                fraction += d * unit; // below 1 ns (unit == 0) the digits are dropped
+                unit /= 10;
+                pos++;
+            }
+        }
+
+        skipWhitespace();
+        if (pos < end && buf[pos] != ',') return NO_TIMESTAMP;
+        return millis * 1_000_000L + fraction;
+    }
+
+    /** mantissa × 10^exp10 as float, with a single rounding step whenever possible. */
+    private static float toFloat(boolean negative, long mantissa, int exp10) {
+        float result;
+
+        if (mantissa == 0) {
+            result = 0f;
+        } else if (mantissa <= FLOAT_EXACT_LIMIT && exp10 >= -10 && exp10 <= 10) {
+            // Both operands exact → one correctly rounded float operation.
+            result = exp10 >= 0 ? mantissa * FLOAT_POW10[exp10] : mantissa / FLOAT_POW10[-exp10];
+        } else if (mantissa <= DOUBLE_EXACT_LIMIT && exp10 >= -22 && exp10 <= 22) {
+            double d =
+                    exp10 >= 0 ? mantissa * DOUBLE_POW10[exp10] : mantissa / DOUBLE_POW10[-exp10];
+            result = (float) d;
+        } else {
+            result = (float) (mantissa * Math.pow(10, exp10));
+        }
+
+        return negative ? -result : result;
+    }
+}
@@ -15,12 +15,18 @@ import androidx.lifecycle.LiveData;
 import com.fhdw.biot.speech.iot.R;
 import com.fhdw.biot.speech.iot.events.EreignisActivity;
 import com.fhdw.biot.speech.iot.graph.BaseChartActivity;
+import com.fhdw.biot.speech.iot.graph.SlidingWindow;
 import com.fhdw.biot.speech.iot.main.MainActivity;
 import com.fhdw.biot.speech.iot.util.DatePickerHandler;
 import com.github.mikephil.charting.charts.LineChart;
 import com.github.mikephil.charting.data.Entry;
+import com.github.mikephil.charting.data.LineData;
+import com.github.mikephil.charting.data.LineDataSet;
 import database.DB;
-import database.entities.AccelData;
+import database.SampleLog;
+import database.SampleLogCompactor;
+import database.dao.SensorDao;
+import database.entities.SensorReading;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.List;
@@ -36,6 +42,13 @@ import java.util.Locale;
  */
 public class AccelActivity extends BaseChartActivity {
 
+    /** Key for the background chart preparation of this screen. */
+    private static final String CHART_KEY = "accel";
+
+    /** Datasets of the live window; refreshed incrementally while it is attached. */
+    private final SlidingWindow liveWindow =
+            new SlidingWindow(SlidingWindow.X, SlidingWindow.Y, SlidingWindow.Z);
+
     /** Individual charts for each axis of the accelerometer. */
     private LineChart lineChartAccelX, lineChartAccelY, lineChartAccelZ;
 
@@ -53,8 +66,6 @@ public class AccelActivity extends BaseChartActivity {
     /** Quick filter button: show only last 10 minutes. */
     private Button btnFilterLast10Min;
 
-    private LiveData<List<AccelData>> currentLiveData;
-
     private Handler slidingWindowHandler = new Handler(Looper.getMainLooper());
     private Runnable slidingWindowRunnable;
     private boolean isTenMinuteFilterActive = false;
@@ -152,6 +163,15 @@ public class AccelActivity extends BaseChartActivity {
 
         // Configure date pickers and default date range.
         setupDatePickers();
+
+        // New rows → reload the filtered range, throttled (the live window has its own tick).
+        refreshOnTableChanges(
+                TABLE_REFRESH_INTERVAL_MS,
+                () -> {
+                    if (!isTenMinuteFilterActive) updateChartsWithDateFilter();
+                },
+                "accel_data",
+                "sensor_block");
     }
 
     // ------------------------------------------------------------------------
@@ -269,7 +289,7 @@ public class AccelActivity extends BaseChartActivity {
                         dateToCalendar.setTimeInMillis(now);
 
                         syncDateButtonTexts();
-                        updateChartsWithDateFilter();
+                        refreshLiveWindow();
 
                         slidingWindowHandler.postDelayed(this, 5000);
                     }
@@ -303,10 +323,6 @@ public class AccelActivity extends BaseChartActivity {
             return;
         }
 
-        if (currentLiveData != null) {
-            currentLiveData.removeObservers(this);
-        }
-
         long fromTime = dateFromCalendar.getTimeInMillis();
         long toTime;
 
@@ -320,23 +336,30 @@ public class AccelActivity extends BaseChartActivity {
             toTime = adjustedToCalendar.getTimeInMillis();
         }
 
-        currentLiveData =
-                DB.getDatabase(getApplicationContext())
-                        .sensorDao()
-                        .getAccelDataBetween(fromTime, toTime);
-
-        currentLiveData.observe(
-                this,
-                filteredData -> {
-                    if (filteredData != null && !filteredData.isEmpty()) {
-                        long firstTimestamp = filteredData.get(0).timestamp;
+        // The old range is obsolete: abort its chart preparation if it is still running.
+        cancelChartPreparation(CHART_KEY);
+        liveWindow.detach();
 
-                        // Use earliest row in range as X-axis start.
-                        setupChart(lineChartAccelX, "X-Achse", firstTimestamp);
-                        setupChart(lineChartAccelY, "Y-Achse", firstTimestamp);
-                        setupChart(lineChartAccelZ, "Z-Achse", firstTimestamp);
+        if (isTenMinuteFilterActive) {
+            // Live window: load once, then refreshLiveWindow() only appends new rows.
+            loadLiveWindow(fromTime, toTime);
+            return;
+        }
 
-                        displayDataInCharts(filteredData);
+        // One-shot load, reduced to the chart width while it streams; new rows re-run it through
+        // refreshOnTableChanges (see onCreate).
+        int chartWidth = chartWidth(lineChartAccelX);
+        SensorDao dao = DB.getDatabase(getApplicationContext()).sensorDao();
+        SampleLog sampleLog = SampleLogCompactor.getInstance(getApplicationContext()).getLog();
+        long from = fromTime;
+        long to = toTime;
+        prepareChartData(
+                CHART_KEY,
+                () -> streamReduced(dao, sampleLog, SensorReading.ACCEL, from, to, chartWidth),
+                rows -> {
+                    if (!rows.isEmpty()) {
+                        // Entries are built in the background, see displayDataInCharts().
+                        displayDataInCharts(rows);
                     } else {
                         // No data in this range → clear charts to avoid stale plots.
                         lineChartAccelX.clear();
@@ -371,34 +394,130 @@ public class AccelActivity extends BaseChartActivity {
     // ------------------------------------------------------------------------
 
     /**
-     * Converts a list of AccelData entities into three sets of MPAndroidChart entries (X/Y/Z) and
-     * renders them on the respective charts.
+     * Converts the reduced accel samples ({@link #streamReduced}) into three sets of MPAndroidChart
+     * entries (X/Y/Z) and renders them on the respective charts.
      *
      * <p>X-axis values are "elapsed milliseconds since first sample".
      */
-    private void displayDataInCharts(List<AccelData> accelDataList) {
+    private void displayDataInCharts(List<SensorSample> accelDataList) {
         if (accelDataList.isEmpty()) {
             return;
         }
 
-        ArrayList<Entry> entriesX = new ArrayList<>();
-        ArrayList<Entry> entriesY = new ArrayList<>();
-        ArrayList<Entry> entriesZ = new ArrayList<>();
-
         long firstTimestamp = accelDataList.get(0).timestamp;
 
-        for (AccelData data : accelDataList) {
-            float elapsedTime = data.timestamp - firstTimestamp; // ms offset
+        prepareChartData(
+                CHART_KEY,
+                () -> buildChartData(accelDataList),
+                lineData -> showChartData(lineData, firstTimestamp));
+    }
+
+    /**
+     * Background part: one LineData per axis chart (X, Y, Z). Does not touch any view.
+     *
+     * <p>Rows are DB entities or samples from {@link SensorHistory}, hence SensorPoint.
+     */
+    private static <T extends SensorPoint> LineData[] buildChartData(List<T> rows) {
+        long firstTimestamp = rows.get(0).getTimestamp();
+
+        ArrayList<Entry> entriesX = new ArrayList<>(rows.size());
+        ArrayList<Entry> entriesY = new ArrayList<>(rows.size());
+        ArrayList<Entry> entriesZ = new ArrayList<>(rows.size());
+
+        for (int i = 0; i < rows.size(); i++) {
+            if (i % CANCELLATION_CHECK_INTERVAL == 0) throwIfCancelled();
+            T data = rows.get(i);
+            float elapsedTime = data.elapsedMillis(firstTimestamp); // ms since first
 
-            entriesX.add(new Entry(elapsedTime, data.accelX));
-            entriesY.add(new Entry(elapsedTime, data.accelY));
-            entriesZ.add(new Entry(elapsedTime, data.accelZ));
+            entriesX.add(new Entry(elapsedTime, data.getX()));
+            entriesY.add(new Entry(elapsedTime, data.getY()));
+            entriesZ.add(new Entry(elapsedTime, data.getZ()));
         }
 
         // Delegate dataset creation + chart styling to BaseChartActivity.
-        setData(lineChartAccelX, entriesX, "X-Achse", Color.WHITE);
-        setData(lineChartAccelY, entriesY, "Y-Achse", Color.WHITE);
-        setData(lineChartAccelZ, entriesZ, "Z-Achse", Color.WHITE);
+        return new LineData[] {
+            buildLineData(entriesX, "X-Achse", Color.WHITE),
+            buildLineData(entriesY, "Y-Achse", Color.WHITE),
+            buildLineData(entriesZ, "Z-Achse", Color.WHITE)
+        };
+    }
+
+    /** Main thread: hand the prepared data to the three charts. */
+    private void showChartData(LineData[] lineData, long firstTimestamp) {
+        // Use earliest row in range as X-axis start.
+        setupChart(lineChartAccelX, "X-Achse", firstTimestamp);
+        setupChart(lineChartAccelY, "Y-Achse", firstTimestamp);
+        setupChart(lineChartAccelZ, "Z-Achse", firstTimestamp);
+
+        showLineData(lineChartAccelX, lineData[0]);
+        showLineData(lineChartAccelY, lineData[1]);
+        showLineData(lineChartAccelZ, lineData[2]);
+    }
+
+    // ------------------------------------------------------------------------
+    // Live window ("last 10 minutes")
+    // ------------------------------------------------------------------------
+
+    /**
+     * Full load of the live window → attaches {@link #liveWindow}. Recent samples come from {@link
+     * SensorHistory}, only the part older than the buffer from Room.
+     */
+    private void loadLiveWindow(long fromTime, long toTime) {
+        SampleRingBuffer.RangeQuery storedRows = storedSamples(SensorReading.ACCEL);
+        prepareChartData(
+                CHART_KEY,
+                () ->
+                        SlidingWindow.Snapshot.of(
+                                SensorHistory.ACCEL.readRange(fromTime, toTime, storedRows),
+                                AccelActivity::buildChartData),
+                snapshot -> {
+                    if (snapshot == null) {
+                        // No data in this range → clear charts to avoid stale plots.
+                        lineChartAccelX.clear();
+                        lineChartAccelY.clear();
+                        lineChartAccelZ.clear();
+                        return;
+                    }
+                    showChartData(snapshot.data, snapshot.firstTimestamp);
+                    liveWindow.attach(
+                            new LineDataSet[] {
+                                (LineDataSet) snapshot.data[0].getDataSetByIndex(0),
+                                (LineDataSet) snapshot.data[1].getDataSetByIndex(0),
+                                (LineDataSet) snapshot.data[2].getDataSetByIndex(0)
+                            },
+                            snapshot.firstTimestamp,
+                            snapshot.lastTimestamp);
+                });
+    }
+
+    /**
+     * Sliding window tick: only fetches rows newer than the last one shown, appends them and drops
+     * what fell off the left edge. Falls back to a full load while nothing is attached.
+     */
+    private void refreshLiveWindow() {
+        if (isChartPreparationPending(CHART_KEY)) return; // previous load still running
+
+        if (!liveWindow.isAttached()) {
+            updateChartsWithDateFilter();
+            return;
+        }
+
+        SampleRingBuffer.RangeQuery storedRows = storedSamples(SensorReading.ACCEL);
+        long toTime = dateToCalendar.getTimeInMillis();
+        appendToSlidingWindow(
+                CHART_KEY,
+                liveWindow,
+                after -> SensorHistory.ACCEL.readRange(after + 1, toTime, storedRows),
+                dateFromCalendar.getTimeInMillis(),
+                () -> {
+                    if (!liveWindow.isAttached()) {
+                        updateChartsWithDateFilter(); // window ran empty
+                        return;
+                    }
+                    notifyChartDataChanged(lineChartAccelX);
+                    notifyChartDataChanged(lineChartAccelY);
+                    notifyChartDataChanged(lineChartAccelZ);
+                });
     }
 
     @Override
@@ -15,12 +15,18 @@ import androidx.lifecycle.LiveData;
 import com.fhdw.biot.speech.iot.R;
 import com.fhdw.biot.speech.iot.events.EreignisActivity;
 import com.fhdw.biot.speech.iot.graph.BaseChartActivity;
+import com.fhdw.biot.speech.iot.graph.SlidingWindow;
 import com.fhdw.biot.speech.iot.main.MainActivity;
 import com.fhdw.biot.speech.iot.util.DatePickerHandler;
 import com.github.mikephil.charting.charts.LineChart;
 import com.github.mikephil.charting.data.Entry;
+import com.github.mikephil.charting.data.LineData;
+import com.github.mikephil.charting.data.LineDataSet;
 import database.DB;
-import database.entities.GyroData;
+import database.SampleLog;
+import database.SampleLogCompactor;
+import database.dao.SensorDao;
+import database.entities.SensorReading;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.List;
@@ -31,12 +37,19 @@ import java.util.Locale;
  * charts (X, Y, Z axes) and lets the user filter the visible range by date.
  *
  * <p>Responsibilities: - Navigation between sensor screens (Accel / Magnet) and main screen. -
- * Connecting to Room (DB.sensorDao()) to load stored GyroData. - Handling from/to date selection
- * via DatePickerHandler. - Mapping GyroData → MPAndroidChart entries and rendering them. - Using
- * BaseChartActivity for common chart styling/behaviour.
+ * Connecting to Room (DB.sensorDao()) to load stored gyro samples. - Handling from/to date
+ * selection via DatePickerHandler. - Mapping samples → MPAndroidChart entries and rendering them. -
+ * Using BaseChartActivity for common chart styling/behaviour.
  */
 public class GyroActivity extends BaseChartActivity {
 
+    /** Key for the background chart preparation of this screen. */
+    private static final String CHART_KEY = "gyro";
+
+    /** Datasets of the live window; refreshed incrementally while it is attached. */
+    private final SlidingWindow liveWindow =
+            new SlidingWindow(SlidingWindow.X, SlidingWindow.Y, SlidingWindow.Z);
+
     /** Individual charts for each gyroscope axis. */
     private LineChart lineChartGyroX, lineChartGyroY, lineChartGyroZ;
 
@@ -58,8 +71,6 @@ public class GyroActivity extends BaseChartActivity {
     /** Quick filter button: show only last 10 minutes. */
     private Button btnFilterLast10Min;
 
-    private LiveData<List<GyroData>> currentLiveData;
-
     private boolean isStartPointFixed = false;
 
     @Override
@@ -165,6 +176,15 @@ public class GyroActivity extends BaseChartActivity {
 
         // Configure and attach the date pickers (from/to).
         setupDatePickers();
+
+        // New rows → reload the filtered range, throttled (the live window has its own tick).
+        refreshOnTableChanges(
+                TABLE_REFRESH_INTERVAL_MS,
+                () -> {
+                    if (!isTenMinuteFilterActive) updateChartsWithDateFilter();
+                },
+                "gyro_data",
+                "sensor_block");
     }
 
     // ------------------------------------------------------------------------
@@ -289,7 +309,7 @@ public class GyroActivity extends BaseChartActivity {
                         dateToCalendar.setTimeInMillis(now);
 
                         syncDateButtonTexts();
-                        updateChartsWithDateFilter();
+                        refreshLiveWindow();
 
                         slidingWindowHandler.postDelayed(this, 5000);
                     }
@@ -329,10 +349,6 @@ public class GyroActivity extends BaseChartActivity {
             return;
         }
 
-        if (currentLiveData != null) {
-            currentLiveData.removeObservers(this);
-        }
-
         long fromTime = dateFromCalendar.getTimeInMillis();
         long toTime;
 
@@ -346,23 +362,30 @@ public class GyroActivity extends BaseChartActivity {
             toTime = adjustedToCalendar.getTimeInMillis();
         }
 
-        currentLiveData =
-                DB.getDatabase(getApplicationContext())
-                        .sensorDao()
-                        .getGyroDataBetween(fromTime, toTime);
-
-        currentLiveData.observe(
-                this,
-                filteredData -> {
-                    if (filteredData != null && !filteredData.isEmpty()) {
-                        long firstTimestamp = filteredData.get(0).timestamp;
+        // The old range is obsolete: abort its chart preparation if it is still running.
+        cancelChartPreparation(CHART_KEY);
+        liveWindow.detach();
 
-                        // Use earliest row in range as X-axis start.
-                        setupChart(lineChartGyroX, "X-Achse", firstTimestamp);
-                        setupChart(lineChartGyroY, "Y-Achse", firstTimestamp);
-                        setupChart(lineChartGyroZ, "Z-Achse", firstTimestamp);
+        if (isTenMinuteFilterActive) {
+            // Live window: load once, then refreshLiveWindow() only appends new rows.
+            loadLiveWindow(fromTime, toTime);
+            return;
+        }
 
-                        displayDataInCharts(filteredData);
+        // One-shot load, reduced to the chart width while it streams; new rows re-run it through
+        // refreshOnTableChanges (see onCreate).
+        int chartWidth = chartWidth(lineChartGyroX);
+        SensorDao dao = DB.getDatabase(getApplicationContext()).sensorDao();
+        SampleLog sampleLog = SampleLogCompactor.getInstance(getApplicationContext()).getLog();
+        long from = fromTime;
+        long to = toTime;
+        prepareChartData(
+                CHART_KEY,
+                () -> streamReduced(dao, sampleLog, SensorReading.GYRO, from, to, chartWidth),
+                rows -> {
+                    if (!rows.isEmpty()) {
+                        // Entries are built in the background, see displayDataInCharts().
+                        displayDataInCharts(rows);
                     } else {
                         // No data in this range → clear charts to avoid stale plots.
                         lineChartGyroX.clear();
@@ -397,37 +420,133 @@ public class GyroActivity extends BaseChartActivity {
     // ------------------------------------------------------------------------
 
     /**
-     * Converts a list of {@link GyroData} rows into three separate MPAndroidChart datasets (X, Y, Z
-     * axes) and renders them on the charts.
+     * Converts the reduced samples ({@link #streamReduced}) into three separate MPAndroidChart
+     * datasets (X, Y, Z axes) and renders them on the charts.
      *
      * <p>X-axis values are "elapsed milliseconds since firstTimestamp", so the charts show
      * time-relative data instead of absolute timestamps.
      */
-    private void displayDataInCharts(List<GyroData> gyroDataList) {
+    private void displayDataInCharts(List<SensorSample> gyroDataList) {
         if (gyroDataList == null || gyroDataList.isEmpty()) {
             return;
         }
 
-        ArrayList<Entry> entriesX = new ArrayList<>();
-        ArrayList<Entry> entriesY = new ArrayList<>();
-        ArrayList<Entry> entriesZ = new ArrayList<>();
-
         // Reference timestamp; all other samples are relative to this.
         long firstTimestamp = gyroDataList.get(0).timestamp;
 
-        // Convert each DB row into chart entries.
-        for (GyroData data : gyroDataList) {
-            float elapsedTime = data.timestamp - firstTimestamp; // milliseconds since first sample
+        prepareChartData(
+                CHART_KEY,
+                () -> buildChartData(gyroDataList),
+                lineData -> showChartData(lineData, firstTimestamp));
+    }
+
+    /**
+     * Background part: one LineData per axis chart (X, Y, Z). Does not touch any view.
+     *
+     * <p>Rows are DB entities or samples from {@link SensorHistory}, hence SensorPoint.
+     */
+    private static <T extends SensorPoint> LineData[] buildChartData(List<T> rows) {
+        long firstTimestamp = rows.get(0).getTimestamp();
+
+        ArrayList<Entry> entriesX = new ArrayList<>(rows.size());
+        ArrayList<Entry> entriesY = new ArrayList<>(rows.size());
+        ArrayList<Entry> entriesZ = new ArrayList<>(rows.size());
 
-            entriesX.add(new Entry(elapsedTime, data.gyroX));
-            entriesY.add(new Entry(elapsedTime, data.gyroY));
-            entriesZ.add(new Entry(elapsedTime, data.gyroZ));
+        // Convert each DB row into chart entries.
+        for (int i = 0; i < rows.size(); i++) {
+            if (i % CANCELLATION_CHECK_INTERVAL == 0) throwIfCancelled();
+            T data = rows.get(i);
+            float elapsedTime = data.elapsedMillis(firstTimestamp); // ms since first
+
+            entriesX.add(new Entry(elapsedTime, data.getX()));
+            entriesY.add(new Entry(elapsedTime, data.getY()));
+            entriesZ.add(new Entry(elapsedTime, data.getZ()));
         }
 
         // Delegate actual dataset creation + styling to BaseChartActivity.
-        setData(lineChartGyroX, entriesX, "X-Achse", Color.WHITE);
-        setData(lineChartGyroY, entriesY, "Y-Achse", Color.WHITE);
-        setData(lineChartGyroZ, entriesZ, "Z-Achse", Color.WHITE);
+        return new LineData[] {
+            buildLineData(entriesX, "X-Achse", Color.WHITE),
+            buildLineData(entriesY, "Y-Achse", Color.WHITE),
+            buildLineData(entriesZ, "Z-Achse", Color.WHITE)
+        };
+    }
+
+    /** Main thread: hand the prepared data to the three charts. */
+    private void showChartData(LineData[] lineData, long firstTimestamp) {
+        // Use earliest row in range as X-axis start.
+        setupChart(lineChartGyroX, "X-Achse", firstTimestamp);
+        setupChart(lineChartGyroY, "Y-Achse", firstTimestamp);
+        setupChart(lineChartGyroZ, "Z-Achse", firstTimestamp);
+
+        showLineData(lineChartGyroX, lineData[0]);
+        showLineData(lineChartGyroY, lineData[1]);
+        showLineData(lineChartGyroZ, lineData[2]);
+    }
+
+    // ------------------------------------------------------------------------
+    // Live window ("last 10 minutes")
+    // ------------------------------------------------------------------------
+
+    /**
+     * Full load of the live window → attaches {@link #liveWindow}. Recent samples come from {@link
+     * SensorHistory}, only the part older than the buffer from Room.
+     */
+    private void loadLiveWindow(long fromTime, long toTime) {
+        SampleRingBuffer.RangeQuery storedRows = storedSamples(SensorReading.GYRO);
+        prepareChartData(
+                CHART_KEY,
+                () ->
+                        SlidingWindow.Snapshot.of(
+                                SensorHistory.GYRO.readRange(fromTime, toTime, storedRows),
+                                GyroActivity::buildChartData),
+                snapshot -> {
+                    if (snapshot == null) {
+                        // No data in this range → clear charts to avoid stale plots.
+                        lineChartGyroX.clear();
+                        lineChartGyroY.clear();
+                        lineChartGyroZ.clear();
+                        return;
+                    }
+                    showChartData(snapshot.data, snapshot.firstTimestamp);
+                    liveWindow.attach(
+                            new LineDataSet[] {
+                                (LineDataSet) snapshot.data[0].getDataSetByIndex(0),
+                                (LineDataSet) snapshot.data[1].getDataSetByIndex(0),
+                                (LineDataSet) snapshot.data[2].getDataSetByIndex(0)
+                            },
+                            snapshot.firstTimestamp,
+                            snapshot.lastTimestamp);
+                });
+    }
+
+    /**
+     * Sliding window tick: only fetches rows newer than the last one shown, appends them and drops
+     * what fell off the left edge. Falls back to a full load while nothing is attached.
+     */
+    private void refreshLiveWindow() {
+        if (isChartPreparationPending(CHART_KEY)) return; // previous load still running
+
+        if (!liveWindow.isAttached()) {
+            updateChartsWithDateFilter();
+            return;
+        }
+
+        SampleRingBuffer.RangeQuery storedRows = storedSamples(SensorReading.GYRO);
+        long toTime = dateToCalendar.getTimeInMillis();
+        appendToSlidingWindow(
+                CHART_KEY,
+                liveWindow,
+                after -> SensorHistory.GYRO.readRange(after + 1, toTime, storedRows),
+                dateFromCalendar.getTimeInMillis(),
+                () -> {
+                    if (!liveWindow.isAttached()) {
+                        updateChartsWithDateFilter(); // window ran empty
+                        return;
+                    }
+                    notifyChartDataChanged(lineChartGyroX);
+                    notifyChartDataChanged(lineChartGyroY);
+                    notifyChartDataChanged(lineChartGyroZ);
+                });
     }
 
     @Override
@@ -0,0 +1,81 @@
+package com.fhdw.biot.speech.iot.sensor;
+
+/**
+ * LatestSampleMailbox ------------------- Holds only the NEWEST 3D sample of one sensor.
+ *
+ * <p>The MQTT thread overwrites the value for every message; the UI thread picks it up at most once
+ * per frame. Values that arrive in between simply replace each other, so a burst of messages never
+ * turns into a burst of UI work.
+ *
+ * <p>Lock-free (sequence lock): the writer makes {@link #sequence} odd while it writes and even
+ * again afterwards. A reader that sees an odd or changed sequence retries. Neither side ever blocks
+ * and nothing is allocated per sample.
+ *
+ * <p>Threading: exactly ONE writer thread (the MQTT callback thread) and one reader thread (the UI
+ * thread).
+ */
+public final class LatestSampleMailbox {
+
+    /** Even = stable, odd = write in progress. Incremented by 2 per published sample. */
+    private volatile long sequence;
+
+    private volatile long timestamp;
+    private volatile float x;
+    private volatile float y;
+    private volatile float z;
+
+    /**
+     * A reader gives up after this many torn reads and tries again on the next frame; the writer is
+     * busy at that moment anyway and will schedule one.
+     */
+    private static final int MAX_READ_ATTEMPTS = 16;
+
+    /** Sequence of the last value returned by {@link #poll}; only touched by the reader. */
+    private long lastPolledSequence;
+
+    /** Writer side: replaces the current value. */
+    public void publish(long timestamp, float x, float y, float z) {
+        long s = sequence;
+        sequence = s + 1;
+        this.timestamp = timestamp;
+        this.x = x;
+        this.y = y;
+        this.z = z;
+        sequence = s + 2;
+    }
+
+    /**
+     * Reader side: copies the newest value into {@code out} if it changed since the last poll.
+     *
+     * @return true if {@code out} was filled, false if there is nothing new (or the writer kept
+     *     overwriting it while we tried to read).
+     */
+    public boolean poll(SensorSample out) {
+        for (int attempt = 0; attempt < MAX_READ_ATTEMPTS; attempt++) {
+            long before = sequence;
+            if (before == lastPolledSequence) {
+                return false;
+            }
+            if ((before & 1) != 0) {
+                continue; // writer is in the middle of an update
+            }
+
+            long ts = timestamp;
+            float vx = x;
+            float vy = y;
+            float vz = z;
+
+            if (sequence == before) {
+                lastPolledSequence = before;
+                out.set(ts, vx, vy, vz);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Number of samples published so far (including the ones that were never displayed). */
+    public long getPublishedCount() {
+        return sequence >>> 1;
+    }
+}
@@ -15,12 +15,18 @@ import androidx.lifecycle.LiveData;
 import com.fhdw.biot.speech.iot.R;
 import com.fhdw.biot.speech.iot.events.EreignisActivity;
 import com.fhdw.biot.speech.iot.graph.BaseChartActivity;
+import com.fhdw.biot.speech.iot.graph.SlidingWindow;
 import com.fhdw.biot.speech.iot.main.MainActivity;
 import com.fhdw.biot.speech.iot.util.DatePickerHandler;
 import com.github.mikephil.charting.charts.LineChart;
 import com.github.mikephil.charting.data.Entry;
+import com.github.mikephil.charting.data.LineData;
+import com.github.mikephil.charting.data.LineDataSet;
 import database.DB;
-import database.entities.MagnetData;
+import database.SampleLog;
+import database.SampleLogCompactor;
+import database.dao.SensorDao;
+import database.entities.SensorReading;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.List;
@@ -32,11 +38,18 @@ import java.util.Locale;
  *
  * <p>Responsibilities: - Navigation between other sensor screens (Gyro / Accel) and the main
  * screen. - Fetching magnetometer data from the Room database. - Providing date-range filtering via
- * DatePickerHandler. - Mapping MagnetData rows into MPAndroidChart entries and rendering them. -
+ * DatePickerHandler. - Mapping stored samples into MPAndroidChart entries and rendering them. -
  * Reusing BaseChartActivity for common chart styling / behaviour.
  */
 public class MagnetActivity extends BaseChartActivity {
 
+    /** Key for the background chart preparation of this screen. */
+    private static final String CHART_KEY = "magnet";
+
+    /** Datasets of the live window; refreshed incrementally while it is attached. */
+    private final SlidingWindow liveWindow =
+            new SlidingWindow(SlidingWindow.X, SlidingWindow.Y, SlidingWindow.Z);
+
     /** Individual charts for X, Y and Z axis values of the magnetometer. */
     private LineChart lineChartMagnetX, lineChartMagnetY, lineChartMagnetZ;
 
@@ -51,8 +64,6 @@ public class MagnetActivity extends BaseChartActivity {
     /** Quick filter button: show only last 10 minutes. */
     private Button btnFilterLast10Min;
 
-    private LiveData<List<MagnetData>> currentLiveData;
-
     private Handler slidingWindowHandler = new Handler(Looper.getMainLooper());
     private Runnable slidingWindowRunnable;
     private boolean isTenMinuteFilterActive = false;
@@ -161,6 +172,15 @@ public class MagnetActivity extends BaseChartActivity {
 
         // Configure date pickers for "from" and "to" range.
         setupDatePickers();
+
+        // New rows → reload the filtered range, throttled (the live window has its own tick).
+        refreshOnTableChanges(
+                TABLE_REFRESH_INTERVAL_MS,
+                () -> {
+                    if (!isTenMinuteFilterActive) updateChartsWithDateFilter();
+                },
+                "magnet_data",
+                "sensor_block");
     }
 
     // ------------------------------------------------------------------------
@@ -286,7 +306,7 @@ public class MagnetActivity extends BaseChartActivity {
                         dateToCalendar.setTimeInMillis(now);
 
                         syncDateButtonTexts();
-                        updateChartsWithDateFilter();
+                        refreshLiveWindow();
 
                         slidingWindowHandler.postDelayed(this, 5000);
                     }
@@ -326,10 +346,6 @@ public class MagnetActivity extends BaseChartActivity {
             return;
         }
 
-        if (currentLiveData != null) {
-            currentLiveData.removeObservers(this);
-        }
-
         long fromTime = dateFromCalendar.getTimeInMillis();
         long toTime;
 
@@ -343,23 +359,30 @@ public class MagnetActivity extends BaseChartActivity {
             toTime = adjustedToCalendar.getTimeInMillis();
         }
 
-        currentLiveData =
-                DB.getDatabase(getApplicationContext())
-                        .sensorDao()
-                        .getMagnetDataBetween(fromTime, toTime);
-
-        currentLiveData.observe(
-                this,
-                filteredData -> {
-                    if (filteredData != null && !filteredData.isEmpty()) {
-                        long firstTimestamp = filteredData.get(0).timestamp;
+        // The old range is obsolete: abort its chart preparation if it is still running.
+        cancelChartPreparation(CHART_KEY);
+        liveWindow.detach();
 
-                        // Use earliest row in range as X-axis start.
-                        setupChart(lineChartMagnetX, "X-Achse", firstTimestamp);
-                        setupChart(lineChartMagnetY, "Y-Achse", firstTimestamp);
-                        setupChart(lineChartMagnetZ, "Z-Achse", firstTimestamp);
+        if (isTenMinuteFilterActive) {
+            // Live window: load once, then refreshLiveWindow() only appends new rows.
+            loadLiveWindow(fromTime, toTime);
+            return;
+        }
 
-                        displayDataInCharts(filteredData);
+        // One-shot load, reduced to the chart width while it streams; new rows re-run it through
+        // refreshOnTableChanges (see onCreate).
+        int chartWidth = chartWidth(lineChartMagnetX);
+        SensorDao dao = DB.getDatabase(getApplicationContext()).sensorDao();
+        SampleLog sampleLog = SampleLogCompactor.getInstance(getApplicationContext()).getLog();
+        long from = fromTime;
+        long to = toTime;
+        prepareChartData(
+                CHART_KEY,
+                () -> streamReduced(dao, sampleLog, SensorReading.MAGNET, from, to, chartWidth),
+                rows -> {
+                    if (!rows.isEmpty()) {
+                        // Entries are built in the background, see displayDataInCharts().
+                        displayDataInCharts(rows);
                     } else {
                         // No data in this range → clear charts to avoid stale plots.
                         lineChartMagnetX.clear();
@@ -394,36 +417,132 @@ public class MagnetActivity extends BaseChartActivity {
     // ------------------------------------------------------------------------
 
     /**
-     * Converts a list of {@link MagnetData} rows into three separate sets of MPAndroidChart entries
-     * (X, Y, Z) and renders them.
+     * Converts the reduced samples ({@link #streamReduced}) into three separate sets of
+     * MPAndroidChart entries (X, Y, Z) and renders them.
      *
      * <p>X-axis values = "elapsed milliseconds since firstTimestamp", so the charts show
      * time-relative data instead of absolute wall-clock time.
      */
-    private void displayDataInCharts(List<MagnetData> magnetDataList) {
+    private void displayDataInCharts(List<SensorSample> magnetDataList) {
         if (magnetDataList == null || magnetDataList.isEmpty()) {
             return;
         }
 
-        ArrayList<Entry> entriesX = new ArrayList<>();
-        ArrayList<Entry> entriesY = new ArrayList<>();
-        ArrayList<Entry> entriesZ = new ArrayList<>();
-
         // Reference timestamp. All samples are plotted relative to this.
         long firstTimestamp = magnetDataList.get(0).timestamp;
 
+        prepareChartData(
+                CHART_KEY,
+                () -> buildChartData(magnetDataList),
+                lineData -> showChartData(lineData, firstTimestamp));
+    }
+
+    /**
+     * Background part: one LineData per axis chart (X, Y, Z). Does not touch any view.
+     *
+     * <p>Rows are DB entities or samples from {@link SensorHistory}, hence SensorPoint.
+     */
+    private static <T extends SensorPoint> LineData[] buildChartData(List<T> rows) {
+        long firstTimestamp = rows.get(0).getTimestamp();
+
+        ArrayList<Entry> entriesX = new ArrayList<>(rows.size());
+        ArrayList<Entry> entriesY = new ArrayList<>(rows.size());
+        ArrayList<Entry> entriesZ = new ArrayList<>(rows.size());
+
         // Build entries for each axis based on elapsed time from the first sample.
-        for (MagnetData data : magnetDataList) {
-            float elapsedTime = data.timestamp - firstTimestamp; // ms since first sample
-            entriesX.add(new Entry(elapsedTime, data.magnetX));
-            entriesY.add(new Entry(elapsedTime, data.magnetY));
-            entriesZ.add(new Entry(elapsedTime, data.magnetZ));
+        for (int i = 0; i < rows.size(); i++) {
+            if (i % CANCELLATION_CHECK_INTERVAL == 0) throwIfCancelled();
+            T data = rows.get(i);
+            float elapsedTime = data.elapsedMillis(firstTimestamp); // ms since first
+            entriesX.add(new Entry(elapsedTime, data.getX()));
+            entriesY.add(new Entry(elapsedTime, data.getY()));
+            entriesZ.add(new Entry(elapsedTime, data.getZ()));
         }
 
         // Use BaseChartActivity helper to actually feed data into the charts.
-        setData(lineChartMagnetX, entriesX, "X-Achse", Color.WHITE);
-        setData(lineChartMagnetY, entriesY, "Y-Achse", Color.WHITE);
-        setData(lineChartMagnetZ, entriesZ, "Z-Achse", Color.WHITE);
+        return new LineData[] {
+            buildLineData(entriesX, "X-Achse", Color.WHITE),
+            buildLineData(entriesY, "Y-Achse", Color.WHITE),
+            buildLineData(entriesZ, "Z-Achse", Color.WHITE)
+        };
+    }
+
+    /** Main thread: hand the prepared data to the three charts. */
+    private void showChartData(LineData[] lineData, long firstTimestamp) {
+        // Use earliest row in range as X-axis start.
+        setupChart(lineChartMagnetX, "X-Achse", firstTimestamp);
+        setupChart(lineChartMagnetY, "Y-Achse", firstTimestamp);
+        setupChart(lineChartMagnetZ, "Z-Achse", firstTimestamp);
+
+        showLineData(lineChartMagnetX, lineData[0]);
+        showLineData(lineChartMagnetY, lineData[1]);
+        showLineData(lineChartMagnetZ, lineData[2]);
+    }
+
+    // ------------------------------------------------------------------------
+    // Live window ("last 10 minutes")
+    // ------------------------------------------------------------------------
+
+    /**
+     * Full load of the live window → attaches {@link #liveWindow}. Recent samples come from {@link
+     * SensorHistory}, only the part older than the buffer from Room.
+     */
+    private void loadLiveWindow(long fromTime, long toTime) {
+        SampleRingBuffer.RangeQuery storedRows = storedSamples(SensorReading.MAGNET);
+        prepareChartData(
+                CHART_KEY,
+                () ->
+                        SlidingWindow.Snapshot.of(
+                                SensorHistory.MAGNET.readRange(fromTime, toTime, storedRows),
+                                MagnetActivity::buildChartData),
+                snapshot -> {
+                    if (snapshot == null) {
+                        // No data in this range → clear charts to avoid stale plots.
+                        lineChartMagnetX.clear();
+                        lineChartMagnetY.clear();
+                        lineChartMagnetZ.clear();
+                        return;
+                    }
+                    showChartData(snapshot.data, snapshot.firstTimestamp);
+                    liveWindow.attach(
+                            new LineDataSet[] {
+                                (LineDataSet) snapshot.data[0].getDataSetByIndex(0),
+                                (LineDataSet) snapshot.data[1].getDataSetByIndex(0),
+                                (LineDataSet) snapshot.data[2].getDataSetByIndex(0)
+                            },
+                            snapshot.firstTimestamp,
+                            snapshot.lastTimestamp);
+                });
+    }
+
+    /**
+     * Sliding window tick: only fetches rows newer than the last one shown, appends them and drops
+     * what fell off the left edge. Falls back to a full load while nothing is attached.
+     */
+    private void refreshLiveWindow() {
+        if (isChartPreparationPending(CHART_KEY)) return; // previous load still running
+
+        if (!liveWindow.isAttached()) {
+            updateChartsWithDateFilter();
+            return;
+        }
+
+        SampleRingBuffer.RangeQuery storedRows = storedSamples(SensorReading.MAGNET);
+        long toTime = dateToCalendar.getTimeInMillis();
+        appendToSlidingWindow(
+                CHART_KEY,
+                liveWindow,
+                after -> SensorHistory.MAGNET.readRange(after + 1, toTime, storedRows),
+                dateFromCalendar.getTimeInMillis(),
+                () -> {
+                    if (!liveWindow.isAttached()) {
+                        updateChartsWithDateFilter(); // window ran empty
+                        return;
+                    }
+                    notifyChartDataChanged(lineChartMagnetX);
+                    notifyChartDataChanged(lineChartMagnetY);
+                    notifyChartDataChanged(lineChartMagnetZ);
+                });
     }
 
     @Override
@@ -0,0 +1,61 @@
+package com.fhdw.biot.speech.iot.sensor;
+
+/**
+ * SampleChunk ----------- A fixed-capacity block of samples of ONE sensor as parallel primitive
+ * arrays (nanosecond timestamps, x, y, z), the unit in which large ranges are streamed out of the
+ * database (see database.SampleStreams).
+ *
+ * <p>A chunk is filled, handed to a {@link Consumer}, cleared and filled again, so streaming a
+ * range of any length allocates nothing per row. Consumers must copy what they want to keep before
+ * they return.
+ */
+public final class SampleChunk {
+
+    /** Receives every filled chunk of a stream, in timestamp order. */
+    public interface Consumer {
+        void accept(SampleChunk chunk);
+    }
+
+    public final long[] timestampsNanos;
+    public final float[] xs;
+    public final float[] ys;
+    public final float[] zs;
+
+    private int size;
+
+    public SampleChunk(int capacity) {
+        timestampsNanos = new long[capacity];
+        xs = new float[capacity];
+        ys = new float[capacity];
+        zs = new float[capacity];
+    }
+
+    /** Appends one sample; the caller checks {@link #isFull()} first. */
+    public void add(long timestampNanos, float x, float y, float z) {
+        timestampsNanos[size] = timestampNanos;
+        xs[size] = x;
+        ys[size] = y;
+        zs[size] = z;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return timestampsNanos.length;
+    }
+
+    public boolean isFull() {
+        return size == timestampsNanos.length;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+}
@@ -0,0 +1,205 @@
+package com.fhdw.biot.speech.iot.sensor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * SampleRingBuffer ---------------- Fixed-capacity in-memory history of ONE sensor.
+ *
+ * <p>Storage is four parallel primitive arrays (timestamps, x, y, z bits) used as a ring: no object
+ * per sample, the oldest sample is overwritten once the buffer is full. Samples are kept in
+ * timestamp order (a timestamp older than the previous one is clamped to it), so range lookups are
+ * a binary search. Timestamps are stored in nanoseconds ({@link SensorPoint#getTimestampNanos()});
+ * the range API works in milliseconds like the DAO queries.
+ *
+ * <p>Lock-free: the writer announces sample n in {@link #claimed} before touching its slot and
+ * publishes it through {@link #written} afterwards. A reader only looks at samples below the {@code
+ * written} it read. Because the writer may lap a slow reader, the reader checks {@code claimed}
+ * after copying; if a slot it copied could have been rewritten meanwhile (including the one being
+ * written right now), it retries, and after {@link #MAX_READ_ATTEMPTS} reports nothing so the
+ * caller falls back to Room. Once the buffer is full every append rewrites the oldest slot, so
+ * reads leave out the oldest sixteenth: the writer can go on for that many samples before a read
+ * has to be repeated. Slots are read and written with volatile semantics (atomic arrays; VarHandle
+ * fences would need API 33), which orders the copy before that check: a copied value from a newer
+ * sample means the check sees its claim.
+ *
+ * <p>Threading: exactly ONE writer thread (the MQTT callback thread), any number of readers.
+ */
+public final class SampleRingBuffer {
+
+    /** Loads rows with from &lt;= timestamp &lt;= to from the database (background thread). */
+    public interface RangeQuery {
+        List<? extends SensorPoint> load(long from, long to);
+    }
+
+    private static final int MAX_READ_ATTEMPTS = 4;
+
+    private static final long NANOS_PER_MS = 1_000_000L;
+
+    private final int mask;
+
+    /** Oldest samples of a full buffer that reads leave to the writer. */
+    private final int margin;
+
+    private final AtomicLongArray timestampsNanos;
+
+    /** {@link Float#floatToRawIntBits} of the values. */
+    private final AtomicIntegerArray xs;
+
+    private final AtomicIntegerArray ys;
+    private final AtomicIntegerArray zs;
+
+    /** Total number of samples ever appended; slot of sample n is n &amp; mask. */
+    private volatile long written;
+
+    /** Samples whose slot the writer has started to fill: {@link #written}, or one more. */
+    private volatile long claimed;
+
+    /**
+     * @param capacity Number of samples kept; rounded up to a power of two.
+     */
+    public SampleRingBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        mask = size - 1;
+        margin = size >> 4;
+        timestampsNanos = new AtomicLongArray(size);
+        xs = new AtomicIntegerArray(size);
+        ys = new AtomicIntegerArray(size);
+        zs = new AtomicIntegerArray(size);
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+
+    /** Writer side: stores one sample, overwriting the oldest one if the buffer is full. */
+    public void append(long timestamp, float x, float y, float z) {
+        appendNanos(timestamp * NANOS_PER_MS, x, y, z);
+    }
+
+    /** Same as {@link #append}, with the timestamp in epoch nanoseconds. */
+    public void appendNanos(long timestampNanos, float x, float y, float z) {
+        long n = written;
+        if (n > 0) {
+            long previous = timestampsNanos.get((int) ((n - 1) & mask));
+            if (timestampNanos < previous) timestampNanos = previous; // keep the ring sorted
+        }
+        claimed = n + 1; // slot of sample n - capacity is no longer valid
+        int slot = (int) (n & mask);
+        timestampsNanos.set(slot, timestampNanos);
+        xs.set(slot, Float.floatToRawIntBits(x));
+        ys.set(slot, Float.floatToRawIntBits(y));
+        zs.set(slot, Float.floatToRawIntBits(z));
+        written = n + 1; // publish
+    }
+
+    /**
+     * Timestamp from which on the buffer holds every sample this process received, or {@link
+     * Long#MAX_VALUE} if it is empty. Older samples can only be in the database.
+     */
+    public long getCoverageStart() {
+        for (int attempt = 0; attempt < MAX_READ_ATTEMPTS; attempt++) {
+            long n = written;
+            if (n == 0) return Long.MAX_VALUE;
+            long oldest = oldestReadable(n);
+            long ts = timestampsNanos.get((int) (oldest & mask));
+            if (!overwritten(oldest)) return toMillis(ts);
+        }
+        return Long.MAX_VALUE;
+    }
+
+    /**
+     * Copies the buffered samples with from &lt;= timestamp &lt;= to into {@code out}, oldest
+     * first.
+     *
+     * @return coverage start of the copy: every sample of the range at or after this timestamp is
+     *     in {@code out}; {@link Long#MAX_VALUE} if nothing could be read.
+     */
+    public long read(long from, long to, List<SensorSample> out) {
+        int startSize = out.size();
+        for (int attempt = 0; attempt < MAX_READ_ATTEMPTS; attempt++) {
+            long end = written;
+            if (end == 0) return Long.MAX_VALUE;
+
+            long oldest = oldestReadable(end);
+            long coverage = toMillis(timestampsNanos.get((int) (oldest & mask)));
+            if (overwritten(oldest)) continue;
+
+            long toNanos = to * NANOS_PER_MS + (NANOS_PER_MS - 1); // whole last millisecond
+            // An overwritten slot looks newer than the range, so the search stops below it and
+            // the check of first catches it.
+            long first = lowerBound(oldest, end, from * NANOS_PER_MS);
+            for (long n = first; n < end; n++) {
+                int slot = (int) (n & mask);
+                long ts = timestampsNanos.get(slot);
+                if (ts > toNanos) break;
+                SensorSample sample = new SensorSample();
+                sample.setNanos(
+                        ts,
+                        Float.intBitsToFloat(xs.get(slot)),
+                        Float.intBitsToFloat(ys.get(slot)),
+                        Float.intBitsToFloat(zs.get(slot)));
+                out.add(sample);
+            }
+
+            // Lapped: the writer overwrote slots we were reading → copy again.
+            if (!overwritten(first)) return coverage;
+            out.subList(startSize, out.size()).clear();
+        }
+        return Long.MAX_VALUE;
+    }
+
+    /**
+     * Samples with from &lt;= timestamp &lt;= to: what the buffer covers comes from memory, only
+     * the older rest is loaded through {@code olderRows}.
+     */
+    public List<SensorPoint> readRange(long from, long to, RangeQuery olderRows) {
+        List<SensorSample> recent = new ArrayList<>();
+        long coverage = read(from, to, recent);
+
+        List<SensorPoint> result = new ArrayList<>();
+        if (from < coverage) {
+            result.addAll(olderRows.load(from, Math.min(to, coverage - 1)));
+        }
+        result.addAll(recent);
+        return result;
+    }
+
+    /**
+     * Oldest of the first {@code end} samples that reads start from: sample 0 until the buffer is
+     * full, then {@link #margin} samples above the one the next append replaces.
+     */
+    private long oldestReadable(long end) {
+        if (end < capacity()) return 0;
+        return Math.min(end - 1, end - capacity() + margin);
+    }
+
+    /**
+     * Whether the slots of samples {@code oldest} and newer may have been rewritten since they were
+     * copied. The sample being written (claimed - 1) replaces sample claimed - 1 - capacity.
+     */
+    private boolean overwritten(long oldest) {
+        return claimed - capacity() > oldest;
+    }
+
+    private static long toMillis(long nanos) {
+        return Math.floorDiv(nanos, NANOS_PER_MS);
+    }
+
+    /** First sample number in [begin, end) whose timestamp is &gt;= {@code fromNanos}. */
+    private long lowerBound(long begin, long end, long fromNanos) {
+        long lo = begin;
+        long hi = end;
+        while (lo < hi) {
+            long mid = (lo + hi) >>> 1;
+            if (timestampsNanos.get((int) (mid & mask)) < fromNanos) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+}
@@ -0,0 +1,23 @@
+package com.fhdw.biot.speech.iot.sensor;
+
+/**
+ * SensorHistory ------------- Process-wide recent history of the three sensors.
+ *
+ * <p>IngestionService appends every received sample here (MQTT thread) before it goes to the
+ * batched database write. The live views ("last 10 minutes") read from these buffers instead of
+ * querying SQLite and only ask Room for the part of a range that is older than the buffer (see
+ * {@link SampleRingBuffer#readRange}).
+ *
+ * <p>Each buffer keeps {@link #CAPACITY} samples (about 20 bytes each): 10 minutes at up to ~100
+ * samples per second.
+ */
+public final class SensorHistory {
+
+    public static final int CAPACITY = 1 << 16;
+
+    public static final SampleRingBuffer ACCEL = new SampleRingBuffer(CAPACITY);
+    public static final SampleRingBuffer GYRO = new SampleRingBuffer(CAPACITY);
+    public static final SampleRingBuffer MAGNET = new SampleRingBuffer(CAPACITY);
+
+    private SensorHistory() {}
+}
@@ -14,6 +14,23 @@ public interface SensorPoint {
      */
     long getTimestamp();
 
+    /**
+     * @return the same timestamp in nanoseconds since the epoch. Sources that only know
+     *     milliseconds (rows written before the nanosecond column existed) report {@code
+     *     getTimestamp() * 1_000_000}.
+     */
+    default long getTimestampNanos() {
+        return getTimestamp() * 1_000_000L;
+    }
+
+    /**
+     * X value of this sample on a chart whose X = 0 is {@code originMs}: elapsed milliseconds with
+     * sub-millisecond fraction, so samples of a burst keep their real spacing.
+     */
+    default float elapsedMillis(long originMs) {
+        return (getTimestampNanos() - originMs * 1_000_000L) / 1e6f;
+    }
+
     /**
      * @return the X component of the sensor vector (e.g. accelX, gyroX, magnetX, depending on the
      *     sensor).
@@ -0,0 +1,63 @@
+package com.fhdw.biot.speech.iot.sensor;
+
+/**
+ * SensorSample ------------ Mutable, reusable holder for ONE 3D sample (timestamp + x/y/z).
+ *
+ * <p>Unlike the Room entities (AccelData, GyroData, MagnetData) this object is meant to be
+ * allocated once and overwritten for every incoming message, so the hot receive path does not
+ * create garbage per sample. Never keep a reference to it after the callback that filled it – copy
+ * the primitive values instead.
+ *
+ * <p>{@link #timestamp} (ms) and {@link #timestampNanos} always describe the same instant; {@link
+ * #set} fills the nanoseconds from the milliseconds, {@link #setNanos} the other way round.
+ */
+public final class SensorSample implements SensorPoint {
+
+    public long timestamp;
+    public long timestampNanos;
+    public float x;
+    public float y;
+    public float z;
+
+    public void set(long timestamp, float x, float y, float z) {
+        this.timestamp = timestamp;
+        this.timestampNanos = timestamp * 1_000_000L;
+        this.x = x;
+        this.y = y;
+        this.z = z;
+    }
+
+    /** Same as {@link #set}, with a nanosecond timestamp (epoch based). */
+    public void setNanos(long timestampNanos, float x, float y, float z) {
+        this.timestamp = Math.floorDiv(timestampNanos, 1_000_000L);
+        this.timestampNanos = timestampNanos;
+        this.x = x;
+        this.y = y;
+        this.z = z;
+    }
+
+    @Override
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    @Override
+    public long getTimestampNanos() {
+        return timestampNanos;
+    }
+
+    @Override
+    public float getX() {
+        return x;
+    }
+
+    @Override
+    public float getY() {
+        return y;
+    }
+
+    @Override
+    public float getZ() {
+        return z;
+    }
+}
@@ -4,6 +4,7 @@ import android.content.Intent;
 import android.content.SharedPreferences;
 import android.os.Bundle;
 import android.widget.ImageButton;
+import android.widget.RadioGroup;
 import android.widget.SeekBar;
 import android.widget.TextView;
 import androidx.appcompat.app.AppCompatActivity;
@@ -11,8 +12,10 @@ import androidx.core.graphics.Insets;
 import androidx.core.view.ViewCompat;
 import androidx.core.view.WindowInsetsCompat;
 import com.fhdw.biot.speech.iot.R;
+import com.fhdw.biot.speech.iot.graph.ChartDownsampling;
 import com.fhdw.biot.speech.iot.main.MainActivity;
 import com.google.android.material.switchmaterial.SwitchMaterial;
+import database.SampleLogCompactor;
 
 public class SettingsActivity extends AppCompatActivity {
     @Override
@@ -39,6 +42,7 @@ public class SettingsActivity extends AppCompatActivity {
                 });
 
         SwitchMaterial swActive = findViewById(R.id.switch_dp_active);
+        RadioGroup rgAlgorithm = findViewById(R.id.radio_downsampling_algorithm);
         SeekBar sbEpsilon = findViewById(R.id.seekbar_epsilon);
         TextView tvEpsilon = findViewById(R.id.tv_epsilon_value);
 
@@ -47,6 +51,32 @@ public class SettingsActivity extends AppCompatActivity {
         boolean wasEnabled = prefs.getBoolean("dp_enabled", false);
         swActive.setChecked(wasEnabled);
 
+        // Algorithm selection: epsilon only matters for Douglas-Peucker
+        String algorithm =
+                prefs.getString(ChartDownsampling.KEY_ALGORITHM, ChartDownsampling.ALGORITHM_DP);
+        if (ChartDownsampling.ALGORITHM_LTTB.equals(algorithm)) {
+            rgAlgorithm.check(R.id.radio_algorithm_lttb);
+        } else if (ChartDownsampling.ALGORITHM_MINMAX.equals(algorithm)) {
+            rgAlgorithm.check(R.id.radio_algorithm_minmax);
+        } else {
+            rgAlgorithm.check(R.id.radio_algorithm_dp);
+        }
+        sbEpsilon.setEnabled(rgAlgorithm.getCheckedRadioButtonId() == R.id.radio_algorithm_dp);
+
+        rgAlgorithm.setOnCheckedChangeListener(
+                (group, checkedId) -> {
+                    String selected;
+                    if (checkedId == R.id.radio_algorithm_lttb) {
+                        selected = ChartDownsampling.ALGORITHM_LTTB;
+                    } else if (checkedId == R.id.radio_algorithm_minmax) {
+                        selected = ChartDownsampling.ALGORITHM_MINMAX;
+                    } else {
+                        selected = ChartDownsampling.ALGORITHM_DP;
+                    }
+                    prefs.edit().putString(ChartDownsampling.KEY_ALGORITHM, selected).apply();
+                    sbEpsilon.setEnabled(checkedId == R.id.radio_algorithm_dp);
+                });
+
         float savedEpsilon = prefs.getFloat("dp_epsilon", 0.5f);
         sbEpsilon.setProgress((int) (savedEpsilon * 20));
         tvEpsilon.setText("Epsilon (Schwellenwert): " + savedEpsilon);
@@ -62,6 +92,18 @@ public class SettingsActivity extends AppCompatActivity {
                     }
                 });
 
+        // Storage engine for raw samples; the compactor picks it up with its next segment.
+        SwitchMaterial swBlockStorage = findViewById(R.id.switch_block_storage);
+        swBlockStorage.setChecked(prefs.getBoolean(SampleLogCompactor.KEY_BLOCK_STORAGE, false));
+        swBlockStorage.setOnCheckedChangeListener(
+                (buttonView, isChecked) -> {
+                    prefs.edit()
+                            .putBoolean(SampleLogCompactor.KEY_BLOCK_STORAGE, isChecked)
+                            .apply();
+                    SampleLogCompactor.getInstance(getApplicationContext())
+                            .setBlockStorage(isChecked);
+                });
+
         sbEpsilon.setOnSeekBarChangeListener(
                 new SeekBar.OnSeekBarChangeListener() {
                     @Override
@@ -2,6 +2,8 @@ package com.fhdw.biot.speech.iot.simulation;
 
 import android.util.Log;
 import com.fhdw.biot.speech.iot.mqtt.MqttHandler;
+import com.fhdw.biot.speech.iot.mqtt.SensorFrameBatcher;
+import com.fhdw.biot.speech.iot.mqtt.SensorFrameFormat;
 import java.util.Locale;
 import java.util.Random;
 import java.util.concurrent.Executors;
@@ -17,12 +19,31 @@ import java.util.concurrent.TimeUnit;
  * "x,y,z" → interpreted as magnetometer values. Data flow: - Timer (ScheduledExecutorService)
  * fires. - Simulator generates random payloads. - Calls {@link MqttHandler#publish(String, String,
  * boolean)} for each topic. - Broker receives PUBLISH and forwards to any subscribers. - Our own
- * client is subscribed, so messages arrive in MqttHandler → MainActivity → TextViews + Room DB.
+ * client is subscribed, so messages arrive in MqttHandler → IngestionService → Room DB +
+ * MainActivity.
+ *
+ * <p>The CSV payloads carry the sampling time as optional 4th column ("x,y,z,t", t in epoch ms), so
+ * the receiver stamps samples with it instead of their arrival time.
+ *
+ * <p>With {@link PayloadFormat#BINARY_FLOAT32} / {@link PayloadFormat#BINARY_INT16} the same values
+ * are sent as binary frames ({@link SensorFrameFormat}) on "SensorBin/..." instead of CSV text.
+ * Samples then go through a {@link SensorFrameBatcher}, so several of them share one MQTT message
+ * (frame size / latency cap from its Config).
  */
 public class SensorDataSimulator {
 
     private static final String TAG = "SensorDataSimulator";
 
+    /** Wire format of the published samples. */
+    public enum PayloadFormat {
+        /** "x,y,z" text on Sensor/Bewegung, Sensor/Gyro, Sensor/Magnet. */
+        CSV,
+        /** Binary frame with float32 values on SensorBin/... */
+        BINARY_FLOAT32,
+        /** Binary frame with quantised int16 values on SensorBin/... */
+        BINARY_INT16
+    }
+
     /**
      * Reference to the app's MQTT wrapper. Used only for publish calls; it must already be
      * connected.
@@ -51,15 +72,50 @@ public class SensorDataSimulator {
      */
     private final long intervalMs;
 
+    /** Packs the samples into frames; null for CSV. */
+    private final SensorFrameBatcher batcher;
+
     /**
      * @param mqttHandler existing, connected {@link MqttHandler} used for publish()
      * @param intervalMs delay in milliseconds between fake messages (measured from end-of-task to
      *     start-of-next-task)
      */
     public SensorDataSimulator(MqttHandler mqttHandler, long intervalMs) {
+        this(mqttHandler, intervalMs, PayloadFormat.CSV);
+    }
+
+    /**
+     * @param format CSV text (default) or one of the binary frame encodings.
+     */
+    public SensorDataSimulator(MqttHandler mqttHandler, long intervalMs, PayloadFormat format) {
+        this(mqttHandler, intervalMs, format, new SensorFrameBatcher.Config());
+    }
+
+    /**
+     * @param frameConfig frame size and latency cap for the binary formats (its encoding is
+     *     overridden by {@code format}).
+     */
+    public SensorDataSimulator(
+            MqttHandler mqttHandler,
+            long intervalMs,
+            PayloadFormat format,
+            SensorFrameBatcher.Config frameConfig) {
         this.mqttHandler = mqttHandler;
         this.intervalMs = intervalMs;
 
+        if (format == PayloadFormat.CSV) {
+            batcher = null;
+        } else {
+            frameConfig.setEncoding(
+                    format == PayloadFormat.BINARY_INT16
+                            ? SensorFrameFormat.ENCODING_INT16
+                            : SensorFrameFormat.ENCODING_FLOAT32);
+            batcher =
+                    new SensorFrameBatcher(
+                            (topic, frame) -> mqttHandler.publish(topic, frame, false),
+                            frameConfig);
+        }
+
         // Create a dedicated background thread that just runs scheduled tasks.
         this.scheduler = Executors.newSingleThreadScheduledExecutor();
     }
@@ -102,23 +158,34 @@ public class SensorDataSimulator {
                                     return;
                                 }
 
+                                if (batcher != null) {
+                                    publishFrames();
+                                    return;
+                                }
+
+                                // Sampling time as 4th column, so the receiver does not have
+                                // to guess it from the arrival time.
+                                long sampledAt = System.currentTimeMillis();
+
                                 // -------- Fake Bewegung data: 3 random floats in [-2, 2] --------
                                 String bewegungPayload =
                                         String.format(
                                                 Locale.US,
-                                                "%.3f,%.3f,%.3f",
+                                                "%.3f,%.3f,%.3f,%d",
                                                 randomFloat(-2f, 2f),
                                                 randomFloat(-2f, 2f),
-                                                randomFloat(-2f, 2f));
+                                                randomFloat(-2f, 2f),
+                                                sampledAt);
 
                                 // -------- Fake Gyro data: 3 random floats in [-5, 5] --------
                                 String gyroPayload =
                                         String.format(
                                                 Locale.US,
-                                                "%.3f,%.3f,%.3f",
+                                                "%.3f,%.3f,%.3f,%d",
+                                                randomFloat(-5f, 5f),
                                                 randomFloat(-5f, 5f),
                                                 randomFloat(-5f, 5f),
-                                                randomFloat(-5f, 5f));
+                                                sampledAt);
 
                                 // -------- Fake Magnet data: 3 random floats in some range -----
                                 // You can adapt the range to realistic µT units; here just demo
@@ -126,10 +193,11 @@ public class SensorDataSimulator {
                                 String magnetPayload =
                                         String.format(
                                                 Locale.US,
-                                                "%.3f,%.3f,%.3f",
+                                                "%.3f,%.3f,%.3f,%d",
+                                                randomFloat(-50f, 50f),
                                                 randomFloat(-50f, 50f),
                                                 randomFloat(-50f, 50f),
-                                                randomFloat(-50f, 50f));
+                                                sampledAt);
 
                                 // Log what we're about to send (visible in Logcat).
                                 Log.i(TAG, "Simulator publish Bewegung: " + bewegungPayload);
@@ -139,8 +207,9 @@ public class SensorDataSimulator {
                                 /*
                                  * Publish to MQTT.
                                  *
-                                 * - These calls go to MqttHandler.publish(...), which starts
-                                 *   its own background threads for the actual network I/O.
+                                 * - These calls go to MqttHandler.publish(...), which only
+                                 *   queues the message; the publish pipeline's worker threads
+                                 *   do the actual network I/O.
                                  * - retained = false → broker does NOT store the last value.
                                  *   We want a pure real-time stream here.
                                  */
@@ -170,6 +239,27 @@ public class SensorDataSimulator {
             task = null;
         }
         scheduler.shutdownNow(); // Stop the scheduler's thread.
+        if (batcher != null) {
+            batcher.shutdown(); // publish the frames that are still open
+        }
+    }
+
+    /**
+     * Binary variant of one simulation run: same value ranges, handed to the batcher (published
+     * once a frame is full or its latency cap expires).
+     */
+    private void publishFrames() {
+        long now = System.currentTimeMillis();
+        float[] ranges = {2f, 5f, 50f}; // accel, gyro, magnet (see the CSV branch)
+        for (int sensor = 0; sensor < ranges.length; sensor++) {
+            float range = ranges[sensor];
+            batcher.add(
+                    sensor,
+                    now,
+                    randomFloat(-range, range),
+                    randomFloat(-range, range),
+                    randomFloat(-range, range));
+        }
     }
 
     /** Utility to generate a random float in [min, max]. */
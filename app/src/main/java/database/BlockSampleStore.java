@@ -0,0 +1,214 @@
+package database;
+
+import com.fhdw.biot.speech.iot.sensor.SampleChunk;
+import database.entities.SensorBlock;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * BlockSampleStore ---------------- Alternative storage engine for raw samples: one row per
+ * fixed-duration block ({@link #DEFAULT_BLOCK_MS}) and sensor instead of one row per sample, the
+ * block compressed with {@link SampleBlockCodec} and stored as a BLOB ({@link SensorBlock}, through
+ * {@link RoomBlockStorage}).
+ *
+ * <p>A row in accel_data costs 40+ bytes with its B-tree and index entries and is re-hydrated into
+ * an entity on every read. A block holds thousands of samples at a few bytes each and is decoded
+ * straight into {@link SampleChunk}s. {@link SampleLogCompactor} writes through this store instead
+ * of the row tables when {@link SampleLogCompactor#KEY_BLOCK_STORAGE} is set, and {@link
+ * SampleStreams#streamBetween} reads both, so the engine can be switched at any time. See
+ * SampleBlockStoreBenchmark (androidTest) for the comparison on a device.
+ *
+ * <p>Writes go into one open block per sensor; it is sealed (encoded) as soon as a sample falls
+ * into the next block window. Nothing touches the database until the caller takes the sealed blocks
+ * ({@link #takeSealed()}, or {@link #flush()} which also seals the open ones and stores them), so
+ * it decides on which thread and in which transaction that happens. Samples per sensor must arrive
+ * in time order, as the sample log delivers them.
+ *
+ * <p>Open blocks outlive a batch of appends. To know which batches are completely in sealed blocks,
+ * appends can be tagged with their source ({@link #setSource}, the sample log segment for {@link
+ * BlockSegmentStore}); see {@link #getSealedThrough()}.
+ *
+ * <p>Threading: everything but {@link #streamBetween} from one thread (the compactor's); {@link
+ * #streamBetween} from any background thread, it sees stored blocks only.
+ */
+public class BlockSampleStore {
+
+    /** Length of a block window. 1 min = 6000 samples at 100 Hz. */
+    public static final long DEFAULT_BLOCK_MS = 60_000;
+
+    /** Where sealed blocks live; {@link RoomBlockStorage} in the app, in-memory in tests. */
+    public interface Storage {
+        void put(List<SensorBlock> blocks);
+
+        /**
+         * Visits the blocks of {@code sensor} that may hold samples in {@code [from, to]} (ms),
+         * ordered by their first timestamp. {@code minFirst} is a lower bound for the first
+         * timestamp of such blocks (lets the storage use its index).
+         */
+        void forEachBlock(int sensor, long minFirst, long from, long to, BlockVisitor visitor);
+    }
+
+    /** Receives one stored block. */
+    public interface BlockVisitor {
+        void visit(long firstTimestamp, byte[] data);
+    }
+
+    private final Storage storage;
+    private final long blockMs;
+
+    // One open block per sensor id
+    private final SampleBlockCodec.Encoder[] open;
+    private final long[] openWindow;
+
+    /** Source of the first sample of each open block. */
+    private final long[] openSource;
+
+    /** Newest sample per sensor in a block sealed since the last {@link #clear()}. */
+    private final long[] sealedNanos;
+
+    private long source;
+
+    /** Sealed and not taken yet. */
+    private List<SensorBlock> sealed = new ArrayList<>();
+
+    public BlockSampleStore(Storage storage, long blockMs) {
+        this.storage = storage;
+        this.blockMs = blockMs;
+        open = new SampleBlockCodec.Encoder[3];
+        openWindow = new long[open.length];
+        openSource = new long[open.length];
+        sealedNanos = new long[open.length];
+        Arrays.fill(sealedNanos, Long.MIN_VALUE);
+        for (int sensor = 0; sensor < open.length; sensor++) {
+            open[sensor] = new SampleBlockCodec.Encoder();
+        }
+    }
+
+    public long getBlockMs() {
+        return blockMs;
+    }
+
+    /** Adds one sample of {@code sensor} (SensorReading.ACCEL etc.). */
+    public void append(int sensor, long timestampNanos, float x, float y, float z) {
+        long window = Math.floorDiv(timestampNanos, blockMs * 1_000_000L);
+        SampleBlockCodec.Encoder encoder = open[sensor];
+        if (!encoder.isEmpty() && window > openWindow[sensor]) seal(sensor);
+        if (encoder.isEmpty()) {
+            openWindow[sensor] = window;
+            openSource[sensor] = source;
+        }
+        encoder.add(timestampNanos, x, y, z);
+    }
+
+    /** Tags the samples appended from now on; sources must not decrease. */
+    public void setSource(long source) {
+        this.source = source;
+    }
+
+    /**
+     * Newest source whose samples are all in sealed blocks: the one before the oldest source an
+     * open block holds samples of, or the current source if no block is open.
+     */
+    public long getSealedThrough() {
+        long through = source;
+        for (int sensor = 0; sensor < open.length; sensor++) {
+            if (!open[sensor].isEmpty()) through = Math.min(through, openSource[sensor] - 1);
+        }
+        return through;
+    }
+
+    /**
+     * Seals the open blocks of windows before the one of {@code timestampNanos}: a sensor that
+     * stopped sending would otherwise keep its block open for good.
+     */
+    public void sealBefore(long timestampNanos) {
+        long window = Math.floorDiv(timestampNanos, blockMs * 1_000_000L);
+        for (int sensor = 0; sensor < open.length; sensor++) {
+            if (!open[sensor].isEmpty() && openWindow[sensor] < window) seal(sensor);
+        }
+    }
+
+    /** Seals every open block, e.g. before the input pauses. */
+    public void sealAll() {
+        for (int sensor = 0; sensor < open.length; sensor++) {
+            if (!open[sensor].isEmpty()) seal(sensor);
+        }
+    }
+
+    /** Removes the sealed blocks and returns them, oldest first per sensor, to be stored. */
+    public List<SensorBlock> takeSealed() {
+        List<SensorBlock> blocks = sealed;
+        sealed = new ArrayList<>();
+        return blocks;
+    }
+
+    /**
+     * Timestamp of the newest sample of {@code sensor} in a block sealed since the last {@link
+     * #clear()}, Long.MIN_VALUE if none.
+     */
+    public long getSealedNanos(int sensor) {
+        return sealedNanos[sensor];
+    }
+
+    /** Drops the open and the sealed blocks, e.g. after storing them failed. */
+    public void clear() {
+        for (SampleBlockCodec.Encoder encoder : open) encoder.reset();
+        sealed = new ArrayList<>();
+        Arrays.fill(sealedNanos, Long.MIN_VALUE);
+    }
+
+    /**
+     * Seals the open blocks and stores every block sealed since the last call, on the calling
+     * thread. If the storage throws, those blocks are dropped; append the samples again to retry.
+     *
+     * @return the number of blocks stored.
+     */
+    public int flush() {
+        sealAll();
+        List<SensorBlock> blocks = takeSealed();
+        if (!blocks.isEmpty()) storage.put(blocks);
+        return blocks.size();
+    }
+
+    /**
+     * Streams the stored samples of {@code sensor} with {@code from <= timestamp <= to} (ms), in
+     * time order. Reads the blocks only; {@link SampleStreams#streamBetween} also covers the row
+     * tables and the sample log.
+     *
+     * @return the number of samples streamed.
+     */
+    public long streamBetween(
+            int sensor, long from, long to, SampleChunk chunk, SampleChunk.Consumer consumer) {
+        long fromNanos = from * 1_000_000L;
+        long toNanos = to * 1_000_000L + 999_999L; // whole last millisecond, like BETWEEN
+        long[] rows = new long[1];
+        chunk.clear();
+        storage.forEachBlock(
+                sensor,
+                from - blockMs,
+                from,
+                to,
+                (firstTimestamp, data) ->
+                        rows[0] +=
+                                SampleBlockCodec.decode(data, fromNanos, toNanos, chunk, consumer));
+        if (!chunk.isEmpty()) {
+            consumer.accept(chunk);
+            chunk.clear();
+        }
+        return rows[0];
+    }
+
+    private void seal(int sensor) {
+        SampleBlockCodec.Encoder encoder = open[sensor];
+        sealed.add(
+                new SensorBlock(
+                        sensor,
+                        Math.floorDiv(encoder.getMinTimestampNanos(), 1_000_000L),
+                        Math.floorDiv(encoder.getMaxTimestampNanos(), 1_000_000L),
+                        encoder.getCount(),
+                        encoder.toByteArray()));
+        sealedNanos[sensor] = encoder.getMaxTimestampNanos();
+        encoder.reset();
+    }
+}
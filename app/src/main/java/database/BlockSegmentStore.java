@@ -0,0 +1,197 @@
+package database;
+
+import com.fhdw.biot.speech.iot.sensor.SampleChunk;
+import database.entities.CompactionWatermark;
+import database.entities.SensorBlock;
+import database.entities.SensorReading;
+import database.entities.SensorRollup;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * BlockSegmentStore ----------------- The block engine's side of {@link SampleLog#compactInto}:
+ * appends the segments to a {@link BlockSampleStore} and commits sealed blocks, rollups and the
+ * {@link CompactionWatermark} together through a {@link Target}.
+ *
+ * <p>Blocks stay open across segments, so they fill their whole window ({@link
+ * BlockSampleStore#DEFAULT_BLOCK_MS}) although a segment spans only seconds. A segment counts as
+ * stored once every block with samples of it is sealed ({@link
+ * BlockSampleStore#getSealedThrough()}); until then it stays uncompacted in the log, where readers
+ * still find it, and its rollups wait here for the commit that moves the watermark past it. Sealed
+ * blocks are committed right away, so a block may hold the first samples of a segment the watermark
+ * has not reached. After a crash or a failed commit those segments are handed over again and the
+ * samples already in a committed block are skipped ({@link Target#loadNewestBlocks}): no sample is
+ * stored twice, none is lost, and rollups are counted once.
+ *
+ * <p>A sensor that stops sending would keep its block, and the watermark, where they are: every
+ * segment seals the blocks of the windows it has moved past, {@link #storeBefore} does the same for
+ * an idle log.
+ *
+ * <p>No Android dependency. Threading: one thread (the compactor's).
+ */
+public final class BlockSegmentStore implements SampleLog.SegmentStore {
+
+    /** The database; SampleLogCompactor writes to Room. */
+    public interface Target {
+        /** The committed watermark, 0 if none. */
+        long loadWatermark();
+
+        /** The stored blocks of {@code sensor} with the newest last timestamp (usually one). */
+        List<SensorBlock> loadNewestBlocks(int sensor);
+
+        /**
+         * Stores {@code blocks}, merges {@code rollups} and records {@code watermark}, in one
+         * transaction.
+         *
+         * @return false if nothing was committed.
+         */
+        boolean commit(List<SensorBlock> blocks, List<SensorRollup> rollups, long watermark);
+    }
+
+    private static final long NANOS_PER_MS = 1_000_000L;
+
+    /** A segment handed over, but not committed yet. */
+    private static final class PendingSegment {
+        final long sequence;
+        final List<SensorRollup> rollups;
+
+        PendingSegment(long sequence, List<SensorRollup> rollups) {
+            this.sequence = sequence;
+            this.rollups = rollups;
+        }
+    }
+
+    private final BlockSampleStore blocks;
+    private final Target target;
+
+    private final ArrayDeque<PendingSegment> pending = new ArrayDeque<>();
+
+    /** Newest sample per sensor in a committed block; older ones are not appended again. */
+    private final long[] storedNanos = new long[3];
+
+    private long storedThrough = -1; // loaded on first use
+
+    public BlockSegmentStore(BlockSampleStore blocks, Target target) {
+        this.blocks = blocks;
+        this.target = target;
+    }
+
+    @Override
+    public long storedThrough() {
+        load();
+        return storedThrough;
+    }
+
+    @Override
+    public long takenThrough() {
+        load();
+        return pending.isEmpty() ? storedThrough : pending.peekLast().sequence;
+    }
+
+    /** True while segments wait for their blocks to be sealed. */
+    public boolean hasPending() {
+        return !pending.isEmpty();
+    }
+
+    /**
+     * Appends {@code segment} to the open blocks and commits what that completed.
+     *
+     * @return false if the commit failed; everything after {@link #storedThrough()} is dropped and
+     *     has to be handed over again.
+     */
+    @Override
+    public boolean store(SampleLog.Segment segment) {
+        load();
+        // Everything before it is stored, maybe as rows by the other engine.
+        if (pending.isEmpty()) storedThrough = Math.max(storedThrough, segment.getSequence() - 1);
+        List<SensorRollup> rollups = new ArrayList<>();
+        Rollups.Builder[] builders = {
+            new Rollups.Builder(SensorReading.ACCEL, rollups::add),
+            new Rollups.Builder(SensorReading.GYRO, rollups::add),
+            new Rollups.Builder(SensorReading.MAGNET, rollups::add)
+        };
+        long[] newest = {Long.MIN_VALUE};
+        blocks.setSource(segment.getSequence());
+        segment.forEach(
+                (sensor, nanos, x, y, z) -> {
+                    builders[sensor].add(Math.floorDiv(nanos, NANOS_PER_MS), x, y, z);
+                    // Older samples are in a block committed before a crash or failed commit.
+                    if (nanos > storedNanos[sensor]) blocks.append(sensor, nanos, x, y, z);
+                    newest[0] = Math.max(newest[0], nanos);
+                });
+        for (Rollups.Builder builder : builders) builder.finish();
+        pending.addLast(new PendingSegment(segment.getSequence(), rollups));
+
+        if (newest[0] != Long.MIN_VALUE) blocks.sealBefore(newest[0]);
+        return commit();
+    }
+
+    /**
+     * Seals the blocks of windows before the one of {@code timestampNanos} and commits the segments
+     * that completes (no new segment comes while the input is idle).
+     *
+     * @return false if the commit failed, see {@link #store}.
+     */
+    public boolean storeBefore(long timestampNanos) {
+        if (pending.isEmpty()) return true;
+        blocks.sealBefore(timestampNanos);
+        return commit();
+    }
+
+    /**
+     * Seals all blocks and commits every segment handed over (ingest stops, or the compactor
+     * switches to rows).
+     *
+     * @return false if the commit failed, see {@link #store}.
+     */
+    public boolean storeAll() {
+        if (pending.isEmpty()) return true;
+        blocks.sealAll();
+        return commit();
+    }
+
+    private boolean commit() {
+        long through = blocks.getSealedThrough();
+        List<SensorRollup> rollups = new ArrayList<>();
+        long watermark = storedThrough;
+        int segments = 0;
+        for (PendingSegment segment : pending) {
+            if (segment.sequence > through) break;
+            rollups.addAll(segment.rollups);
+            watermark = segment.sequence;
+            segments++;
+        }
+        List<SensorBlock> sealed = blocks.takeSealed();
+        if (sealed.isEmpty() && segments == 0) return true;
+
+        if (!target.commit(sealed, rollups, watermark)) {
+            blocks.clear();
+            pending.clear();
+            return false;
+        }
+        for (int i = 0; i < segments; i++) pending.pollFirst();
+        storedThrough = watermark;
+        for (int sensor = 0; sensor < storedNanos.length; sensor++) {
+            storedNanos[sensor] = Math.max(storedNanos[sensor], blocks.getSealedNanos(sensor));
+        }
+        return true;
+    }
+
+    private void load() {
+        if (storedThrough >= 0) return;
+        Arrays.fill(storedNanos, Long.MIN_VALUE);
+        for (int sensor = 0; sensor < storedNanos.length; sensor++) {
+            for (SensorBlock block : target.loadNewestBlocks(sensor)) {
+                SampleChunk samples = new SampleChunk(block.count + 1);
+                SampleBlockCodec.decode(
+                        block.data, Long.MIN_VALUE, Long.MAX_VALUE, samples, c -> {});
+                for (int i = 0; i < samples.size(); i++) {
+                    storedNanos[sensor] = Math.max(storedNanos[sensor], samples.timestampsNanos[i]);
+                }
+            }
+        }
+        storedThrough = target.loadWatermark();
+    }
+}
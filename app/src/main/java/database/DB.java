@@ -10,13 +10,16 @@ import androidx.room.Room;
 import androidx.room.RoomDatabase;
 import androidx.sqlite.db.SupportSQLiteDatabase;
 import database.dao.SensorDao;
-import database.dao.ValueSensorDAO;
 import database.entities.AccelData;
+import database.entities.CompactionWatermark;
 import database.entities.EreignisData;
+import database.entities.EreignisType;
 import database.entities.GyroData;
 import database.entities.MagnetData;
 import database.entities.Sensor;
-import database.entities.ValueSensor;
+import database.entities.SensorBlock;
+import database.entities.SensorReading;
+import database.entities.SensorRollup;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
@@ -26,19 +29,20 @@ import java.util.concurrent.Executors;
             GyroData.class,
             MagnetData.class,
             EreignisData.class,
-            ValueSensor.class,
-            Sensor.class
+            EreignisType.class,
+            Sensor.class,
+            SensorRollup.class,
+            SensorBlock.class,
+            CompactionWatermark.class
         },
-        version = 3, // keep the version that matches your existing DB_Impl
+        views = {SensorReading.class},
+        version = 11, // bump together with a new entry in Migrations
         exportSchema = false)
 public abstract class DB extends RoomDatabase {
 
     // --- DAOs that Room must generate ---
     public abstract SensorDao sensorDao();
 
-    // THIS is the method MainActivity is calling
-    public abstract ValueSensorDAO valueSensorDao();
-
     // --- Singleton + Executor like before ---
     private static volatile DB INSTANCE;
     private static final int NUMBER_OF_THREADS = 4;
@@ -55,7 +59,10 @@ public abstract class DB extends RoomDatabase {
                                             context.getApplicationContext(),
                                             DB.class,
                                             "sensor_database")
-                                    .fallbackToDestructiveMigration()
+                                    // Keep the data on upgrades; only the very first
+                                    // development schemas (1, 2) have no migration path.
+                                    .addMigrations(Migrations.ALL)
+                                    .fallbackToDestructiveMigrationFrom(1, 2)
                                     .addCallback(
                                             new RoomDatabase.Callback() {
                                                 @Override
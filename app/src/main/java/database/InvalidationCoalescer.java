@@ -0,0 +1,114 @@
+package database;
+
+/**
+ * InvalidationCoalescer --------------------- Turns a burst of table-change notifications into at
+ * most ONE refresh per interval.
+ *
+ * <p>Room's InvalidationTracker reports every committed write to an observed table, i.e. every
+ * SensorBatchWriter batch, several times per second. A screen that re-queried and re-rendered on
+ * each of them would do nothing else. The coalescer runs the refresh immediately if the last one is
+ * at least {@code intervalMs} ago, otherwise once at the end of the interval; notifications that
+ * arrive while a refresh is pending are absorbed by it and counted as saved ({@link
+ * #getSavedRefreshCount()}).
+ *
+ * <p>No Android dependency: the screen supplies the clock and a {@link Scheduler} (a main-thread
+ * Handler in BaseChartActivity), so the timing logic is testable on the JVM.
+ *
+ * <p>Threading: {@link #onInvalidated} may be called from any thread (Room calls it on a background
+ * thread); the refresh runs wherever the scheduler runs it.
+ */
+public final class InvalidationCoalescer {
+
+    /** Clock and delayed execution, e.g. SystemClock.uptimeMillis + Handler.postDelayed. */
+    public interface Scheduler {
+        long now();
+
+        void schedule(Runnable task, long delayMs);
+    }
+
+    private final long intervalMs;
+    private final Scheduler scheduler;
+    private final Runnable refresh;
+
+    private final Object lock = new Object();
+    private boolean active = true;
+    private boolean pending;
+    private int generation; // bumped by stop(): refreshes scheduled before it never run
+    private boolean refreshed;
+    private long lastRefresh;
+    private long notificationCount;
+    private long refreshCount;
+
+    public InvalidationCoalescer(long intervalMs, Scheduler scheduler, Runnable refresh) {
+        this.intervalMs = Math.max(0, intervalMs);
+        this.scheduler = scheduler;
+        this.refresh = refresh;
+    }
+
+    /** One table-change notification. */
+    public void onInvalidated() {
+        long delay;
+        int scheduled;
+        synchronized (lock) {
+            if (!active) return;
+            notificationCount++;
+            if (pending) return; // the pending refresh will see this change too
+            pending = true;
+            long sinceLast = scheduler.now() - lastRefresh;
+            delay = !refreshed || sinceLast >= intervalMs ? 0 : intervalMs - sinceLast;
+            scheduled = generation;
+        }
+        scheduler.schedule(() -> fire(scheduled), delay);
+    }
+
+    /** Resumes after {@link #stop()}. */
+    public void start() {
+        synchronized (lock) {
+            active = true;
+        }
+    }
+
+    /** Ignores notifications and drops a pending refresh (screen in the background). */
+    public void stop() {
+        synchronized (lock) {
+            active = false;
+            pending = false;
+            generation++;
+        }
+    }
+
+    private void fire(int scheduled) {
+        synchronized (lock) {
+            if (!active || !pending || scheduled != generation) return;
+            pending = false;
+            refreshed = true;
+            lastRefresh = scheduler.now();
+            refreshCount++;
+        }
+        refresh.run();
+    }
+
+    /** Notifications received while active. */
+    public long getNotificationCount() {
+        synchronized (lock) {
+            return notificationCount;
+        }
+    }
+
+    /** Refreshes actually run. */
+    public long getRefreshCount() {
+        synchronized (lock) {
+            return refreshCount;
+        }
+    }
+
+    /**
+     * Refreshes that one-refresh-per-notification would have run on top of {@link
+     * #getRefreshCount()}.
+     */
+    public long getSavedRefreshCount() {
+        synchronized (lock) {
+            return notificationCount - refreshCount - (pending ? 1 : 0);
+        }
+    }
+}
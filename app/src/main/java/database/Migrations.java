@@ -0,0 +1,244 @@
+package database;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import androidx.annotation.NonNull;
+import androidx.room.migration.Migration;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import database.entities.SensorReading;
+import database.entities.SensorRollup;
+
+/**
+ * Migrations ---------- All schema migrations of {@link DB}. Each step must leave the database in
+ * exactly the state Room would create for the new version, otherwise Room refuses to open it.
+ *
+ * <p>Real migrations keep the recorded sensor history on app updates
+ * (fallbackToDestructiveMigration would wipe all tables).
+ */
+public final class Migrations {
+
+    private Migrations() {}
+
+    /**
+     * 3 → 4: timestamp indexes on the three sensor tables. The names follow Room's convention
+     * (index_&lt;table&gt;_&lt;column&gt;) so they match the @Index declarations of the entities.
+     */
+    public static final Migration MIGRATION_3_4 =
+            new Migration(3, 4) {
+                @Override
+                public void migrate(@NonNull SupportSQLiteDatabase db) {
+                    db.execSQL(
+                            "CREATE INDEX IF NOT EXISTS `index_accel_data_timestamp`"
+                                    + " ON `accel_data` (`timestamp`)");
+                    db.execSQL(
+                            "CREATE INDEX IF NOT EXISTS `index_gyro_data_timestamp`"
+                                    + " ON `gyro_data` (`timestamp`)");
+                    db.execSQL(
+                            "CREATE INDEX IF NOT EXISTS `index_magnet_data_timestamp`"
+                                    + " ON `magnet_data` (`timestamp`)");
+                }
+            };
+
+    /**
+     * 4 → 5: threshold rules become a real table (ereignis_type) and every event remembers the name
+     * of the rule that produced it.
+     */
+    public static final Migration MIGRATION_4_5 =
+            new Migration(4, 5) {
+                @Override
+                public void migrate(@NonNull SupportSQLiteDatabase db) {
+                    db.execSQL(
+                            "CREATE TABLE IF NOT EXISTS `ereignis_type` ("
+                                    + "`ereignisID` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, "
+                                    + "`ereignisName` TEXT, "
+                                    + "`sensorType` TEXT, "
+                                    + "`axis` INTEGER NOT NULL, "
+                                    + "`comparison` TEXT, "
+                                    + "`ereignisThreshold` REAL NOT NULL)");
+                    db.execSQL("ALTER TABLE `ereignis_data` ADD COLUMN `ereignisName` TEXT");
+                }
+            };
+
+    /** 5 → 6: hysteresis band and minimum re-arm time per threshold rule. */
+    public static final Migration MIGRATION_5_6 =
+            new Migration(5, 6) {
+                @Override
+                public void migrate(@NonNull SupportSQLiteDatabase db) {
+                    db.execSQL(
+                            "ALTER TABLE `ereignis_type`"
+                                    + " ADD COLUMN `hysteresis` REAL NOT NULL DEFAULT 0");
+                    db.execSQL(
+                            "ALTER TABLE `ereignis_type`"
+                                    + " ADD COLUMN `minRearmMs` INTEGER NOT NULL DEFAULT 0");
+                }
+            };
+
+    /**
+     * 6 → 7: nanosecond sampling time next to the millisecond timestamp. Existing rows only know
+     * milliseconds, so their value is derived from those.
+     */
+    public static final Migration MIGRATION_6_7 =
+            new Migration(6, 7) {
+                @Override
+                public void migrate(@NonNull SupportSQLiteDatabase db) {
+                    for (String table : new String[] {"accel_data", "gyro_data", "magnet_data"}) {
+                        db.execSQL(
+                                "ALTER TABLE `"
+                                        + table
+                                        + "` ADD COLUMN `timestampNanos` INTEGER NOT NULL DEFAULT 0");
+                        db.execSQL(
+                                "UPDATE `"
+                                        + table
+                                        + "` SET `timestampNanos` = `timestamp` * 1000000");
+                    }
+                }
+            };
+
+    /**
+     * 7 → 8: the legacy "sensor" table (ValueSensor) is dropped. It only held unlabelled copies of
+     * accel/gyro values without a timestamp; the same data is in the sensor tables and is now
+     * readable in one place through the sensor_readings view.
+     */
+    public static final Migration MIGRATION_7_8 =
+            new Migration(7, 8) {
+                @Override
+                public void migrate(@NonNull SupportSQLiteDatabase db) {
+                    db.execSQL("DROP TABLE IF EXISTS `sensor`");
+                    db.execSQL(SensorReading.createViewSql());
+                }
+            };
+
+    /**
+     * 8 → 9: rollup table (see {@link Rollups}), back-filled from the existing samples so long
+     * ranges recorded before the update are covered as well. The samples are streamed sorted by
+     * time, so every bucket is complete when it is written.
+     */
+    public static final Migration MIGRATION_8_9 =
+            new Migration(8, 9) {
+                @Override
+                public void migrate(@NonNull SupportSQLiteDatabase db) {
+                    db.execSQL(
+                            "CREATE TABLE IF NOT EXISTS `sensor_rollup` ("
+                                    + "`sensor` INTEGER NOT NULL, "
+                                    + "`resolutionMs` INTEGER NOT NULL, "
+                                    + "`bucketStart` INTEGER NOT NULL, "
+                                    + "`count` INTEGER NOT NULL, "
+                                    + "`minX` REAL NOT NULL, `maxX` REAL NOT NULL, "
+                                    + "`sumX` REAL NOT NULL, "
+                                    + "`minY` REAL NOT NULL, `maxY` REAL NOT NULL, "
+                                    + "`sumY` REAL NOT NULL, "
+                                    + "`minZ` REAL NOT NULL, `maxZ` REAL NOT NULL, "
+                                    + "`sumZ` REAL NOT NULL, "
+                                    + "`minMagnitude` REAL NOT NULL, `maxMagnitude` REAL NOT NULL, "
+                                    + "`sumMagnitude` REAL NOT NULL, "
+                                    + "PRIMARY KEY(`sensor`, `resolutionMs`, `bucketStart`))");
+                    backfillRollups(db, SensorReading.ACCEL, "accel_data", "accel");
+                    backfillRollups(db, SensorReading.GYRO, "gyro_data", "gyro");
+                    backfillRollups(db, SensorReading.MAGNET, "magnet_data", "magnet");
+                }
+            };
+
+    private static void backfillRollups(
+            SupportSQLiteDatabase db, int sensor, String table, String prefix) {
+        Rollups.Builder builder =
+                new Rollups.Builder(
+                        sensor,
+                        rollup ->
+                                db.insert(
+                                        "sensor_rollup",
+                                        SQLiteDatabase.CONFLICT_REPLACE,
+                                        toContentValues(rollup)));
+        try (Cursor cursor =
+                db.query(
+                        "SELECT timestamp, "
+                                + prefix
+                                + "X, "
+                                + prefix
+                                + "Y, "
+                                + prefix
+                                + "Z FROM "
+                                + table
+                                + " ORDER BY timestamp")) {
+            while (cursor.moveToNext()) {
+                builder.add(
+                        cursor.getLong(0),
+                        cursor.getFloat(1),
+                        cursor.getFloat(2),
+                        cursor.getFloat(3));
+            }
+        }
+        builder.finish();
+    }
+
+    private static ContentValues toContentValues(SensorRollup r) {
+        ContentValues values = new ContentValues();
+        values.put("sensor", r.sensor);
+        values.put("resolutionMs", r.resolutionMs);
+        values.put("bucketStart", r.bucketStart);
+        values.put("count", r.count);
+        values.put("minX", r.minX);
+        values.put("maxX", r.maxX);
+        values.put("sumX", r.sumX);
+        values.put("minY", r.minY);
+        values.put("maxY", r.maxY);
+        values.put("sumY", r.sumY);
+        values.put("minZ", r.minZ);
+        values.put("maxZ", r.maxZ);
+        values.put("sumZ", r.sumZ);
+        values.put("minMagnitude", r.minMagnitude);
+        values.put("maxMagnitude", r.maxMagnitude);
+        values.put("sumMagnitude", r.sumMagnitude);
+        return values;
+    }
+
+    /**
+     * 9 → 10: table of compressed sample blocks for {@link BlockSampleStore}. Starts empty; the row
+     * tables stay the primary store.
+     */
+    public static final Migration MIGRATION_9_10 =
+            new Migration(9, 10) {
+                @Override
+                public void migrate(@NonNull SupportSQLiteDatabase db) {
+                    db.execSQL(
+                            "CREATE TABLE IF NOT EXISTS `sensor_block` ("
+                                    + "`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, "
+                                    + "`sensor` INTEGER NOT NULL, "
+                                    + "`firstTimestamp` INTEGER NOT NULL, "
+                                    + "`lastTimestamp` INTEGER NOT NULL, "
+                                    + "`count` INTEGER NOT NULL, "
+                                    + "`data` BLOB)");
+                    db.execSQL(
+                            "CREATE INDEX IF NOT EXISTS `index_sensor_block_sensor_firstTimestamp`"
+                                    + " ON `sensor_block` (`sensor`, `firstTimestamp`)");
+                }
+            };
+
+    /**
+     * 10 → 11: watermark of the sample log compaction ({@link SampleLogCompactor}). Starts empty:
+     * segments compacted so far are flagged in their files already.
+     */
+    public static final Migration MIGRATION_10_11 =
+            new Migration(10, 11) {
+                @Override
+                public void migrate(@NonNull SupportSQLiteDatabase db) {
+                    db.execSQL(
+                            "CREATE TABLE IF NOT EXISTS `compaction_watermark` ("
+                                    + "`id` INTEGER NOT NULL, "
+                                    + "`segmentSequence` INTEGER NOT NULL, "
+                                    + "PRIMARY KEY(`id`))");
+                }
+            };
+
+    /** All migrations, in order, for {@code Room.databaseBuilder(...).addMigrations(...)}. */
+    public static final Migration[] ALL = {
+        MIGRATION_3_4,
+        MIGRATION_4_5,
+        MIGRATION_5_6,
+        MIGRATION_6_7,
+        MIGRATION_7_8,
+        MIGRATION_8_9,
+        MIGRATION_9_10,
+        MIGRATION_10_11
+    };
+}
@@ -0,0 +1,156 @@
+package database;
+
+import android.database.Cursor;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import database.dao.SensorDao;
+import java.util.function.BooleanSupplier;
+
+/**
+ * RetentionEngine --------------- Applies a {@link RetentionPolicy}: deletes old raw samples (rows
+ * and {@link BlockSampleStore} blocks) and rollups, then hands the freed pages back to the file
+ * system.
+ *
+ * <p>Nothing here runs long under one lock. Every DELETE removes at most one chunk of rows (its own
+ * transaction, served by the timestamp index), and the file is shrunk with {@code PRAGMA
+ * incremental_vacuum(n)} in steps of a few pages. Between two steps the engine pauses, so the
+ * SensorBatchWriter's batch transactions interleave and ingest keeps going while a large backlog is
+ * removed.
+ *
+ * <p>Incremental vacuum needs {@code auto_vacuum = INCREMENTAL}. That mode only takes effect after
+ * a full VACUUM, which databases created by earlier app versions have never had; the first run
+ * switches the mode and does that VACUUM once (the single step that blocks writers for its
+ * duration).
+ *
+ * <p>Threading: blocking; call it from a background thread (see {@link RetentionWorker}).
+ */
+public class RetentionEngine {
+
+    /** Outcome of one {@link #run}. */
+    public static class Report {
+        public long rawRowsDeleted;
+        public long blocksDeleted;
+        public long rollupRowsDeleted;
+        public long bytesBefore;
+        public long bytesAfter;
+        public long durationMs;
+        public boolean fullVacuum;
+        public boolean stopped;
+
+        /** Bytes the database file shrank by. */
+        public long reclaimedBytes() {
+            return Math.max(0, bytesBefore - bytesAfter);
+        }
+
+        @Override
+        public String toString() {
+            return "raw="
+                    + rawRowsDeleted
+                    + " blocks="
+                    + blocksDeleted
+                    + " rollups="
+                    + rollupRowsDeleted
+                    + " reclaimed="
+                    + reclaimedBytes()
+                    + "B in "
+                    + durationMs
+                    + "ms"
+                    + (fullVacuum ? " (full vacuum)" : "")
+                    + (stopped ? " (stopped)" : "");
+        }
+    }
+
+    private interface ChunkDelete {
+        int delete(int limit);
+    }
+
+    private static final int AUTO_VACUUM_INCREMENTAL = 2;
+
+    private final SupportSQLiteDatabase db;
+    private final SensorDao dao;
+    private final RetentionPolicy policy;
+
+    public RetentionEngine(DB database, RetentionPolicy policy) {
+        this.db = database.getOpenHelper().getWritableDatabase();
+        this.dao = database.sensorDao();
+        this.policy = policy;
+    }
+
+    /**
+     * Deletes everything the policy no longer keeps as of {@code now} (epoch ms) and vacuums.
+     * Returns early, with {@link Report#stopped} set, as soon as {@code stopped} says so.
+     */
+    public Report run(long now, BooleanSupplier stopped) throws InterruptedException {
+        long start = System.nanoTime();
+        Report report = new Report();
+        report.bytesBefore = fileBytes();
+
+        long rawCutoff = policy.rawCutoff(now);
+        if (rawCutoff != RetentionPolicy.KEEP_FOREVER) {
+            report.rawRowsDeleted +=
+                    deleteInChunks(limit -> dao.deleteAccelDataBefore(rawCutoff, limit), stopped);
+            report.rawRowsDeleted +=
+                    deleteInChunks(limit -> dao.deleteGyroDataBefore(rawCutoff, limit), stopped);
+            report.rawRowsDeleted +=
+                    deleteInChunks(limit -> dao.deleteMagnetDataBefore(rawCutoff, limit), stopped);
+            report.blocksDeleted =
+                    deleteInChunks(limit -> dao.deleteBlocksBefore(rawCutoff, limit), stopped);
+        }
+        for (long resolution : Rollups.RESOLUTIONS_MS) {
+            long cutoff = policy.rollupCutoff(resolution, now);
+            if (cutoff == RetentionPolicy.KEEP_FOREVER) continue;
+            report.rollupRowsDeleted +=
+                    deleteInChunks(
+                            limit -> dao.deleteRollupsBefore(resolution, cutoff, limit), stopped);
+        }
+
+        if (!stopped.getAsBoolean()) {
+            if (pragma("auto_vacuum") != AUTO_VACUUM_INCREMENTAL) {
+                db.execSQL("PRAGMA auto_vacuum = INCREMENTAL");
+                db.execSQL("VACUUM");
+                report.fullVacuum = true;
+            } else {
+                vacuumIncrementally(stopped);
+            }
+        }
+
+        report.stopped = stopped.getAsBoolean();
+        report.bytesAfter = fileBytes();
+        report.durationMs = (System.nanoTime() - start) / 1_000_000L;
+        return report;
+    }
+
+    private long deleteInChunks(ChunkDelete delete, BooleanSupplier stopped)
+            throws InterruptedException {
+        long total = 0;
+        while (!stopped.getAsBoolean()) {
+            int deleted = delete.delete(policy.chunkSize);
+            total += deleted;
+            if (deleted < policy.chunkSize) break;
+            Thread.sleep(policy.pauseMs);
+        }
+        return total;
+    }
+
+    private void vacuumIncrementally(BooleanSupplier stopped) throws InterruptedException {
+        while (pragma("freelist_count") > 0 && !stopped.getAsBoolean()) {
+            // incremental_vacuum frees one page per result row step → read the cursor to the end.
+            try (Cursor cursor =
+                    db.query("PRAGMA incremental_vacuum(" + policy.vacuumPagesPerStep + ")")) {
+                while (cursor.moveToNext()) {
+                    // nothing to read
+                }
+            }
+            Thread.sleep(policy.pauseMs);
+        }
+    }
+
+    private long fileBytes() {
+        return pragma("page_count") * pragma("page_size");
+    }
+
+    private long pragma(String name) {
+        try (Cursor cursor = db.query("PRAGMA " + name)) {
+            return cursor.moveToFirst() ? cursor.getLong(0) : 0;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package database;
+
+/**
+ * RetentionPolicy --------------- How long sensor data is kept and how the {@link RetentionEngine}
+ * deletes it.
+ *
+ * <p>Raw samples are kept {@link #setRawDays} days. Every rollup resolution ({@link
+ * Rollups#RESOLUTIONS_MS}) has its own, longer limit, so long-range charts still work after the raw
+ * rows are gone. A limit of 0 days keeps the data forever.
+ *
+ * <p>Deletes run in chunks of {@link #setChunkSize} rows with {@link #setPauseMs} between them, and
+ * the file is shrunk by at most {@link #setVacuumPagesPerStep} pages per step; each step is one
+ * short write transaction, so the ingest writer never waits long for the database.
+ *
+ * <p>Setters return {@code this} so a policy can be built in one expression.
+ */
+public class RetentionPolicy {
+
+    static final long DAY_MS = 24L * 60 * 60 * 1000;
+
+    /** Returned by the cutoff methods when the data is kept forever. */
+    public static final long KEEP_FOREVER = Long.MIN_VALUE;
+
+    int rawDays = 7;
+    // Parallel to Rollups.RESOLUTIONS_MS: 1 s for a month, 1 min for a year, 1 h forever.
+    final int[] rollupDays = {30, 365, 0};
+    int chunkSize = 2_000;
+    long pauseMs = 50;
+    int vacuumPagesPerStep = 256;
+
+    /** Days of raw samples to keep; 0 keeps them forever. */
+    public RetentionPolicy setRawDays(int days) {
+        this.rawDays = Math.max(0, days);
+        return this;
+    }
+
+    /** Days to keep the rollups of {@code resolutionMs}; 0 keeps them forever. */
+    public RetentionPolicy setRollupDays(long resolutionMs, int days) {
+        rollupDays[indexOf(resolutionMs)] = Math.max(0, days);
+        return this;
+    }
+
+    /** Rows per DELETE statement (and thus per write transaction). */
+    public RetentionPolicy setChunkSize(int chunkSize) {
+        this.chunkSize = Math.max(1, chunkSize);
+        return this;
+    }
+
+    /** Pause between two chunks or vacuum steps, so queued ingest writes get the database. */
+    public RetentionPolicy setPauseMs(long pauseMs) {
+        this.pauseMs = Math.max(0, pauseMs);
+        return this;
+    }
+
+    /** Free pages returned to the file system per incremental vacuum step. */
+    public RetentionPolicy setVacuumPagesPerStep(int pages) {
+        this.vacuumPagesPerStep = Math.max(1, pages);
+        return this;
+    }
+
+    /** Raw samples older than this (epoch ms) are deleted, or {@link #KEEP_FOREVER}. */
+    public long rawCutoff(long now) {
+        return cutoff(now, rawDays);
+    }
+
+    /**
+     * Rollups of {@code resolutionMs} starting before this are deleted, or {@link #KEEP_FOREVER}.
+     */
+    public long rollupCutoff(long resolutionMs, long now) {
+        return cutoff(now, rollupDays[indexOf(resolutionMs)]);
+    }
+
+    private static long cutoff(long now, int days) {
+        return days == 0 ? KEEP_FOREVER : now - days * DAY_MS;
+    }
+
+    private static int indexOf(long resolutionMs) {
+        for (int i = 0; i < Rollups.RESOLUTIONS_MS.length; i++) {
+            if (Rollups.RESOLUTIONS_MS[i] == resolutionMs) return i;
+        }
+        throw new IllegalArgumentException("No rollup resolution: " + resolutionMs);
+    }
+}
@@ -0,0 +1,73 @@
+package database;
+
+import android.content.Context;
+import android.util.Log;
+import androidx.annotation.NonNull;
+import androidx.work.Constraints;
+import androidx.work.Data;
+import androidx.work.ExistingPeriodicWorkPolicy;
+import androidx.work.PeriodicWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * RetentionWorker --------------- Runs the {@link RetentionEngine} once a day on a WorkManager
+ * thread, never on the main thread and independent of whether an activity is open.
+ *
+ * <p>The result (rows deleted, bytes reclaimed, time spent) is logged and returned as the work's
+ * output data under the {@code KEY_*} names.
+ */
+public class RetentionWorker extends Worker {
+
+    private static final String TAG = "RetentionWorker";
+    private static final String WORK_NAME = "sensor-retention";
+
+    public static final String KEY_RAW_ROWS = "rawRowsDeleted";
+    public static final String KEY_BLOCKS = "blocksDeleted";
+    public static final String KEY_ROLLUP_ROWS = "rollupRowsDeleted";
+    public static final String KEY_RECLAIMED_BYTES = "reclaimedBytes";
+    public static final String KEY_DURATION_MS = "durationMs";
+
+    public RetentionWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    /** Schedules the daily run (idempotent: an existing schedule is kept). */
+    public static void schedule(Context context) {
+        PeriodicWorkRequest request =
+                new PeriodicWorkRequest.Builder(RetentionWorker.class, 1, TimeUnit.DAYS)
+                        .setConstraints(
+                                new Constraints.Builder().setRequiresBatteryNotLow(true).build())
+                        .build();
+        WorkManager.getInstance(context)
+                .enqueueUniquePeriodicWork(WORK_NAME, ExistingPeriodicWorkPolicy.KEEP, request);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        RetentionEngine engine =
+                new RetentionEngine(DB.getDatabase(getApplicationContext()), new RetentionPolicy());
+        RetentionEngine.Report report;
+        try {
+            report = engine.run(System.currentTimeMillis(), this::isStopped);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Result.retry();
+        } catch (RuntimeException e) {
+            Log.e(TAG, "Retention failed", e);
+            return Result.retry();
+        }
+        Log.i(TAG, "Retention: " + report);
+        return Result.success(
+                new Data.Builder()
+                        .putLong(KEY_RAW_ROWS, report.rawRowsDeleted)
+                        .putLong(KEY_BLOCKS, report.blocksDeleted)
+                        .putLong(KEY_ROLLUP_ROWS, report.rollupRowsDeleted)
+                        .putLong(KEY_RECLAIMED_BYTES, report.reclaimedBytes())
+                        .putLong(KEY_DURATION_MS, report.durationMs)
+                        .build());
+    }
+}
@@ -0,0 +1,115 @@
+package database;
+
+import com.fhdw.biot.speech.iot.sensor.SensorPoint;
+import database.entities.SensorReading;
+import database.entities.SensorRollup;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Rollups ------- Resolutions of the {@link SensorRollup} table and the code that fills it.
+ *
+ * <p>A range of a week at 1 Hz is 600k raw rows per sensor, far more than a chart has pixels. The
+ * ingest writer therefore keeps per-bucket aggregates at 1 s, 1 min and 1 h ({@link
+ * #RESOLUTIONS_MS}), updated with every batch it writes. Readers ask {@link #pickResolution} which
+ * table granularity fits their range and pixel width.
+ */
+public final class Rollups {
+
+    /** Bucket lengths that are maintained, finest first. */
+    public static final long[] RESOLUTIONS_MS = {1_000L, 60_000L, 3_600_000L};
+
+    /** Returned by {@link #pickResolution} when even the finest buckets are too coarse. */
+    public static final long RAW = 0L;
+
+    private Rollups() {}
+
+    /**
+     * Coarsest resolution that still yields at least {@code minBuckets} buckets (e.g. one per chart
+     * pixel) for the range {@code [from, to]}.
+     *
+     * @return a value of {@link #RESOLUTIONS_MS}, or {@link #RAW} if the raw rows should be used.
+     */
+    public static long pickResolution(long from, long to, int minBuckets) {
+        long span = to - from;
+        for (int i = RESOLUTIONS_MS.length - 1; i >= 0; i--) {
+            if (span / RESOLUTIONS_MS[i] >= Math.max(1, minBuckets)) return RESOLUTIONS_MS[i];
+        }
+        return RAW;
+    }
+
+    /** Start of the bucket of length {@code resolutionMs} that contains {@code timestamp}. */
+    public static long bucketStart(long timestamp, long resolutionMs) {
+        return Math.floorDiv(timestamp, resolutionMs) * resolutionMs;
+    }
+
+    /**
+     * Rollups of one write batch (all resolutions, all sensors). Buckets that the batch only covers
+     * in part are partial; {@link database.dao.SensorDao#mergeRollups} adds them to what is stored.
+     */
+    public static List<SensorRollup> of(
+            List<? extends SensorPoint> accel,
+            List<? extends SensorPoint> gyro,
+            List<? extends SensorPoint> magnet) {
+        List<SensorRollup> out = new ArrayList<>();
+        addAll(new Builder(SensorReading.ACCEL, out::add), accel);
+        addAll(new Builder(SensorReading.GYRO, out::add), gyro);
+        addAll(new Builder(SensorReading.MAGNET, out::add), magnet);
+        return out;
+    }
+
+    private static void addAll(Builder builder, List<? extends SensorPoint> rows) {
+        for (int i = 0; i < rows.size(); i++) {
+            SensorPoint p = rows.get(i);
+            builder.add(p.getTimestamp(), p.getX(), p.getY(), p.getZ());
+        }
+        builder.finish();
+    }
+
+    /** Receives finished buckets from a {@link Builder}. */
+    public interface Sink {
+        void accept(SensorRollup rollup);
+    }
+
+    /**
+     * Streams the samples of ONE sensor into buckets of every resolution. One open bucket per
+     * resolution; it is handed to the sink as soon as a sample falls into a different bucket, so
+     * memory stays constant for input sorted by time. Unsorted input only produces several partial
+     * rollups of the same bucket, which merge correctly.
+     */
+    public static final class Builder {
+
+        private final int sensor;
+        private final Sink sink;
+        private final SensorRollup[] open = new SensorRollup[RESOLUTIONS_MS.length];
+
+        public Builder(int sensor, Sink sink) {
+            this.sensor = sensor;
+            this.sink = sink;
+        }
+
+        public void add(long timestamp, float x, float y, float z) {
+            for (int i = 0; i < open.length; i++) {
+                long start = bucketStart(timestamp, RESOLUTIONS_MS[i]);
+                SensorRollup rollup = open[i];
+                if (rollup != null && rollup.bucketStart != start) {
+                    sink.accept(rollup);
+                    rollup = null;
+                }
+                if (rollup == null) {
+                    rollup = new SensorRollup(sensor, RESOLUTIONS_MS[i], start);
+                    open[i] = rollup;
+                }
+                rollup.add(x, y, z);
+            }
+        }
+
+        /** Hands out the open buckets. */
+        public void finish() {
+            for (int i = 0; i < open.length; i++) {
+                if (open[i] != null) sink.accept(open[i]);
+                open[i] = null;
+            }
+        }
+    }
+}
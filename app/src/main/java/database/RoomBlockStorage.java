@@ -0,0 +1,31 @@
+package database;
+
+import android.database.Cursor;
+import database.dao.SensorDao;
+import database.entities.SensorBlock;
+import java.util.List;
+
+/** RoomBlockStorage ---------------- {@link BlockSampleStore.Storage} on the sensor_block table. */
+public class RoomBlockStorage implements BlockSampleStore.Storage {
+
+    private final SensorDao dao;
+
+    public RoomBlockStorage(SensorDao dao) {
+        this.dao = dao;
+    }
+
+    @Override
+    public void put(List<SensorBlock> blocks) {
+        dao.insertBlocks(blocks);
+    }
+
+    @Override
+    public void forEachBlock(
+            int sensor, long minFirst, long from, long to, BlockSampleStore.BlockVisitor visitor) {
+        try (Cursor cursor = dao.streamBlocksBetween(sensor, minFirst, from, to)) {
+            while (cursor.moveToNext()) {
+                visitor.visit(cursor.getLong(0), cursor.getBlob(1));
+            }
+        }
+    }
+}
@@ -0,0 +1,368 @@
+package database;
+
+import com.fhdw.biot.speech.iot.sensor.SampleChunk;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * SampleBlockCodec ---------------- Compressed, columnar encoding of a block of samples of ONE
+ * sensor, as stored by {@link BlockSampleStore}.
+ *
+ * <p>Layout: a fixed header (version, sample count, first timestamp, byte length of each column)
+ * followed by four bit-packed columns:
+ *
+ * <p>- timestamps: delta-of-delta. A steady sampling rate makes the delta between two samples
+ * constant, so the difference of two deltas is usually 0 (1 bit) or a small jitter. It is stored
+ * zig-zag encoded in 8, 16, 24, 32 or 64 bits behind a 2-5 bit prefix; the widths are those of
+ * Gorilla (Facebook's TSDB), scaled up for nanosecond timestamps.
+ *
+ * <p>- x, y, z: Gorilla XOR. Each value is XORed with the previous one of its axis; an unchanged
+ * value costs 1 bit, otherwise only the "meaningful" bits between the leading and trailing zeros
+ * are written, reusing the previous window when it fits.
+ *
+ * <p>Both are lossless: decoding returns the exact nanosecond timestamps and float bits. Keeping
+ * the axes in separate columns keeps similar values next to each other and lets a decoder stop
+ * reading a column it does not need.
+ */
+public final class SampleBlockCodec {
+
+    static final byte VERSION = 1;
+
+    /** version (1) + count (4) + first timestamp (8) + four column lengths (4 each). */
+    static final int HEADER_BYTES = 1 + 4 + 8 + 4 * 4;
+
+    private SampleBlockCodec() {}
+
+    /** Builds one block sample by sample. Reusable via {@link #reset()}. Not thread-safe. */
+    public static final class Encoder {
+
+        private final BitWriter timestamps = new BitWriter();
+        private final FloatColumnWriter xs = new FloatColumnWriter();
+        private final FloatColumnWriter ys = new FloatColumnWriter();
+        private final FloatColumnWriter zs = new FloatColumnWriter();
+
+        private int count;
+        private long firstNanos;
+        private long previousNanos;
+        private long previousDelta;
+        private long minNanos;
+        private long maxNanos;
+
+        public void add(long timestampNanos, float x, float y, float z) {
+            if (count == 0) {
+                firstNanos = minNanos = maxNanos = timestampNanos;
+            } else {
+                long delta = timestampNanos - previousNanos;
+                writeDeltaOfDelta(timestamps, delta - previousDelta);
+                previousDelta = delta;
+                minNanos = Math.min(minNanos, timestampNanos);
+                maxNanos = Math.max(maxNanos, timestampNanos);
+            }
+            previousNanos = timestampNanos;
+            xs.add(x);
+            ys.add(y);
+            zs.add(z);
+            count++;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        public boolean isEmpty() {
+            return count == 0;
+        }
+
+        /** Oldest timestamp in the block (ns); only valid if not empty. */
+        public long getMinTimestampNanos() {
+            return minNanos;
+        }
+
+        /** Newest timestamp in the block (ns); only valid if not empty. */
+        public long getMaxTimestampNanos() {
+            return maxNanos;
+        }
+
+        /** Encoded size if {@link #toByteArray()} were called now. */
+        public int sizeInBytes() {
+            return HEADER_BYTES
+                    + timestamps.sizeInBytes()
+                    + xs.out.sizeInBytes()
+                    + ys.out.sizeInBytes()
+                    + zs.out.sizeInBytes();
+        }
+
+        /** The block so far; the encoder can keep adding afterwards. */
+        public byte[] toByteArray() {
+            byte[] block = new byte[sizeInBytes()];
+            ByteBuffer buffer = ByteBuffer.wrap(block);
+            buffer.put(VERSION)
+                    .putInt(count)
+                    .putLong(firstNanos)
+                    .putInt(timestamps.sizeInBytes())
+                    .putInt(xs.out.sizeInBytes())
+                    .putInt(ys.out.sizeInBytes())
+                    .putInt(zs.out.sizeInBytes());
+            timestamps.copyTo(buffer);
+            xs.out.copyTo(buffer);
+            ys.out.copyTo(buffer);
+            zs.out.copyTo(buffer);
+            return block;
+        }
+
+        public void reset() {
+            timestamps.reset();
+            xs.reset();
+            ys.reset();
+            zs.reset();
+            count = 0;
+            previousDelta = 0;
+        }
+    }
+
+    /** Number of samples in an encoded block, without decoding it. */
+    public static int count(byte[] block) {
+        return ByteBuffer.wrap(block).getInt(1);
+    }
+
+    /**
+     * Decodes {@code block} and adds the samples with {@code fromNanos <= timestamp <= toNanos} to
+     * {@code chunk}, handing it to {@code consumer} (and clearing it) whenever it is full. A partly
+     * filled chunk is left for the caller, so several blocks can share one chunk.
+     *
+     * @return the number of samples added.
+     */
+    public static int decode(
+            byte[] block,
+            long fromNanos,
+            long toNanos,
+            SampleChunk chunk,
+            SampleChunk.Consumer consumer) {
+        ByteBuffer header = ByteBuffer.wrap(block);
+        if (header.get() != VERSION) {
+            throw new IllegalArgumentException("Unknown sample block version");
+        }
+        int count = header.getInt();
+        long timestamp = header.getLong();
+        int timestampBytes = header.getInt();
+        int xBytes = header.getInt();
+        int yBytes = header.getInt();
+        int zBytes = header.getInt();
+
+        int offset = HEADER_BYTES;
+        BitReader timestamps = new BitReader(block, offset);
+        offset += timestampBytes;
+        FloatColumnReader xs = new FloatColumnReader(new BitReader(block, offset));
+        offset += xBytes;
+        FloatColumnReader ys = new FloatColumnReader(new BitReader(block, offset));
+        offset += yBytes;
+        FloatColumnReader zs = new FloatColumnReader(new BitReader(block, offset));
+        if (offset + zBytes != block.length) {
+            throw new IllegalArgumentException("Corrupt sample block");
+        }
+
+        int added = 0;
+        long delta = 0;
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                delta += readDeltaOfDelta(timestamps);
+                timestamp += delta;
+            }
+            float x = xs.next();
+            float y = ys.next();
+            float z = zs.next();
+            if (timestamp < fromNanos || timestamp > toNanos) continue;
+            chunk.add(timestamp, x, y, z);
+            added++;
+            if (chunk.isFull()) {
+                consumer.accept(chunk);
+                chunk.clear();
+            }
+        }
+        return added;
+    }
+
+    // ---- timestamps: delta-of-delta ----
+
+    private static void writeDeltaOfDelta(BitWriter out, long dod) {
+        if (dod == 0) {
+            out.write(0b0, 1);
+            return;
+        }
+        long zigzag = (dod << 1) ^ (dod >> 63);
+        if (zigzag >>> 8 == 0) {
+            out.write(0b10, 2);
+            out.write(zigzag, 8);
+        } else if (zigzag >>> 16 == 0) {
+            out.write(0b110, 3);
+            out.write(zigzag, 16);
+        } else if (zigzag >>> 24 == 0) {
+            out.write(0b1110, 4);
+            out.write(zigzag, 24);
+        } else if (zigzag >>> 32 == 0) {
+            out.write(0b11110, 5);
+            out.write(zigzag, 32);
+        } else {
+            out.write(0b11111, 5);
+            out.write(zigzag, 64);
+        }
+    }
+
+    private static long readDeltaOfDelta(BitReader in) {
+        int width;
+        if (in.read(1) == 0) {
+            return 0;
+        } else if (in.read(1) == 0) {
+            width = 8;
+        } else if (in.read(1) == 0) {
+            width = 16;
+        } else if (in.read(1) == 0) {
+            width = 24;
+        } else if (in.read(1) == 0) {
+            width = 32;
+        } else {
+            width = 64;
+        }
+        long zigzag = in.read(width);
+        return (zigzag >>> 1) ^ -(zigzag & 1);
+    }
+
+    // ---- values: Gorilla XOR ----
+
+    private static final class FloatColumnWriter {
+        final BitWriter out = new BitWriter();
+        private boolean first = true;
+        private int previous;
+        private int leading = -1;
+        private int trailing;
+
+        void add(float value) {
+            int bits = Float.floatToRawIntBits(value);
+            if (first) {
+                first = false;
+                out.write(bits, 32);
+            } else {
+                int xor = bits ^ previous;
+                if (xor == 0) {
+                    out.write(0b0, 1);
+                } else {
+                    int lead = Integer.numberOfLeadingZeros(xor);
+                    int trail = Integer.numberOfTrailingZeros(xor);
+                    if (leading >= 0 && lead >= leading && trail >= trailing) {
+                        // Fits into the previous window.
+                        out.write(0b10, 2);
+                        out.write(xor >>> trailing, 32 - leading - trailing);
+                    } else {
+                        int length = 32 - lead - trail;
+                        out.write(0b11, 2);
+                        out.write(lead, 5);
+                        out.write(length - 1, 5);
+                        out.write(xor >>> trail, length);
+                        leading = lead;
+                        trailing = trail;
+                    }
+                }
+            }
+            previous = bits;
+        }
+
+        void reset() {
+            out.reset();
+            first = true;
+            leading = -1;
+        }
+    }
+
+    private static final class FloatColumnReader {
+        private final BitReader in;
+        private boolean first = true;
+        private int previous;
+        private int leading;
+        private int trailing;
+
+        FloatColumnReader(BitReader in) {
+            this.in = in;
+        }
+
+        float next() {
+            if (first) {
+                first = false;
+                previous = (int) in.read(32);
+            } else if (in.read(1) == 1) {
+                if (in.read(1) == 1) {
+                    leading = (int) in.read(5);
+                    trailing = 32 - leading - ((int) in.read(5) + 1);
+                }
+                int length = 32 - leading - trailing;
+                previous ^= (int) (in.read(length) << trailing);
+            }
+            return Float.intBitsToFloat(previous);
+        }
+    }
+
+    // ---- bit I/O, most significant bit first ----
+
+    private static final class BitWriter {
+        private byte[] buffer = new byte[64];
+        private long bitCount;
+
+        /** Writes the lowest {@code bits} (1..64) bits of {@code value}. */
+        void write(long value, int bits) {
+            ensureCapacity(bitCount + bits);
+            while (bits > 0) {
+                int index = (int) (bitCount >>> 3);
+                int free = 8 - (int) (bitCount & 7);
+                int take = Math.min(free, bits);
+                int part = (int) (value >>> (bits - take)) & ((1 << take) - 1);
+                buffer[index] |= (byte) (part << (free - take));
+                bitCount += take;
+                bits -= take;
+            }
+        }
+
+        int sizeInBytes() {
+            return (int) ((bitCount + 7) >>> 3);
+        }
+
+        void copyTo(ByteBuffer target) {
+            target.put(buffer, 0, sizeInBytes());
+        }
+
+        void reset() {
+            Arrays.fill(buffer, 0, sizeInBytes(), (byte) 0);
+            bitCount = 0;
+        }
+
+        private void ensureCapacity(long bits) {
+            int bytes = (int) ((bits + 7) >>> 3);
+            if (bytes > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(bytes, buffer.length * 2));
+            }
+        }
+    }
+
+    private static final class BitReader {
+        private final byte[] buffer;
+        private long position;
+
+        BitReader(byte[] buffer, int byteOffset) {
+            this.buffer = buffer;
+            this.position = (long) byteOffset << 3;
+        }
+
+        /** Reads {@code bits} (1..64) bits as an unsigned value. */
+        long read(int bits) {
+            long value = 0;
+            while (bits > 0) {
+                int index = (int) (position >>> 3);
+                int available = 8 - (int) (position & 7);
+                int take = Math.min(available, bits);
+                int part = ((buffer[index] & 0xFF) >>> (available - take)) & ((1 << take) - 1);
+                value = (value << take) | part;
+                position += take;
+                bits -= take;
+            }
+            return value;
+        }
+    }
+}
@@ -0,0 +1,606 @@
+package database;
+
+import com.fhdw.biot.speech.iot.sensor.SampleChunk;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * SampleLog --------- Write-ahead log for raw samples: the ingest path appends here, {@link
+ * SampleLogCompactor} moves the samples into Room later.
+ *
+ * <p>Even batched, every sample costs a B-tree insert (plus index and rollup updates) before it is
+ * durable. An append here is a handful of stores into a memory-mapped file: no system call, no lock
+ * contention with SQLite, no object per sample. The kernel owns the mapped pages, so what was
+ * appended survives a crash of the process (not a power loss before the next {@link
+ * MappedByteBuffer#force()}).
+ *
+ * <p>Layout: a directory of segment files ({@code 0000000000000001.log}, ...), each mapped for its
+ * whole size. A segment starts with a {@link #RECORD_SIZE}-byte header (only the "compacted" flag
+ * is used), followed by fixed-width records (big endian):
+ *
+ * <pre>
+ *   long  timestampNanos
+ *   float x, y, z
+ *   int   sensor + 1   0 = nothing written yet
+ * </pre>
+ *
+ * The sensor field is written LAST, so a record cut off by a crash reads as "end of data", like the
+ * length field of the offline MQTT spool.
+ *
+ * <p>Life of a segment: the compactor creates and maps its file ahead of time ({@link
+ * #prepareNextSegment()}); the head takes appends until it is full or spans {@link
+ * Config#maxSegmentSpanMs}; then it is sealed and the prepared segment takes over. The appending
+ * (MQTT) thread creates and maps a file only if none was prepared, and never forces one to disk:
+ * sealed segments are forced when they are compacted. Sealed segments are handed to the compactor
+ * ({@link #compactInto}), flagged once they are in Room ({@link #markCompacted}) and deleted when
+ * they are older than {@link Config#retainMs} ({@link #deleteCompactedBefore}). Until then the
+ * newest minutes can be read straight from the mapping ({@link #snapshot()}). Segments found on
+ * disk at startup are sealed; a new head is started on the next append.
+ *
+ * <p>Samples of one sensor must be appended in time order (IngestionService stamps them strictly
+ * increasing per topic); reads rely on it.
+ *
+ * <p>Threading: thread-safe; the lock is held only briefly, file creation and force() run without
+ * it. A {@link Snapshot} is read without the lock.
+ */
+public final class SampleLog implements Closeable {
+
+    /** Problems the log works around, e.g. a file it could not delete. */
+    public interface ErrorListener {
+        /**
+         * @param cause null if there is no exception.
+         */
+        void onError(String message, Exception cause);
+    }
+
+    /** Tuning values. Setters return {@code this} so a config can be built in one expression. */
+    public static class Config {
+        int segmentRecords = 1 << 16;
+        long maxSegmentSpanMs = 10_000;
+        long retainMs = 5 * 60_000;
+        ErrorListener errorListener = (message, cause) -> {};
+
+        /** Records per segment file (24 bytes each). */
+        public Config setSegmentRecords(int segmentRecords) {
+            this.segmentRecords = Math.max(1, segmentRecords);
+            return this;
+        }
+
+        /** The head is sealed once its samples span more than this; bounds the delay to Room. */
+        public Config setMaxSegmentSpanMs(long maxSegmentSpanMs) {
+            this.maxSegmentSpanMs = Math.max(1, maxSegmentSpanMs);
+            return this;
+        }
+
+        /** How long compacted segments stay readable before they are deleted. */
+        public Config setRetainMs(long retainMs) {
+            this.retainMs = Math.max(0, retainMs);
+            return this;
+        }
+
+        /** Gets the problems the log works around; SampleLogCompactor logs them. */
+        public Config setErrorListener(ErrorListener errorListener) {
+            this.errorListener = errorListener;
+            return this;
+        }
+
+        public long getMaxSegmentSpanMs() {
+            return maxSegmentSpanMs;
+        }
+
+        public long getRetainMs() {
+            return retainMs;
+        }
+    }
+
+    /** Receives the records of a segment. */
+    public interface RecordVisitor {
+        void visit(int sensor, long timestampNanos, float x, float y, float z);
+    }
+
+    /** Bytes per record (and of the segment header). */
+    public static final int RECORD_SIZE = 8 + 3 * 4 + 4;
+
+    private static final int SENSORS = 3;
+    private static final String SUFFIX = ".log";
+    private static final int COMPACTED_OFFSET = 0;
+
+    /** One segment file, mapped for its whole size. */
+    public static final class Segment {
+        private final long sequence;
+        private final File file;
+        private final MappedByteBuffer buffer;
+        private final long[] minNanos = new long[SENSORS];
+        private final long[] maxNanos = new long[SENSORS];
+        private int records;
+        private boolean sealed;
+        private boolean compacted;
+
+        private Segment(long sequence, File file, MappedByteBuffer buffer) {
+            this.sequence = sequence;
+            this.file = file;
+            this.buffer = buffer;
+            Arrays.fill(minNanos, Long.MAX_VALUE);
+            Arrays.fill(maxNanos, Long.MIN_VALUE);
+        }
+
+        public long getSequence() {
+            return sequence;
+        }
+
+        public int getRecordCount() {
+            return records;
+        }
+
+        /** Visits the records in append order. Only for sealed segments (no concurrent writer). */
+        public void forEach(RecordVisitor visitor) {
+            for (int i = 0; i < records; i++) {
+                int position = offset(i);
+                visitor.visit(
+                        buffer.getInt(position + 20) - 1,
+                        buffer.getLong(position),
+                        buffer.getFloat(position + 8),
+                        buffer.getFloat(position + 12),
+                        buffer.getFloat(position + 16));
+            }
+        }
+
+        private long newestNanos() {
+            long newest = Long.MIN_VALUE;
+            for (long nanos : maxNanos) newest = Math.max(newest, nanos);
+            return newest;
+        }
+
+        private long oldestNanos() {
+            long oldest = Long.MAX_VALUE;
+            for (long nanos : minNanos) oldest = Math.min(oldest, nanos);
+            return oldest;
+        }
+    }
+
+    private final File directory;
+    private final Config config;
+
+    /** Oldest first; the last one is the head while it is not sealed. */
+    private final ArrayDeque<Segment> segments = new ArrayDeque<>();
+
+    /** Created and mapped by {@link #prepareNextSegment()}; the next head. */
+    private Segment prepared;
+
+    private long nextSequence = 1;
+    private long appendedCount;
+    private long compactedCount;
+
+    /**
+     * Opens the log in {@code directory} and recovers what an earlier process left there.
+     *
+     * @throws IOException if the directory or a segment cannot be created or mapped.
+     */
+    public SampleLog(File directory, Config config) throws IOException {
+        this.directory = directory;
+        this.config = config;
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create sample log directory " + directory);
+        }
+
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(SUFFIX));
+        if (files != null) {
+            Arrays.sort(files); // zero-padded names → numeric order
+            for (File file : files) {
+                long sequence = Long.parseLong(file.getName().replace(SUFFIX, ""));
+                nextSequence = sequence + 1;
+                if (file.length() < RECORD_SIZE) {
+                    // Crashed while it was created; holds nothing.
+                    if (!file.delete()) config.errorListener.onError("Cannot delete " + file, null);
+                    continue;
+                }
+                Segment segment = new Segment(sequence, file, map(file, file.length()));
+                scan(segment);
+                segment.sealed = true;
+                segments.addLast(segment);
+            }
+        }
+    }
+
+    // ------------------------------------------------------------
+    // Write side
+    // ------------------------------------------------------------
+
+    /**
+     * Appends one sample of {@code sensor} (SensorReading.ACCEL etc.).
+     *
+     * @return false if no segment could be created; the sample is not in the log then.
+     */
+    public synchronized boolean append(int sensor, long timestampNanos, float x, float y, float z) {
+        Segment head = head();
+        if (head != null
+                && (head.records == config.segmentRecords
+                        || timestampNanos - head.oldestNanos()
+                                > config.maxSegmentSpanMs * 1_000_000L)) {
+            seal(head);
+            head = null;
+        }
+        if (head == null) {
+            head = prepared;
+            prepared = null;
+            if (head != null) {
+                segments.addLast(head);
+            } else {
+                // Nothing prepared (first append, or the compactor is behind).
+                try {
+                    head = roll();
+                } catch (IOException e) {
+                    config.errorListener.onError("Cannot start a segment", e);
+                    return false;
+                }
+            }
+        }
+
+        MappedByteBuffer buffer = head.buffer;
+        int position = offset(head.records);
+        buffer.putLong(position, timestampNanos);
+        buffer.putFloat(position + 8, x);
+        buffer.putFloat(position + 12, y);
+        buffer.putFloat(position + 16, z);
+        buffer.putInt(position + 20, sensor + 1); // publish the record
+
+        head.records++;
+        head.minNanos[sensor] = Math.min(head.minNanos[sensor], timestampNanos);
+        head.maxNanos[sensor] = Math.max(head.maxNanos[sensor], timestampNanos);
+        appendedCount++;
+        return true;
+    }
+
+    /** Seals the head if it holds anything, so the compactor can pick it up (e.g. at shutdown). */
+    public synchronized void seal() {
+        Segment head = head();
+        if (head != null && head.records > 0) seal(head);
+    }
+
+    /** Seals the head if its oldest sample is older than {@code cutoffNanos} (idle input). */
+    public synchronized void sealIfOlderThan(long cutoffNanos) {
+        Segment head = head();
+        if (head != null && head.records > 0 && head.oldestNanos() < cutoffNanos) seal(head);
+    }
+
+    private Segment head() {
+        Segment last = segments.peekLast();
+        return last == null || last.sealed ? null : last;
+    }
+
+    private void seal(Segment segment) {
+        segment.sealed = true; // forced by compactInto, off the appending thread
+    }
+
+    private Segment roll() throws IOException {
+        long sequence = nextSequence++;
+        Segment segment = create(sequence);
+        segments.addLast(segment);
+        return segment;
+    }
+
+    /**
+     * Creates and maps the file of the next head, so that the append that fills the current one
+     * only switches over. Call from the compactor's thread after each compaction; the file is
+     * created without the lock. Does nothing while a prepared segment waits.
+     *
+     * @throws IOException if the file cannot be created or mapped; append then tries itself.
+     */
+    public void prepareNextSegment() throws IOException {
+        long sequence;
+        synchronized (this) {
+            if (prepared != null) return;
+            sequence = nextSequence++;
+        }
+        Segment segment = create(sequence);
+        synchronized (this) {
+            Segment last = segments.peekLast();
+            // An append that could not wait rolled a newer one meanwhile.
+            if (prepared == null && (last == null || last.sequence < sequence)) {
+                prepared = segment;
+                return;
+            }
+        }
+        if (!segment.file.delete()) {
+            config.errorListener.onError("Cannot delete " + segment.file, null);
+        }
+    }
+
+    private Segment create(long sequence) throws IOException {
+        File file = new File(directory, String.format(Locale.US, "%016d%s", sequence, SUFFIX));
+        return new Segment(sequence, file, map(file, offset(config.segmentRecords)));
+    }
+
+    // ------------------------------------------------------------
+    // Compaction
+    // ------------------------------------------------------------
+
+    /** Oldest sealed segment that is not in Room yet, or null. */
+    public synchronized Segment nextToCompact() {
+        for (Segment segment : segments) {
+            if (!segment.sealed) return null;
+            if (!segment.compacted) return segment;
+        }
+        return null;
+    }
+
+    /**
+     * Records that {@code segment} is in Room; it stays readable until {@link
+     * #deleteCompactedBefore}. The flag is forced to disk without the lock: a sealed segment has no
+     * writer.
+     */
+    public void markCompacted(Segment segment) {
+        segment.buffer.putInt(COMPACTED_OFFSET, 1);
+        segment.buffer.force();
+        synchronized (this) {
+            segment.compacted = true;
+            compactedCount += segment.records;
+        }
+    }
+
+    /** Where {@link #compactInto} puts sealed segments; SampleLogCompactor writes into Room. */
+    public interface SegmentStore {
+        /** Sequence of the newest segment already stored, 0 if none (sequences start at 1). */
+        long storedThrough();
+
+        /**
+         * Sequence of the newest segment handed to {@link #store}, stored or still buffered by the
+         * store (e.g. in an open block). Never below {@link #storedThrough()}.
+         */
+        default long takenThrough() {
+            return storedThrough();
+        }
+
+        /**
+         * Stores {@code segment} and records its sequence as {@link #storedThrough()}, atomically;
+         * a buffering store may do that later, with a following segment.
+         *
+         * @return false if it failed; everything after {@link #storedThrough()} is offered again on
+         *     the next call.
+         */
+        boolean store(Segment segment);
+    }
+
+    /**
+     * Hands the sealed segments after {@link SegmentStore#takenThrough()} to {@code store} in
+     * order, then marks those up to {@link SegmentStore#storedThrough()} compacted. Stops at the
+     * first failed store.
+     *
+     * <p>A segment is only marked once the store has it for good: one the store still buffers stays
+     * pending (and readable) here, and one stored before a crash hit ahead of {@link
+     * #markCompacted} is not handed over again, which would duplicate its rows and count it twice
+     * in the rollups.
+     *
+     * <p>Call from one thread; the store runs without the lock, so appends go on meanwhile.
+     *
+     * @return the number of segments handed to the store.
+     */
+    public int compactInto(SegmentStore store) {
+        int handed = 0;
+        Segment segment;
+        while ((segment = nextToCompactAfter(store.takenThrough())) != null) {
+            segment.buffer.force(); // sealed: no writer, no lock needed
+            if (!store.store(segment)) break;
+            handed++;
+        }
+        markCompactedThrough(store.storedThrough());
+        return handed;
+    }
+
+    /** Marks the sealed segments up to sequence {@code through} compacted. */
+    public void markCompactedThrough(long through) {
+        List<Segment> stored = new ArrayList<>();
+        synchronized (this) {
+            for (Segment segment : segments) {
+                if (!segment.sealed || segment.sequence > through) break;
+                if (!segment.compacted) stored.add(segment);
+            }
+        }
+        for (Segment segment : stored) markCompacted(segment);
+    }
+
+    private synchronized Segment nextToCompactAfter(long sequence) {
+        for (Segment segment : segments) {
+            if (!segment.sealed) return null;
+            if (!segment.compacted && segment.sequence > sequence) return segment;
+        }
+        return null;
+    }
+
+    /**
+     * Deletes compacted segments whose newest sample is older than {@code cutoffNanos}, oldest
+     * first. A {@link Snapshot} taken before keeps reading the deleted mapping.
+     *
+     * <p>The newest segment always stays: its file name carries the sequence over to the next
+     * start, and a sequence must never be handed out twice ({@link SegmentStore#storedThrough()}).
+     *
+     * @return the number of segments deleted.
+     */
+    public synchronized int deleteCompactedBefore(long cutoffNanos) {
+        int deleted = 0;
+        while (segments.size() > 1) {
+            Segment oldest = segments.peekFirst();
+            if (!oldest.compacted || oldest.newestNanos() >= cutoffNanos) break;
+            segments.pollFirst();
+            if (!oldest.file.delete()) {
+                config.errorListener.onError("Cannot delete " + oldest.file, null);
+            }
+            deleted++;
+        }
+        return deleted;
+    }
+
+    // ------------------------------------------------------------
+    // Read side
+    // ------------------------------------------------------------
+
+    /**
+     * The records appended so far, readable without the lock. Appends after this call are not part
+     * of it; segments deleted after this call stay readable through it.
+     */
+    public synchronized Snapshot snapshot() {
+        Snapshot snapshot = new Snapshot(segments.size());
+        for (Segment segment : segments) snapshot.add(segment);
+        return snapshot;
+    }
+
+    /** Read view of the log at one point in time, see {@link #snapshot()}. */
+    public static final class Snapshot {
+        private final Segment[] segments;
+        private final int[] counts;
+        // Copies: the head's bounds keep changing after the snapshot.
+        private final long[][] minNanos;
+        private final long[][] maxNanos;
+        private int size;
+
+        private Snapshot(int capacity) {
+            segments = new Segment[capacity];
+            counts = new int[capacity];
+            minNanos = new long[capacity][];
+            maxNanos = new long[capacity][];
+        }
+
+        private void add(Segment segment) {
+            segments[size] = segment;
+            counts[size] = segment.records;
+            minNanos[size] = segment.minNanos.clone();
+            maxNanos[size] = segment.maxNanos.clone();
+            size++;
+        }
+
+        /**
+         * Oldest timestamp (ns) of {@code sensor} in this snapshot, {@link Long#MAX_VALUE} if there
+         * is none. Everything of the sensor from there on is in the snapshot.
+         */
+        public long oldestTimestampNanos(int sensor) {
+            for (int i = 0; i < size; i++) {
+                if (minNanos[i][sensor] != Long.MAX_VALUE) return minNanos[i][sensor];
+            }
+            return Long.MAX_VALUE;
+        }
+
+        /**
+         * Adds the samples of {@code sensor} with {@code fromNanos <= timestamp <= toNanos} to
+         * {@code chunk}, straight from the mapped segments, handing it to {@code consumer} (and
+         * clearing it) whenever it is full. A partly filled chunk is left for the caller.
+         *
+         * @return the number of samples added.
+         */
+        public long read(
+                int sensor,
+                long fromNanos,
+                long toNanos,
+                SampleChunk chunk,
+                SampleChunk.Consumer consumer) {
+            long added = 0;
+            int tag = sensor + 1;
+            for (int s = 0; s < size; s++) {
+                if (maxNanos[s][sensor] < fromNanos || minNanos[s][sensor] > toNanos) continue;
+                ByteBuffer buffer = segments[s].buffer;
+                for (int i = 0; i < counts[s]; i++) {
+                    int position = offset(i);
+                    if (buffer.getInt(position + 20) != tag) continue;
+                    long nanos = buffer.getLong(position);
+                    if (nanos < fromNanos || nanos > toNanos) continue;
+                    chunk.add(
+                            nanos,
+                            buffer.getFloat(position + 8),
+                            buffer.getFloat(position + 12),
+                            buffer.getFloat(position + 16));
+                    added++;
+                    if (chunk.isFull()) {
+                        consumer.accept(chunk);
+                        chunk.clear();
+                    }
+                }
+            }
+            return added;
+        }
+    }
+
+    // ------------------------------------------------------------
+    // Status
+    // ------------------------------------------------------------
+
+    /** Segment files currently on disk. */
+    public synchronized int getSegmentCount() {
+        return segments.size();
+    }
+
+    public synchronized long getAppendedCount() {
+        return appendedCount;
+    }
+
+    public synchronized long getCompactedCount() {
+        return compactedCount;
+    }
+
+    /** Records not in Room yet (sealed or in the head). */
+    public synchronized long getPendingCount() {
+        long pending = 0;
+        for (Segment segment : segments) {
+            if (!segment.compacted) pending += segment.records;
+        }
+        return pending;
+    }
+
+    /** Flushes the head segment to disk. The prepared segment holds nothing. */
+    @Override
+    public synchronized void close() {
+        Segment head = head();
+        if (head != null) head.buffer.force();
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                Locale.US,
+                "segments=%d appended=%d compacted=%d pending=%d",
+                getSegmentCount(),
+                getAppendedCount(),
+                getCompactedCount(),
+                getPendingCount());
+    }
+
+    // ------------------------------------------------------------
+    // Helpers
+    // ------------------------------------------------------------
+
+    /** Byte offset of record {@code index}, behind the header. */
+    private static int offset(int index) {
+        return RECORD_SIZE + index * RECORD_SIZE;
+    }
+
+    private static MappedByteBuffer map(File file, long size) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw");
+                FileChannel channel = raf.getChannel()) {
+            // The mapping stays valid after the channel is closed (and after the file is deleted).
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+    }
+
+    /** Restores count, time bounds and compacted flag of a recovered segment. */
+    private static void scan(Segment segment) {
+        MappedByteBuffer buffer = segment.buffer;
+        segment.compacted = buffer.getInt(COMPACTED_OFFSET) == 1;
+        while (offset(segment.records) + RECORD_SIZE <= buffer.capacity()) {
+            int position = offset(segment.records);
+            int sensor = buffer.getInt(position + 20) - 1;
+            if (sensor < 0 || sensor >= SENSORS) break;
+            long nanos = buffer.getLong(position);
+            segment.minNanos[sensor] = Math.min(segment.minNanos[sensor], nanos);
+            segment.maxNanos[sensor] = Math.max(segment.maxNanos[sensor], nanos);
+            segment.records++;
+        }
+    }
+}
@@ -0,0 +1,314 @@
+package database;
+
+import android.content.Context;
+import android.util.Log;
+import database.entities.AccelData;
+import database.entities.CompactionWatermark;
+import database.entities.EreignisData;
+import database.entities.GyroData;
+import database.entities.MagnetData;
+import database.entities.SensorBlock;
+import database.entities.SensorReading;
+import database.entities.SensorRollup;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SampleLogCompactor ------------------ Owns the process-wide {@link SampleLog} and moves its
+ * sealed segments into Room in the background.
+ *
+ * <p>Every {@link #COMPACT_INTERVAL_MS} it seals a head that has been idle for a whole segment
+ * span, prepares the file of the next head ({@link SampleLog#prepareNextSegment()}), writes each
+ * sealed segment as one transaction of raw samples plus rollups and deletes compacted segments
+ * older than {@link SampleLog.Config#getRetainMs()}. The raw samples become rows ({@link
+ * SensorBatchWriter#write}) or, with {@link #KEY_BLOCK_STORAGE} set, compressed {@link
+ * BlockSampleStore} blocks; blocks span several segments, so {@link BlockSegmentStore} commits a
+ * segment once its blocks are sealed. If the transaction fails the segment stays pending and is
+ * retried on the next tick, so nothing is lost while the database is busy or full.
+ *
+ * <p>Every transaction also records the newest segment it completes as the {@link
+ * CompactionWatermark}. After a crash between the commit and {@link SampleLog#markCompacted} the
+ * segment is therefore only flagged, not written again ({@link SampleLog#compactInto}): no
+ * duplicate rows, no rollups counted twice.
+ *
+ * <p>Threading: compaction runs on its own single thread; {@link #getLog()} may be used from any
+ * thread.
+ */
+public class SampleLogCompactor {
+
+    private static final String TAG = "SampleLogCompactor";
+
+    public static final long COMPACT_INTERVAL_MS = 2_000;
+
+    /** Boolean in the "GraphSettings" preferences: compact into blocks instead of rows. */
+    public static final String KEY_BLOCK_STORAGE = "block_storage";
+
+    private static volatile SampleLogCompactor INSTANCE;
+
+    /** Null if the log could not be opened; ingest then writes through SensorBatchWriter. */
+    private final SampleLog log;
+
+    private final SampleLog.Config config;
+    private final SensorBatchWriter writer;
+    private final DB db;
+
+    /** Block engine; only used on the compaction thread. */
+    private final BlockSegmentStore blocks;
+
+    private volatile boolean blockStorage;
+
+    /** Watermark of the last segment written as rows (compaction thread). */
+    private long rowsStoredThrough;
+
+    /** Room side of {@link SampleLog#compactInto}. */
+    private final SampleLog.SegmentStore store =
+            new SampleLog.SegmentStore() {
+                @Override
+                public long storedThrough() {
+                    return Math.max(rowsStoredThrough, blocks.storedThrough());
+                }
+
+                @Override
+                public long takenThrough() {
+                    return Math.max(rowsStoredThrough, blocks.takenThrough());
+                }
+
+                @Override
+                public boolean store(SampleLog.Segment segment) {
+                    if (blockStorage) return blocks.store(segment);
+                    // Switched to rows: the segments still in open blocks come first.
+                    if (!blocks.storeAll() || !writeRows(segment)) return false;
+                    rowsStoredThrough = segment.getSequence();
+                    return true;
+                }
+            };
+
+    private final ScheduledExecutorService executor =
+            Executors.newSingleThreadScheduledExecutor(r -> new Thread(r, "sample-log-compactor"));
+
+    private ScheduledFuture<?> schedule;
+
+    /** Returns the app-wide compactor (one per process, like {@link DB#getDatabase(Context)}). */
+    public static SampleLogCompactor getInstance(final Context context) {
+        if (INSTANCE == null) {
+            synchronized (SampleLogCompactor.class) {
+                if (INSTANCE == null) {
+                    SampleLog.Config config =
+                            new SampleLog.Config()
+                                    .setErrorListener(
+                                            (message, cause) ->
+                                                    Log.w(TAG, "Sample log: " + message, cause));
+                    SampleLog log = null;
+                    try {
+                        log = new SampleLog(new File(context.getFilesDir(), "sample-log"), config);
+                    } catch (IOException e) {
+                        Log.e(TAG, "Sample log unavailable: " + e.getMessage(), e);
+                    }
+                    boolean blockStorage =
+                            context.getSharedPreferences("GraphSettings", Context.MODE_PRIVATE)
+                                    .getBoolean(KEY_BLOCK_STORAGE, false);
+                    INSTANCE =
+                            new SampleLogCompactor(
+                                    log,
+                                    config,
+                                    SensorBatchWriter.getInstance(context),
+                                    DB.getDatabase(context),
+                                    blockStorage);
+                }
+            }
+        }
+        return INSTANCE;
+    }
+
+    SampleLogCompactor(
+            SampleLog log,
+            SampleLog.Config config,
+            SensorBatchWriter writer,
+            DB db,
+            boolean blockStorage) {
+        this.log = log;
+        this.config = config;
+        this.writer = writer;
+        this.db = db;
+        this.blocks =
+                new BlockSegmentStore(
+                        new BlockSampleStore(
+                                new RoomBlockStorage(db.sensorDao()),
+                                BlockSampleStore.DEFAULT_BLOCK_MS),
+                        new RoomBlockTarget());
+        this.blockStorage = blockStorage;
+    }
+
+    public SampleLog getLog() {
+        return log;
+    }
+
+    /**
+     * Selects the storage engine for the segments compacted from now on. Readers merge both ({@link
+     * SampleStreams}), so switching never hides data.
+     */
+    public void setBlockStorage(boolean blockStorage) {
+        this.blockStorage = blockStorage;
+    }
+
+    /** Starts the periodic compaction (idempotent); the first run picks up recovered segments. */
+    public synchronized void start() {
+        if (log == null || schedule != null) return;
+        schedule =
+                executor.scheduleWithFixedDelay(
+                        () -> compact(false), 0, COMPACT_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Seals the head and the open blocks and compacts everything, asynchronously (e.g. when ingest
+     * stops).
+     */
+    public void flush() {
+        if (log == null) return;
+        executor.execute(
+                () -> {
+                    log.seal();
+                    compact(true);
+                });
+    }
+
+    private void compact(boolean sealBlocks) {
+        // Never let an exception cancel the periodic task.
+        try {
+            long now = System.currentTimeMillis() * 1_000_000L;
+            log.sealIfOlderThan(now - config.getMaxSegmentSpanMs() * 1_000_000L);
+
+            log.compactInto(store); // a failed segment is retried next tick
+            try {
+                log.prepareNextSegment(); // the ingest thread only switches to it
+            } catch (IOException e) {
+                Log.w(TAG, "Next segment not prepared: " + e.getMessage(), e);
+            }
+
+            // Blocks whose window is over (all of them on flush) although no segment came.
+            if (sealBlocks ? blocks.storeAll() : blocks.storeBefore(now)) {
+                log.markCompactedThrough(store.storedThrough());
+            }
+
+            int deleted = log.deleteCompactedBefore(now - config.getRetainMs() * 1_000_000L);
+            if (deleted > 0) Log.d(TAG, "Deleted " + deleted + " segments, " + log);
+        } catch (Exception e) {
+            Log.e(TAG, "Compaction failed: " + e.getMessage(), e);
+        }
+    }
+
+    /** One transaction: the segment's rows, its rollups and the watermark. */
+    private boolean writeRows(SampleLog.Segment segment) {
+        List<AccelData> accel = new ArrayList<>();
+        List<GyroData> gyro = new ArrayList<>();
+        List<MagnetData> magnet = new ArrayList<>();
+        segment.forEach(
+                (sensor, nanos, x, y, z) -> {
+                    long t = Math.floorDiv(nanos, 1_000_000L);
+                    switch (sensor) {
+                        case SensorReading.ACCEL:
+                            AccelData accelData = new AccelData();
+                            accelData.timestamp = t;
+                            accelData.timestampNanos = nanos;
+                            accelData.accelX = x;
+                            accelData.accelY = y;
+                            accelData.accelZ = z;
+                            accel.add(accelData);
+                            break;
+                        case SensorReading.GYRO:
+                            GyroData gyroData = new GyroData();
+                            gyroData.timestamp = t;
+                            gyroData.timestampNanos = nanos;
+                            gyroData.gyroX = x;
+                            gyroData.gyroY = y;
+                            gyroData.gyroZ = z;
+                            gyro.add(gyroData);
+                            break;
+                        case SensorReading.MAGNET:
+                            MagnetData magnetData = new MagnetData();
+                            magnetData.timestamp = t;
+                            magnetData.timestampNanos = nanos;
+                            magnetData.magnetX = x;
+                            magnetData.magnetY = y;
+                            magnetData.magnetZ = z;
+                            magnet.add(magnetData);
+                            break;
+                    }
+                });
+
+        try {
+            // SensorBatchWriter's transaction joins this one.
+            db.runInTransaction(
+                    () -> {
+                        writer.write(accel, gyro, magnet, Collections.<EreignisData>emptyList());
+                        saveWatermark(segment.getSequence());
+                    });
+            return true;
+        } catch (Exception e) {
+            Log.e(
+                    TAG,
+                    "Segment "
+                            + segment.getSequence()
+                            + " ("
+                            + segment.getRecordCount()
+                            + " rows) not written: "
+                            + e.getMessage(),
+                    e);
+            return false;
+        }
+    }
+
+    private void saveWatermark(long sequence) {
+        db.sensorDao()
+                .replaceCompactionWatermark(
+                        new CompactionWatermark(CompactionWatermark.SAMPLE_LOG, sequence));
+    }
+
+    /** Room side of {@link BlockSegmentStore}. */
+    private final class RoomBlockTarget implements BlockSegmentStore.Target {
+        @Override
+        public long loadWatermark() {
+            Long sequence = db.sensorDao().loadCompactionWatermark(CompactionWatermark.SAMPLE_LOG);
+            return sequence != null ? sequence : 0;
+        }
+
+        @Override
+        public List<SensorBlock> loadNewestBlocks(int sensor) {
+            return db.sensorDao().loadNewestBlocks(sensor);
+        }
+
+        /**
+         * One transaction: the sealed blocks, the rollups of the completed segments, the watermark.
+         */
+        @Override
+        public boolean commit(
+                List<SensorBlock> sealed, List<SensorRollup> rollups, long watermark) {
+            try {
+                db.runInTransaction(
+                        () -> {
+                            if (!sealed.isEmpty()) db.sensorDao().insertBlocks(sealed);
+                            if (!rollups.isEmpty()) db.sensorDao().mergeRollups(rollups);
+                            saveWatermark(watermark);
+                        });
+                return true;
+            } catch (Exception e) {
+                Log.e(
+                        TAG,
+                        sealed.size()
+                                + " blocks through segment "
+                                + watermark
+                                + " not written: "
+                                + e.getMessage(),
+                        e);
+                return false;
+            }
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package database;
+
+import android.database.Cursor;
+import com.fhdw.biot.speech.iot.sensor.SampleChunk;
+import com.fhdw.biot.speech.iot.sensor.SensorSample;
+import database.dao.SensorDao;
+import database.entities.SensorReading;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * SampleStreams ------------- Reads a time range of one sensor table straight from the SQLite
+ * cursor into a reused {@link SampleChunk} and hands it out chunk by chunk.
+ *
+ * <p>The {@code get*DataBetween} LiveData queries build one entity object per row and the whole
+ * list before anyone sees the first row, so memory grows with the range. Here no entity is created
+ * and only one chunk is held at a time; the consumer (a streaming downsampler, an exporter, …)
+ * decides what to keep. The cursor itself pages through SQLite with its fixed-size window.
+ *
+ * <p>Raw samples in Room are rows of the sensor's table or, if they were compacted with the block
+ * engine, samples of {@link BlockSampleStore} blocks; both are read and merged by time, so it does
+ * not matter which engine was active when. With a {@link SampleLog}, the newest part of a range is
+ * read from the log's mapped segments instead, which also covers samples the compactor has not
+ * moved into Room yet.
+ *
+ * <p>Threading: blocking, call from a background thread. One-shot: nothing is re-run when the table
+ * changes.
+ */
+public final class SampleStreams {
+
+    /** Rows per chunk: big enough to amortise the consumer call, small enough for the cache. */
+    public static final int DEFAULT_CHUNK_SIZE = 4096;
+
+    private static final long NANOS_PER_MS = 1_000_000L;
+
+    private SampleStreams() {}
+
+    /**
+     * Streams the raw samples of {@code sensor} ({@link SensorReading#ACCEL} etc.) with {@code from
+     * <= timestamp <= to}, rows and blocks merged, in timestamp order.
+     *
+     * @return the number of rows streamed.
+     */
+    public static long streamBetween(
+            SensorDao dao,
+            int sensor,
+            long from,
+            long to,
+            SampleChunk chunk,
+            SampleChunk.Consumer consumer) {
+        return streamBetween(dao, null, sensor, from, to, chunk, consumer);
+    }
+
+    /**
+     * Same as {@link #streamBetween(SensorDao, int, long, long, SampleChunk,
+     * SampleChunk.Consumer)}, but the part of the range that is still in {@code log} (the last
+     * minutes, partly not in Room yet) is read straight from its mapped segments; only older rows
+     * come from Room. {@code log} may be null.
+     */
+    public static long streamBetween(
+            SensorDao dao,
+            SampleLog log,
+            int sensor,
+            long from,
+            long to,
+            SampleChunk chunk,
+            SampleChunk.Consumer consumer) {
+        // Snapshot first: segments compacted and deleted meanwhile stay readable through it.
+        SampleLog.Snapshot snapshot = log == null ? null : log.snapshot();
+        long logStart = snapshot == null ? Long.MAX_VALUE : snapshot.oldestTimestampNanos(sensor);
+        long fromNanos = from * NANOS_PER_MS;
+        long toNanos = to * NANOS_PER_MS + NANOS_PER_MS - 1; // whole last millisecond, like BETWEEN
+
+        long rows = 0;
+        chunk.clear();
+        if (fromNanos < logStart) {
+            // Compacted segments are in Room AND in the log; take everything from logStart on
+            // from the log.
+            long roomTo = Math.min(to, Math.floorDiv(logStart, NANOS_PER_MS));
+            Cursor blocks =
+                    dao.streamBlocksBetween(
+                            sensor, from - BlockSampleStore.DEFAULT_BLOCK_MS, from, roomTo);
+            rows +=
+                    drain(
+                            query(dao, sensor, from, roomTo),
+                            blocks,
+                            fromNanos,
+                            toNanos,
+                            logStart,
+                            chunk,
+                            consumer);
+        }
+        if (snapshot != null) rows += snapshot.read(sensor, fromNanos, toNanos, chunk, consumer);
+        if (!chunk.isEmpty()) {
+            consumer.accept(chunk);
+            chunk.clear();
+        }
+        return rows;
+    }
+
+    /**
+     * {@link #streamBetween(SensorDao, SampleLog, int, long, long, SampleChunk,
+     * SampleChunk.Consumer)} collected into a list, for callers that need the samples themselves
+     * (the Room part of the live window, SampleRingBuffer#readRange). One object per sample, so for
+     * short ranges only.
+     */
+    public static List<SensorSample> loadBetween(
+            SensorDao dao, SampleLog log, int sensor, long from, long to) {
+        List<SensorSample> samples = new ArrayList<>();
+        streamBetween(
+                dao,
+                log,
+                sensor,
+                from,
+                to,
+                new SampleChunk(DEFAULT_CHUNK_SIZE),
+                chunk -> {
+                    for (int i = 0; i < chunk.size(); i++) {
+                        SensorSample sample = new SensorSample();
+                        sample.setNanos(
+                                chunk.timestampsNanos[i], chunk.xs[i], chunk.ys[i], chunk.zs[i]);
+                        samples.add(sample);
+                    }
+                });
+        return samples;
+    }
+
+    /**
+     * Drains a cursor with the columns (timestamp, timestampNanos, x, y, z) into {@code chunk} and
+     * closes it. The last, partly filled chunk is delivered as well.
+     */
+    public static long readChunks(Cursor cursor, SampleChunk chunk, SampleChunk.Consumer consumer) {
+        chunk.clear();
+        long rows =
+                drain(
+                        cursor,
+                        null,
+                        Long.MIN_VALUE,
+                        Long.MAX_VALUE,
+                        Long.MAX_VALUE,
+                        chunk,
+                        consumer);
+        if (!chunk.isEmpty()) {
+            consumer.accept(chunk);
+            chunk.clear();
+        }
+        return rows;
+    }
+
+    private static Cursor query(SensorDao dao, int sensor, long from, long to) {
+        switch (sensor) {
+            case SensorReading.ACCEL:
+                return dao.streamAccelDataBetween(from, to);
+            case SensorReading.GYRO:
+                return dao.streamGyroDataBetween(from, to);
+            case SensorReading.MAGNET:
+                return dao.streamMagnetDataBetween(from, to);
+            default:
+                throw new IllegalArgumentException("Unknown sensor: " + sensor);
+        }
+    }
+
+    /**
+     * Merges the rows of {@code cursor} and the samples of the {@code blocks} cursor (columns
+     * firstTimestamp, data; may be null) with {@code fromNanos <= timestamp <= toNanos} by time,
+     * adds those with a timestamp below {@code beforeNanos} to {@code chunk} and closes both
+     * cursors. A partly filled chunk is left for the caller.
+     */
+    private static long drain(
+            Cursor cursor,
+            Cursor blocks,
+            long fromNanos,
+            long toNanos,
+            long beforeNanos,
+            SampleChunk chunk,
+            SampleChunk.Consumer consumer) {
+        long rows = 0;
+        try {
+            SampleChunk block = nextBlock(blocks, fromNanos, toNanos, null);
+            int b = 0;
+            boolean hasRow = cursor.moveToNext();
+            while (hasRow || block != null) {
+                long rowNanos = Long.MAX_VALUE;
+                if (hasRow) {
+                    rowNanos = cursor.getLong(1);
+                    // Same fallback as the entities' getTimestampNanos(): rows from before v7.
+                    if (rowNanos == 0) rowNanos = cursor.getLong(0) * NANOS_PER_MS;
+                }
+
+                long nanos;
+                float x, y, z;
+                if (block != null && block.timestampsNanos[b] <= rowNanos) {
+                    nanos = block.timestampsNanos[b];
+                    x = block.xs[b];
+                    y = block.ys[b];
+                    z = block.zs[b];
+                    if (++b == block.size()) {
+                        block = nextBlock(blocks, fromNanos, toNanos, block);
+                        b = 0;
+                    }
+                } else {
+                    nanos = rowNanos;
+                    x = cursor.getFloat(2);
+                    y = cursor.getFloat(3);
+                    z = cursor.getFloat(4);
+                    hasRow = cursor.moveToNext();
+                }
+
+                if (nanos >= beforeNanos) continue;
+                chunk.add(nanos, x, y, z);
+                rows++;
+                if (chunk.isFull()) {
+                    consumer.accept(chunk);
+                    chunk.clear();
+                }
+            }
+        } finally {
+            cursor.close();
+            if (blocks != null) blocks.close();
+        }
+        return rows;
+    }
+
+    /**
+     * Decodes the next block of {@code blocks} that has samples in range into {@code decoded}
+     * (replaced if too small); null if no such block is left.
+     */
+    private static SampleChunk nextBlock(
+            Cursor blocks, long fromNanos, long toNanos, SampleChunk decoded) {
+        if (blocks == null) return null;
+        while (blocks.moveToNext()) {
+            byte[] data = blocks.getBlob(1);
+            int count = SampleBlockCodec.count(data);
+            // One slot spare: decode() only hands out (and clears) a chunk once it is full.
+            if (decoded == null || decoded.capacity() <= count)
+                decoded = new SampleChunk(count + 1);
+            decoded.clear();
+            SampleBlockCodec.decode(data, fromNanos, toNanos, decoded, c -> {});
+            if (!decoded.isEmpty()) return decoded;
+        }
+        return null;
+    }
+}
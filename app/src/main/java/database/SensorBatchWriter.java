@@ -0,0 +1,251 @@
+package database;
+
+import android.content.Context;
+import android.util.Log;
+import database.dao.SensorDao;
+import database.entities.AccelData;
+import database.entities.EreignisData;
+import database.entities.GyroData;
+import database.entities.MagnetData;
+import database.entities.SensorRollup;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SensorBatchWriter ----------------- Group-commit writer for incoming sensor samples.
+ *
+ * <p>Previously every MQTT message resulted in its own databaseWriteExecutor task with one @Insert
+ * per row, i.e. one SQLite transaction (and fsync) per sample. This class buffers the rows in
+ * memory and writes them together:
+ *
+ * <p>- as soon as {@link #maxBatchSize} rows are pending (size trigger), or - at the latest {@link
+ * #maxLatencyMs} after the first row of a batch arrived (deadline trigger),
+ *
+ * <p>whichever comes first. A batch is written as @Insert List&lt;...&gt; calls inside a single
+ * transaction ({@link SensorDao#insertSamples}). The same transaction adds the batch to the rollup
+ * tables ({@link Rollups}), so aggregates and raw rows never disagree.
+ *
+ * <p>Raw samples normally reach Room through {@link SampleLog} / {@link SampleLogCompactor}, which
+ * reuses {@link #write}; IngestionService only adds them here if the log is unavailable. Events
+ * always go through this writer.
+ *
+ * <p>Threading: add(...) may be called from any thread (it only appends to a list). All database
+ * work happens on the writer's own single thread, so batches are committed in arrival order.
+ */
+public class SensorBatchWriter {
+
+    private static final String TAG = "SensorBatchWriter";
+
+    public static final int DEFAULT_MAX_BATCH_SIZE = 256;
+    public static final long DEFAULT_MAX_LATENCY_MS = 200;
+
+    private static volatile SensorBatchWriter INSTANCE;
+
+    private final DB db;
+    private final SensorDao sensorDao;
+
+    /** Size trigger: flush when this many sample rows are pending. */
+    private final int maxBatchSize;
+
+    /** Deadline trigger: flush at most this many ms after the first pending row. */
+    private final long maxLatencyMs;
+
+    /** Single background thread that performs all flushes. */
+    private final ScheduledExecutorService flushExecutor =
+            Executors.newSingleThreadScheduledExecutor(r -> new Thread(r, "sensor-batch-writer"));
+
+    // ---- pending rows (guarded by lock) -------------------------------------
+    private final Object lock = new Object();
+    private List<AccelData> pendingAccel = new ArrayList<>();
+    private List<GyroData> pendingGyro = new ArrayList<>();
+    private List<MagnetData> pendingMagnet = new ArrayList<>();
+    private List<EreignisData> pendingEreignis = new ArrayList<>();
+    private int pendingCount = 0;
+    private ScheduledFuture<?> deadlineFlush;
+
+    /** Returns the app-wide writer (one per process, like {@link DB#getDatabase(Context)}). */
+    public static SensorBatchWriter getInstance(final Context context) {
+        if (INSTANCE == null) {
+            synchronized (SensorBatchWriter.class) {
+                if (INSTANCE == null) {
+                    INSTANCE =
+                            new SensorBatchWriter(
+                                    DB.getDatabase(context),
+                                    DEFAULT_MAX_BATCH_SIZE,
+                                    DEFAULT_MAX_LATENCY_MS);
+                }
+            }
+        }
+        return INSTANCE;
+    }
+
+    SensorBatchWriter(DB db, int maxBatchSize, long maxLatencyMs) {
+        this.db = db;
+        this.sensorDao = db.sensorDao();
+        this.maxBatchSize = maxBatchSize;
+        this.maxLatencyMs = maxLatencyMs;
+    }
+
+    // ------------------------------------------------------------------------
+    // Producer side
+    // ------------------------------------------------------------------------
+
+    public void add(AccelData data) {
+        synchronized (lock) {
+            pendingAccel.add(data);
+            onRowAdded();
+        }
+    }
+
+    public void add(GyroData data) {
+        synchronized (lock) {
+            pendingGyro.add(data);
+            onRowAdded();
+        }
+    }
+
+    public void add(MagnetData data) {
+        synchronized (lock) {
+            pendingMagnet.add(data);
+            onRowAdded();
+        }
+    }
+
+    /**
+     * Several rows at once (e.g. all samples of one binary frame) under a single lock acquisition.
+     * The list is copied, the caller may reuse it.
+     */
+    public void addAccel(List<AccelData> rows) {
+        synchronized (lock) {
+            pendingAccel.addAll(rows);
+            onRowsAdded(rows.size());
+        }
+    }
+
+    /** See {@link #addAccel(List)}. */
+    public void addGyro(List<GyroData> rows) {
+        synchronized (lock) {
+            pendingGyro.addAll(rows);
+            onRowsAdded(rows.size());
+        }
+    }
+
+    /** See {@link #addAccel(List)}. */
+    public void addMagnet(List<MagnetData> rows) {
+        synchronized (lock) {
+            pendingMagnet.addAll(rows);
+            onRowsAdded(rows.size());
+        }
+    }
+
+    /** Event produced by the rule engine; written in the same transaction as the samples. */
+    public void add(EreignisData data) {
+        synchronized (lock) {
+            pendingEreignis.add(data);
+            onRowAdded();
+        }
+    }
+
+    /** Must be called with {@link #lock} held. Arms the size or deadline trigger. */
+    private void onRowAdded() {
+        onRowsAdded(1);
+    }
+
+    /** Must be called with {@link #lock} held. */
+    private void onRowsAdded(int count) {
+        if (count == 0) return;
+        pendingCount += count;
+
+        if (pendingCount >= maxBatchSize) {
+            if (deadlineFlush != null) {
+                deadlineFlush.cancel(false);
+                deadlineFlush = null;
+            }
+            flushExecutor.execute(this::flushPending);
+        } else if (deadlineFlush == null) {
+            // First row of a new batch → start the latency clock.
+            deadlineFlush =
+                    flushExecutor.schedule(this::flushPending, maxLatencyMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Writes everything that is currently pending, asynchronously on the writer thread. Called from
+     * onDestroy() so nothing buffered is lost when the screen goes away.
+     */
+    public void flush() {
+        flushExecutor.execute(this::flushPending);
+    }
+
+    // ------------------------------------------------------------------------
+    // Writer thread
+    // ------------------------------------------------------------------------
+
+    private void flushPending() {
+        List<AccelData> accel;
+        List<GyroData> gyro;
+        List<MagnetData> magnet;
+        List<EreignisData> ereignisse;
+
+        // Swap the buffers so producers can continue while we write.
+        synchronized (lock) {
+            if (deadlineFlush != null) {
+                deadlineFlush.cancel(false);
+                deadlineFlush = null;
+            }
+            if (pendingCount == 0) {
+                return;
+            }
+
+            accel = pendingAccel;
+            gyro = pendingGyro;
+            magnet = pendingMagnet;
+            ereignisse = pendingEreignis;
+
+            pendingAccel = new ArrayList<>();
+            pendingGyro = new ArrayList<>();
+            pendingMagnet = new ArrayList<>();
+            pendingEreignis = new ArrayList<>();
+            pendingCount = 0;
+        }
+
+        try {
+            write(accel, gyro, magnet, ereignisse);
+        } catch (Exception e) {
+            Log.e(
+                    TAG,
+                    "Batch write failed ("
+                            + (accel.size() + gyro.size() + magnet.size() + ereignisse.size())
+                            + " rows): "
+                            + e.getMessage(),
+                    e);
+        }
+    }
+
+    /**
+     * Writes rows and their rollups in ONE transaction on the calling thread; also used by {@link
+     * SampleLogCompactor}. Throws if the transaction fails.
+     */
+    void write(
+            List<AccelData> accel,
+            List<GyroData> gyro,
+            List<MagnetData> magnet,
+            List<EreignisData> ereignisse) {
+        // Aggregated outside the transaction, only the merge needs the database.
+        List<SensorRollup> rollups = Rollups.of(accel, gyro, magnet);
+        db.runInTransaction(
+                () -> {
+                    sensorDao.insertSamples(accel, gyro, magnet);
+                    if (!rollups.isEmpty()) {
+                        sensorDao.mergeRollups(rollups);
+                    }
+                    if (!ereignisse.isEmpty()) {
+                        sensorDao.insertEreignisData(ereignisse);
+                    }
+                });
+    }
+}
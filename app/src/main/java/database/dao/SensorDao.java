@@ -1,14 +1,23 @@
 package database.dao;
 
+import android.database.Cursor;
 import androidx.lifecycle.LiveData;
 import androidx.room.Dao;
 import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
 import androidx.room.Query;
+import androidx.room.Transaction;
 import database.entities.AccelData;
+import database.entities.CompactionWatermark;
 import database.entities.EreignisData;
+import database.entities.EreignisType;
 import database.entities.GyroData;
 import database.entities.MagnetData;
 import database.entities.Sensor;
+import database.entities.SensorBlock;
+import database.entities.SensorReading;
+import database.entities.SensorRollup;
+import java.util.ArrayList;
 import java.util.List;
 
 // DAta Access Object
@@ -29,40 +38,185 @@ public interface SensorDao {
     @Insert
     void insert(Sensor sensor);
 
-    @Query("SELECT * FROM accel_data Order By timestamp ASC")
-    LiveData<List<AccelData>> getAllAccelData();
+    // Batch inserts used by SensorBatchWriter (one statement, many rows)
+    @Insert
+    void insertAccelData(List<AccelData> data);
 
-    @Query("SELECT * FROM gyro_data ORDER BY timestamp ASC")
-    LiveData<List<GyroData>> getAllGyroData();
+    @Insert
+    void insertGyroData(List<GyroData> data);
 
-    @Query("SELECT * FROM magnet_data ORDER BY timestamp ASC")
-    LiveData<List<MagnetData>> getAllMagnetData();
+    @Insert
+    void insertMagnetData(List<MagnetData> data);
 
-    // Abfragen für die Datumsfilterung
-    @Query("SELECT MIN(timestamp) FROM accel_data")
+    @Insert
+    void insertEreignisData(List<EreignisData> data);
+
+    /**
+     * Writes a whole batch of samples in ONE transaction, so SQLite commits (and syncs) once per
+     * batch instead of once per row.
+     */
+    @Transaction
+    default void insertSamples(
+            List<AccelData> accel, List<GyroData> gyro, List<MagnetData> magnet) {
+        if (!accel.isEmpty()) insertAccelData(accel);
+        if (!gyro.isEmpty()) insertGyroData(gyro);
+        if (!magnet.isEmpty()) insertMagnetData(magnet);
+    }
+
+    // Abfragen für die Datumsfilterung. Rows and compressed blocks (sensor ids as in the
+    // sensor_readings view), whichever storage engine held the oldest sample.
+    @Query(
+            "SELECT MIN(t) FROM (SELECT MIN(timestamp) AS t FROM accel_data UNION ALL SELECT MIN(firstTimestamp) FROM sensor_block WHERE sensor = 0)")
     LiveData<Long> getOldestAccelTimestamp();
 
-    @Query("SELECT MIN(timestamp) FROM gyro_data")
+    @Query(
+            "SELECT MIN(t) FROM (SELECT MIN(timestamp) AS t FROM gyro_data UNION ALL SELECT MIN(firstTimestamp) FROM sensor_block WHERE sensor = 1)")
     LiveData<Long> getOldestGyroTimestamp();
 
-    @Query("SELECT MIN(timestamp) FROM magnet_data")
+    @Query(
+            "SELECT MIN(t) FROM (SELECT MIN(timestamp) AS t FROM magnet_data UNION ALL SELECT MIN(firstTimestamp) FROM sensor_block WHERE sensor = 2)")
     LiveData<Long> getOldestMagnetTimestamp();
 
+    // One-shot range queries (no LiveData: it would re-run the whole query on every batch write;
+    // screens reload through BaseChartActivity#refreshOnTableChanges). Background thread only.
     @Query(
             "SELECT * FROM accel_data WHERE timestamp BETWEEN :startTime AND :endTime ORDER BY timestamp ASC")
-    LiveData<List<AccelData>> getAccelDataBetween(long startTime, long endTime);
+    List<AccelData> loadAccelDataBetween(long startTime, long endTime);
 
     @Query(
             "SELECT * FROM gyro_data WHERE timestamp BETWEEN :startTime AND :endTime ORDER BY timestamp ASC")
-    LiveData<List<GyroData>> getGyroDataBetween(long startTime, long endTime);
+    List<GyroData> loadGyroDataBetween(long startTime, long endTime);
 
     @Query(
             "SELECT * FROM magnet_data WHERE timestamp BETWEEN :startTime AND :endTime ORDER BY timestamp ASC")
-    LiveData<List<MagnetData>> getMagnetDataBetween(long startTime, long endTime);
+    List<MagnetData> loadMagnetDataBetween(long startTime, long endTime);
+
+    // Streaming variants (database.SampleStreams): raw cursor, no entity per row. The caller must
+    // close the cursor; columns are (timestamp, timestampNanos, x, y, z).
+    @Query(
+            "SELECT timestamp, timestampNanos, accelX, accelY, accelZ FROM accel_data WHERE timestamp BETWEEN :startTime AND :endTime ORDER BY timestamp ASC")
+    Cursor streamAccelDataBetween(long startTime, long endTime);
+
+    @Query(
+            "SELECT timestamp, timestampNanos, gyroX, gyroY, gyroZ FROM gyro_data WHERE timestamp BETWEEN :startTime AND :endTime ORDER BY timestamp ASC")
+    Cursor streamGyroDataBetween(long startTime, long endTime);
+
+    @Query(
+            "SELECT timestamp, timestampNanos, magnetX, magnetY, magnetZ FROM magnet_data WHERE timestamp BETWEEN :startTime AND :endTime ORDER BY timestamp ASC")
+    Cursor streamMagnetDataBetween(long startTime, long endTime);
+
+    // Compressed blocks (database.BlockSampleStore). Columns of the cursor: (firstTimestamp, data).
+    @Insert
+    void insertBlocks(List<SensorBlock> blocks);
+
+    @Query(
+            "SELECT firstTimestamp, data FROM sensor_block WHERE sensor = :sensor AND firstTimestamp BETWEEN :minFirst AND :endTime AND lastTimestamp >= :startTime ORDER BY firstTimestamp ASC")
+    Cursor streamBlocksBetween(int sensor, long minFirst, long startTime, long endTime);
+
+    // Where database.BlockSegmentStore resumes: samples up to the newest stored one are skipped.
+    @Query(
+            "SELECT * FROM sensor_block WHERE sensor = :sensor AND lastTimestamp = (SELECT MAX(lastTimestamp) FROM sensor_block WHERE sensor = :sensor)")
+    List<SensorBlock> loadNewestBlocks(int sensor);
+
+    // Compaction watermark (database.SampleLogCompactor): written in the segment's transaction.
+    @Query("SELECT segmentSequence FROM compaction_watermark WHERE id = :id")
+    Long loadCompactionWatermark(int id);
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void replaceCompactionWatermark(CompactionWatermark watermark);
+
+    // All sensors at once through the sensor_readings view (SensorReading).
+    @Query("SELECT COUNT(*) FROM sensor_readings")
+    int countReadings();
+
+    @Query(
+            "SELECT * FROM sensor_readings WHERE timestamp BETWEEN :startTime AND :endTime ORDER BY timestampNanos ASC")
+    List<SensorReading> loadReadingsBetween(long startTime, long endTime);
+
+    // Rollups (database.Rollups): written by SensorBatchWriter, read by long-range charts.
+    @Query(
+            "SELECT * FROM sensor_rollup WHERE sensor = :sensor AND resolutionMs = :resolutionMs AND bucketStart = :bucketStart")
+    SensorRollup loadRollup(int sensor, long resolutionMs, long bucketStart);
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void replaceRollup(SensorRollup rollup);
+
+    /**
+     * Adds partial rollups to the stored ones (read, combine, write back). Runs inside the batch
+     * transaction of SensorBatchWriter; SQLite on API 29 has no UPSERT.
+     */
+    @Transaction
+    default void mergeRollups(List<SensorRollup> rollups) {
+        for (SensorRollup rollup : rollups) {
+            SensorRollup stored =
+                    loadRollup(rollup.sensor, rollup.resolutionMs, rollup.bucketStart);
+            if (stored != null) rollup.merge(stored);
+            replaceRollup(rollup);
+        }
+    }
+
+    @Query(
+            "SELECT * FROM sensor_rollup WHERE sensor = :sensor AND resolutionMs = :resolutionMs AND bucketStart BETWEEN :startTime AND :endTime ORDER BY bucketStart ASC")
+    List<SensorRollup> loadRollupsBetween(
+            int sensor, long resolutionMs, long startTime, long endTime);
+
+    // Retention (database.RetentionEngine): each call deletes at most :limit rows in its own short
+    // transaction and returns how many it deleted.
+    @Query(
+            "DELETE FROM accel_data WHERE id IN (SELECT id FROM accel_data WHERE timestamp < :cutoff LIMIT :limit)")
+    int deleteAccelDataBefore(long cutoff, int limit);
+
+    @Query(
+            "DELETE FROM gyro_data WHERE id IN (SELECT id FROM gyro_data WHERE timestamp < :cutoff LIMIT :limit)")
+    int deleteGyroDataBefore(long cutoff, int limit);
+
+    @Query(
+            "DELETE FROM magnet_data WHERE id IN (SELECT id FROM magnet_data WHERE timestamp < :cutoff LIMIT :limit)")
+    int deleteMagnetDataBefore(long cutoff, int limit);
+
+    // A block goes once its newest sample is older than the cutoff.
+    @Query(
+            "DELETE FROM sensor_block WHERE id IN (SELECT id FROM sensor_block WHERE lastTimestamp < :cutoff LIMIT :limit)")
+    int deleteBlocksBefore(long cutoff, int limit);
+
+    @Query(
+            "DELETE FROM sensor_rollup WHERE rowid IN (SELECT rowid FROM sensor_rollup WHERE resolutionMs = :resolutionMs AND bucketStart < :cutoff LIMIT :limit)")
+    int deleteRollupsBefore(long resolutionMs, long cutoff, int limit);
 
     @Query("SELECT * FROM ereignis_data ORDER BY timestamp ASC")
     List<EreignisData> getAllEreignisData();
 
+    // Threshold rules (NewEreignisActivity / ThresholdRuleEngine)
+    // ereignisID 0 inserts a new rule; an existing ID updates that rule and keeps its ID.
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    List<Long> upsertEreignisTypes(List<EreignisType> types);
+
+    @Query("DELETE FROM ereignis_type WHERE ereignisID NOT IN (:keepIds)")
+    void deleteEreignisTypesExcept(List<Integer> keepIds);
+
+    @Query("SELECT * FROM ereignis_type ORDER BY ereignisID ASC")
+    List<EreignisType> getAllEreignisTypes();
+
+    /**
+     * Saves the rule list of NewEreignisActivity as a whole (the screen edits all rows at once).
+     * Rules keep their ereignisID across saves, so the debounce state and counters of
+     * EreignisEmitter stay with them; rows missing from the list are deleted. New rules get their
+     * generated ID written back into {@code types}.
+     */
+    @Transaction
+    default void replaceEreignisTypes(List<EreignisType> types) {
+        List<Integer> keepIds = new ArrayList<>(types.size());
+        for (EreignisType type : types) {
+            if (type.ereignisID != 0) keepIds.add(type.ereignisID);
+        }
+        deleteEreignisTypesExcept(keepIds);
+        if (types.isEmpty()) return;
+        List<Long> ids = upsertEreignisTypes(types);
+        for (int i = 0; i < types.size(); i++) {
+            types.get(i).ereignisID = ids.get(i).intValue();
+        }
+    }
+
     @Query("SELECT * FROM knownSensors Order By sensorID ASC")
     List<Sensor> getAllKnownSensors();
 }
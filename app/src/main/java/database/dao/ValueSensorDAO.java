@@ -1,28 +0,0 @@
-package database.dao;
-
-import androidx.room.Dao;
-import androidx.room.Delete;
-import androidx.room.Insert;
-import androidx.room.Query;
-import androidx.room.Update;
-import database.entities.ValueSensor;
-import java.util.List;
-
-@Dao
-public interface ValueSensorDAO {
-
-    @Insert
-    void insert(ValueSensor sensor);
-
-    @Update
-    void update(ValueSensor sensor);
-
-    @Delete
-    void delete(ValueSensor sensor);
-
-    @Query("SELECT * FROM sensor WHERE PrimeID = :primeID")
-    ValueSensor getvalueByID(int primeID);
-
-    @Query("SELECT * FROM sensor")
-    List<ValueSensor> getAllvalue();
-}
@@ -1,16 +1,27 @@
 package database.entities;
 
 import androidx.room.Entity;
+import androidx.room.Index;
 import androidx.room.PrimaryKey;
 import com.fhdw.biot.speech.iot.sensor.SensorPoint;
 
-@Entity(tableName = "accel_data")
+@Entity(
+        tableName = "accel_data",
+        indices = {@Index("timestamp")})
 public class AccelData implements SensorPoint {
 
     @PrimaryKey(autoGenerate = true)
     public int id;
 
+    /** Epoch milliseconds; indexed, used by all range queries. */
     public long timestamp;
+
+    /**
+     * The same instant in epoch nanoseconds (sampling time on the receive clock, see
+     * IngestionService). 0 for rows that were built without it.
+     */
+    public long timestampNanos;
+
     public float accelX;
     public float accelY;
     public float accelZ;
@@ -20,6 +31,11 @@ public class AccelData implements SensorPoint {
         return timestamp;
     }
 
+    @Override
+    public long getTimestampNanos() {
+        return timestampNanos != 0 ? timestampNanos : timestamp * 1_000_000L;
+    }
+
     @Override
     public float getX() {
         return accelX;
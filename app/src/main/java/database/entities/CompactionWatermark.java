@@ -0,0 +1,30 @@
+package database.entities;
+
+import androidx.room.Entity;
+import androidx.room.Ignore;
+import androidx.room.PrimaryKey;
+
+/**
+ * CompactionWatermark ------------------- Newest database.SampleLog segment whose samples are in
+ * Room. Written in the same transaction as the segment, so after a crash the compactor knows which
+ * segments it must not write again.
+ */
+@Entity(tableName = "compaction_watermark")
+public class CompactionWatermark {
+
+    /** Row of the app's sample log (the only one). */
+    public static final int SAMPLE_LOG = 1;
+
+    @PrimaryKey public int id;
+
+    /** Sequence of the newest compacted segment. */
+    public long segmentSequence;
+
+    public CompactionWatermark() {}
+
+    @Ignore
+    public CompactionWatermark(int id, long segmentSequence) {
+        this.id = id;
+        this.segmentSequence = segmentSequence;
+    }
+}
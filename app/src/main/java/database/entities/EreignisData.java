@@ -14,6 +14,9 @@ public class EreignisData {
     public float value;
     public char axis;
 
+    // Name of the EreignisType rule that fired (null for rows written before schema 5)
+    public String ereignisName;
+
     public String getSensorType() {
         return sensorType;
     }
@@ -29,4 +32,8 @@ public class EreignisData {
     public char getAxis() {
         return axis;
     }
+
+    public String getEreignisName() {
+        return ereignisName;
+    }
 }
@@ -1,12 +1,41 @@
 package database.entities;
 
+import androidx.room.Entity;
 import androidx.room.PrimaryKey;
 
+/**
+ * One threshold rule configured in NewEreignisActivity: "sensor / axis is ABOVE (or BELOW) the
+ * threshold". Evaluated on every incoming sample by ThresholdRuleEngine; a match is stored as
+ * {@link EreignisData}.
+ */
+@Entity(tableName = "ereignis_type")
 public class EreignisType {
+
+    public static final String ABOVE = "ABOVE";
+    public static final String BELOW = "BELOW";
+
+    /** {@link #axis} value for the magnitude sqrt(x²+y²+z²) ("Summe" in the charts). */
+    public static final char AXIS_MAGNITUDE = 'S';
+
     @PrimaryKey(autoGenerate = true)
     public int ereignisID;
 
     public String ereignisName;
-    public Sensor sensorType;
-    public int ereignisThreshold;
+
+    // "ACCEL", "GYRO" or "MAGNET" (same values as EreignisData.sensorType)
+    public String sensorType;
+
+    // 'X', 'Y', 'Z' or AXIS_MAGNITUDE
+    public char axis;
+
+    // ABOVE or BELOW
+    public String comparison;
+
+    public float ereignisThreshold;
+
+    // Re-arm only after the value moved back by more than this (same unit as the threshold)
+    public float hysteresis;
+
+    // Minimum time between two events of this rule; faster repeats are suppressed
+    public long minRearmMs;
 }
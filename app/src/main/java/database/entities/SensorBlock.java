@@ -0,0 +1,43 @@
+package database.entities;
+
+import androidx.room.Entity;
+import androidx.room.Ignore;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+/**
+ * SensorBlock ----------- Compressed block of raw samples of one sensor (database.BlockSampleStore,
+ * encoded with database.SampleBlockCodec). The timestamps bound the block for range queries.
+ */
+@Entity(
+        tableName = "sensor_block",
+        indices = {@Index({"sensor", "firstTimestamp"})})
+public class SensorBlock {
+
+    @PrimaryKey(autoGenerate = true)
+    public long id;
+
+    /** SensorReading.ACCEL / GYRO / MAGNET. */
+    public int sensor;
+
+    /** Oldest and newest sample in the block (epoch ms). */
+    public long firstTimestamp;
+
+    public long lastTimestamp;
+
+    public int count;
+
+    public byte[] data;
+
+    public SensorBlock() {}
+
+    @Ignore
+    public SensorBlock(
+            int sensor, long firstTimestamp, long lastTimestamp, int count, byte[] data) {
+        this.sensor = sensor;
+        this.firstTimestamp = firstTimestamp;
+        this.lastTimestamp = lastTimestamp;
+        this.count = count;
+        this.data = data;
+    }
+}
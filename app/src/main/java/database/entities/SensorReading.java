@@ -0,0 +1,69 @@
+package database.entities;
+
+import androidx.room.DatabaseView;
+import com.fhdw.biot.speech.iot.sensor.SensorPoint;
+
+/**
+ * SensorReading ------------- Read-only view over the three sensor tables: one row per sample,
+ * whichever sensor it came from, with the sensor id in {@link #sensor}.
+ *
+ * <p>Replaces the old "sensor" table (ValueSensor), which got a second, half-empty copy of every
+ * accel and gyro sample written next to the real row. The view costs nothing on insert; SQLite
+ * reads the per-sensor tables when it is queried.
+ */
+@DatabaseView(viewName = "sensor_readings", value = SensorReading.QUERY)
+public class SensorReading implements SensorPoint {
+
+    // Same numbering as ThresholdRuleEngine.ACCEL / GYRO / MAGNET.
+    public static final int ACCEL = 0;
+    public static final int GYRO = 1;
+    public static final int MAGNET = 2;
+
+    /** View definition; the migration creates the view from the same string. */
+    static final String QUERY =
+            "SELECT 0 AS sensor, timestamp, timestampNanos,"
+                    + " accelX AS x, accelY AS y, accelZ AS z FROM accel_data"
+                    + " UNION ALL"
+                    + " SELECT 1 AS sensor, timestamp, timestampNanos,"
+                    + " gyroX AS x, gyroY AS y, gyroZ AS z FROM gyro_data"
+                    + " UNION ALL"
+                    + " SELECT 2 AS sensor, timestamp, timestampNanos,"
+                    + " magnetX AS x, magnetY AS y, magnetZ AS z FROM magnet_data";
+
+    public int sensor;
+    public long timestamp;
+    public long timestampNanos;
+    public float x;
+    public float y;
+    public float z;
+
+    /** SQL that Room expects for this view (it compares it with sqlite_master on open). */
+    public static String createViewSql() {
+        return "CREATE VIEW `sensor_readings` AS " + QUERY;
+    }
+
+    @Override
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    @Override
+    public long getTimestampNanos() {
+        return timestampNanos != 0 ? timestampNanos : timestamp * 1_000_000L;
+    }
+
+    @Override
+    public float getX() {
+        return x;
+    }
+
+    @Override
+    public float getY() {
+        return y;
+    }
+
+    @Override
+    public float getZ() {
+        return z;
+    }
+}
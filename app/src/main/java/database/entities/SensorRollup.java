@@ -0,0 +1,124 @@
+package database.entities;
+
+import androidx.room.Entity;
+import androidx.room.Ignore;
+
+/**
+ * SensorRollup ------------ Aggregate of all samples of one sensor in one time bucket: count, and
+ * min / max / sum for X, Y, Z and the magnitude. The mean is sum / count, so two partial rollups of
+ * the same bucket can be combined exactly ({@link #merge}).
+ *
+ * <p>Maintained by the ingest writer (see database.Rollups) for every resolution in {@code
+ * Rollups.RESOLUTIONS_MS}; long-range charts read these rows instead of the raw samples.
+ */
+@Entity(
+        tableName = "sensor_rollup",
+        primaryKeys = {"sensor", "resolutionMs", "bucketStart"})
+public class SensorRollup {
+
+    /** SensorReading.ACCEL / GYRO / MAGNET. */
+    public int sensor;
+
+    /** Bucket length in ms. */
+    public long resolutionMs;
+
+    /** Start of the bucket (epoch ms, a multiple of resolutionMs). */
+    public long bucketStart;
+
+    public int count;
+
+    public float minX;
+    public float maxX;
+    public double sumX;
+
+    public float minY;
+    public float maxY;
+    public double sumY;
+
+    public float minZ;
+    public float maxZ;
+    public double sumZ;
+
+    public float minMagnitude;
+    public float maxMagnitude;
+    public double sumMagnitude;
+
+    public SensorRollup() {}
+
+    @Ignore
+    public SensorRollup(int sensor, long resolutionMs, long bucketStart) {
+        this.sensor = sensor;
+        this.resolutionMs = resolutionMs;
+        this.bucketStart = bucketStart;
+    }
+
+    /** Adds one sample of this bucket. */
+    public void add(float x, float y, float z) {
+        float magnitude = (float) Math.sqrt(x * x + y * y + z * z);
+        if (count == 0) {
+            minX = maxX = x;
+            minY = maxY = y;
+            minZ = maxZ = z;
+            minMagnitude = maxMagnitude = magnitude;
+        } else {
+            minX = Math.min(minX, x);
+            maxX = Math.max(maxX, x);
+            minY = Math.min(minY, y);
+            maxY = Math.max(maxY, y);
+            minZ = Math.min(minZ, z);
+            maxZ = Math.max(maxZ, z);
+            minMagnitude = Math.min(minMagnitude, magnitude);
+            maxMagnitude = Math.max(maxMagnitude, magnitude);
+        }
+        sumX += x;
+        sumY += y;
+        sumZ += z;
+        sumMagnitude += magnitude;
+        count++;
+    }
+
+    /** Adds the samples of {@code other} (same sensor, resolution and bucket). */
+    public void merge(SensorRollup other) {
+        if (other.count == 0) return;
+        if (count == 0) {
+            minX = other.minX;
+            maxX = other.maxX;
+            minY = other.minY;
+            maxY = other.maxY;
+            minZ = other.minZ;
+            maxZ = other.maxZ;
+            minMagnitude = other.minMagnitude;
+            maxMagnitude = other.maxMagnitude;
+        } else {
+            minX = Math.min(minX, other.minX);
+            maxX = Math.max(maxX, other.maxX);
+            minY = Math.min(minY, other.minY);
+            maxY = Math.max(maxY, other.maxY);
+            minZ = Math.min(minZ, other.minZ);
+            maxZ = Math.max(maxZ, other.maxZ);
+            minMagnitude = Math.min(minMagnitude, other.minMagnitude);
+            maxMagnitude = Math.max(maxMagnitude, other.maxMagnitude);
+        }
+        sumX += other.sumX;
+        sumY += other.sumY;
+        sumZ += other.sumZ;
+        sumMagnitude += other.sumMagnitude;
+        count += other.count;
+    }
+
+    public float meanX() {
+        return count == 0 ? 0f : (float) (sumX / count);
+    }
+
+    public float meanY() {
+        return count == 0 ? 0f : (float) (sumY / count);
+    }
+
+    public float meanZ() {
+        return count == 0 ? 0f : (float) (sumZ / count);
+    }
+
+    public float meanMagnitude() {
+        return count == 0 ? 0f : (float) (sumMagnitude / count);
+    }
+}
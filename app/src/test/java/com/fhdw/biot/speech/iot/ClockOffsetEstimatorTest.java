@@ -0,0 +1,108 @@
+package com.fhdw.biot.speech.iot;
+
+import static org.junit.Assert.*;
+
+import com.fhdw.biot.speech.iot.ingest.ClockOffsetEstimator;
+import com.fhdw.biot.speech.iot.ingest.ReceiveClock;
+import org.junit.Test;
+
+/** Offset tracking and monotonic output of the per-publisher clock mapping and receive clock. */
+public class ClockOffsetEstimatorTest {
+
+    private static final long MS = 1_000_000L;
+
+    @Test
+    public void keepsDeviceSpacingDespiteQueueingDelay() {
+        ClockOffsetEstimator clock = new ClockOffsetEstimator();
+        long offset = 5_000 * MS; // device clock is 5 s behind ours
+        long[] delays = {3 * MS, 40 * MS, 1 * MS, 25 * MS, 2 * MS}; // queueing jitter
+
+        long previous = Long.MIN_VALUE;
+        for (int i = 0; i < delays.length; i++) {
+            long device = 1_000 * MS + i * 10 * MS;
+            clock.observe(device, device + offset + delays[i]);
+            long local = clock.toLocal(device);
+            assertTrue(local > previous);
+            assertTrue("not after receive", local <= device + offset + delays[i]);
+            previous = local;
+        }
+        // Smallest delay wins: the estimate is offset + 1 ms.
+        assertEquals(offset + MS, clock.getOffsetNanos(), 10_000);
+    }
+
+    @Test
+    public void burstWithoutDeviceTimeStaysStrictlyIncreasing() {
+        ClockOffsetEstimator clock = new ClockOffsetEstimator();
+        long received = 42 * MS;
+        long a = stampReceiveTime(clock, received);
+        long b = stampReceiveTime(clock, received);
+        long c = stampReceiveTime(clock, received);
+        assertEquals(received, a);
+        assertTrue(a < b && b < c);
+    }
+
+    @Test
+    public void resyncsAfterDeviceClockJump() {
+        ClockOffsetEstimator clock = new ClockOffsetEstimator();
+        clock.observe(1_000 * MS, 2_000 * MS);
+        assertEquals(2_000 * MS, clock.toLocal(1_000 * MS));
+
+        // Device rebooted, its clock restarts near zero; we are 10 s further.
+        clock.observe(5 * MS, 12_000 * MS);
+        assertEquals(12_000 * MS, clock.toLocal(5 * MS));
+    }
+
+    @Test
+    public void nowNanosIsMonotonicEpochTime() {
+        long a = ClockOffsetEstimator.nowNanos();
+        long b = ClockOffsetEstimator.nowNanos();
+        assertTrue(b >= a);
+        assertEquals(System.currentTimeMillis(), a / MS, 1_000);
+    }
+
+    @Test
+    public void receiveClockCatchesUpWithWallTimeAfterSleep() {
+        long[] wallMs = {1_700_000_000_000L};
+        long[] monotonic = {5_000 * MS};
+        ReceiveClock clock =
+                new ReceiveClock(
+                        new ReceiveClock.Source() {
+                            @Override
+                            public long wallMillis() {
+                                return wallMs[0];
+                            }
+
+                            @Override
+                            public long monotonicNanos() {
+                                return monotonic[0];
+                            }
+                        });
+        long start = wallMs[0] * MS;
+        assertEquals(start, clock.nowNanos());
+
+        // Awake: sub-millisecond steps from the monotonic clock, wall clock slightly behind.
+        monotonic[0] += 1_500_250;
+        wallMs[0] += 1;
+        assertEquals(start + 1_500_250, clock.nowNanos());
+
+        // Deep sleep: the monotonic clock pauses, the wall clock moves on 30 min.
+        wallMs[0] += 30 * 60_000L;
+        assertEquals(wallMs[0] * MS, clock.nowNanos());
+        monotonic[0] += 10 * MS;
+        wallMs[0] += 10;
+        assertEquals(wallMs[0] * MS, clock.nowNanos());
+        assertEquals(1, clock.getReanchorCount());
+
+        // A wall clock set back is not followed.
+        long before = clock.nowNanos();
+        wallMs[0] -= 60_000;
+        monotonic[0] += MS;
+        assertEquals(before + MS, clock.nowNanos());
+        assertEquals(1, clock.getReanchorCount());
+    }
+
+    private static long stampReceiveTime(ClockOffsetEstimator clock, long received) {
+        clock.observe(received, received);
+        return clock.toLocal(received);
+    }
+}
@@ -0,0 +1,68 @@
+package com.fhdw.biot.speech.iot;
+
+import com.fhdw.biot.speech.iot.graph.DouglasPeukerAlg;
+import com.fhdw.biot.speech.iot.sensor.SensorSample;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * JMH comparison: previous recursive Douglas–Peucker ({@link
+ * DouglasPeukerAlgTest#recursiveSimplify}) vs. the iterative {@link DouglasPeukerAlg}.
+ *
+ * <p>Not a unit test – run it from the IDE via {@link #main(String[])}. The 10M case needs a large
+ * heap (e.g. -Xmx4g in the JMH jvmArgs).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class DouglasPeukerAlgBenchmark {
+
+    @Param({"10000", "1000000", "10000000"})
+    public int points;
+
+    @Param({"0.05"})
+    public float epsilon;
+
+    private List<SensorSample> data;
+
+    @Setup
+    public void setUp() {
+        data = DouglasPeukerAlgTest.noisySignal(new Random(3), points);
+    }
+
+    @Benchmark
+    public List<SensorSample> recursive() {
+        return DouglasPeukerAlgTest.recursiveSimplify(data, epsilon);
+    }
+
+    @Benchmark
+    public List<SensorSample> iterative() {
+        return DouglasPeukerAlg.simplify(data, epsilon);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(
+                        new OptionsBuilder()
+                                .include(DouglasPeukerAlgBenchmark.class.getSimpleName())
+                                .build())
+                .run();
+    }
+}
@@ -0,0 +1,198 @@
+package com.fhdw.biot.speech.iot;
+
+import static org.junit.Assert.*;
+
+import com.fhdw.biot.speech.iot.graph.DouglasPeukerAlg;
+import com.fhdw.biot.speech.iot.sensor.SensorPoint;
+import com.fhdw.biot.speech.iot.sensor.SensorSample;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ * Checks that the iterative {@link DouglasPeukerAlg} returns exactly the same points as the
+ * previous recursive implementation (kept below as {@link #recursiveSimplify}).
+ */
+public class DouglasPeukerAlgTest {
+
+    private static final float[] EPSILONS = {0f, 0.001f, 0.05f, 0.5f, 2f, 10f, 1000f};
+
+    @Test
+    public void matchesRecursiveVersionOnNoisySignal() {
+        Random random = new Random(7);
+        for (int run = 0; run < 20; run++) {
+            List<SensorSample> pts = noisySignal(random, 2_000 + random.nextInt(3_000));
+            for (float epsilon : EPSILONS) {
+                assertSameResult(pts, epsilon);
+            }
+        }
+    }
+
+    @Test
+    public void matchesRecursiveVersionOnPlateausAndDuplicates() {
+        Random random = new Random(11);
+        List<SensorSample> pts = new ArrayList<>();
+        long t = 1_700_000_000_000L;
+        for (int i = 0; i < 5_000; i++) {
+            // Long constant stretches, repeated timestamps and the odd spike.
+            if (random.nextInt(4) != 0) t += 1000;
+            float v = (i / 500) % 2 == 0 ? 1f : 3f;
+            if (random.nextInt(200) == 0) v += 20f;
+            pts.add(sample(t, v, 0f, 0f));
+        }
+        for (float epsilon : EPSILONS) {
+            assertSameResult(pts, epsilon);
+        }
+    }
+
+    @Test
+    public void keepsEndpointsAndHandlesShortLists() {
+        assertNull(DouglasPeukerAlg.simplify(null, 1f));
+
+        List<SensorSample> two = new ArrayList<>();
+        two.add(sample(0, 1, 1, 1));
+        two.add(sample(1, 2, 2, 2));
+        assertSame(two, DouglasPeukerAlg.simplify(two, 1f));
+
+        List<SensorSample> line = new ArrayList<>();
+        for (int i = 0; i < 100; i++) line.add(sample(i * 1000L, 5f, 0f, 0f));
+        List<SensorSample> simplified = DouglasPeukerAlg.simplify(line, 0.1f);
+        assertEquals(2, simplified.size());
+        assertSame(line.get(0), simplified.get(0));
+        assertSame(line.get(99), simplified.get(1));
+    }
+
+    @Test
+    public void usesSubMillisecondSpacingOfABurst() {
+        // 4 kHz burst (250 µs apart) forming a triangle. With one shared X value per millisecond
+        // block all points would lie on a vertical line and the peak would be dropped.
+        List<SensorSample> burst = new ArrayList<>();
+        long t = 1_700_000_000_000L * 1_000_000L;
+        for (int i = 0; i <= 200; i++) {
+            SensorSample s = new SensorSample();
+            s.setNanos(t + i * 250_000L, 1f + (100 - Math.abs(100 - i)) * 0.01f, 0f, 0f);
+            burst.add(s);
+        }
+        List<SensorSample> simplified = DouglasPeukerAlg.simplify(burst, 0.01f);
+        assertEquals(3, simplified.size());
+        assertSame(burst.get(100), simplified.get(1));
+    }
+
+    @Test
+    public void doesNotOverflowStackOnVeryLongRange() {
+        // Alternating zero / slowly decaying spikes: the farthest point is always the one right
+        // after the segment start, so every split peels off a single point. The recursive version
+        // needed one stack frame per point here and overflowed already at 20k points.
+        List<SensorSample> pts = new ArrayList<>();
+        for (int i = 0; i < 40_000; i++) {
+            float spike = i % 2 == 0 ? 0f : (float) (100 * Math.pow(0.9999, i));
+            pts.add(sample(i, spike, 0f, 0f));
+        }
+        assertEquals(pts.size(), DouglasPeukerAlg.simplify(pts, 0f).size());
+    }
+
+    private static void assertSameResult(List<SensorSample> pts, float epsilon) {
+        List<SensorSample> expected = recursiveSimplify(pts, epsilon);
+        List<SensorSample> actual = DouglasPeukerAlg.simplify(pts, epsilon);
+        assertEquals("size for epsilon=" + epsilon, expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertSame("point " + i + " for epsilon=" + epsilon, expected.get(i), actual.get(i));
+        }
+    }
+
+    static List<SensorSample> noisySignal(Random random, int n) {
+        List<SensorSample> pts = new ArrayList<>(n);
+        long t = 1_700_000_000_000L;
+        for (int i = 0; i < n; i++) {
+            t += 100 + random.nextInt(1000);
+            float base = (float) Math.sin(i / 50.0) * 5f;
+            pts.add(
+                    sample(
+                            t,
+                            base + random.nextFloat() - 0.5f,
+                            random.nextFloat() * 2f,
+                            9.81f + random.nextFloat() * 0.2f));
+        }
+        return pts;
+    }
+
+    private static SensorSample sample(long t, float x, float y, float z) {
+        SensorSample s = new SensorSample();
+        s.set(t, x, y, z);
+        return s;
+    }
+
+    // ------------------------------------------------------------------------
+    // Previous recursive implementation (reference for the tests / benchmark). Only the X mapping
+    // follows DouglasPeukerAlg: ms since the first point instead of absolute epoch ms.
+    // ------------------------------------------------------------------------
+
+    static <T extends SensorPoint> List<T> recursiveSimplify(List<T> list, float epsilon) {
+        if (list == null || list.size() < 3) return list;
+        return dp(list, 0, list.size() - 1, epsilon, list.get(0).getTimestampNanos());
+    }
+
+    private static <T extends SensorPoint> List<T> dp(
+            List<T> pts, int start, int end, float epsilon, long origin) {
+
+        float maxDistance = 0f;
+        int indexOfFarthest = -1;
+
+        T first = pts.get(start);
+        T last = pts.get(end);
+
+        for (int i = start + 1; i < end; i++) {
+            float dist = perpendicularDistance(pts.get(i), first, last, origin);
+            if (dist > maxDistance) {
+                maxDistance = dist;
+                indexOfFarthest = i;
+            }
+        }
+
+        if (maxDistance > epsilon) {
+            List<T> left = dp(pts, start, indexOfFarthest, epsilon, origin);
+            List<T> right = dp(pts, indexOfFarthest, end, epsilon, origin);
+
+            List<T> combined = new ArrayList<>(left);
+            combined.remove(combined.size() - 1);
+            combined.addAll(right);
+            return combined;
+        } else {
+            List<T> out = new ArrayList<>();
+            out.add(first);
+            out.add(last);
+            return out;
+        }
+    }
+
+    private static float perpendicularDistance(
+            SensorPoint p, SensorPoint a, SensorPoint b, long origin) {
+        float x = (p.getTimestampNanos() - origin) / 1e6f;
+        float y = magnitude(p);
+
+        float x1 = (a.getTimestampNanos() - origin) / 1e6f;
+        float y1 = magnitude(a);
+
+        float x2 = (b.getTimestampNanos() - origin) / 1e6f;
+        float y2 = magnitude(b);
+
+        float dx = x2 - x1;
+        float dy = y2 - y1;
+
+        if (dx == 0 && dy == 0) {
+            dx = x - x1;
+            dy = y - y1;
+            return (float) Math.sqrt(dx * dx + dy * dy);
+        }
+
+        float numerator = Math.abs(dy * x - dx * y + x2 * y1 - y2 * x1);
+        float denominator = (float) Math.sqrt(dx * dx + dy * dy);
+
+        return numerator / denominator;
+    }
+
+    private static float magnitude(SensorPoint p) {
+        return (float) Math.sqrt(p.getX() * p.getX() + p.getY() * p.getY() + p.getZ() * p.getZ());
+    }
+}
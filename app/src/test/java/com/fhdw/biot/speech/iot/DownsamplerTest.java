@@ -0,0 +1,55 @@
+package com.fhdw.biot.speech.iot;
+
+import static org.junit.Assert.*;
+
+import com.fhdw.biot.speech.iot.graph.Downsampler;
+import com.fhdw.biot.speech.iot.graph.LttbDownsampler;
+import com.fhdw.biot.speech.iot.graph.MinMaxDownsampler;
+import com.fhdw.biot.speech.iot.sensor.SensorSample;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+
+/** Point budget, ordering and spike preservation of the fixed-size downsamplers. */
+public class DownsamplerTest {
+
+    private static final Downsampler[] ALL = {new LttbDownsampler(), new MinMaxDownsampler()};
+
+    @Test
+    public void staysWithinBudgetAndKeepsEndpointsInOrder() {
+        List<SensorSample> pts = DouglasPeukerAlgTest.noisySignal(new Random(5), 100_000);
+        for (Downsampler d : ALL) {
+            for (int budget : new int[] {4, 100, 2160}) {
+                List<SensorSample> out = d.downsample(pts, budget);
+                String name = d.getClass().getSimpleName() + " budget=" + budget;
+                assertTrue(name + " size=" + out.size(), out.size() <= budget);
+                assertSame(name, pts.get(0), out.get(0));
+                assertSame(name, pts.get(pts.size() - 1), out.get(out.size() - 1));
+                for (int i = 1; i < out.size(); i++) {
+                    assertTrue(name, out.get(i - 1).timestamp < out.get(i).timestamp);
+                }
+            }
+        }
+        assertEquals(2160, new LttbDownsampler().downsample(pts, 2160).size());
+    }
+
+    @Test
+    public void returnsSmallListsUnchanged() {
+        List<SensorSample> pts = DouglasPeukerAlgTest.noisySignal(new Random(6), 50);
+        for (Downsampler d : ALL) {
+            assertSame(pts, d.downsample(pts, 100));
+            assertNull(d.downsample(null, 100));
+        }
+    }
+
+    @Test
+    public void keepsIsolatedSpike() {
+        List<SensorSample> pts = DouglasPeukerAlgTest.noisySignal(new Random(8), 50_000);
+        SensorSample spike = pts.get(31_337);
+        spike.set(spike.timestamp, 500f, 0f, 0f);
+
+        for (Downsampler d : ALL) {
+            assertTrue(d.getClass().getSimpleName(), d.downsample(pts, 200).contains(spike));
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.fhdw.biot.speech.iot;
+
+import static org.junit.Assert.*;
+
+import com.fhdw.biot.speech.iot.events.EreignisEmitter;
+import com.fhdw.biot.speech.iot.events.SensorEreignis;
+import database.entities.EreignisType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+
+/** Minimum re-arm time, per-rule counters and burst aggregation of the event emitter. */
+public class EreignisEmitterTest {
+
+    private final List<SensorEreignis> emitted = new ArrayList<>();
+    private int burstsStarted = 0;
+    private final EreignisEmitter emitter =
+            new EreignisEmitter(emitted::add, () -> burstsStarted++);
+
+    private static EreignisType rule(int id, String name, long minRearmMs) {
+        EreignisType t = new EreignisType();
+        t.ereignisID = id;
+        t.ereignisName = name;
+        t.sensorType = "ACCEL";
+        t.axis = 'X';
+        t.comparison = EreignisType.ABOVE;
+        t.minRearmMs = minRearmMs;
+        return t;
+    }
+
+    private static EreignisEmitter.RuleCounter counter(EreignisEmitter emitter, int ruleId) {
+        for (EreignisEmitter.RuleCounter c : emitter.getCounters()) {
+            if (c.ruleId == ruleId) return c;
+        }
+        throw new AssertionError("no counter for rule " + ruleId);
+    }
+
+    @Test
+    public void suppressesRepeatsWithinMinRearmTime() {
+        EreignisType stoss = rule(1, "Stoß", 1000);
+
+        assertTrue(emitter.submit(stoss, 0, 12f));
+        assertFalse(emitter.submit(stoss, 500, 13f));
+        assertFalse(emitter.submit(stoss, 999, 14f));
+        assertTrue(emitter.submit(stoss, 1000, 15f));
+        assertFalse(emitter.submit(stoss, 1500, 16f)); // measured from the last EMITTED event
+
+        assertEquals(2, emitted.size());
+        assertEquals(15f, emitted.get(1).getValue(), 0f);
+        assertEquals("Stoß", emitted.get(1).getId());
+        assertEquals(2, counter(emitter, 1).getEmitted());
+        assertEquals(3, counter(emitter, 1).getSuppressed());
+    }
+
+    @Test
+    public void countersAreKeptPerRule() {
+        EreignisType ohneSperre = rule(1, "a", 0);
+        EreignisType mitSperre = rule(2, "b", 10_000);
+        for (int t = 0; t < 5; t++) {
+            emitter.submit(ohneSperre, t, 1f);
+            emitter.submit(mitSperre, t, 1f);
+        }
+
+        assertEquals(5, counter(emitter, 1).getEmitted());
+        assertEquals(0, counter(emitter, 1).getSuppressed());
+        assertEquals(1, counter(emitter, 2).getEmitted());
+        assertEquals(4, counter(emitter, 2).getSuppressed());
+    }
+
+    @Test
+    public void reloadKeepsDebounceOfEditedRulesAndDropsDeletedOnes() {
+        assertTrue(emitter.submit(rule(1, "alt", 1000), 0, 1f));
+        assertTrue(emitter.submit(rule(2, "weg", 0), 0, 1f));
+
+        // Rule 1 was renamed (same ID), rule 2 deleted.
+        EreignisType renamed = rule(1, "neu", 1000);
+        emitter.retainRules(Arrays.asList(renamed));
+
+        assertFalse(emitter.submit(renamed, 500, 1f));
+        assertEquals(1, emitter.getCounters().size());
+        assertEquals("neu", counter(emitter, 1).name);
+        assertEquals(1, counter(emitter, 1).getSuppressed());
+    }
+
+    @Test
+    public void aggregatesBurstUntilDrained() {
+        EreignisType r = rule(1, "a", 0);
+        assertNull(emitter.drainBurst());
+
+        for (int t = 10; t < 15; t++) emitter.submit(r, t, t);
+        assertEquals(1, burstsStarted);
+
+        EreignisEmitter.Burst burst = emitter.drainBurst();
+        assertEquals(5, burst.count);
+        assertEquals(10, burst.firstTimestamp);
+        assertEquals(14, burst.last.getTimestamp());
+        assertNull(emitter.drainBurst());
+
+        emitter.submit(r, 20, 1f);
+        assertEquals(2, burstsStarted);
+        assertEquals(1, emitter.drainBurst().count);
+    }
+}
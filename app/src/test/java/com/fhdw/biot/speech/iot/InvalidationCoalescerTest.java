@@ -0,0 +1,101 @@
+package com.fhdw.biot.speech.iot;
+
+import static org.junit.Assert.*;
+
+import database.InvalidationCoalescer;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+/** Throttling of table-change notifications with a manual clock. */
+public class InvalidationCoalescerTest {
+
+    /** Runs scheduled tasks when the test advances the clock. */
+    private static final class ManualScheduler implements InvalidationCoalescer.Scheduler {
+        long now;
+        final List<long[]> dueAt = new ArrayList<>();
+        final List<Runnable> tasks = new ArrayList<>();
+
+        @Override
+        public long now() {
+            return now;
+        }
+
+        @Override
+        public void schedule(Runnable task, long delayMs) {
+            dueAt.add(new long[] {now + delayMs});
+            tasks.add(task);
+        }
+
+        void advanceTo(long time) {
+            now = time;
+            for (int i = 0; i < tasks.size(); i++) {
+                if (dueAt.get(i)[0] <= time) {
+                    Runnable task = tasks.remove(i);
+                    dueAt.remove(i);
+                    i--;
+                    task.run();
+                }
+            }
+        }
+    }
+
+    private final ManualScheduler scheduler = new ManualScheduler();
+    private int refreshes;
+    private final InvalidationCoalescer coalescer =
+            new InvalidationCoalescer(1000, scheduler, () -> refreshes++);
+
+    @Test
+    public void firstNotificationRefreshesImmediately() {
+        coalescer.onInvalidated();
+        scheduler.advanceTo(0);
+
+        assertEquals(1, refreshes);
+    }
+
+    @Test
+    public void burstCollapsesIntoOneRefreshPerInterval() {
+        // 3 batches per second for 5 s, as the ingest writer produces them.
+        for (long t = 0; t < 5000; t += 333) {
+            scheduler.advanceTo(t);
+            coalescer.onInvalidated();
+        }
+        scheduler.advanceTo(6000);
+
+        assertEquals(16, coalescer.getNotificationCount());
+        assertTrue(refreshes <= 6);
+        assertEquals(refreshes, coalescer.getRefreshCount());
+        assertEquals(16 - refreshes, coalescer.getSavedRefreshCount());
+    }
+
+    @Test
+    public void refreshWaitsForTheRestOfTheInterval() {
+        coalescer.onInvalidated();
+        scheduler.advanceTo(0);
+        scheduler.advanceTo(300);
+        coalescer.onInvalidated();
+
+        scheduler.advanceTo(999);
+        assertEquals(1, refreshes);
+        scheduler.advanceTo(1000);
+        assertEquals(2, refreshes);
+    }
+
+    @Test
+    public void stopDropsPendingRefreshAndIgnoresNotifications() {
+        coalescer.onInvalidated();
+        scheduler.advanceTo(0);
+        coalescer.onInvalidated(); // pending until 1000
+        coalescer.stop();
+        coalescer.onInvalidated();
+        scheduler.advanceTo(5000);
+
+        assertEquals(1, refreshes);
+        assertEquals(2, coalescer.getNotificationCount());
+
+        coalescer.start();
+        coalescer.onInvalidated();
+        scheduler.advanceTo(5000);
+        assertEquals(2, refreshes);
+    }
+}
@@ -0,0 +1,188 @@
+package com.fhdw.biot.speech.iot;
+
+import static org.junit.Assert.*;
+
+import com.fhdw.biot.speech.iot.mqtt.MqttPublishPipeline;
+import com.fhdw.biot.speech.iot.mqtt.OfflineSpool;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.eclipse.paho.mqttv5.client.IMqttToken;
+import org.eclipse.paho.mqttv5.client.MqttActionListener;
+import org.eclipse.paho.mqttv5.client.MqttAsyncClient;
+import org.eclipse.paho.mqttv5.client.MqttClientException;
+import org.eclipse.paho.mqttv5.client.MqttToken;
+import org.eclipse.paho.mqttv5.client.persist.MemoryPersistence;
+import org.eclipse.paho.mqttv5.common.MqttException;
+import org.eclipse.paho.mqttv5.common.MqttMessage;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Ordering, segment rolling, crash recovery and the disk budget of the offline MQTT spool, and that
+ * a drained message lost with the connection comes back into it.
+ */
+public class OfflineSpoolTest {
+
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+    private final List<String> sent = new ArrayList<>();
+
+    private final OfflineSpool.Sink collect =
+            (topic, payload, qos, retained) -> sent.add(topic + "=" + new String(payload));
+
+    // 72-byte segments: three 22-byte records ("Sensor/Gyro" + "1,n") per segment
+    private static OfflineSpool.Config smallSegments() {
+        return new OfflineSpool.Config()
+                .setSegmentSize(72)
+                .setMaxSegments(4)
+                .setDrainRatePerSecond(1_000_000);
+    }
+
+    private static void append(OfflineSpool spool, int from, int to) {
+        for (int i = from; i < to; i++) {
+            assertTrue(spool.append("Sensor/Gyro", ("1," + i).getBytes(), 1, false));
+        }
+    }
+
+    private static List<String> expected(int from, int to) {
+        List<String> result = new ArrayList<>();
+        for (int i = from; i < to; i++) result.add("Sensor/Gyro=1," + i);
+        return result;
+    }
+
+    @Test
+    public void drainsInOrderAcrossSegmentsAndDeletesThem() throws Exception {
+        OfflineSpool spool = new OfflineSpool(folder.newFolder(), smallSegments());
+        append(spool, 0, 7);
+
+        assertEquals(7, spool.getDepth());
+        assertEquals(3, spool.getSegmentCount());
+
+        assertEquals(7, spool.drainTo(collect, () -> true));
+        assertEquals(expected(0, 7), sent);
+        assertTrue(spool.isEmpty());
+        assertEquals(1, spool.getSegmentCount()); // only the write head is left
+        assertTrue(spool.getLastDrainThroughput() > 0);
+    }
+
+    @Test
+    public void refusedMessageStaysInTheSpool() throws Exception {
+        OfflineSpool spool = new OfflineSpool(folder.newFolder(), smallSegments());
+        append(spool, 0, 3);
+
+        int[] budget = {2};
+        OfflineSpool.Sink twoOnly =
+                (topic, payload, qos, retained) ->
+                        budget[0]-- > 0 && collect.publish(topic, payload, qos, retained);
+        assertEquals(2, spool.drainTo(twoOnly, () -> true));
+        assertEquals(1, spool.getDepth());
+
+        spool.drainTo(collect, () -> true);
+        assertEquals(expected(0, 3), sent);
+    }
+
+    /** Paho client that is never connected: fails or acknowledges every publish on the spot. */
+    private static final class FakeClient extends MqttAsyncClient {
+        volatile boolean linkUp;
+        final List<String> acknowledged = Collections.synchronizedList(new ArrayList<>());
+        private int calls;
+
+        FakeClient() throws MqttException {
+            super("tcp://localhost:1883", "test", new MemoryPersistence());
+        }
+
+        @Override
+        public IMqttToken publish(
+                String topic, MqttMessage message, Object userContext, MqttActionListener callback)
+                throws MqttException {
+            MqttToken token = new MqttToken("test");
+            token.setUserContext(userContext);
+            if (linkUp) {
+                acknowledged.add(topic + "=" + new String(message.getPayload()));
+                callback.onSuccess(token);
+            } else if (calls++ % 2 == 0) {
+                // Accepted, then the connection drops before the PUBACK.
+                callback.onFailure(
+                        token, new MqttException(MqttClientException.REASON_CODE_CONNECTION_LOST));
+            } else {
+                throw new MqttException(MqttClientException.REASON_CODE_CLIENT_NOT_CONNECTED);
+            }
+            return token;
+        }
+    }
+
+    private static void await(java.util.function.BooleanSupplier condition) throws Exception {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!condition.getAsBoolean()) {
+            assertTrue("timed out", System.currentTimeMillis() < deadline);
+            Thread.sleep(5);
+        }
+    }
+
+    @Test
+    public void messageLostAfterThePipelineTookItIsSpooledAgain() throws Exception {
+        OfflineSpool spool = new OfflineSpool(folder.newFolder(), smallSegments());
+        append(spool, 0, 4);
+        FakeClient client = new FakeClient();
+        MqttPublishPipeline pipeline =
+                new MqttPublishPipeline(client, new MqttPublishPipeline.Config());
+        // What MqttHandler does while disconnected.
+        pipeline.setFailureHandler(spool::append);
+
+        // Reconnected: the drain hands everything over, then the link drops again.
+        assertEquals(4, spool.drainTo(pipeline::enqueue, () -> true));
+        await(() -> spool.getDepth() == 4); // failures are counted before they are spooled
+        assertEquals(4, pipeline.getFailedCount());
+
+        client.linkUp = true;
+        assertEquals(4, spool.drainTo(pipeline::enqueue, () -> true));
+        await(() -> pipeline.getSentCount() == 4);
+        List<String> acknowledged = new ArrayList<>(client.acknowledged);
+        Collections.sort(acknowledged);
+        assertEquals(expected(0, 4), acknowledged);
+        assertTrue(spool.isEmpty());
+        pipeline.shutdown();
+    }
+
+    @Test
+    public void reopenedSpoolRecoversUndrainedMessages() throws Exception {
+        File dir = folder.newFolder();
+        OfflineSpool first = new OfflineSpool(dir, smallSegments());
+        append(first, 0, 5);
+        first.close();
+
+        OfflineSpool second = new OfflineSpool(dir, smallSegments());
+        assertEquals(5, second.getDepth());
+        append(second, 5, 6);
+
+        second.drainTo(collect, () -> true);
+        assertEquals(expected(0, 6), sent);
+    }
+
+    @Test
+    public void fullDiskBudgetDropsTheOldestSegment() throws Exception {
+        OfflineSpool spool = new OfflineSpool(folder.newFolder(), smallSegments());
+        append(spool, 0, 13); // 5 segments needed, 4 allowed → first 3 records dropped
+
+        assertEquals(3, spool.getDroppedCount());
+        assertEquals(10, spool.getDepth());
+
+        spool.drainTo(collect, () -> true);
+        assertEquals(expected(3, 13), sent);
+    }
+
+    @Test
+    public void rejectsRecordLargerThanASegment() throws IOException {
+        OfflineSpool spool = new OfflineSpool(folder.newFolder(), smallSegments());
+
+        assertFalse(spool.append("Sensor/Gyro", new byte[100], 1, false));
+        assertEquals(1, spool.getDroppedCount());
+        assertTrue(spool.isEmpty());
+        assertEquals(Arrays.asList(), sent);
+    }
+}
@@ -0,0 +1,36 @@
+package com.fhdw.biot.speech.iot;
+
+import static org.junit.Assert.*;
+
+import database.RetentionPolicy;
+import org.junit.Test;
+
+/** Cutoffs of the retention policy: raw short, rollups longer, 0 days = keep forever. */
+public class RetentionPolicyTest {
+
+    private static final long DAY = 24L * 60 * 60 * 1000;
+    private static final long NOW = 1_700_000_000_000L;
+
+    @Test
+    public void defaultsKeepRollupsLongerThanRawData() {
+        RetentionPolicy policy = new RetentionPolicy();
+
+        assertEquals(NOW - 7 * DAY, policy.rawCutoff(NOW));
+        assertEquals(NOW - 30 * DAY, policy.rollupCutoff(1_000L, NOW));
+        assertEquals(NOW - 365 * DAY, policy.rollupCutoff(60_000L, NOW));
+        assertEquals(RetentionPolicy.KEEP_FOREVER, policy.rollupCutoff(3_600_000L, NOW));
+    }
+
+    @Test
+    public void zeroDaysKeepsForever() {
+        RetentionPolicy policy = new RetentionPolicy().setRawDays(0).setRollupDays(3_600_000L, 90);
+
+        assertEquals(RetentionPolicy.KEEP_FOREVER, policy.rawCutoff(NOW));
+        assertEquals(NOW - 90 * DAY, policy.rollupCutoff(3_600_000L, NOW));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownResolutionIsRejected() {
+        new RetentionPolicy().setRollupDays(5_000L, 1);
+    }
+}
@@ -0,0 +1,101 @@
+package com.fhdw.biot.speech.iot;
+
+import static org.junit.Assert.*;
+
+import com.fhdw.biot.speech.iot.sensor.SensorSample;
+import database.Rollups;
+import database.entities.SensorRollup;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Test;
+
+/** Bucketing, incremental merging and resolution choice of the rollup tables. */
+public class RollupsTest {
+
+    private static SensorSample sample(long t, float x, float y, float z) {
+        SensorSample s = new SensorSample();
+        s.set(t, x, y, z);
+        return s;
+    }
+
+    private static SensorRollup find(List<SensorRollup> rollups, long resolution, long start) {
+        for (SensorRollup r : rollups) {
+            if (r.resolutionMs == resolution && r.bucketStart == start) return r;
+        }
+        return null;
+    }
+
+    @Test
+    public void aggregatesEveryResolution() {
+        List<SensorSample> accel = new ArrayList<>();
+        accel.add(sample(59_000, 1f, 0f, 0f));
+        accel.add(sample(59_500, 3f, 4f, 0f));
+        accel.add(sample(60_200, -2f, 0f, 0f));
+
+        List<SensorRollup> rollups =
+                Rollups.of(accel, Collections.emptyList(), Collections.emptyList());
+
+        SensorRollup second = find(rollups, 1_000, 59_000);
+        assertEquals(2, second.count);
+        assertEquals(1f, second.minX, 0f);
+        assertEquals(3f, second.maxX, 0f);
+        assertEquals(2f, second.meanX(), 1e-6f);
+        assertEquals(1f, second.minMagnitude, 0f);
+        assertEquals(5f, second.maxMagnitude, 0f);
+        assertEquals(3f, second.meanMagnitude(), 1e-6f);
+
+        assertEquals(2, find(rollups, 60_000, 0).count);
+        assertEquals(1, find(rollups, 60_000, 60_000).count);
+        assertEquals(3, find(rollups, 3_600_000, 0).count);
+        assertEquals(2 + 2 + 1, rollups.size());
+    }
+
+    @Test
+    public void partialBucketsOfTwoBatchesMergeToTheWholeBucket() {
+        List<SensorSample> all = new ArrayList<>();
+        for (int i = 0; i < 100; i++) all.add(sample(i * 7L, i, -i, i * 0.5f));
+
+        SensorRollup whole =
+                find(
+                        Rollups.of(Collections.emptyList(), all, Collections.emptyList()),
+                        3_600_000,
+                        0);
+
+        SensorRollup merged =
+                find(
+                        Rollups.of(
+                                Collections.emptyList(),
+                                all.subList(0, 37),
+                                Collections.emptyList()),
+                        3_600_000,
+                        0);
+        merged.merge(
+                find(
+                        Rollups.of(
+                                Collections.emptyList(),
+                                all.subList(37, 100),
+                                Collections.emptyList()),
+                        3_600_000,
+                        0));
+
+        assertEquals(whole.count, merged.count);
+        assertEquals(whole.minY, merged.minY, 0f);
+        assertEquals(whole.maxX, merged.maxX, 0f);
+        assertEquals(whole.meanZ(), merged.meanZ(), 1e-4f);
+        assertEquals(whole.maxMagnitude, merged.maxMagnitude, 0f);
+    }
+
+    @Test
+    public void picksCoarsestResolutionWithOneBucketPerPixel() {
+        int width = 1080;
+        long minute = 60_000L;
+        long day = 24 * 60 * minute;
+
+        assertEquals(Rollups.RAW, Rollups.pickResolution(0, 10 * minute, width));
+        assertEquals(1_000L, Rollups.pickResolution(0, 60 * minute, width));
+        assertEquals(60_000L, Rollups.pickResolution(0, 7 * day, width));
+        assertEquals(3_600_000L, Rollups.pickResolution(0, 60 * day, width));
+        assertEquals(-120_000L, Rollups.bucketStart(-60_001L, minute));
+    }
+}
@@ -0,0 +1,87 @@
+package com.fhdw.biot.speech.iot;
+
+import com.fhdw.biot.speech.iot.sensor.SampleChunk;
+import database.SampleBlockCodec;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * JMH: CPU cost of {@link SampleBlockCodec} per sample, encoding (ingest) and decoding (range scan)
+ * one 1-minute block at 100 Hz. The comparison with the SQLite row tables needs a device, see
+ * SampleBlockStoreBenchmark in androidTest.
+ *
+ * <p>Not a unit test – run it from the IDE via {@link #main(String[])}. The block size in bytes per
+ * sample is printed by the setup.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SampleBlockCodecBenchmark {
+
+    private static final int SAMPLES = 6000;
+
+    private final long[] timestamps = new long[SAMPLES];
+    private final float[] xs = new float[SAMPLES];
+    private final float[] ys = new float[SAMPLES];
+    private final float[] zs = new float[SAMPLES];
+
+    private final SampleBlockCodec.Encoder encoder = new SampleBlockCodec.Encoder();
+    private final SampleChunk chunk = new SampleChunk(4096);
+    private byte[] block;
+
+    @Setup
+    public void setUp() {
+        for (int i = 0; i < SAMPLES; i++) {
+            timestamps[i] = 1_700_000_000_000_000_000L + i * 10_000_000L + (i * 7919L % 201) * 1000;
+            xs[i] = Math.round(Math.sin(i / 50.0) * 100) / 100f;
+            ys[i] = Math.round(Math.cos(i / 70.0) * 100) / 100f;
+            zs[i] = 9.81f + ((i % 5) - 2) / 100f;
+            encoder.add(timestamps[i], xs[i], ys[i], zs[i]);
+        }
+        block = encoder.toByteArray();
+        System.out.printf("%.2f bytes/sample%n", block.length / (double) SAMPLES);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLES)
+    public byte[] encode() {
+        encoder.reset();
+        for (int i = 0; i < SAMPLES; i++) {
+            encoder.add(timestamps[i], xs[i], ys[i], zs[i]);
+        }
+        return encoder.toByteArray();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLES)
+    public void decode(Blackhole bh) {
+        chunk.clear();
+        SampleBlockCodec.decode(block, Long.MIN_VALUE, Long.MAX_VALUE, chunk, bh::consume);
+        bh.consume(chunk.size());
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(
+                        new OptionsBuilder()
+                                .include(SampleBlockCodecBenchmark.class.getSimpleName())
+                                .build())
+                .run();
+    }
+}
@@ -0,0 +1,158 @@
+package com.fhdw.biot.speech.iot;
+
+import static org.junit.Assert.*;
+
+import com.fhdw.biot.speech.iot.sensor.SampleChunk;
+import database.BlockSampleStore;
+import database.SampleBlockCodec;
+import database.entities.SensorBlock;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+
+/** Lossless round trip and size of the compressed sample blocks, and the block store on top. */
+public class SampleBlockCodecTest {
+
+    private static final long MS = 1_000_000L;
+
+    /** Decoded samples as (timestamp, x bits, y bits, z bits). */
+    private static List<long[]> decodeAll(byte[] block, long from, long to) {
+        List<long[]> out = new ArrayList<>();
+        SampleChunk chunk = new SampleChunk(7);
+        SampleChunk.Consumer collect =
+                c -> {
+                    for (int i = 0; i < c.size(); i++) {
+                        out.add(
+                                new long[] {
+                                    c.timestampsNanos[i],
+                                    Float.floatToRawIntBits(c.xs[i]),
+                                    Float.floatToRawIntBits(c.ys[i]),
+                                    Float.floatToRawIntBits(c.zs[i])
+                                });
+                    }
+                };
+        SampleBlockCodec.decode(block, from, to, chunk, collect);
+        collect.accept(chunk);
+        return out;
+    }
+
+    @Test
+    public void roundTripIsExact() {
+        Random random = new Random(3);
+        SampleBlockCodec.Encoder encoder = new SampleBlockCodec.Encoder();
+        List<long[]> expected = new ArrayList<>();
+        long t = 1_700_000_000_000L * MS;
+        float[] specials = {0f, -0f, Float.NaN, Float.MAX_VALUE, -Float.MIN_VALUE, 1e-30f};
+        for (int i = 0; i < 5000; i++) {
+            // Jitter, occasional gaps, even a step back in time.
+            t += 10 * MS + random.nextInt(200_000) - 100_000;
+            if (i % 997 == 0) t += 3_600_000L * MS;
+            if (i == 1234) t -= 50 * MS;
+            float x = i < specials.length ? specials[i] : (float) Math.sin(i / 30.0);
+            float y = random.nextFloat() * 100 - 50;
+            float z = 9.81f;
+            encoder.add(t, x, y, z);
+            expected.add(
+                    new long[] {
+                        t,
+                        Float.floatToRawIntBits(x),
+                        Float.floatToRawIntBits(y),
+                        Float.floatToRawIntBits(z)
+                    });
+        }
+
+        byte[] block = encoder.toByteArray();
+        assertEquals(5000, SampleBlockCodec.count(block));
+        List<long[]> actual = decodeAll(block, Long.MIN_VALUE, Long.MAX_VALUE);
+
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertArrayEquals("sample " + i, expected.get(i), actual.get(i));
+        }
+    }
+
+    @Test
+    public void steadySignalCompressesWell() {
+        SampleBlockCodec.Encoder encoder = new SampleBlockCodec.Encoder();
+        for (int i = 0; i < 6000; i++) {
+            // 100 Hz, values with 2 decimals like the simulator.
+            encoder.add(
+                    i * 10 * MS,
+                    Math.round(Math.sin(i / 50.0) * 100) / 100f,
+                    0.5f,
+                    Math.round(9.81f * 100) / 100f);
+        }
+        double bytesPerSample = encoder.toByteArray().length / 6000.0;
+        assertTrue("bytes/sample = " + bytesPerSample, bytesPerSample < 6);
+    }
+
+    @Test
+    public void decodeFiltersByRange() {
+        SampleBlockCodec.Encoder encoder = new SampleBlockCodec.Encoder();
+        for (int i = 0; i < 100; i++) encoder.add(i * MS, i, i, i);
+
+        List<long[]> out = decodeAll(encoder.toByteArray(), 10 * MS, 19 * MS);
+        assertEquals(10, out.size());
+        assertEquals(10 * MS, out.get(0)[0]);
+    }
+
+    @Test
+    public void storeWritesBlocksPerWindowOnlyOnFlush() {
+        List<SensorBlock> blocks = new ArrayList<>();
+        BlockSampleStore.Storage memory =
+                new BlockSampleStore.Storage() {
+                    @Override
+                    public void put(List<SensorBlock> sealed) {
+                        blocks.addAll(sealed);
+                    }
+
+                    @Override
+                    public void forEachBlock(
+                            int sensor,
+                            long minFirst,
+                            long from,
+                            long to,
+                            BlockSampleStore.BlockVisitor visitor) {
+                        for (SensorBlock b : blocks) {
+                            if (b.sensor == sensor
+                                    && b.firstTimestamp >= minFirst
+                                    && b.firstTimestamp <= to
+                                    && b.lastTimestamp >= from) {
+                                visitor.visit(b.firstTimestamp, b.data);
+                            }
+                        }
+                    }
+                };
+        BlockSampleStore store = new BlockSampleStore(memory, 1000);
+
+        // 3.5 s at 100 Hz → 3 sealed blocks + 1 open one, nothing stored yet.
+        for (int i = 0; i < 350; i++) store.append(0, i * 10 * MS, i, 0f, 0f);
+        store.append(1, 5 * MS, 1f, 1f, 1f);
+        assertTrue(blocks.isEmpty());
+
+        assertEquals(5, store.flush()); // + the open accel block and the gyro block
+        assertEquals(0, store.flush());
+        assertEquals(100, blocks.get(0).count);
+        assertEquals(990, blocks.get(0).lastTimestamp);
+
+        List<Long> timestamps = new ArrayList<>();
+        long rows =
+                store.streamBetween(
+                        0,
+                        950,
+                        3100,
+                        new SampleChunk(16),
+                        c -> {
+                            for (int i = 0; i < c.size(); i++) timestamps.add(c.timestampsNanos[i]);
+                        });
+
+        assertEquals(216, rows); // 950, 960, ... 3100
+        assertEquals(216, timestamps.size());
+        assertEquals(950 * MS, (long) timestamps.get(0));
+        assertEquals(3100 * MS, (long) timestamps.get(215));
+        for (int i = 1; i < timestamps.size(); i++) {
+            assertTrue(timestamps.get(i) > timestamps.get(i - 1));
+        }
+    }
+}
@@ -0,0 +1,358 @@
+package com.fhdw.biot.speech.iot;
+
+import static org.junit.Assert.*;
+
+import com.fhdw.biot.speech.iot.sensor.SampleChunk;
+import database.BlockSampleStore;
+import database.BlockSegmentStore;
+import database.Rollups;
+import database.SampleBlockCodec;
+import database.SampleLog;
+import database.entities.SensorBlock;
+import database.entities.SensorRollup;
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Appending, sealing, compaction hand-off (also across a crash), recovery and zero-copy reads of
+ * the sample log.
+ */
+public class SampleLogTest {
+
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+    private static final long MS = 1_000_000L;
+
+    // 4 records per segment, 1 s span
+    private static SampleLog.Config smallSegments() {
+        return new SampleLog.Config().setSegmentRecords(4).setMaxSegmentSpanMs(1_000);
+    }
+
+    /** Sample i: sensor i % 3 at i * 10 ms, x = i. */
+    private static void append(SampleLog log, int from, int to) {
+        for (int i = from; i < to; i++) {
+            assertTrue(log.append(i % 3, i * 10 * MS, i, -i, 0.5f));
+        }
+    }
+
+    private static List<String> read(SampleLog.Snapshot snapshot, int sensor, long from, long to) {
+        List<String> out = new ArrayList<>();
+        SampleChunk chunk = new SampleChunk(2);
+        SampleChunk.Consumer collect =
+                c -> {
+                    for (int i = 0; i < c.size(); i++) {
+                        out.add(c.timestampsNanos[i] / MS + "=" + c.xs[i]);
+                    }
+                };
+        snapshot.read(sensor, from * MS, to * MS, chunk, collect);
+        collect.accept(chunk); // the caller flushes the last chunk
+        return out;
+    }
+
+    private static List<String> records(SampleLog.Segment segment) {
+        List<String> out = new ArrayList<>();
+        segment.forEach((sensor, nanos, x, y, z) -> out.add(sensor + "@" + nanos / MS));
+        return out;
+    }
+
+    /** Stands in for Room: the rows and the watermark are committed together. */
+    private static final class FakeStore implements SampleLog.SegmentStore {
+        final List<String> rows = new ArrayList<>();
+        long watermark;
+        boolean crashAfterCommit;
+
+        @Override
+        public long storedThrough() {
+            return watermark;
+        }
+
+        @Override
+        public boolean store(SampleLog.Segment segment) {
+            rows.addAll(records(segment));
+            watermark = segment.getSequence();
+            if (crashAfterCommit) throw new IllegalStateException("process killed");
+            return true;
+        }
+    }
+
+    /** Stands in for Room on the block path: blocks, rollups and watermark in one commit. */
+    private static final class FakeTarget implements BlockSegmentStore.Target {
+        final List<SensorBlock> blocks = new ArrayList<>();
+        final int[] rolledUp = new int[3]; // samples counted in the 1 s rollups
+        long watermark;
+        boolean failNext;
+
+        @Override
+        public long loadWatermark() {
+            return watermark;
+        }
+
+        @Override
+        public List<SensorBlock> loadNewestBlocks(int sensor) {
+            List<SensorBlock> newest = new ArrayList<>();
+            for (SensorBlock block : blocks) {
+                if (block.sensor != sensor) continue;
+                if (!newest.isEmpty() && block.lastTimestamp > newest.get(0).lastTimestamp) {
+                    newest.clear();
+                }
+                if (newest.isEmpty() || block.lastTimestamp == newest.get(0).lastTimestamp) {
+                    newest.add(block);
+                }
+            }
+            return newest;
+        }
+
+        @Override
+        public boolean commit(
+                List<SensorBlock> sealed, List<SensorRollup> rollups, long watermark) {
+            if (failNext) {
+                failNext = false;
+                return false;
+            }
+            blocks.addAll(sealed);
+            for (SensorRollup rollup : rollups) {
+                if (rollup.resolutionMs == Rollups.RESOLUTIONS_MS[0]) {
+                    rolledUp[rollup.sensor] += rollup.count;
+                }
+            }
+            this.watermark = watermark;
+            return true;
+        }
+
+        /** Timestamps (ms) of the stored samples of {@code sensor}. */
+        List<Long> stored(int sensor) {
+            List<Long> out = new ArrayList<>();
+            for (SensorBlock block : blocks) {
+                if (block.sensor != sensor) continue;
+                SampleChunk samples = new SampleChunk(block.count + 1);
+                SampleBlockCodec.decode(
+                        block.data, Long.MIN_VALUE, Long.MAX_VALUE, samples, c -> {});
+                for (int i = 0; i < samples.size(); i++) out.add(samples.timestampsNanos[i] / MS);
+            }
+            return out;
+        }
+    }
+
+    // 3 records per segment, so block windows (1 s) start in the middle of a segment
+    private static SampleLog.Config threeRecordSegments() {
+        return new SampleLog.Config().setSegmentRecords(3).setMaxSegmentSpanMs(1_000);
+    }
+
+    private static BlockSegmentStore blockStore(FakeTarget target) {
+        return new BlockSegmentStore(new BlockSampleStore(null, 1_000), target);
+    }
+
+    @Test
+    public void readsOneSensorInRangeAcrossSegments() throws Exception {
+        SampleLog log = new SampleLog(folder.newFolder(), smallSegments());
+        append(log, 0, 10);
+
+        assertEquals(3, log.getSegmentCount());
+        SampleLog.Snapshot snapshot = log.snapshot();
+        assertEquals(List.of("0=0.0", "30=3.0", "60=6.0", "90=9.0"), read(snapshot, 0, 0, 1_000));
+        assertEquals(List.of("40=4.0", "70=7.0"), read(snapshot, 1, 35, 70));
+        assertEquals(20 * MS, snapshot.oldestTimestampNanos(2));
+
+        // Later appends are not part of the snapshot.
+        append(log, 10, 11);
+        assertEquals(3, read(snapshot, 1, 0, 1_000).size());
+        assertEquals(4, read(log.snapshot(), 1, 0, 1_000).size());
+    }
+
+    @Test
+    public void sealedSegmentsAreHandedToTheCompactorInOrder() throws Exception {
+        SampleLog log = new SampleLog(folder.newFolder(), smallSegments());
+        append(log, 0, 6);
+
+        SampleLog.Segment first = log.nextToCompact();
+        assertEquals(List.of("0@0", "1@10", "2@20", "0@30"), records(first));
+        log.markCompacted(first);
+        assertNull(log.nextToCompact()); // the rest is in the open head
+
+        // Span: 1.5 s after the head's first sample → sealed by the next append.
+        assertTrue(log.append(0, 1_500 * MS, 1, 1, 1));
+        assertEquals(List.of("1@40", "2@50"), records(log.nextToCompact()));
+
+        log.seal();
+        assertEquals(4, log.getCompactedCount());
+        assertEquals(3, log.getPendingCount());
+    }
+
+    @Test
+    public void reopenedLogRecoversRecordsAndCompactedFlag() throws Exception {
+        File dir = folder.newFolder();
+        SampleLog first = new SampleLog(dir, smallSegments());
+        append(first, 0, 7);
+        first.markCompacted(first.nextToCompact());
+        first.close();
+
+        // A record torn by a crash: timestamp written, sensor field still 0.
+        File head = new File(dir, "0000000000000002.log");
+        try (RandomAccessFile raf = new RandomAccessFile(head, "rw")) {
+            raf.seek(SampleLog.RECORD_SIZE * 4L);
+            raf.writeLong(999 * MS);
+        }
+
+        SampleLog second = new SampleLog(dir, smallSegments());
+        assertEquals(3, second.getPendingCount());
+        assertEquals(List.of("1@40", "2@50", "0@60"), records(second.nextToCompact()));
+
+        // Recovered segments are sealed; new appends start a new head.
+        append(second, 7, 8);
+        assertEquals(3, second.getSegmentCount());
+        assertEquals(List.of("60=6.0"), read(second.snapshot(), 0, 31, 1_000));
+    }
+
+    @Test
+    public void compactedSegmentsAreDeletedButStayReadableInASnapshot() throws Exception {
+        File dir = folder.newFolder();
+        SampleLog log = new SampleLog(dir, smallSegments());
+        append(log, 0, 9);
+        log.markCompacted(log.nextToCompact());
+        SampleLog.Snapshot snapshot = log.snapshot();
+
+        // Segment 2 is not compacted yet → it and everything after it stay.
+        assertEquals(1, log.deleteCompactedBefore(Long.MAX_VALUE));
+        assertEquals(2, log.getSegmentCount());
+        assertEquals(2, dir.listFiles().length);
+
+        assertEquals(List.of("0=0.0", "30=3.0", "60=6.0"), read(snapshot, 0, 0, 1_000));
+        assertEquals(60 * MS, log.snapshot().oldestTimestampNanos(0));
+    }
+
+    @Test
+    public void crashBetweenCommitAndMarkDoesNotStoreTheSegmentTwice() throws Exception {
+        File dir = folder.newFolder();
+        SampleLog first = new SampleLog(dir, smallSegments());
+        append(first, 0, 9);
+        FakeStore store = new FakeStore();
+        store.crashAfterCommit = true;
+        try {
+            first.compactInto(store);
+            fail();
+        } catch (IllegalStateException expected) {
+            // committed, but never flagged in the segment file
+        }
+        first.close();
+
+        SampleLog second = new SampleLog(dir, smallSegments());
+        assertEquals(9, second.getPendingCount());
+        store.crashAfterCommit = false;
+        assertEquals(2, second.compactInto(store)); // segments 2 and 3, not 1 again
+
+        assertEquals(
+                List.of("0@0", "1@10", "2@20", "0@30", "1@40", "2@50", "0@60", "1@70", "2@80"),
+                store.rows);
+        assertEquals(0, second.getPendingCount());
+        assertEquals(9, second.getCompactedCount());
+    }
+
+    @Test
+    public void newestSegmentIsKeptSoSequencesAreNeverReused() throws Exception {
+        File dir = folder.newFolder();
+        SampleLog first = new SampleLog(dir, smallSegments());
+        append(first, 0, 5);
+        first.seal();
+        FakeStore store = new FakeStore();
+        assertEquals(2, first.compactInto(store));
+        assertEquals(1, first.deleteCompactedBefore(Long.MAX_VALUE));
+        first.close();
+
+        // Had segment 2 been deleted too, the next one would be 1 again and count as stored.
+        SampleLog second = new SampleLog(dir, smallSegments());
+        append(second, 5, 6);
+        second.seal();
+        assertEquals(1, second.compactInto(store));
+        assertEquals(6, store.rows.size());
+    }
+
+    @Test
+    public void blocksSpanSegmentsAndTheWatermarkWaitsForThem() throws Exception {
+        SampleLog log = new SampleLog(folder.newFolder(), threeRecordSegments());
+        append(log, 0, 250); // 84 segments
+        log.seal();
+        FakeTarget target = new FakeTarget();
+        BlockSegmentStore store = blockStore(target);
+
+        assertEquals(84, log.compactInto(store));
+        // Windows 0 and 1 of each sensor span 33 segments each and are stored; window 2 starts in
+        // segment 67 and is still open, so that segment and the later ones stay in the log.
+        assertEquals(6, target.blocks.size());
+        int blocked = 0;
+        for (SensorBlock block : target.blocks) blocked += block.count;
+        assertEquals(200, blocked); // up to 1999 ms, two samples of segment 67 included
+        assertEquals(66, target.watermark);
+        assertEquals(250 - 198, log.getPendingCount());
+        assertEquals(198, target.rolledUp[0] + target.rolledUp[1] + target.rolledUp[2]);
+
+        assertTrue(store.storeAll());
+        log.markCompactedThrough(store.storedThrough());
+        assertEquals(84, target.watermark);
+        assertEquals(0, log.getPendingCount());
+        assertEquals(250, target.rolledUp[0] + target.rolledUp[1] + target.rolledUp[2]);
+    }
+
+    @Test
+    public void openBlocksLostInACrashAreReplayedWithoutDuplicates() throws Exception {
+        File dir = folder.newFolder();
+        SampleLog first = new SampleLog(dir, threeRecordSegments());
+        append(first, 0, 250);
+        first.seal();
+        FakeTarget target = new FakeTarget();
+        first.compactInto(blockStore(target));
+        first.close();
+
+        // Killed with window 2 open. Samples 198 and 199 of segment 67 are in stored blocks
+        // already,
+        // the segment itself is not.
+        SampleLog second = new SampleLog(dir, threeRecordSegments());
+        BlockSegmentStore store = blockStore(target);
+        assertEquals(18, second.compactInto(store)); // segments 67 to 84
+        target.failNext = true;
+        assertFalse(store.storeAll());
+        assertEquals(18, second.compactInto(store)); // handed over again
+        assertTrue(store.storeAll());
+        second.markCompactedThrough(store.storedThrough());
+
+        assertEquals(0, second.getPendingCount());
+        for (int sensor = 0; sensor < 3; sensor++) {
+            List<Long> expected = new ArrayList<>();
+            for (int i = sensor; i < 250; i += 3) expected.add(i * 10L);
+            assertEquals(expected, target.stored(sensor));
+            assertEquals(expected.size(), target.rolledUp[sensor]);
+        }
+    }
+
+    @Test
+    public void preparedSegmentTakesOverSoAppendCreatesNoFile() throws Exception {
+        File dir = folder.newFolder();
+        SampleLog first = new SampleLog(dir, smallSegments());
+        append(first, 0, 4); // head full
+        first.prepareNextSegment();
+        first.prepareNextSegment(); // one is enough
+        assertEquals(2, dir.list().length);
+
+        append(first, 4, 5);
+        assertEquals(2, dir.list().length); // rolled into the prepared file
+        assertEquals(2, first.getSegmentCount());
+        assertEquals(1, first.nextToCompact().getSequence());
+        assertEquals(List.of("40=4.0"), read(first.snapshot(), 1, 40, 40));
+
+        first.prepareNextSegment(); // never used: recovered as an empty segment
+        first.close();
+
+        SampleLog second = new SampleLog(dir, smallSegments());
+        append(second, 5, 6);
+        second.seal();
+        FakeStore store = new FakeStore();
+        assertEquals(4, second.compactInto(store));
+        assertEquals(6, store.rows.size());
+        assertEquals(4, store.watermark); // the new head comes after the unused file
+        assertEquals(0, second.getPendingCount());
+    }
+}
@@ -0,0 +1,134 @@
+package com.fhdw.biot.speech.iot;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+import com.fhdw.biot.speech.iot.events.ThresholdRuleEngine;
+import com.fhdw.biot.speech.iot.ingest.SampleReceiver;
+import com.fhdw.biot.speech.iot.mqtt.SensorFrameEncoder;
+import com.fhdw.biot.speech.iot.mqtt.SensorFrameFormat;
+import com.fhdw.biot.speech.iot.sensor.LatestSampleMailbox;
+import com.fhdw.biot.speech.iot.sensor.SampleRingBuffer;
+import database.SampleLog;
+import database.entities.EreignisType;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Decoding and timestamping of the MQTT receive path, and that payload bytes → sample log allocates
+ * nothing per sample.
+ */
+public class SampleReceiverTest {
+
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+    private static final long MS = 1_000_000L;
+
+    private final List<String> samples = new ArrayList<>();
+
+    private final SampleReceiver receiver =
+            new SampleReceiver(
+                    (sensor, nanos, x, y, z) -> samples.add(sensor + "@" + nanos / MS + "=" + x));
+
+    private static byte[] frame(int sensor, long base, int count) {
+        SensorFrameEncoder encoder =
+                new SensorFrameEncoder(sensor, SensorFrameFormat.ENCODING_FLOAT32, count);
+        for (int i = 0; i < count; i++) assertTrue(encoder.add(base + i * 10, i, 0f, 0f));
+        return encoder.finish();
+    }
+
+    @Test
+    public void csvSamplesAreStampedOnTheReceiveClock() {
+        assertEquals(1, receiver.receive("Sensor/Gyro", "1.5,0,0".getBytes(), 1_000 * MS));
+        // Publisher timestamps keep their spacing once the clock offset is known.
+        assertEquals(1, receiver.receive("Sensor/Magnet", "2,0,0,500".getBytes(), 2_000 * MS));
+        assertEquals(1, receiver.receive("Sensor/Magnet", "3,0,0,510".getBytes(), 2_030 * MS));
+
+        assertEquals(Arrays.asList("1@1000=1.5", "2@2000=2.0", "2@2010=3.0"), samples);
+    }
+
+    @Test
+    public void framesDeliverEverySampleOfTheirSensor() {
+        // The newest sample of the frame is mapped onto the receive time.
+        assertEquals(3, receiver.receive("anything", frame(0, 100, 3), 5_000 * MS));
+        assertEquals(Arrays.asList("0@4980=0.0", "0@4990=1.0", "0@5000=2.0"), samples);
+    }
+
+    @Test
+    public void rejectsUnknownTopicsAndMalformedPayloads() {
+        assertEquals(
+                SampleReceiver.UNKNOWN_TOPIC, receiver.receive("Other", "1,2,3".getBytes(), 0));
+        assertEquals(
+                SampleReceiver.MALFORMED, receiver.receive("Sensor/Gyro", "1,x".getBytes(), 0));
+        byte[] truncated = Arrays.copyOf(frame(1, 0, 2), 20);
+        assertEquals(SampleReceiver.MALFORMED, receiver.receive("Sensor/Gyro", truncated, 0));
+        assertTrue(samples.isEmpty());
+    }
+
+    @Test
+    public void payloadToSampleLogAllocatesNothingPerSample() throws Exception {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        assumeTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        // What IngestionService.handleSample does per sample, with the log as storage.
+        SampleLog log =
+                new SampleLog(
+                        folder.newFolder(),
+                        new SampleLog.Config()
+                                .setSegmentRecords(1 << 19)
+                                .setMaxSegmentSpanMs(24 * 3_600_000L));
+        SampleRingBuffer history = new SampleRingBuffer(1 << 12);
+        LatestSampleMailbox mailbox = new LatestSampleMailbox();
+        ThresholdRuleEngine rules = new ThresholdRuleEngine((rule, t, value) -> fail());
+        EreignisType rule = new EreignisType();
+        rule.sensorType = "ACCEL";
+        rule.axis = 'X';
+        rule.comparison = EreignisType.ABOVE;
+        rule.ereignisThreshold = 1e9f;
+        rules.setRules(Arrays.asList(rule));
+        SampleReceiver hotPath =
+                new SampleReceiver(
+                        (sensor, nanos, x, y, z) -> {
+                            long t = Math.floorDiv(nanos, MS);
+                            rules.evaluate(sensor, t, x, y, z);
+                            assertTrue(log.append(sensor, nanos, x, y, z));
+                            mailbox.publish(t, x, y, z);
+                            history.appendNanos(nanos, x, y, z);
+                        });
+
+        // The arrays Paho hands over; not part of the path.
+        byte[][] payloads = {
+            "0.125,-9.81,3.5".getBytes(),
+            "1.5,2.25,-0.001,1700000000123.456".getBytes(),
+            frame(SensorFrameFormat.SENSOR_GYRO, 1_700_000_000_000L, 20)
+        };
+        String[] topics = {
+            "Sensor/Bewegung", "Sensor/Magnet", SensorFrameFormat.TOPIC_PREFIX + "1"
+        };
+
+        long received = 1_700_000_000_000L * MS;
+        for (int i = 0; i < 30_000; i++) { // warm-up (class loading, JIT)
+            hotPath.receive(topics[i % 3], payloads[i % 3], received += 10 * MS);
+        }
+
+        long thread = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(thread);
+        int delivered = 0;
+        for (int i = 0; i < 30_000; i++) {
+            delivered += hotPath.receive(topics[i % 3], payloads[i % 3], received += 10 * MS);
+        }
+        long allocated = threads.getThreadAllocatedBytes(thread) - before;
+
+        assertEquals(10_000 * 22, delivered);
+        assertTrue(allocated + " bytes allocated for " + delivered + " samples", allocated < 1024);
+        log.close();
+    }
+}
@@ -0,0 +1,192 @@
+package com.fhdw.biot.speech.iot;
+
+import static org.junit.Assert.*;
+
+import com.fhdw.biot.speech.iot.sensor.SampleRingBuffer;
+import com.fhdw.biot.speech.iot.sensor.SensorPoint;
+import com.fhdw.biot.speech.iot.sensor.SensorSample;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.Test;
+
+/**
+ * Wrap-around, range reads, the Room fallback and concurrent reads of the in-memory sample history.
+ */
+public class SampleRingBufferTest {
+
+    private static long[] timestamps(List<? extends SensorPoint> points) {
+        long[] result = new long[points.size()];
+        for (int i = 0; i < result.length; i++) result[i] = points.get(i).getTimestamp();
+        return result;
+    }
+
+    private static SensorSample sample(long ts) {
+        SensorSample s = new SensorSample();
+        s.set(ts, ts, -ts, 0f);
+        return s;
+    }
+
+    @Test
+    public void capacityIsRoundedUpToPowerOfTwo() {
+        assertEquals(4, new SampleRingBuffer(4).capacity());
+        assertEquals(8, new SampleRingBuffer(5).capacity());
+    }
+
+    @Test
+    public void emptyBufferCoversNothing() {
+        SampleRingBuffer buffer = new SampleRingBuffer(4);
+        List<SensorSample> out = new ArrayList<>();
+
+        assertEquals(Long.MAX_VALUE, buffer.getCoverageStart());
+        assertEquals(Long.MAX_VALUE, buffer.read(0, 100, out));
+        assertTrue(out.isEmpty());
+    }
+
+    @Test
+    public void keepsTheNewestSamplesAfterWrapAround() {
+        SampleRingBuffer buffer = new SampleRingBuffer(4);
+        for (long ts = 10; ts <= 60; ts += 10) buffer.append(ts, ts, -ts, 0f);
+
+        List<SensorSample> out = new ArrayList<>();
+        assertEquals(30, buffer.read(0, 1000, out));
+        assertArrayEquals(new long[] {30, 40, 50, 60}, timestamps(out));
+        assertEquals(50f, out.get(2).getX(), 0f);
+        assertEquals(-50f, out.get(2).getY(), 0f);
+        assertEquals(30, buffer.getCoverageStart());
+    }
+
+    @Test
+    public void readReturnsInclusiveSubRange() {
+        SampleRingBuffer buffer = new SampleRingBuffer(8);
+        for (long ts = 10; ts <= 60; ts += 10) buffer.append(ts, 0f, 0f, 0f);
+
+        List<SensorSample> out = new ArrayList<>();
+        buffer.read(20, 40, out);
+        assertArrayEquals(new long[] {20, 30, 40}, timestamps(out));
+
+        out.clear();
+        buffer.read(41, 49, out);
+        assertTrue(out.isEmpty());
+    }
+
+    @Test
+    public void outOfOrderTimestampIsClamped() {
+        SampleRingBuffer buffer = new SampleRingBuffer(4);
+        buffer.append(20, 0f, 0f, 0f);
+        buffer.append(10, 0f, 0f, 0f);
+
+        List<SensorSample> out = new ArrayList<>();
+        buffer.read(0, 100, out);
+        assertArrayEquals(new long[] {20, 20}, timestamps(out));
+    }
+
+    @Test
+    public void readRangeAsksRoomOnlyForTheUncoveredPart() {
+        SampleRingBuffer buffer = new SampleRingBuffer(4);
+        for (long ts = 10; ts <= 60; ts += 10) buffer.append(ts, 0f, 0f, 0f);
+
+        List<long[]> queries = new ArrayList<>();
+        SampleRingBuffer.RangeQuery room =
+                (from, to) -> {
+                    queries.add(new long[] {from, to});
+                    List<SensorSample> rows = new ArrayList<>();
+                    for (long ts = 0; ts <= 60; ts += 10) {
+                        if (ts >= from && ts <= to) rows.add(sample(ts));
+                    }
+                    return rows;
+                };
+
+        assertArrayEquals(
+                new long[] {0, 10, 20, 30, 40, 50, 60}, timestamps(buffer.readRange(0, 100, room)));
+        assertEquals(1, queries.size());
+        assertArrayEquals(new long[] {0, 29}, queries.get(0));
+
+        // Fully covered by the buffer → no query at all.
+        queries.clear();
+        assertArrayEquals(new long[] {40, 50}, timestamps(buffer.readRange(40, 55, room)));
+        assertTrue(queries.isEmpty());
+    }
+
+    @Test
+    public void readersNeverSeeASampleTheWriterIsOverwriting() throws Exception {
+        // Small and permanently full, so the writer laps the readers all the time.
+        SampleRingBuffer buffer = new SampleRingBuffer(8);
+        for (long ts = 1; ts <= 8; ts++) buffer.append(ts, ts, -ts, ts);
+
+        AtomicBoolean stop = new AtomicBoolean();
+        Thread writer =
+                new Thread(
+                        () -> {
+                            // Every field of sample ts is derived from ts (exact as float).
+                            for (long ts = 9; !stop.get(); ts++) {
+                                float v = ts % 1_000_000;
+                                buffer.append(ts, v, -v, v);
+                            }
+                        });
+        writer.start();
+        try {
+            List<SensorSample> out = new ArrayList<>();
+            long deadline = System.nanoTime() + 300_000_000L;
+            int reads = 0;
+            while (System.nanoTime() < deadline) {
+                out.clear();
+                long coverage = buffer.read(0, Long.MAX_VALUE / 2_000_000L, out);
+                long coverageStart = buffer.getCoverageStart();
+                if (coverage == Long.MAX_VALUE) continue; // lapped on every attempt
+                reads++;
+                assertFalse(out.isEmpty());
+                assertEquals(coverage, out.get(0).getTimestamp());
+                assertTrue(coverageStart >= coverage);
+                for (int i = 0; i < out.size(); i++) {
+                    SensorSample s = out.get(i);
+                    float v = s.getTimestamp() % 1_000_000;
+                    assertEquals("x of " + s.getTimestamp(), v, s.getX(), 0f);
+                    assertEquals("y of " + s.getTimestamp(), -v, s.getY(), 0f);
+                    assertEquals("z of " + s.getTimestamp(), v, s.getZ(), 0f);
+                    if (i > 0) assertEquals(out.get(i - 1).getTimestamp() + 1, s.getTimestamp());
+                }
+            }
+            assertTrue(reads > 0);
+        } finally {
+            stop.set(true);
+            writer.join();
+        }
+    }
+
+    @Test
+    public void fullBufferStaysReadableAtSteadyIngest() throws Exception {
+        SampleRingBuffer buffer = new SampleRingBuffer(1024);
+        for (long ts = 1; ts <= 1024; ts++) buffer.append(ts, ts, -ts, ts);
+
+        AtomicBoolean stop = new AtomicBoolean();
+        Thread writer =
+                new Thread(
+                        () -> {
+                            // Steady ingest, one sample every 20 µs: appends land in the middle of
+                            // reads of the whole buffer, but far fewer than a lap.
+                            for (long ts = 1025; !stop.get(); ts++) {
+                                buffer.append(ts, ts, -ts, ts);
+                                long next = System.nanoTime() + 20_000;
+                                while (System.nanoTime() < next) Thread.onSpinWait();
+                            }
+                        });
+        writer.start();
+        try {
+            List<SensorSample> out = new ArrayList<>();
+            for (int read = 0; read < 2_000; read++) {
+                out.clear();
+                long coverage = buffer.read(0, Long.MAX_VALUE / 2_000_000L, out);
+                assertNotEquals("read " + read, Long.MAX_VALUE, coverage);
+                assertEquals(coverage, out.get(0).getTimestamp());
+                assertTrue(out.size() >= 1024 - 1024 / 16);
+                for (int i = 1; i < out.size(); i++) {
+                    assertEquals(out.get(i - 1).getTimestamp() + 1, out.get(i).getTimestamp());
+                }
+            }
+        } finally {
+            stop.set(true);
+            writer.join();
+        }
+    }
+}
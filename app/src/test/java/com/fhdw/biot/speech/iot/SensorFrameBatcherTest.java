@@ -0,0 +1,92 @@
+package com.fhdw.biot.speech.iot;
+
+import static org.junit.Assert.*;
+
+import com.fhdw.biot.speech.iot.mqtt.SensorFrameBatcher;
+import com.fhdw.biot.speech.iot.mqtt.SensorFrameDecoder;
+import com.fhdw.biot.speech.iot.mqtt.SensorFrameFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+/** Size and latency triggers of the publisher-side frame batching. */
+public class SensorFrameBatcherTest {
+
+    private final List<String> topics = Collections.synchronizedList(new ArrayList<>());
+    private final List<byte[]> frames = Collections.synchronizedList(new ArrayList<>());
+
+    private void record(String topic, byte[] frame) {
+        topics.add(topic);
+        frames.add(frame);
+    }
+
+    private static int sampleCount(byte[] frame) {
+        return SensorFrameDecoder.decode(frame, (sensor, ts, x, y, z) -> {});
+    }
+
+    @Test
+    public void fullFrameIsPublishedImmediately() {
+        SensorFrameBatcher batcher =
+                new SensorFrameBatcher(
+                        this::record,
+                        new SensorFrameBatcher.Config().setFrameSize(4).setMaxLatencyMs(60_000));
+
+        for (int i = 0; i < 10; i++) {
+            batcher.add(SensorFrameFormat.SENSOR_GYRO, 1000 + i, i, i, i);
+        }
+
+        assertEquals(2, frames.size());
+        assertEquals("SensorBin/Gyro", topics.get(0));
+        assertEquals(4, sampleCount(frames.get(0)));
+        assertEquals(4, sampleCount(frames.get(1)));
+
+        batcher.shutdown(); // publishes the remaining 2
+        assertEquals(3, frames.size());
+        assertEquals(2, sampleCount(frames.get(2)));
+        assertEquals(3, batcher.getFrameCount());
+        assertEquals(10, batcher.getSampleCount());
+    }
+
+    @Test
+    public void partialFrameIsPublishedAfterLatencyCap() throws InterruptedException {
+        CountDownLatch published = new CountDownLatch(1);
+        SensorFrameBatcher batcher =
+                new SensorFrameBatcher(
+                        (topic, frame) -> {
+                            record(topic, frame);
+                            published.countDown();
+                        },
+                        new SensorFrameBatcher.Config().setFrameSize(100).setMaxLatencyMs(20));
+
+        batcher.add(SensorFrameFormat.SENSOR_ACCEL, 1, 1f, 2f, 3f);
+        batcher.add(SensorFrameFormat.SENSOR_ACCEL, 2, 1f, 2f, 3f);
+
+        assertTrue(published.await(2, TimeUnit.SECONDS));
+        assertEquals("SensorBin/Bewegung", topics.get(0));
+        assertEquals(2, sampleCount(frames.get(0)));
+        batcher.shutdown();
+    }
+
+    @Test
+    public void sensorsGetSeparateFramesAndTimeGapsSplitFrames() {
+        SensorFrameBatcher batcher =
+                new SensorFrameBatcher(
+                        this::record,
+                        new SensorFrameBatcher.Config().setFrameSize(10).setMaxLatencyMs(60_000));
+
+        batcher.add(SensorFrameFormat.SENSOR_MAGNET, 0, 0f, 0f, 0f);
+        batcher.add(SensorFrameFormat.SENSOR_ACCEL, 0, 0f, 0f, 0f);
+        // Further than a uint16 offset from the open magnet frame → that frame is closed first.
+        batcher.add(SensorFrameFormat.SENSOR_MAGNET, SensorFrameFormat.MAX_OFFSET_MS + 1, 0, 0, 0);
+
+        assertEquals(1, frames.size());
+        assertEquals("SensorBin/Magnet", topics.get(0));
+        assertEquals(0L, SensorFrameDecoder.lastTimestamp(frames.get(0)));
+
+        batcher.shutdown();
+        assertEquals(3, frames.size());
+    }
+}
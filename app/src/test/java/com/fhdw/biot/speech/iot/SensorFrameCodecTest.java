@@ -0,0 +1,98 @@
+package com.fhdw.biot.speech.iot;
+
+import static org.junit.Assert.*;
+
+import com.fhdw.biot.speech.iot.mqtt.SensorFrameDecoder;
+import com.fhdw.biot.speech.iot.mqtt.SensorFrameEncoder;
+import com.fhdw.biot.speech.iot.mqtt.SensorFrameFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+
+/** Round trips, size limits and validation of the binary sensor frame format. */
+public class SensorFrameCodecTest {
+
+    private final List<float[]> decoded = new ArrayList<>();
+    private final List<Long> timestamps = new ArrayList<>();
+
+    private final SensorFrameDecoder.SampleHandler collect =
+            (sensor, ts, x, y, z) -> {
+                timestamps.add(ts);
+                decoded.add(new float[] {sensor, x, y, z});
+            };
+
+    @Test
+    public void float32RoundTripIsExact() {
+        SensorFrameEncoder encoder =
+                new SensorFrameEncoder(
+                        SensorFrameFormat.SENSOR_GYRO, SensorFrameFormat.ENCODING_FLOAT32, 10);
+        long base = 1_700_000_000_123L;
+        assertTrue(encoder.add(base, 1.5f, -2.25f, 3.125f));
+        assertTrue(encoder.add(base + 10, -0.001f, 42f, Float.MIN_VALUE));
+
+        byte[] frame = encoder.finish();
+        assertEquals(12 + 2 * 14, frame.length);
+        assertTrue(encoder.isEmpty());
+
+        assertTrue(SensorFrameDecoder.isFrame(frame));
+        assertEquals(2, SensorFrameDecoder.decode(frame, collect));
+        assertEquals(List.of(base, base + 10), timestamps);
+        assertArrayEquals(new float[] {1, 1.5f, -2.25f, 3.125f}, decoded.get(0), 0f);
+        assertArrayEquals(new float[] {1, -0.001f, 42f, Float.MIN_VALUE}, decoded.get(1), 0f);
+    }
+
+    @Test
+    public void int16ErrorStaysWithinHalfAStep() {
+        SensorFrameEncoder encoder =
+                new SensorFrameEncoder(
+                        SensorFrameFormat.SENSOR_MAGNET, SensorFrameFormat.ENCODING_INT16, 3);
+        float[][] values = {{-50f, 12.345f, 0f}, {49.99f, -0.002f, 7f}, {1f, 2f, 3f}};
+        for (int i = 0; i < values.length; i++) {
+            assertTrue(encoder.add(1000 + i, values[i][0], values[i][1], values[i][2]));
+        }
+        assertFalse(encoder.add(1003, 0f, 0f, 0f)); // full
+
+        byte[] frame = encoder.finish();
+        assertEquals(16 + 3 * 8, frame.length);
+        assertEquals(3, SensorFrameDecoder.decode(frame, collect));
+
+        float halfStep = 50f / Short.MAX_VALUE / 2 + 1e-6f;
+        for (int i = 0; i < values.length; i++) {
+            assertEquals(SensorFrameFormat.SENSOR_MAGNET, decoded.get(i)[0], 0f);
+            for (int axis = 0; axis < 3; axis++) {
+                assertEquals(values[i][axis], decoded.get(i)[axis + 1], halfStep);
+            }
+        }
+    }
+
+    @Test
+    public void refusesSampleTooFarFromTheBase() {
+        SensorFrameEncoder encoder =
+                new SensorFrameEncoder(
+                        SensorFrameFormat.SENSOR_ACCEL, SensorFrameFormat.ENCODING_FLOAT32, 10);
+        assertTrue(encoder.add(0, 0f, 0f, 0f));
+        assertTrue(encoder.add(SensorFrameFormat.MAX_OFFSET_MS, 0f, 0f, 0f));
+        assertFalse(encoder.add(SensorFrameFormat.MAX_OFFSET_MS + 1, 0f, 0f, 0f));
+        assertNull(new SensorFrameEncoder(0, 0, 1).finish());
+    }
+
+    @Test
+    public void csvAndBrokenFramesAreRejected() {
+        assertFalse(SensorFrameDecoder.isFrame("1.000,2.000,3.000".getBytes()));
+        assertEquals(-1, SensorFrameDecoder.decode("1.000,2.000,3.000".getBytes(), collect));
+
+        SensorFrameEncoder encoder =
+                new SensorFrameEncoder(
+                        SensorFrameFormat.SENSOR_ACCEL, SensorFrameFormat.ENCODING_FLOAT32, 2);
+        encoder.add(0, 1f, 2f, 3f);
+        byte[] frame = encoder.finish();
+
+        byte[] truncated = Arrays.copyOf(frame, frame.length - 1);
+        assertEquals(-1, SensorFrameDecoder.decode(truncated, collect));
+
+        frame[2] = 7; // unknown sensor
+        assertEquals(-1, SensorFrameDecoder.decode(frame, collect));
+        assertTrue(decoded.isEmpty());
+    }
+}
@@ -0,0 +1,93 @@
+package com.fhdw.biot.speech.iot;
+
+import com.fhdw.biot.speech.iot.mqtt.SensorPayloadParser;
+import com.fhdw.biot.speech.iot.sensor.SensorSample;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * JMH comparison: old payload path (new String → split → trim → Float.parseFloat) vs. {@link
+ * SensorPayloadParser} on the raw bytes.
+ *
+ * <p>Not a unit test – run it from the IDE via {@link #main(String[])} (add "-prof gc" to the JMH
+ * options to also see bytes allocated per operation).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SensorPayloadParserBenchmark {
+
+    private static final int PAYLOAD_COUNT = 1024;
+
+    private byte[][] payloads;
+    private int next;
+
+    private final SensorPayloadParser parser = new SensorPayloadParser();
+    private final SensorSample sample = new SensorSample();
+
+    @Setup
+    public void setUp() {
+        // Same format as SensorDataSimulator.
+        Random random = new Random(1);
+        payloads = new byte[PAYLOAD_COUNT][];
+        for (int i = 0; i < PAYLOAD_COUNT; i++) {
+            String csv =
+                    String.format(
+                            Locale.US,
+                            "%.3f,%.3f,%.3f",
+                            random.nextFloat() * 100 - 50,
+                            random.nextFloat() * 100 - 50,
+                            random.nextFloat() * 100 - 50);
+            payloads[i] = csv.getBytes(StandardCharsets.US_ASCII);
+        }
+    }
+
+    private byte[] nextPayload() {
+        next = (next + 1) & (PAYLOAD_COUNT - 1);
+        return payloads[next];
+    }
+
+    @Benchmark
+    public void splitAndParseFloat(Blackhole bh) {
+        String message = new String(nextPayload());
+        String[] p = message.split(",");
+        bh.consume(Float.parseFloat(p[0].trim()));
+        bh.consume(Float.parseFloat(p[1].trim()));
+        bh.consume(Float.parseFloat(p[2].trim()));
+    }
+
+    @Benchmark
+    public void byteParser(Blackhole bh) {
+        parser.parse(nextPayload(), sample);
+        bh.consume(sample.x);
+        bh.consume(sample.y);
+        bh.consume(sample.z);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(
+                        new OptionsBuilder()
+                                .include(SensorPayloadParserBenchmark.class.getSimpleName())
+                                .build())
+                .run();
+    }
+}
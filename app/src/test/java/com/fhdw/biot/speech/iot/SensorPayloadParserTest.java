@@ -0,0 +1,117 @@
+package com.fhdw.biot.speech.iot;
+
+import static org.junit.Assert.*;
+
+import com.fhdw.biot.speech.iot.mqtt.SensorPayloadParser;
+import com.fhdw.biot.speech.iot.sensor.SensorSample;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Random;
+import org.junit.Test;
+
+/** Checks that the byte[] parser yields exactly what the old split/parseFloat path produced. */
+public class SensorPayloadParserTest {
+
+    private final SensorPayloadParser parser = new SensorPayloadParser();
+    private final SensorSample sample = new SensorSample();
+
+    @Test
+    public void parsesSimulatorFormat() {
+        assertTrue(parse("1.250,-0.500,9.810"));
+        assertEquals(1.25f, sample.x, 0f);
+        assertEquals(-0.5f, sample.y, 0f);
+        assertEquals(9.81f, sample.z, 0f);
+    }
+
+    @Test
+    public void matchesFloatParseFloatForAllThreeDecimalValues() {
+        // Every value the simulator can produce (%.3f in [-50, 50]) and then some.
+        for (int i = -100_000; i <= 100_000; i++) {
+            String v = String.format(Locale.US, "%.3f", i / 1000.0);
+            assertTrue(v, parse(v + "," + v + "," + v));
+            assertSameFloat(v, Float.parseFloat(v), sample.x);
+        }
+    }
+
+    @Test
+    public void matchesFloatParseFloatForRandomValues() {
+        Random random = new Random(42);
+        for (int i = 0; i < 100_000; i++) {
+            float f = (random.nextFloat() - 0.5f) * 200f;
+            String[] variants = {
+                Float.toString(f),
+                String.format(Locale.US, "%.5f", f),
+                String.format(Locale.US, "%.2e", f)
+            };
+            for (String v : variants) {
+                assertTrue(v, parse(v + ",0,0"));
+                assertSameFloat(v, Float.parseFloat(v), sample.x);
+            }
+        }
+    }
+
+    @Test
+    public void acceptsWhitespaceSignsAndExtraColumns() {
+        assertTrue(parse(" +1 , -2.5 ,\t3e2 "));
+        assertEquals(1f, sample.x, 0f);
+        assertEquals(-2.5f, sample.y, 0f);
+        assertEquals(300f, sample.z, 0f);
+
+        assertTrue(parse("1,2,3,1700000000000"));
+        assertEquals(3f, sample.z, 0f);
+
+        assertTrue(parse(".5,5.,-0"));
+        assertEquals(0.5f, sample.x, 0f);
+        assertEquals(5f, sample.y, 0f);
+        assertEquals(Float.floatToIntBits(-0f), Float.floatToIntBits(sample.z));
+    }
+
+    @Test
+    public void rejectsMalformedPayloadsWithoutTouchingTheSample() {
+        sample.set(7L, 1f, 2f, 3f);
+        String[] bad = {
+            "", "1,2", "1,,3", "a,b,c", "1,2,3x", "1;2;3", "1e,2,3", "-,2,3", "NaN,1,1"
+        };
+        for (String payload : bad) {
+            assertFalse(payload, parse(payload));
+        }
+        assertEquals(7L, sample.timestamp);
+        assertEquals(1f, sample.x, 0f);
+        assertEquals(2f, sample.y, 0f);
+        assertEquals(3f, sample.z, 0f);
+    }
+
+    @Test
+    public void readsOptionalTimestampColumn() {
+        assertTrue(parse("1,2,3"));
+        assertEquals(SensorPayloadParser.NO_TIMESTAMP, parser.getTimestampNanos());
+
+        assertTrue(parse("1,2,3,1700000000123"));
+        assertEquals(1_700_000_000_123_000_000L, parser.getTimestampNanos());
+
+        assertTrue(parse("1,2,3, 1700000000123.4567891 ,extra"));
+        assertEquals(1_700_000_000_123_456_789L, parser.getTimestampNanos());
+
+        // Not a timestamp → ignored like any other extra column.
+        assertTrue(parse("1,2,3,abc"));
+        assertEquals(SensorPayloadParser.NO_TIMESTAMP, parser.getTimestampNanos());
+        assertTrue(parse("1,2,3,-5"));
+        assertEquals(SensorPayloadParser.NO_TIMESTAMP, parser.getTimestampNanos());
+        assertEquals(3f, sample.z, 0f);
+    }
+
+    @Test
+    public void parsesASliceOfALargerBuffer() {
+        byte[] buf = "xx1,2,3yy".getBytes(StandardCharsets.US_ASCII);
+        assertTrue(parser.parse(buf, 2, 5, sample));
+        assertEquals(2f, sample.y, 0f);
+    }
+
+    private boolean parse(String payload) {
+        return parser.parse(payload.getBytes(StandardCharsets.US_ASCII), sample);
+    }
+
+    private static void assertSameFloat(String input, float expected, float actual) {
+        assertEquals(input, Float.floatToIntBits(expected), Float.floatToIntBits(actual));
+    }
+}
@@ -0,0 +1,65 @@
+package com.fhdw.biot.speech.iot;
+
+import static org.junit.Assert.*;
+
+import com.fhdw.biot.speech.iot.graph.StreamingMinMaxDownsampler;
+import com.fhdw.biot.speech.iot.sensor.SampleChunk;
+import com.fhdw.biot.speech.iot.sensor.SensorSample;
+import java.util.List;
+import org.junit.Test;
+
+/** Chunked min/max reduction: bounded output, spikes and end points kept, chunking irrelevant. */
+public class StreamingMinMaxDownsamplerTest {
+
+    private static final int N = 10_000;
+    private static final int SPIKE = 4_321;
+
+    /** N samples 1 ms apart starting at t=0, flat except one spike. */
+    private static List<SensorSample> run(int chunkSize, int targetPoints) {
+        StreamingMinMaxDownsampler reducer = new StreamingMinMaxDownsampler(0, N - 1, targetPoints);
+        SampleChunk chunk = new SampleChunk(chunkSize);
+        for (int i = 0; i < N; i++) {
+            float x = i == SPIKE ? 100f : (float) Math.sin(i / 50.0);
+            chunk.add(i * 1_000_000L, x, 0f, 0f);
+            if (chunk.isFull()) {
+                reducer.accept(chunk);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) reducer.accept(chunk);
+        assertEquals(N, reducer.getCount());
+        return reducer.finish();
+    }
+
+    @Test
+    public void outputIsBoundedAndKeepsSpikeAndEndPoints() {
+        List<SensorSample> out = run(256, 100);
+
+        assertTrue(out.size() <= 100);
+        assertEquals(0L, out.get(0).timestamp);
+        assertEquals(N - 1, out.get(out.size() - 1).timestamp);
+        boolean spike = false;
+        for (int i = 0; i < out.size(); i++) {
+            if (out.get(i).x == 100f) spike = true;
+            if (i > 0) assertTrue(out.get(i).timestampNanos > out.get(i - 1).timestampNanos);
+        }
+        assertTrue(spike);
+    }
+
+    @Test
+    public void chunkSizeDoesNotChangeTheResult() {
+        List<SensorSample> a = run(1, 64);
+        List<SensorSample> b = run(4096, 64);
+
+        assertEquals(a.size(), b.size());
+        for (int i = 0; i < a.size(); i++) {
+            assertEquals(a.get(i).timestampNanos, b.get(i).timestampNanos);
+            assertEquals(a.get(i).x, b.get(i).x, 0f);
+        }
+    }
+
+    @Test
+    public void emptyStreamGivesEmptyResult() {
+        assertTrue(new StreamingMinMaxDownsampler(0, 1000, 10).finish().isEmpty());
+    }
+}
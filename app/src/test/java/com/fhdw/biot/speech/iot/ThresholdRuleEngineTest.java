@@ -0,0 +1,122 @@
+package com.fhdw.biot.speech.iot;
+
+import static org.junit.Assert.*;
+
+import com.fhdw.biot.speech.iot.events.ThresholdRuleEngine;
+import database.entities.EreignisType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+
+/** Edge-triggered matching, re-arming and lane separation of the threshold rule engine. */
+public class ThresholdRuleEngineTest {
+
+    private final List<String> fired = new ArrayList<>();
+    private final ThresholdRuleEngine engine =
+            new ThresholdRuleEngine((rule, ts, value) -> fired.add(rule.ereignisName + "@" + ts));
+
+    private static EreignisType rule(
+            String name, String sensor, char axis, String comparison, float threshold) {
+        EreignisType t = new EreignisType();
+        t.ereignisName = name;
+        t.sensorType = sensor;
+        t.axis = axis;
+        t.comparison = comparison;
+        t.ereignisThreshold = threshold;
+        return t;
+    }
+
+    @Test
+    public void firesOnceWhenEnteringRangeAndAgainAfterReArm() {
+        engine.setRules(Arrays.asList(rule("hoch", "ACCEL", 'X', EreignisType.ABOVE, 5f)));
+
+        engine.evaluate(ThresholdRuleEngine.ACCEL, 1, 1f, 0f, 0f);
+        engine.evaluate(ThresholdRuleEngine.ACCEL, 2, 6f, 0f, 0f);
+        engine.evaluate(ThresholdRuleEngine.ACCEL, 3, 7f, 0f, 0f); // still inside → no new event
+        engine.evaluate(ThresholdRuleEngine.ACCEL, 4, 5f, 0f, 0f); // not strictly above → re-armed
+        engine.evaluate(ThresholdRuleEngine.ACCEL, 5, 9f, 0f, 0f);
+
+        assertEquals(Arrays.asList("hoch@2", "hoch@5"), fired);
+    }
+
+    @Test
+    public void jumpFiresEveryCrossedThresholdInOrder() {
+        engine.setRules(
+                Arrays.asList(
+                        rule("c", "GYRO", 'Y', EreignisType.ABOVE, 30f),
+                        rule("a", "GYRO", 'Y', EreignisType.ABOVE, 10f),
+                        rule("b", "GYRO", 'Y', EreignisType.ABOVE, 20f),
+                        rule("tief", "GYRO", 'Y', EreignisType.BELOW, -10f)));
+
+        engine.evaluate(ThresholdRuleEngine.GYRO, 1, 0f, 25f, 0f);
+        engine.evaluate(ThresholdRuleEngine.GYRO, 2, 0f, 35f, 0f);
+        engine.evaluate(ThresholdRuleEngine.GYRO, 3, 0f, -50f, 0f);
+        engine.evaluate(ThresholdRuleEngine.GYRO, 4, 0f, 15f, 0f);
+
+        assertEquals(Arrays.asList("a@1", "b@1", "c@2", "tief@3", "a@4"), fired);
+    }
+
+    @Test
+    public void lanesAreSeparatedBySensorAndAxis() {
+        engine.setRules(
+                Arrays.asList(
+                        rule("magZ", "MAGNET", 'Z', EreignisType.ABOVE, 1f),
+                        rule("accelSumme", "ACCEL", 'S', EreignisType.ABOVE, 10f)));
+
+        engine.evaluate(ThresholdRuleEngine.ACCEL, 1, 0f, 0f, 5f); // ACCEL Z: no rule
+        engine.evaluate(ThresholdRuleEngine.MAGNET, 2, 5f, 5f, 0f); // MAGNET X/Y: no rule
+        engine.evaluate(ThresholdRuleEngine.MAGNET, 3, 0f, 0f, 2f);
+        engine.evaluate(ThresholdRuleEngine.ACCEL, 4, 6f, 8f, 0f); // |(6,8,0)| = 10 → not above
+        engine.evaluate(ThresholdRuleEngine.ACCEL, 5, 6f, 8f, 1f);
+
+        assertEquals(Arrays.asList("magZ@3", "accelSumme@5"), fired);
+    }
+
+    @Test
+    public void hysteresisBandDelaysReArm() {
+        EreignisType hoch = rule("hoch", "ACCEL", 'X', EreignisType.ABOVE, 10f);
+        hoch.hysteresis = 2f;
+        EreignisType tief = rule("tief", "ACCEL", 'X', EreignisType.BELOW, -10f);
+        tief.hysteresis = 2f;
+        engine.setRules(Arrays.asList(hoch, tief));
+
+        float[] values = {11f, 9f, 11f, 8f, 11f, -11f, -9f, -11f, -7.5f, -11f};
+        for (int i = 0; i < values.length; i++) {
+            engine.evaluate(ThresholdRuleEngine.ACCEL, i, values[i], 0f, 0f);
+        }
+
+        // 9 is inside the band (no re-arm), 8 re-arms; same mirrored for BELOW.
+        assertEquals(Arrays.asList("hoch@0", "hoch@4", "tief@5", "tief@9"), fired);
+    }
+
+    @Test
+    public void eachRuleReArmsWithItsOwnBand() {
+        EreignisType a = rule("a", "ACCEL", 'X', EreignisType.ABOVE, 10f);
+        EreignisType b = rule("b", "ACCEL", 'X', EreignisType.ABOVE, 20f);
+        b.hysteresis = 15f;
+        engine.setRules(Arrays.asList(a, b));
+
+        float[] values = {25f, 11f, 9f, 11f, 9f, 11f, 21f, 4f, 21f};
+        for (int i = 0; i < values.length; i++) {
+            engine.evaluate(ThresholdRuleEngine.ACCEL, i, values[i], 0f, 0f);
+        }
+
+        // b's wide band neither delays a nor re-arms b before the value drops to 5.
+        assertEquals(Arrays.asList("a@0", "b@0", "a@3", "a@5", "a@8", "b@8"), fired);
+    }
+
+    @Test
+    public void ignoresInvalidRules() {
+        engine.setRules(
+                Arrays.asList(
+                        rule("sensor", "LIGHT", 'X', EreignisType.ABOVE, 0f),
+                        rule("achse", "ACCEL", 'W', EreignisType.ABOVE, 0f),
+                        rule("vergleich", "ACCEL", 'X', null, 0f),
+                        rule("ok", "accel", 'x', EreignisType.ABOVE, 0f)));
+
+        assertEquals(1, engine.getRuleCount());
+        engine.evaluate(ThresholdRuleEngine.ACCEL, 1, 1f, 1f, 1f);
+        assertEquals(Arrays.asList("ok@1"), fired);
+    }
+}